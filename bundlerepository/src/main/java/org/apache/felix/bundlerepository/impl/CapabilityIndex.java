@@ -0,0 +1,402 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.bundlerepository.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.felix.bundlerepository.Capability;
+import org.apache.felix.bundlerepository.Requirement;
+import org.apache.felix.bundlerepository.Resource;
+
+/**
+ * Index over the capabilities of a list of resources.
+ * <p>
+ * Capabilities are grouped by name and, when first needed, by the value
+ * of an attribute. A requirement with an equality condition in its filter,
+ * like <code>(&amp;(package=org.foo)(version&gt;=1.0.0))</code>, is then only
+ * checked against the capabilities having this value. The index only
+ * selects the candidates, each candidate is still checked with
+ * {@link Requirement#isSatisfied(Capability)}.
+ * <p>
+ * The resources and their capabilities are read when the index is created,
+ * the index has to be recreated if they change.
+ */
+public class CapabilityIndex
+{
+    private final Resource[] m_resources;
+    private final List<Entry> m_all = new ArrayList<Entry>();
+    private final Map<String, List<Entry>> m_byName = new HashMap<String, List<Entry>>();
+    private final Map<String, AttributeIndex> m_byAttribute = new HashMap<String, AttributeIndex>();
+
+    /**
+     * A capability together with its resource and its position in the index.
+     */
+    private static final class Entry
+    {
+        final int m_ordinal;
+        final Resource m_resource;
+        final Capability m_capability;
+
+        Entry(int ordinal, Resource resource, Capability capability)
+        {
+            m_ordinal = ordinal;
+            m_resource = resource;
+            m_capability = capability;
+        }
+    }
+
+    /**
+     * The capabilities of one name by the string value of one attribute. Capabilities
+     * with a value of another type might match as well and are kept separately.
+     */
+    private static final class AttributeIndex
+    {
+        final Map<String, List<Entry>> m_values = new HashMap<String, List<Entry>>();
+        final List<Entry> m_other = new ArrayList<Entry>();
+    }
+
+    public CapabilityIndex(Resource[] resources)
+    {
+        m_resources = (resources == null) ? new Resource[0] : resources;
+        int ordinal = 0;
+        for (Resource resource : m_resources)
+        {
+            Capability[] caps = (resource == null) ? null : resource.getCapabilities();
+            if (caps != null)
+            {
+                for (Capability cap : caps)
+                {
+                    Entry entry = new Entry(ordinal++, resource, cap);
+                    m_all.add(entry);
+                    List<Entry> entries = m_byName.get(cap.getName());
+                    if (entries == null)
+                    {
+                        entries = new ArrayList<Entry>();
+                        m_byName.put(cap.getName(), entries);
+                    }
+                    entries.add(entry);
+                }
+            }
+        }
+    }
+
+    /**
+     * Find all capabilities satisfying a requirement.
+     * @param req the requirement
+     * @return the matching capabilities in the order of the resources and their capabilities
+     */
+    public List<ResourceCapability> findCapabilities(Requirement req)
+    {
+        List<ResourceCapability> result = new ArrayList<ResourceCapability>();
+        for (Entry entry : getCandidates(req))
+        {
+            if (req.isSatisfied(entry.m_capability))
+            {
+                result.add(new ResourceCapabilityImpl(entry.m_resource, entry.m_capability));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Find all resources satisfying all requirements.
+     * @param reqs the requirements
+     * @return the matching resources in their original order
+     */
+    public List<Resource> findResources(Requirement[] reqs)
+    {
+        List<Resource> result = new ArrayList<Resource>();
+        if (reqs == null || reqs.length == 0)
+        {
+            for (Resource resource : m_resources)
+            {
+                if (resource != null)
+                {
+                    result.add(resource);
+                }
+            }
+            return result;
+        }
+        Map<Resource, Boolean> matching = null;
+        for (Requirement req : reqs)
+        {
+            Map<Resource, Boolean> satisfying = new IdentityHashMap<Resource, Boolean>();
+            for (Entry entry : getCandidates(req))
+            {
+                if ((matching == null || matching.containsKey(entry.m_resource))
+                    && !satisfying.containsKey(entry.m_resource)
+                    && req.isSatisfied(entry.m_capability))
+                {
+                    satisfying.put(entry.m_resource, Boolean.TRUE);
+                }
+            }
+            matching = satisfying;
+            if (matching.isEmpty())
+            {
+                return result;
+            }
+        }
+        for (Resource resource : m_resources)
+        {
+            if (resource != null && matching.containsKey(resource))
+            {
+                result.add(resource);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get the capabilities which might satisfy the requirement.
+     */
+    private List<Entry> getCandidates(Requirement req)
+    {
+        // Other requirement implementations might translate the name
+        if (!(req instanceof RequirementImpl))
+        {
+            return m_all;
+        }
+        List<Entry> entries = m_byName.get(req.getName());
+        if (entries == null)
+        {
+            return Collections.emptyList();
+        }
+        Map<String, String> conditions = getEqualityConditions(req.getFilter());
+        String attribute = selectAttribute(req.getName(), conditions);
+        if (attribute == null)
+        {
+            return entries;
+        }
+        AttributeIndex index = getAttributeIndex(req.getName(), attribute, entries);
+        List<Entry> values = index.m_values.get(conditions.get(attribute));
+        if (index.m_other.isEmpty())
+        {
+            return (values == null) ? Collections.<Entry>emptyList() : values;
+        }
+        if (values == null)
+        {
+            return index.m_other;
+        }
+        return merge(values, index.m_other);
+    }
+
+    private synchronized AttributeIndex getAttributeIndex(String name, String attribute, List<Entry> entries)
+    {
+        String key = name + '\0' + attribute;
+        AttributeIndex index = m_byAttribute.get(key);
+        if (index == null)
+        {
+            index = new AttributeIndex();
+            for (Entry entry : entries)
+            {
+                Object value = getAttribute(entry.m_capability.getPropertiesAsMap(), attribute);
+                if (value instanceof String)
+                {
+                    List<Entry> list = index.m_values.get(value);
+                    if (list == null)
+                    {
+                        list = new ArrayList<Entry>();
+                        index.m_values.put((String) value, list);
+                    }
+                    list.add(entry);
+                }
+                else if (value != null)
+                {
+                    index.m_other.add(entry);
+                }
+                // without the attribute the equality condition can't match
+            }
+            m_byAttribute.put(key, index);
+        }
+        return index;
+    }
+
+    /**
+     * Get an attribute, attribute names are not case sensitive in filters.
+     */
+    private static Object getAttribute(Map<String, Object> attributes, String name)
+    {
+        if (attributes == null)
+        {
+            return null;
+        }
+        Object value = attributes.get(name);
+        if (value == null)
+        {
+            for (Map.Entry<String, Object> entry : attributes.entrySet())
+            {
+                if (name.equalsIgnoreCase(entry.getKey()))
+                {
+                    return entry.getValue();
+                }
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Merge two lists sorted by ordinal.
+     */
+    private static List<Entry> merge(List<Entry> l1, List<Entry> l2)
+    {
+        List<Entry> result = new ArrayList<Entry>(l1.size() + l2.size());
+        int i1 = 0;
+        int i2 = 0;
+        while (i1 < l1.size() || i2 < l2.size())
+        {
+            if (i2 == l2.size() || (i1 < l1.size() && l1.get(i1).m_ordinal < l2.get(i2).m_ordinal))
+            {
+                result.add(l1.get(i1++));
+            }
+            else
+            {
+                result.add(l2.get(i2++));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Select the attribute to look up, preferring the attribute named like the capability.
+     */
+    private static String selectAttribute(String name, Map<String, String> conditions)
+    {
+        if (conditions.isEmpty())
+        {
+            return null;
+        }
+        if (conditions.containsKey(name))
+        {
+            return name;
+        }
+        if (conditions.containsKey(Resource.SYMBOLIC_NAME))
+        {
+            return Resource.SYMBOLIC_NAME;
+        }
+        for (Iterator<String> it = conditions.keySet().iterator(); it.hasNext();)
+        {
+            String attribute = it.next();
+            // versions are compared as versions, not as strings
+            if (!Resource.VERSION.equals(attribute))
+            {
+                return attribute;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get the equality conditions without wildcards of a filter which
+     * must all be true for the filter to match, that is the filter itself
+     * or the operands of a top level <code>&amp;</code>.
+     * @param filter the filter
+     * @return the values by lower case attribute name
+     */
+    static Map<String, String> getEqualityConditions(String filter)
+    {
+        Map<String, String> conditions = new HashMap<String, String>();
+        if (filter == null)
+        {
+            return conditions;
+        }
+        String f = filter.trim();
+        if (f.startsWith("(&") && f.endsWith(")"))
+        {
+            int depth = 0;
+            int start = -1;
+            for (int i = 2; i < f.length() - 1; i++)
+            {
+                char c = f.charAt(i);
+                if (c == '\\')
+                {
+                    i++;
+                }
+                else if (c == '(')
+                {
+                    if (depth == 0)
+                    {
+                        start = i;
+                    }
+                    depth++;
+                }
+                else if (c == ')')
+                {
+                    depth--;
+                    if (depth == 0 && start >= 0)
+                    {
+                        addEqualityCondition(f.substring(start, i + 1), conditions);
+                        start = -1;
+                    }
+                }
+            }
+        }
+        else
+        {
+            addEqualityCondition(f, conditions);
+        }
+        return conditions;
+    }
+
+    private static void addEqualityCondition(String filter, Map<String, String> conditions)
+    {
+        if (filter.length() < 4 || filter.charAt(0) != '(' || filter.charAt(filter.length() - 1) != ')')
+        {
+            return;
+        }
+        int eq = filter.indexOf('=');
+        if (eq < 2)
+        {
+            return;
+        }
+        String attribute = filter.substring(1, eq);
+        for (int i = 0; i < attribute.length(); i++)
+        {
+            char c = attribute.charAt(i);
+            if (c == '(' || c == ')' || c == '<' || c == '>' || c == '~' || c == '&' || c == '|' || c == '!')
+            {
+                return;
+            }
+        }
+        StringBuilder value = new StringBuilder();
+        for (int i = eq + 1; i < filter.length() - 1; i++)
+        {
+            char c = filter.charAt(i);
+            if (c == '\\' && i + 1 < filter.length() - 1)
+            {
+                value.append(filter.charAt(++i));
+            }
+            else if (c == '*' || c == '(' || c == ')')
+            {
+                // substring or presence condition
+                return;
+            }
+            else
+            {
+                value.append(c);
+            }
+        }
+        conditions.put(attribute.trim().toLowerCase(), value.toString());
+    }
+}
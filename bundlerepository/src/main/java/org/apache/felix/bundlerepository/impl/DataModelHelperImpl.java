@@ -89,6 +89,14 @@ public class DataModelHelperImpl implements DataModelHelper
     }
 
     public Repository repository(final URL url) throws Exception
+    {
+        return repository(url, FileUtil.openURL(url));
+    }
+
+    /**
+     * Read a repository from the input stream of an URL, the stream is closed.
+     */
+    RepositoryImpl repository(final URL url, final InputStream in) throws Exception
     {
         InputStream is = null;
 
@@ -96,7 +104,7 @@ public class DataModelHelperImpl implements DataModelHelper
         {
             if (url.getPath().endsWith(".zip"))
             {
-                ZipInputStream zin = new ZipInputStream(FileUtil.openURL(url));
+                ZipInputStream zin = new ZipInputStream(in);
                 ZipEntry entry = zin.getNextEntry();
                 while (entry != null)
                 {
@@ -122,11 +130,11 @@ public class DataModelHelperImpl implements DataModelHelper
             }
             else if (url.getPath().endsWith(".gz"))
             {
-                is = new GZIPInputStream(FileUtil.openURL(url));
+                is = new GZIPInputStream(in);
             }
             else
             {
-                is = FileUtil.openURL(url);
+                is = in;
             }
 
             if (is != null)
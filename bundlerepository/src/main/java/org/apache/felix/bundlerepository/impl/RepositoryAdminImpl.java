@@ -18,6 +18,7 @@
  */
 package org.apache.felix.bundlerepository.impl;
 
+import java.io.File;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.security.AccessController;
@@ -30,6 +31,12 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.StringTokenizer;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import org.apache.felix.bundlerepository.Capability;
 import org.apache.felix.bundlerepository.DataModelHelper;
@@ -50,7 +57,8 @@ public class RepositoryAdminImpl implements RepositoryAdmin
     private final Logger m_logger;
     private final SystemRepositoryImpl m_system;
     private final LocalRepositoryImpl m_local;
-    private final DataModelHelper m_helper = new DataModelHelperImpl();
+    private final DataModelHelperImpl m_helper = new DataModelHelperImpl();
+    private RepositoryCache m_cache;
     private Map m_repoMap = new LinkedHashMap();
     private boolean m_initialized = false;
 
@@ -59,6 +67,9 @@ public class RepositoryAdminImpl implements RepositoryAdmin
 
     public static final String REPOSITORY_URL_PROP = "obr.repository.url";
     public static final String EXTERN_REPOSITORY_TAG = "extern-repositories";
+    public static final String REPOSITORY_CACHE_PROP = "obr.repository.cache";
+
+    private static final int REFERRAL_THREADS = 4;
 
     public RepositoryAdminImpl(BundleContext context, Logger logger)
     {
@@ -105,18 +116,113 @@ public class RepositoryAdminImpl implements RepositoryAdmin
         // If the repository URL is a duplicate, then we will just
         // replace the existing repository object with a new one,
         // which is effectively the same as refreshing the repository.
+        RepositoryImpl repository = loadRepository(url);
+        m_repoMap.put(url.toExternalForm(), repository);
+
+        // resolve referrals, the referred repositories are loaded in
+        // parallel but added in the same order as when loaded one by one
+        LoadedRepository loaded = new LoadedRepository(url, repository, hopCount);
+        if (loaded.m_referrals.isEmpty())
+        {
+            return repository;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(REFERRAL_THREADS, new ThreadFactory()
+        {
+            public Thread newThread(Runnable r)
+            {
+                Thread t = new Thread(r, "Apache Felix Bundle Repository Loader");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        try
+        {
+            submitReferrals(executor, loaded);
+            addReferrals(loaded);
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+        return repository;
+    }
+
+    private RepositoryImpl loadRepository(final URL url) throws Exception
+    {
         try
         {
-            RepositoryImpl repository = (RepositoryImpl) AccessController.doPrivileged(new PrivilegedExceptionAction()
+            return (RepositoryImpl) AccessController.doPrivileged(new PrivilegedExceptionAction()
             {
                 public Object run() throws Exception
                 {
+                    if (m_cache != null)
+                    {
+                        return m_cache.repository(url);
+                    }
                     return m_helper.repository(url);
                 }
             });
-            m_repoMap.put(url.toExternalForm(), repository);
+        }
+        catch (PrivilegedActionException ex)
+        {
+            throw (Exception) ex.getCause();
+        }
+    }
 
-            // resolve referrals
+    /**
+     * Start loading the referrals of a repository.
+     */
+    private void submitReferrals(final ExecutorService executor, LoadedRepository loaded)
+    {
+        for (int i = 0; i < loaded.m_referrals.size(); i++)
+        {
+            final PendingReferral referral = (PendingReferral) loaded.m_referrals.get(i);
+            referral.m_future = executor.submit(new Callable()
+            {
+                public Object call() throws Exception
+                {
+                    RepositoryImpl repository = loadRepository(referral.m_url);
+                    LoadedRepository result = new LoadedRepository(referral.m_url, repository, referral.m_hopCount);
+                    submitReferrals(executor, result);
+                    return result;
+                }
+            });
+        }
+    }
+
+    /**
+     * Add the loaded referrals of a repository depth first.
+     */
+    private void addReferrals(LoadedRepository loaded) throws Exception
+    {
+        for (int i = 0; i < loaded.m_referrals.size(); i++)
+        {
+            PendingReferral referral = (PendingReferral) loaded.m_referrals.get(i);
+            LoadedRepository result;
+            try
+            {
+                result = (LoadedRepository) referral.m_future.get();
+            }
+            catch (ExecutionException ex)
+            {
+                throw (ex.getCause() instanceof Exception) ? (Exception) ex.getCause() : ex;
+            }
+            m_repoMap.put(referral.m_url.toExternalForm(), result.m_repository);
+            addReferrals(result);
+        }
+    }
+
+    /**
+     * A loaded repository with the referrals to follow.
+     */
+    private static class LoadedRepository
+    {
+        final RepositoryImpl m_repository;
+        final List m_referrals = new ArrayList();
+
+        LoadedRepository(URL url, RepositoryImpl repository, int hopCount) throws MalformedURLException
+        {
+            m_repository = repository;
             hopCount--;
             if (hopCount > 0 && repository.getReferrals() != null)
             {
@@ -127,17 +233,23 @@ public class RepositoryAdminImpl implements RepositoryAdmin
                     URL referralUrl = new URL(url, referral.getUrl());
                     hopCount = (referral.getDepth() > hopCount) ? hopCount : referral.getDepth();
 
-                    addRepository(referralUrl, hopCount);
+                    m_referrals.add(new PendingReferral(referralUrl, hopCount));
                 }
             }
-
-            return repository;
         }
-        catch (PrivilegedActionException ex)
+    }
+
+    private static class PendingReferral
+    {
+        final URL m_url;
+        final int m_hopCount;
+        volatile Future m_future;
+
+        PendingReferral(URL url, int hopCount)
         {
-            throw (Exception) ex.getCause();
+            m_url = url;
+            m_hopCount = hopCount;
         }
-
     }
 
     public synchronized boolean removeRepository(String uri)
@@ -221,6 +333,11 @@ public class RepositoryAdminImpl implements RepositoryAdmin
         List matchList = new ArrayList();
         for (int repoIdx = 0; (repos != null) && (repoIdx < repos.length); repoIdx++)
         {
+            if (repos[repoIdx] instanceof RepositoryImpl)
+            {
+                matchList.addAll(((RepositoryImpl) repos[repoIdx]).getCapabilityIndex().findResources(requirements));
+                continue;
+            }
             resources = repos[repoIdx].getResources();
             for (int resIdx = 0; (resources != null) && (resIdx < resources.length); resIdx++)
             {
@@ -264,6 +381,16 @@ public class RepositoryAdminImpl implements RepositoryAdmin
         }
         m_initialized = true;
 
+        // Parsed repositories are cached in the bundle data area unless disabled.
+        if (!"false".equalsIgnoreCase(m_context.getProperty(REPOSITORY_CACHE_PROP)))
+        {
+            File dir = m_context.getDataFile("repository-cache");
+            if (dir != null)
+            {
+                m_cache = new RepositoryCache(dir, m_helper, m_logger);
+            }
+        }
+
         // First check the repository URL config property.
         String urlStr = m_context.getProperty(REPOSITORY_URL_PROP);
         if (urlStr != null)
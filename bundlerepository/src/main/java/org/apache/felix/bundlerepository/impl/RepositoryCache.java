@@ -0,0 +1,692 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.bundlerepository.impl;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.felix.bundlerepository.Capability;
+import org.apache.felix.bundlerepository.Property;
+import org.apache.felix.bundlerepository.Requirement;
+import org.apache.felix.bundlerepository.Resource;
+import org.apache.felix.utils.log.Logger;
+import org.apache.felix.utils.version.VersionTable;
+import org.osgi.framework.Version;
+
+/**
+ * Local cache of parsed repositories.
+ * <p>
+ * After a repository has been parsed, a binary snapshot of it is written
+ * together with the last modified date and the ETag of its URL. When the
+ * repository is read again, the request is made conditional on these and
+ * the snapshot is used if the repository did not change, avoiding both the
+ * download and the XML parsing.
+ * <p>
+ * Repositories without a last modified date or an ETag are not cached.
+ * Snapshots are only written for repositories consisting of the resource,
+ * capability and requirement implementations created by the parsers.
+ */
+public class RepositoryCache
+{
+    private static final int MAGIC = 0x4f425253;
+    private static final int VERSION = 1;
+
+    private static final byte TYPE_NULL = 0;
+    private static final byte TYPE_STRING = 1;
+    private static final byte TYPE_LONG = 2;
+    private static final byte TYPE_DOUBLE = 3;
+    private static final byte TYPE_VERSION = 4;
+    private static final byte TYPE_LIST = 5;
+    private static final byte TYPE_SET = 6;
+
+    private static final byte PROPERTY_STRING = 0;
+    private static final byte PROPERTY_TYPED = 1;
+
+    private final File m_dir;
+    private final DataModelHelperImpl m_helper;
+    private final Logger m_logger;
+
+    /**
+     * Thrown if a repository contains data which can't be written to a snapshot.
+     */
+    private static final class UnsupportedDataException extends IOException
+    {
+        private static final long serialVersionUID = 1L;
+
+        UnsupportedDataException(String message)
+        {
+            super(message);
+        }
+    }
+
+    /**
+     * Header of a snapshot.
+     */
+    private static final class Validator
+    {
+        final long m_lastModified;
+        final String m_etag;
+
+        Validator(long lastModified, String etag)
+        {
+            m_lastModified = lastModified;
+            m_etag = etag;
+        }
+    }
+
+    public RepositoryCache(File dir, DataModelHelperImpl helper, Logger logger)
+    {
+        m_dir = dir;
+        m_helper = helper;
+        m_logger = logger;
+    }
+
+    /**
+     * Read a repository, using the snapshot if the repository did not change.
+     * @param url the repository url
+     * @return the repository
+     * @throws Exception if the repository can't be read
+     */
+    public RepositoryImpl repository(URL url) throws Exception
+    {
+        File file = getFile(url);
+        Validator cached = readValidator(file, url);
+
+        URLConnection conn = url.openConnection();
+        FileUtil.setProxyAuth(conn);
+        boolean unchanged = false;
+        if (conn instanceof HttpURLConnection)
+        {
+            if (cached != null)
+            {
+                if (cached.m_etag != null)
+                {
+                    conn.setRequestProperty("If-None-Match", cached.m_etag);
+                }
+                if (cached.m_lastModified > 0)
+                {
+                    conn.setIfModifiedSince(cached.m_lastModified);
+                }
+            }
+            try
+            {
+                unchanged = ((HttpURLConnection) conn).getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED;
+            }
+            catch (IOException e)
+            {
+                throw wrap(url, e);
+            }
+        }
+        else if (cached != null && cached.m_lastModified > 0)
+        {
+            unchanged = conn.getLastModified() == cached.m_lastModified;
+        }
+
+        if (unchanged)
+        {
+            RepositoryImpl repository = readSnapshot(file, url);
+            if (repository != null)
+            {
+                closeQuietly(conn);
+                return repository;
+            }
+            // the snapshot is gone, read the repository again
+            conn = url.openConnection();
+            FileUtil.setProxyAuth(conn);
+        }
+
+        InputStream is;
+        try
+        {
+            is = conn.getInputStream();
+        }
+        catch (IOException e)
+        {
+            throw wrap(url, e);
+        }
+        RepositoryImpl repository = m_helper.repository(url, is);
+
+        long lastModified = conn.getLastModified();
+        String etag = conn.getHeaderField("ETag");
+        if (lastModified > 0 || etag != null)
+        {
+            writeSnapshot(file, url, new Validator(lastModified, etag), repository);
+        }
+        else if (file.exists())
+        {
+            file.delete();
+        }
+        return repository;
+    }
+
+    private static IOException wrap(URL url, IOException e)
+    {
+        // see FileUtil.openURL
+        IOException ex = new IOException("Error accessing " + url);
+        ex.initCause(e);
+        return ex;
+    }
+
+    private static void closeQuietly(URLConnection conn)
+    {
+        if (conn instanceof HttpURLConnection)
+        {
+            ((HttpURLConnection) conn).disconnect();
+        }
+        else
+        {
+            try
+            {
+                conn.getInputStream().close();
+            }
+            catch (IOException e)
+            {
+                // ignore
+            }
+        }
+    }
+
+    private File getFile(URL url) throws Exception
+    {
+        MessageDigest md = MessageDigest.getInstance("SHA-1");
+        byte[] digest = md.digest(url.toExternalForm().getBytes("UTF-8"));
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < digest.length; i++)
+        {
+            sb.append(Integer.toHexString((digest[i] >> 4) & 0xf));
+            sb.append(Integer.toHexString(digest[i] & 0xf));
+        }
+        return new File(m_dir, sb.append(".bin").toString());
+    }
+
+    private Validator readValidator(File file, URL url)
+    {
+        if (!file.exists())
+        {
+            return null;
+        }
+        DataInputStream in = null;
+        try
+        {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            return readHeader(in, url);
+        }
+        catch (IOException e)
+        {
+            m_logger.log(Logger.LOG_DEBUG, "Ignoring repository snapshot " + file, e);
+            return null;
+        }
+        finally
+        {
+            close(in);
+        }
+    }
+
+    private static Validator readHeader(DataInputStream in, URL url) throws IOException
+    {
+        if (in.readInt() != MAGIC || in.readInt() != VERSION)
+        {
+            throw new IOException("Unsupported snapshot format");
+        }
+        if (!url.toExternalForm().equals(readString(in)))
+        {
+            throw new IOException("Snapshot of another repository");
+        }
+        long lastModified = in.readLong();
+        String etag = readString(in);
+        return new Validator(lastModified, etag);
+    }
+
+    private RepositoryImpl readSnapshot(File file, URL url)
+    {
+        DataInputStream in = null;
+        try
+        {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            readHeader(in, url);
+            return readRepository(in);
+        }
+        catch (Exception e)
+        {
+            m_logger.log(Logger.LOG_WARNING, "Unable to read repository snapshot " + file, e);
+            return null;
+        }
+        finally
+        {
+            close(in);
+        }
+    }
+
+    private void writeSnapshot(File file, URL url, Validator validator, RepositoryImpl repository)
+    {
+        m_dir.mkdirs();
+        File tmp = null;
+        DataOutputStream out = null;
+        boolean written = false;
+        try
+        {
+            // concurrent writers of the same snapshot each use their own file
+            tmp = File.createTempFile(file.getName(), ".tmp", m_dir);
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            writeString(out, url.toExternalForm());
+            out.writeLong(validator.m_lastModified);
+            writeString(out, validator.m_etag);
+            writeRepository(out, repository);
+            out.close();
+            out = null;
+            file.delete();
+            written = tmp.renameTo(file);
+        }
+        catch (UnsupportedDataException e)
+        {
+            m_logger.log(Logger.LOG_DEBUG, "Repository " + url + " is not cached: " + e.getMessage());
+        }
+        catch (IOException e)
+        {
+            m_logger.log(Logger.LOG_WARNING, "Unable to write repository snapshot " + file, e);
+        }
+        finally
+        {
+            close(out);
+            if (!written)
+            {
+                if (tmp != null)
+                {
+                    tmp.delete();
+                }
+                file.delete();
+            }
+        }
+    }
+
+    private static void close(java.io.Closeable c)
+    {
+        if (c != null)
+        {
+            try
+            {
+                c.close();
+            }
+            catch (IOException e)
+            {
+                // ignore
+            }
+        }
+    }
+
+    private static void writeRepository(DataOutputStream out, RepositoryImpl repository) throws IOException
+    {
+        writeString(out, repository.getName());
+        out.writeLong(repository.getLastModified());
+        writeString(out, repository.getURI());
+
+        Referral[] referrals = repository.getReferrals();
+        out.writeInt(referrals == null ? 0 : referrals.length);
+        for (int i = 0; referrals != null && i < referrals.length; i++)
+        {
+            writeString(out, referrals[i].getUrl());
+            out.writeInt(referrals[i].getDepth());
+        }
+
+        Resource[] resources = repository.getResources();
+        out.writeInt(resources.length);
+        for (int i = 0; i < resources.length; i++)
+        {
+            if (resources[i].getClass() != ResourceImpl.class)
+            {
+                throw new UnsupportedDataException("Unsupported resource " + resources[i].getClass().getName());
+            }
+            writeResource(out, (ResourceImpl) resources[i]);
+        }
+    }
+
+    private static RepositoryImpl readRepository(DataInputStream in) throws IOException
+    {
+        RepositoryImpl repository = new RepositoryImpl();
+        String name = readString(in);
+        if (name != null)
+        {
+            repository.setName(name);
+        }
+        repository.setLastModified(in.readLong());
+        repository.setURI(readString(in));
+
+        int count = in.readInt();
+        for (int i = 0; i < count; i++)
+        {
+            Referral referral = new Referral();
+            referral.setUrl(readString(in));
+            referral.setDepth(Integer.toString(in.readInt()));
+            try
+            {
+                repository.addReferral(referral);
+            }
+            catch (Exception e)
+            {
+                throw new IOException(e.getMessage());
+            }
+        }
+
+        count = in.readInt();
+        for (int i = 0; i < count; i++)
+        {
+            repository.addResource(readResource(in));
+        }
+        return repository;
+    }
+
+    private static void writeResource(DataOutputStream out, ResourceImpl resource) throws IOException
+    {
+        Map properties = resource.getProperties();
+        out.writeInt(properties.size());
+        for (Iterator it = properties.entrySet().iterator(); it.hasNext();)
+        {
+            Map.Entry entry = (Map.Entry) it.next();
+            writeString(out, (String) entry.getKey());
+            writeValue(out, entry.getValue());
+        }
+
+        Capability[] caps = resource.getCapabilities();
+        out.writeInt(caps.length);
+        for (int i = 0; i < caps.length; i++)
+        {
+            if (caps[i].getClass() != CapabilityImpl.class)
+            {
+                throw new UnsupportedDataException("Unsupported capability " + caps[i].getClass().getName());
+            }
+            writeCapability(out, (CapabilityImpl) caps[i]);
+        }
+
+        Requirement[] reqs = resource.getRequirements();
+        out.writeInt(reqs.length);
+        for (int i = 0; i < reqs.length; i++)
+        {
+            if (reqs[i].getClass() != RequirementImpl.class)
+            {
+                throw new UnsupportedDataException("Unsupported requirement " + reqs[i].getClass().getName());
+            }
+            writeRequirement(out, (RequirementImpl) reqs[i]);
+        }
+    }
+
+    private static ResourceImpl readResource(DataInputStream in) throws IOException
+    {
+        ResourceImpl resource = new ResourceImpl();
+        int count = in.readInt();
+        for (int i = 0; i < count; i++)
+        {
+            String key = readString(in);
+            resource.putConverted(key, readValue(in));
+        }
+        count = in.readInt();
+        for (int i = 0; i < count; i++)
+        {
+            resource.addCapability(readCapability(in));
+        }
+        count = in.readInt();
+        for (int i = 0; i < count; i++)
+        {
+            resource.addRequire(readRequirement(in));
+        }
+        return resource;
+    }
+
+    private static void writeCapability(DataOutputStream out, CapabilityImpl capability) throws IOException
+    {
+        writeString(out, capability.getName());
+        Property[] props = capability.getProperties();
+        out.writeInt(props.length);
+        for (int i = 0; i < props.length; i++)
+        {
+            if (props[i] instanceof PropertyImpl)
+            {
+                out.writeByte(PROPERTY_STRING);
+                writeString(out, props[i].getName());
+                writeString(out, props[i].getType());
+                writeString(out, props[i].getValue());
+            }
+            else if (props[i] instanceof FelixPropertyAdapter)
+            {
+                out.writeByte(PROPERTY_TYPED);
+                writeString(out, props[i].getName());
+                writeValue(out, props[i].getConvertedValue());
+            }
+            else
+            {
+                throw new UnsupportedDataException("Unsupported property " + props[i].getClass().getName());
+            }
+        }
+        writeStringMap(out, capability.getDirectives());
+    }
+
+    private static CapabilityImpl readCapability(DataInputStream in) throws IOException
+    {
+        CapabilityImpl capability = new CapabilityImpl(readString(in));
+        int count = in.readInt();
+        for (int i = 0; i < count; i++)
+        {
+            byte kind = in.readByte();
+            String name = readString(in);
+            if (kind == PROPERTY_STRING)
+            {
+                String type = readString(in);
+                capability.addProperty(new PropertyImpl(name, type, readString(in)));
+            }
+            else
+            {
+                capability.addProperty(new FelixPropertyAdapter(name, readValue(in)));
+            }
+        }
+        Map<String, String> directives = readStringMap(in);
+        for (Map.Entry<String, String> entry : directives.entrySet())
+        {
+            capability.addDirective(entry.getKey(), entry.getValue());
+        }
+        return capability;
+    }
+
+    private static void writeRequirement(DataOutputStream out, RequirementImpl requirement) throws IOException
+    {
+        writeString(out, requirement.getName());
+        writeString(out, requirement.getFilter());
+        out.writeBoolean(requirement.isExtend());
+        out.writeBoolean(requirement.isMultiple());
+        out.writeBoolean(requirement.isOptional());
+        writeString(out, requirement.getComment());
+        Map<String, Object> attributes = requirement.getAttributes();
+        out.writeInt(attributes.size());
+        for (Map.Entry<String, Object> entry : attributes.entrySet())
+        {
+            writeString(out, entry.getKey());
+            writeValue(out, entry.getValue());
+        }
+        writeStringMap(out, requirement.getDirectives());
+    }
+
+    private static RequirementImpl readRequirement(DataInputStream in) throws IOException
+    {
+        RequirementImpl requirement = new RequirementImpl(readString(in));
+        requirement.setFilter(readString(in));
+        requirement.setExtend(in.readBoolean());
+        requirement.setMultiple(in.readBoolean());
+        requirement.setOptional(in.readBoolean());
+        String comment = readString(in);
+        if (comment != null)
+        {
+            requirement.addText(comment);
+        }
+        int count = in.readInt();
+        if (count > 0)
+        {
+            Map<String, Object> attributes = new HashMap<String, Object>();
+            for (int i = 0; i < count; i++)
+            {
+                String key = readString(in);
+                attributes.put(key, readValue(in));
+            }
+            requirement.setAttributes(attributes);
+        }
+        Map<String, String> directives = readStringMap(in);
+        if (!directives.isEmpty())
+        {
+            requirement.setDirectives(directives);
+        }
+        return requirement;
+    }
+
+    private static void writeStringMap(DataOutputStream out, Map<String, String> map) throws IOException
+    {
+        out.writeInt(map.size());
+        for (Map.Entry<String, String> entry : map.entrySet())
+        {
+            writeString(out, entry.getKey());
+            writeString(out, entry.getValue());
+        }
+    }
+
+    private static Map<String, String> readStringMap(DataInputStream in) throws IOException
+    {
+        Map<String, String> map = new HashMap<String, String>();
+        int count = in.readInt();
+        for (int i = 0; i < count; i++)
+        {
+            String key = readString(in);
+            map.put(key, readString(in));
+        }
+        return map;
+    }
+
+    private static void writeValue(DataOutputStream out, Object value) throws IOException
+    {
+        if (value == null)
+        {
+            out.writeByte(TYPE_NULL);
+        }
+        else if (value instanceof String)
+        {
+            out.writeByte(TYPE_STRING);
+            writeString(out, (String) value);
+        }
+        else if (value instanceof Long)
+        {
+            out.writeByte(TYPE_LONG);
+            out.writeLong(((Long) value).longValue());
+        }
+        else if (value instanceof Double)
+        {
+            out.writeByte(TYPE_DOUBLE);
+            out.writeDouble(((Double) value).doubleValue());
+        }
+        else if (value instanceof Version)
+        {
+            out.writeByte(TYPE_VERSION);
+            writeString(out, value.toString());
+        }
+        else if (value instanceof List || value instanceof Set)
+        {
+            out.writeByte(value instanceof List ? TYPE_LIST : TYPE_SET);
+            Collection c = (Collection) value;
+            out.writeInt(c.size());
+            for (Iterator it = c.iterator(); it.hasNext();)
+            {
+                writeValue(out, it.next());
+            }
+        }
+        else
+        {
+            throw new UnsupportedDataException("Unsupported value " + value.getClass().getName());
+        }
+    }
+
+    private static Object readValue(DataInputStream in) throws IOException
+    {
+        byte type = in.readByte();
+        switch (type)
+        {
+            case TYPE_NULL:
+                return null;
+            case TYPE_STRING:
+                return readString(in);
+            case TYPE_LONG:
+                return Long.valueOf(in.readLong());
+            case TYPE_DOUBLE:
+                return Double.valueOf(in.readDouble());
+            case TYPE_VERSION:
+                return VersionTable.getVersion(readString(in));
+            case TYPE_LIST:
+            case TYPE_SET:
+                int count = in.readInt();
+                Collection c = (type == TYPE_LIST) ? (Collection) new ArrayList(count) : new HashSet();
+                for (int i = 0; i < count; i++)
+                {
+                    c.add(readValue(in));
+                }
+                return c;
+            default:
+                throw new IOException("Invalid value type " + type);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException
+    {
+        if (value == null)
+        {
+            out.writeInt(-1);
+        }
+        else
+        {
+            byte[] bytes = value.getBytes("UTF-8");
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException
+    {
+        int length = in.readInt();
+        if (length < 0)
+        {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, "UTF-8");
+    }
+}
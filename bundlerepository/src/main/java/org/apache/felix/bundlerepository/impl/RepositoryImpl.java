@@ -35,6 +35,7 @@ public class RepositoryImpl implements Repository
     private Resource[] m_resources = null;
     private Referral[] m_referrals = null;
     private Set m_resourceSet = new HashSet();
+    private volatile CapabilityIndex m_index = null;
 
     public RepositoryImpl()
     {
@@ -78,6 +79,21 @@ public class RepositoryImpl implements Repository
         m_resourceSet.remove(resource);
         m_resourceSet.add(resource);
         m_resources = null;
+        m_index = null;
+    }
+
+    /**
+     * Get the index over the capabilities of the resources of this repository.
+     **/
+    public CapabilityIndex getCapabilityIndex()
+    {
+        CapabilityIndex index = m_index;
+        if (index == null)
+        {
+            index = new CapabilityIndex(getResources());
+            m_index = index;
+        }
+        return index;
     }
 
     public Referral[] getReferrals()
@@ -280,6 +280,15 @@ public class ResourceImpl implements Resource
         }
     }
 
+    /**
+     * Set an already converted value, used when reading a repository snapshot.
+     **/
+    void putConverted(String key, Object value)
+    {
+        m_hash = 0;
+        m_map.put(key, value);
+    }
+
     private void convertURIs()
     {
         if (m_uris != null)
@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.bundlerepository.impl;
+
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.apache.felix.bundlerepository.Capability;
+import org.apache.felix.bundlerepository.Requirement;
+import org.apache.felix.bundlerepository.Resource;
+
+public class CapabilityIndexTest extends TestCase
+{
+    public void testEqualityConditions()
+    {
+        Map<String, String> conditions = CapabilityIndex.getEqualityConditions(
+            "(&(package=org.foo)(version>=1.0.0)(!(version>=2.0.0))(Vendor=a\\(b\\))(x=y*))");
+        assertEquals(2, conditions.size());
+        assertEquals("org.foo", conditions.get("package"));
+        assertEquals("a(b)", conditions.get("vendor"));
+
+        conditions = CapabilityIndex.getEqualityConditions("(symbolicname=org.foo)");
+        assertEquals(1, conditions.size());
+        assertEquals("org.foo", conditions.get("symbolicname"));
+
+        assertTrue(CapabilityIndex.getEqualityConditions("(|(package=a)(package=b))").isEmpty());
+        assertTrue(CapabilityIndex.getEqualityConditions("(package=*)").isEmpty());
+        assertTrue(CapabilityIndex.getEqualityConditions(null).isEmpty());
+    }
+
+    public void testFindCapabilities()
+    {
+        ResourceImpl r1 = resource("r1", new String[] { "org.foo", "org.bar" });
+        ResourceImpl r2 = resource("r2", new String[] { "org.bar", "org.baz" });
+        ResourceImpl r3 = resource("r3", new String[] { "org.foo" });
+        CapabilityIndex index = new CapabilityIndex(new Resource[] { r1, r2, r3 });
+
+        List<ResourceCapability> caps = index.findCapabilities(requirement("(package=org.foo)"));
+        assertEquals(2, caps.size());
+        assertSame(r1, caps.get(0).getResource());
+        assertSame(r3, caps.get(1).getResource());
+
+        caps = index.findCapabilities(requirement("(&(package=org.bar)(version>=1.0.0))"));
+        assertEquals(2, caps.size());
+        assertSame(r1, caps.get(0).getResource());
+        assertSame(r2, caps.get(1).getResource());
+
+        caps = index.findCapabilities(requirement("(package=org.*)"));
+        assertEquals(5, caps.size());
+
+        assertTrue(index.findCapabilities(requirement("(package=org.none)")).isEmpty());
+        assertTrue(index.findCapabilities(requirement("(&(package=org.foo)(version>=2.0.0))")).isEmpty());
+    }
+
+    public void testFindResources()
+    {
+        ResourceImpl r1 = resource("r1", new String[] { "org.foo", "org.bar" });
+        ResourceImpl r2 = resource("r2", new String[] { "org.bar", "org.baz" });
+        ResourceImpl r3 = resource("r3", new String[] { "org.foo", "org.baz" });
+        CapabilityIndex index = new CapabilityIndex(new Resource[] { r1, r2, r3 });
+
+        List<Resource> resources = index.findResources(new Requirement[] {
+            requirement("(package=org.baz)"), requirement("(package=org.foo)") });
+        assertEquals(1, resources.size());
+        assertSame(r3, resources.get(0));
+
+        resources = index.findResources(new Requirement[] { requirement("(package=org.bar)") });
+        assertEquals(2, resources.size());
+        assertSame(r1, resources.get(0));
+        assertSame(r2, resources.get(1));
+
+        assertEquals(3, index.findResources(new Requirement[0]).size());
+    }
+
+    private static ResourceImpl resource(String name, String[] packages)
+    {
+        ResourceImpl resource = new ResourceImpl();
+        resource.put(Resource.SYMBOLIC_NAME, name);
+        resource.put(Resource.VERSION, "1.0.0");
+        for (int i = 0; i < packages.length; i++)
+        {
+            CapabilityImpl cap = new CapabilityImpl(Capability.PACKAGE);
+            cap.addProperty(Capability.PACKAGE, packages[i]);
+            cap.addProperty(Resource.VERSION, "version", "1.0.0");
+            resource.addCapability(cap);
+        }
+        return resource;
+    }
+
+    private static RequirementImpl requirement(String filter)
+    {
+        RequirementImpl req = new RequirementImpl(Capability.PACKAGE);
+        req.setFilter(filter);
+        return req;
+    }
+}
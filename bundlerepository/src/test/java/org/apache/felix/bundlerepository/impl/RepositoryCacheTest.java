@@ -0,0 +1,196 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.bundlerepository.impl;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+
+import junit.framework.TestCase;
+
+import org.apache.felix.bundlerepository.Capability;
+import org.apache.felix.bundlerepository.Requirement;
+import org.apache.felix.bundlerepository.Resource;
+import org.apache.felix.utils.log.Logger;
+
+public class RepositoryCacheTest extends TestCase
+{
+    private File m_dir;
+
+    protected void setUp() throws Exception
+    {
+        m_dir = File.createTempFile("obr", ".test");
+        m_dir.delete();
+        m_dir.mkdirs();
+    }
+
+    protected void tearDown() throws Exception
+    {
+        delete(m_dir);
+    }
+
+    public void testSnapshot() throws Exception
+    {
+        File file = copy("/spec_repository.xml", "repository.xml");
+        URL url = file.toURI().toURL();
+        RepositoryCache cache = new RepositoryCache(new File(m_dir, "cache"), new DataModelHelperImpl(), new Logger(null));
+
+        RepositoryImpl parsed = cache.repository(url);
+        assertEquals(1, new File(m_dir, "cache").list().length);
+
+        RepositoryImpl cached = cache.repository(url);
+        assertNotSame(parsed, cached);
+        assertRepositoryEquals(parsed, cached);
+    }
+
+    public void testModifiedRepository() throws Exception
+    {
+        File file = copy("/spec_repository.xml", "repository.xml");
+        URL url = file.toURI().toURL();
+        RepositoryCache cache = new RepositoryCache(new File(m_dir, "cache"), new DataModelHelperImpl(), new Logger(null));
+        assertEquals(7, cache.repository(url).getResources().length);
+
+        // an unchanged modification time means an unchanged repository
+        long lastModified = file.lastModified();
+        copy("/another_repository.xml", "repository.xml");
+        file.setLastModified(lastModified);
+        assertEquals(7, cache.repository(url).getResources().length);
+
+        file.setLastModified(lastModified + 10000);
+        RepositoryImpl repository = cache.repository(url);
+        assertEquals(new DataModelHelperImpl().repository(url).getResources().length, repository.getResources().length);
+        assertFalse(7 == repository.getResources().length);
+    }
+
+    public void testConcurrentSnapshots() throws Exception
+    {
+        File file = copy("/spec_repository.xml", "repository.xml");
+        final URL url = file.toURI().toURL();
+        final File dir = new File(m_dir, "cache");
+        final Exception[] failure = new Exception[1];
+        Thread[] threads = new Thread[8];
+        for (int i = 0; i < threads.length; i++)
+        {
+            threads[i] = new Thread()
+            {
+                public void run()
+                {
+                    try
+                    {
+                        new RepositoryCache(dir, new DataModelHelperImpl(), new Logger(null)).repository(url);
+                    }
+                    catch (Exception e)
+                    {
+                        synchronized (failure)
+                        {
+                            failure[0] = e;
+                        }
+                    }
+                }
+            };
+        }
+        for (int i = 0; i < threads.length; i++)
+        {
+            threads[i].start();
+        }
+        for (int i = 0; i < threads.length; i++)
+        {
+            threads[i].join();
+        }
+        if (failure[0] != null)
+        {
+            throw failure[0];
+        }
+
+        // each writer has written a whole snapshot before renaming it
+        assertEquals(1, dir.list().length);
+        RepositoryCache cache = new RepositoryCache(dir, new DataModelHelperImpl(), new Logger(null));
+        assertRepositoryEquals((RepositoryImpl) new DataModelHelperImpl().repository(url), cache.repository(url));
+    }
+
+    private static void assertRepositoryEquals(RepositoryImpl expected, RepositoryImpl actual)
+    {
+        assertEquals(expected.getName(), actual.getName());
+        assertEquals(expected.getLastModified(), actual.getLastModified());
+        assertEquals(expected.getURI(), actual.getURI());
+        Resource[] expectedResources = expected.getResources();
+        Resource[] actualResources = actual.getResources();
+        assertEquals(expectedResources.length, actualResources.length);
+        for (int i = 0; i < expectedResources.length; i++)
+        {
+            assertEquals(expectedResources[i].getProperties(), actualResources[i].getProperties());
+            assertSame(actual, ((ResourceImpl) actualResources[i]).getRepository());
+
+            Capability[] expectedCaps = expectedResources[i].getCapabilities();
+            Capability[] actualCaps = actualResources[i].getCapabilities();
+            assertEquals(expectedCaps.length, actualCaps.length);
+            for (int j = 0; j < expectedCaps.length; j++)
+            {
+                assertEquals(expectedCaps[j].getName(), actualCaps[j].getName());
+                assertEquals(expectedCaps[j].getPropertiesAsMap(), actualCaps[j].getPropertiesAsMap());
+                assertEquals(expectedCaps[j].getDirectives(), actualCaps[j].getDirectives());
+            }
+
+            Requirement[] expectedReqs = expectedResources[i].getRequirements();
+            Requirement[] actualReqs = actualResources[i].getRequirements();
+            assertEquals(expectedReqs.length, actualReqs.length);
+            for (int j = 0; j < expectedReqs.length; j++)
+            {
+                assertEquals(expectedReqs[j], actualReqs[j]);
+                assertEquals(expectedReqs[j].isOptional(), actualReqs[j].isOptional());
+                assertEquals(expectedReqs[j].getAttributes(), actualReqs[j].getAttributes());
+                assertEquals(expectedReqs[j].getDirectives(), actualReqs[j].getDirectives());
+            }
+        }
+    }
+
+    private File copy(String resource, String name) throws Exception
+    {
+        File file = new File(m_dir, name);
+        InputStream in = getClass().getResourceAsStream(resource);
+        OutputStream out = new FileOutputStream(file);
+        try
+        {
+            byte[] buffer = new byte[4096];
+            int len;
+            while ((len = in.read(buffer)) > 0)
+            {
+                out.write(buffer, 0, len);
+            }
+        }
+        finally
+        {
+            in.close();
+            out.close();
+        }
+        return file;
+    }
+
+    private static void delete(File file)
+    {
+        File[] children = file.listFiles();
+        for (int i = 0; children != null && i < children.length; i++)
+        {
+            delete(children[i]);
+        }
+        file.delete();
+    }
+}
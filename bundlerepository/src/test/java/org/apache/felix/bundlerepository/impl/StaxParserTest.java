@@ -150,6 +150,7 @@ public class StaxParserTest extends TestCase
         EasyMock.expect(bundleContext.getProperty(RepositoryParser.OBR_PARSER_CLASS))
                     .andReturn(repositoryParser.getName());
         EasyMock.expect(bundleContext.getProperty((String) EasyMock.anyObject())).andReturn(null).anyTimes();
+        EasyMock.expect(bundleContext.getDataFile((String) EasyMock.anyObject())).andReturn(null).anyTimes();
         EasyMock.expect(bundleContext.getBundle(0)).andReturn(systemBundle);
         EasyMock.expect(systemBundle.getHeaders()).andReturn(new Hashtable());
         EasyMock.expect(systemBundle.getRegisteredServices()).andReturn(null);
@@ -28,10 +28,15 @@ import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 import org.apache.felix.configurator.impl.json.BinUtil;
 import org.apache.felix.configurator.impl.json.BinaryManager;
@@ -76,6 +81,12 @@ public class Configurator {
 
     private final List<ServiceReference<ConfigurationAdmin>> configAdminReferences;
 
+    /** Added bundles waiting to be processed by the worker queue. */
+    private final Map<Long, Bundle> pendingBundles = new LinkedHashMap<>();
+
+    /** Flag to indicate that the state needs to be persisted even if no configuration changed. */
+    private volatile boolean persistState;
+
     /**
      * Create a new configurator and start it
      *
@@ -105,15 +116,28 @@ public class Configurator {
                 if ( active &&
                     (state == Bundle.ACTIVE || state == Bundle.STARTING) ) {
                     SystemLogger.debug("Adding bundle " + getBundleIdentity(bundle) + " : " + getBundleState(state));
-                    queue.enqueue(new Runnable() {
-
-                        @Override
-                        public void run() {
-                            if ( processAddBundle(bundle) ) {
-                                process();
+                    // bundles added while the queue is busy are processed together
+                    final boolean schedule;
+                    synchronized ( pendingBundles ) {
+                        schedule = pendingBundles.isEmpty();
+                        pendingBundles.put(bundle.getBundleId(), bundle);
+                    }
+                    if ( schedule ) {
+                        queue.enqueue(new Runnable() {
+
+                            @Override
+                            public void run() {
+                                final List<Bundle> bundles;
+                                synchronized ( pendingBundles ) {
+                                    bundles = new ArrayList<>(pendingBundles.values());
+                                    pendingBundles.clear();
+                                }
+                                if ( processAddBundles(bundles) ) {
+                                    process();
+                                }
                             }
-                        }
-                    });
+                        });
+                    }
                 }
                 return bundle;
             }
@@ -281,13 +305,15 @@ public class Configurator {
 
         final Bundle[] bundles = this.bundleContext.getBundles();
         final Set<Long> ids = new HashSet<>();
+        final List<Bundle> activeBundles = new ArrayList<>();
         for(final Bundle b : bundles) {
             ids.add(b.getBundleId());
             final int state = b.getState();
             if ( state == Bundle.ACTIVE || state == Bundle.STARTING ) {
-                processAddBundle(b);
+                activeBundles.add(b);
             }
         }
+        processAddBundles(activeBundles);
         for(final long id : state.getKnownBundleIds()) {
             if ( !ids.contains(id) ) {
                 processRemoveBundle(id);
@@ -297,22 +323,123 @@ public class Configurator {
         this.tracker.open();
     }
 
+    /**
+     * The configuration resources read from a bundle
+     */
+    private static final class BundleConfigurations {
+
+        final Bundle bundle;
+
+        final long lastModified;
+
+        /** The last modified of the bundle from the state, {@code null} if the bundle is new. */
+        final Long previousLastModified;
+
+        /** The hash of the configuration resources from the state. */
+        final String previousHash;
+
+        final JSONUtil.Report report = new JSONUtil.Report();
+
+        /** The hash of the configuration resources, {@code null} if the bundle is not a configurer bundle. */
+        volatile String hash;
+
+        /** The configurations, {@code null} if none or if the resources are unchanged. */
+        volatile BundleState config;
+
+        volatile IllegalStateException failure;
+
+        volatile boolean done;
+
+        BundleConfigurations(final Bundle bundle, final Long previousLastModified, final String previousHash) {
+            this.bundle = bundle;
+            this.lastModified = bundle.getLastModified();
+            this.previousLastModified = previousLastModified;
+            this.previousHash = previousHash;
+        }
+
+        boolean isUnchanged() {
+            return this.hash != null && this.hash.equals(this.previousHash);
+        }
+    }
+
     public boolean processAddBundle(final Bundle bundle) {
-        final long bundleId = bundle.getBundleId();
-        final long bundleLastModified = bundle.getLastModified();
+        return processAddBundles(Collections.singletonList(bundle));
+    }
 
-        final Long lastModified = state.getLastModified(bundleId);
-        if ( lastModified != null && lastModified.longValue() == bundleLastModified ) {
-            // no changes, nothing to do
+    /**
+     * Process added bundles. The configuration resources of all changed bundles
+     * are read and parsed in parallel. Afterwards the state is updated, in the
+     * order of the bundles.
+     * @param bundles The bundles
+     * @return {@code true} if the state changed
+     */
+    public boolean processAddBundles(final List<Bundle> bundles) {
+        final List<BundleConfigurations> changedBundles = new ArrayList<>();
+        for(final Bundle bundle : bundles) {
+            final Long lastModified = state.getLastModified(bundle.getBundleId());
+            if ( lastModified == null || lastModified.longValue() != bundle.getLastModified() ) {
+                changedBundles.add(new BundleConfigurations(bundle, lastModified, state.getHash(bundle.getBundleId())));
+            }
+            // otherwise no changes, nothing to do
+        }
+        if ( changedBundles.isEmpty() ) {
             return false;
         }
+        readBundleConfigurations(changedBundles);
+
+        boolean changed = false;
+        for(final BundleConfigurations bc : changedBundles) {
+            if ( processAddBundle(bc) ) {
+                changed = true;
+            }
+        }
+        return changed;
+    }
 
-        BundleState config = null;
+    private void readBundleConfigurations(final List<BundleConfigurations> bundles) {
+        final int threads = Math.min(bundles.size(), Runtime.getRuntime().availableProcessors());
+        if ( threads <= 1 ) {
+            for(final BundleConfigurations bc : bundles) {
+                readBundleConfigurations(bc);
+            }
+            return;
+        }
+        final ThreadFactory defaultFactory = Executors.defaultThreadFactory();
+        final ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+            final Thread t = defaultFactory.newThread(r);
+            t.setDaemon(true);
+            t.setName("Apache Felix Configurator Reader Thread");
+            return t;
+        });
+        try {
+            final List<Callable<Void>> tasks = new ArrayList<>();
+            for(final BundleConfigurations bc : bundles) {
+                tasks.add(() -> {
+                    readBundleConfigurations(bc);
+                    return null;
+                });
+            }
+            executor.invokeAll(tasks);
+        } catch ( final InterruptedException ie ) {
+            // bundles which have not been read are processed the next time
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Read and parse the configuration resources of a bundle.
+     * This method does not access the state and might be called concurrently.
+     * If the hash of the configuration resources did not change, they are not parsed.
+     * @param bc The bundle configurations
+     */
+    private void readBundleConfigurations(final BundleConfigurations bc) {
+        final Bundle bundle = bc.bundle;
         try {
             final Set<String> paths = Util.isConfigurerBundle(bundle, this.bundleContext.getBundle().getBundleId());
             if ( paths != null ) {
-                final JSONUtil.Report report = new JSONUtil.Report();
-                config = JSONUtil.readConfigurationsFromBundle(new BinUtil.ResourceProvider() {
+                final BinUtil.ResourceProvider provider = new BinUtil.ResourceProvider() {
 
                     @Override
                     public String getIdentifier() {
@@ -333,28 +460,61 @@ public class Configurator {
                     public Enumeration<URL> findEntries(String path, String filePattern) {
                         return bundle.findEntries(path, filePattern, false);
                     }
-                }, paths, report);
-                for(final String w : report.warnings) {
-                    SystemLogger.warning(w);
-                }
-                for(final String e : report.errors) {
-                    SystemLogger.error(e);
+                };
+                final List<JSONUtil.Resource> resources = JSONUtil.readResourcesFromBundle(provider, paths, bc.report);
+                bc.hash = Util.getSHA256(resources);
+                if ( !bc.isUnchanged() ) {
+                    bc.config = JSONUtil.readConfigurationsFromBundle(provider, resources, bc.report);
                 }
             }
         } catch ( final IllegalStateException ise) {
-            SystemLogger.error("Error processing bundle " + getBundleIdentity(bundle), ise);
+            bc.hash = null;
+            bc.config = null;
+            bc.failure = ise;
         }
-        if ( lastModified != null ) {
+        bc.done = true;
+    }
+
+    private boolean processAddBundle(final BundleConfigurations bc) {
+        if ( !bc.done ) {
+            return false;
+        }
+        for(final String w : bc.report.warnings) {
+            SystemLogger.warning(w);
+        }
+        for(final String e : bc.report.errors) {
+            SystemLogger.error(e);
+        }
+        if ( bc.failure != null ) {
+            SystemLogger.error("Error processing bundle " + getBundleIdentity(bc.bundle), bc.failure);
+        }
+        final long bundleId = bc.bundle.getBundleId();
+        if ( bc.isUnchanged() ) {
+            // the bundle has been updated but not its configurations
+            state.setLastModified(bundleId, bc.lastModified);
+            this.persistState = true;
+            return true;
+        }
+        if ( bc.previousLastModified != null ) {
             processRemoveBundle(bundleId);
         }
-        if ( config != null ) {
-            for(final String pid : config.getPids()) {
-                state.addAll(pid, config.getConfigurations(pid));
+        if ( bc.config != null ) {
+            boolean hasBinaries = false;
+            for(final String pid : bc.config.getPids()) {
+                final ConfigList configList = bc.config.getConfigurations(pid);
+                for(final Config cfg : configList) {
+                    if ( cfg.getFiles() != null ) {
+                        hasBinaries = true;
+                    }
+                }
+                state.addAll(pid, configList);
             }
-            state.setLastModified(bundleId, bundleLastModified);
+            state.setLastModified(bundleId, bc.lastModified);
+            // binaries are extracted when the configurations are parsed, so parsing can't be skipped
+            state.setHash(bundleId, hasBinaries ? null : bc.hash);
             return true;
         }
-        return lastModified != null;
+        return bc.previousLastModified != null;
     }
 
     public boolean processRemoveBundle(final long bundleId) {
@@ -388,18 +548,18 @@ public class Configurator {
         }
 
         boolean retry = false;
+        boolean changed = this.persistState;
+        this.persistState = false;
         try {
             for(final String pid : state.getPids()) {
                 final ConfigList configList = state.getConfigurations(pid);
 
                 if ( configList.hasChanges() ) {
                     if ( process(configList) ) {
-                        try {
-                            State.writeState(this.bundleContext.getDataFile(State.FILE_NAME), state);
-                        } catch ( final IOException ioe) {
-                            SystemLogger.error("Unable to persist state to " + State.FILE_NAME, ioe);
-                        }
+                        changed = true;
                     } else {
+                        // keep the changes for the retry
+                        configList.setHasChanges(true);
                         retry = true;
                     }
                 }
@@ -412,19 +572,19 @@ public class Configurator {
         }
         if ( !retry ) {
             // check whether there is a stale config admin bundle id
-            boolean changed = false;
             for(final Long bundleId : this.state.getBundleIdsUsingConfigAdmin()) {
                 if ( this.state.getLastModified(bundleId) == null ) {
                     this.state.removeConfigAdminBundleId(bundleId);
                     changed = true;
                 }
             }
-            if ( changed ) {
-                try {
-                    State.writeState(this.bundleContext.getDataFile(State.FILE_NAME), state);
-                } catch ( final IOException ioe) {
-                    SystemLogger.error("Unable to persist state to " + State.FILE_NAME, ioe);
-                }
+        }
+        // the state is written once, only the changed pids are encoded again
+        if ( changed ) {
+            try {
+                State.writeState(this.bundleContext.getDataFile(State.FILE_NAME), state);
+            } catch ( final IOException ioe) {
+                SystemLogger.error("Unable to persist state to " + State.FILE_NAME, ioe);
             }
         }
     }
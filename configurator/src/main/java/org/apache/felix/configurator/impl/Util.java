@@ -26,6 +26,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
+import org.apache.felix.configurator.impl.json.JSONUtil;
 import org.apache.felix.configurator.impl.logger.SystemLogger;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.wiring.BundleRequirement;
@@ -91,14 +92,38 @@ public class Util {
 
     public static String getSHA256(final String value) {
         try {
-            final StringBuilder builder = new StringBuilder();
             final MessageDigest md = MessageDigest.getInstance("SHA-256");
-            for (final byte b : md.digest(value.getBytes("UTF-8")) ) {
-                builder.append(String.format("%02x", b));
+            return toHex(md.digest(value.getBytes("UTF-8")));
+        } catch ( final NoSuchAlgorithmException | UnsupportedEncodingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Calculate the hash of the configuration resources of a bundle
+     * @param resources The resources
+     * @return The hash
+     */
+    public static String getSHA256(final List<JSONUtil.Resource> resources) {
+        try {
+            final MessageDigest md = MessageDigest.getInstance("SHA-256");
+            for(final JSONUtil.Resource rsrc : resources) {
+                md.update(rsrc.name.getBytes("UTF-8"));
+                md.update((byte)0);
+                md.update(rsrc.contents.getBytes("UTF-8"));
+                md.update((byte)0);
             }
-            return builder.toString();
+            return toHex(md.digest());
         } catch ( final NoSuchAlgorithmException | UnsupportedEncodingException e) {
             throw new RuntimeException(e);
         }
     }
+
+    private static String toHex(final byte[] digest) {
+        final StringBuilder builder = new StringBuilder();
+        for (final byte b : digest ) {
+            builder.append(String.format("%02x", b));
+        }
+        return builder.toString();
+    }
 }
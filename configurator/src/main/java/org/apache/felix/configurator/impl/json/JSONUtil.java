@@ -56,6 +56,24 @@ public class JSONUtil {
         public final List<String> errors = new ArrayList<>();
     }
 
+    /**
+     * A configuration resource of a bundle
+     */
+    public static final class Resource {
+
+        public final String name;
+
+        public final URL url;
+
+        public final String contents;
+
+        public Resource(final String name, final URL url, final String contents) {
+            this.name = name;
+            this.url = url;
+            this.contents = contents;
+        }
+    }
+
     /**
      * Read all configurations from a bundle
      * @param provider The bundle provider
@@ -66,12 +84,36 @@ public class JSONUtil {
     public static BundleState readConfigurationsFromBundle(final BinUtil.ResourceProvider provider,
             final Set<String> paths,
             final Report report) {
+        return readConfigurationsFromBundle(provider, readResourcesFromBundle(provider, paths, report), report);
+    }
+
+    /**
+     * Read all configurations from the resources of a bundle
+     * @param provider The bundle provider
+     * @param resources The resources, see {@link #readResourcesFromBundle(BinUtil.ResourceProvider, Set, Report)}
+     * @param report The report for errors and warnings
+     * @return The bundle state.
+     */
+    public static BundleState readConfigurationsFromBundle(final BinUtil.ResourceProvider provider,
+            final List<Resource> resources,
+            final Report report) {
         final BundleState config = new BundleState();
 
         final List<ConfigurationFile> allFiles = new ArrayList<>();
-        for(final String path : paths) {
-            final List<ConfigurationFile> files = readJSON(provider, path, report);
-            allFiles.addAll(files);
+        for(final Resource rsrc : resources) {
+            boolean done = false;
+            final BinaryManager binaryManager = new BinaryManager(provider, report);
+            try {
+                final ConfigurationFile file = readJSON(binaryManager, rsrc.name, rsrc.url, provider.getBundleId(), rsrc.contents, report);
+                if ( file != null ) {
+                    allFiles.add(file);
+                    done = true;
+                }
+            } finally {
+                if ( !done ) {
+                    binaryManager.cleanupFiles();
+                }
+            }
         }
         Collections.sort(allFiles);
 
@@ -81,49 +123,38 @@ public class JSONUtil {
     }
 
     /**
-     * Read all json files from a given path in the bundle
+     * Read the contents of all json files from the given paths in the bundle
      *
      * @param provider The bundle provider
-     * @param path The path
+     * @param paths The paths
      * @param report The report for errors and warnings
-     * @return A list of configuration files - sorted by url, might be empty.
+     * @return A list of resources - sorted by url, might be empty.
      */
-    private static List<ConfigurationFile> readJSON(final BinUtil.ResourceProvider provider,
-            final String path,
+    public static List<Resource> readResourcesFromBundle(final BinUtil.ResourceProvider provider,
+            final Set<String> paths,
             final Report report) {
-        final List<ConfigurationFile> result = new ArrayList<>();
-        final Enumeration<URL> urls = provider.findEntries(path, "*.json");
-        if ( urls != null ) {
-            while ( urls.hasMoreElements() ) {
-                final URL url = urls.nextElement();
-
-                final String filePath = url.getPath();
-                final int pos = filePath.lastIndexOf('/');
-                final String name = path + filePath.substring(pos);
-
-                try {
-                    final String contents = getResource(name, url);
-                    boolean done = false;
-                    final BinaryManager binaryManager = new BinaryManager(provider, report);
+        final List<Resource> result = new ArrayList<>();
+        for(final String path : paths) {
+            final Enumeration<URL> urls = provider.findEntries(path, "*.json");
+            if ( urls != null ) {
+                while ( urls.hasMoreElements() ) {
+                    final URL url = urls.nextElement();
+
+                    final String filePath = url.getPath();
+                    final int pos = filePath.lastIndexOf('/');
+                    final String name = path + filePath.substring(pos);
+
                     try {
-                        final ConfigurationFile file = readJSON(binaryManager, name, url, provider.getBundleId(), contents, report);
-                        if ( file != null ) {
-                            result.add(file);
-                            done = true;
-                        }
-                    } finally {
-                        if ( !done ) {
-                            binaryManager.cleanupFiles();
-                        }
+                        result.add(new Resource(name, url, getResource(name, url)));
+                    } catch ( final IOException ioe ) {
+                        report.errors.add("Unable to read " + name + " : " + ioe.getMessage());
                     }
-                } catch ( final IOException ioe ) {
-                    report.errors.add("Unable to read " + name + " : " + ioe.getMessage());
                 }
+            } else {
+                report.errors.add("No configurations found at path " + path);
             }
-            Collections.sort(result);
-        } else {
-            report.errors.add("No configurations found at path " + path);
         }
+        Collections.sort(result, (o1, o2) -> o1.url.getPath().compareTo(o2.url.getPath()));
         return result;
     }
 
@@ -46,6 +46,23 @@ public class ConfigList implements Serializable, Iterable<Config> {
     /** Last installed configuration. */
     private volatile Config lastInstalled;
 
+    /** Flag to indicate whether this list changed since it was last persisted. */
+    private transient volatile boolean modified = true;
+
+    public ConfigList() {
+        // default constructor
+    }
+
+    ConfigList(final List<Config> configurations,
+            final long changeCount,
+            final boolean hasChanges,
+            final Config lastInstalled) {
+        this.configurations = configurations;
+        this.changeCount = changeCount;
+        this.hasChanges = hasChanges;
+        this.lastInstalled = lastInstalled;
+    }
+
     /**
      * Serialize the object
      * - write version id
@@ -93,7 +110,24 @@ public class ConfigList implements Serializable, Iterable<Config> {
      * @param value New value.
      */
     public void setHasChanges(final boolean value) {
-        this.hasChanges = hasChanges;
+        this.modified = true;
+        this.hasChanges = value;
+    }
+
+    /**
+     * Has this list been modified since it was last persisted
+     * @return {@code true} if it has been modified
+     */
+    boolean isModified() {
+        return this.modified;
+    }
+
+    /**
+     * Set the modified flag
+     * @param value New value
+     */
+    void setModified(final boolean value) {
+        this.modified = value;
     }
 
     /**
@@ -101,6 +135,7 @@ public class ConfigList implements Serializable, Iterable<Config> {
      * @param c The configuration.
      */
     public void add(final Config c) {
+        this.modified = true;
         this.hasChanges = true;
         this.configurations.add(c);
         Collections.sort(this.configurations);
@@ -125,6 +160,7 @@ public class ConfigList implements Serializable, Iterable<Config> {
                 }
             }
 
+            this.modified = true;
             this.hasChanges = true;
             this.configurations.add(cfg);
         }
@@ -157,6 +193,7 @@ public class ConfigList implements Serializable, Iterable<Config> {
      * @param value The new change count
      */
     public void setChangeCount(final long value) {
+        this.modified = true;
         this.changeCount = value;
     }
 
@@ -165,6 +202,7 @@ public class ConfigList implements Serializable, Iterable<Config> {
     }
 
     public void setLastInstalled(Config lastInstalled) {
+        this.modified = true;
         this.lastInstalled = lastInstalled;
     }
 
@@ -175,6 +213,7 @@ public class ConfigList implements Serializable, Iterable<Config> {
     public void uninstall(final long bundleId) {
         for(final Config cfg : this.configurations) {
             if ( cfg.getBundleId() == bundleId ) {
+                this.modified = true;
                 this.hasChanges = true;
                 if ( cfg.getState() == ConfigState.INSTALLED ) {
                     cfg.setState(ConfigState.UNINSTALL);
@@ -18,13 +18,19 @@
  */
 package org.apache.felix.configurator.impl.model;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -37,14 +43,22 @@ public class State extends AbstractState implements Serializable {
     /** Serialization version. */
     private static final int VERSION = 1;
 
-    public static final String FILE_NAME = "state.ser";
+    public static final String FILE_NAME = "state.bin";
+
+    /** The file name of the state persisted with Java serialization by previous versions. */
+    public static final String LEGACY_FILE_NAME = "state.ser";
 
     private Map<Long, Long> bundlesLastModified = new HashMap<>();
 
     private Map<Long, Long> bundlesConfigAdminBundleId = new HashMap<>();
 
+    private Map<Long, String> bundlesHash = new HashMap<>();
+
     private volatile Set<String> initialHashes;
 
+    /** The encoded config lists from the last write, see {@link StateFormat}. */
+    private transient Map<String, byte[]> encodedConfigurations;
+
     /**
      * Serialize the object
      * - write version id
@@ -75,27 +89,64 @@ public class State extends AbstractState implements Serializable {
         this.bundlesLastModified =(Map<Long, Long>) in.readObject();
         this.bundlesConfigAdminBundleId = (Map<Long, Long>) in.readObject();
         initialHashes = (Set<String>) in.readObject();
+        this.bundlesHash = new HashMap<>();
     }
 
+    /**
+     * Read the state from the file. If the file does not exist, the state
+     * persisted by previous versions is read from {@link #LEGACY_FILE_NAME}
+     * in the same directory.
+     * @param f The file
+     * @return The state
+     * @throws ClassNotFoundException If the legacy state can't be read
+     * @throws IOException If reading fails
+     */
     public static State createOrReadState(final File f)
     throws ClassNotFoundException, IOException {
-        if ( f == null || !f.exists() ) {
+        if ( f == null ) {
             return new State();
         }
-        try ( final ObjectInputStream ois = new ObjectInputStream(new FileInputStream(f)) ) {
+        if ( !f.exists() ) {
+            final File legacy = new File(f.getParentFile(), LEGACY_FILE_NAME);
+            if ( !legacy.exists() ) {
+                return new State();
+            }
+            try ( final ObjectInputStream ois = new ObjectInputStream(new FileInputStream(legacy)) ) {
 
-            return (State) ois.readObject();
+                return (State) ois.readObject();
+            }
+        }
+        try ( final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(f))) ) {
+
+            return StateFormat.read(in);
         }
     }
 
+    /**
+     * Write the state to the file. The state is written to a temporary file
+     * first which then replaces the file.
+     * @param f The file
+     * @param state The state
+     * @throws IOException If writing fails
+     */
     public static void writeState(final File f, final State state)
     throws IOException {
         if ( f == null ) {
             // do nothing, no file system support
             return;
         }
-        try ( final ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(f)) ) {
-            oos.writeObject(state);
+        final File tmp = new File(f.getParentFile(), f.getName() + ".tmp");
+        try ( final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp))) ) {
+            StateFormat.write(out, state);
+        }
+        try {
+            Files.move(tmp.toPath(), f.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch ( final AtomicMoveNotSupportedException e ) {
+            Files.move(tmp.toPath(), f.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        final File legacy = new File(f.getParentFile(), LEGACY_FILE_NAME);
+        if ( legacy.exists() ) {
+            legacy.delete();
         }
     }
 
@@ -109,6 +160,29 @@ public class State extends AbstractState implements Serializable {
 
     public void removeLastModified(final long bundleId) {
         this.bundlesLastModified.remove(bundleId);
+        this.bundlesHash.remove(bundleId);
+    }
+
+    /**
+     * Get the hash of the configuration resources of a bundle
+     * @param bundleId The bundle id
+     * @return The hash or {@code null}
+     */
+    public String getHash(final long bundleId) {
+        return this.bundlesHash.get(bundleId);
+    }
+
+    /**
+     * Set the hash of the configuration resources of a bundle
+     * @param bundleId The bundle id
+     * @param hash The hash or {@code null}
+     */
+    public void setHash(final long bundleId, final String hash) {
+        if ( hash == null ) {
+            this.bundlesHash.remove(bundleId);
+        } else {
+            this.bundlesHash.put(bundleId, hash);
+        }
     }
 
     public Long getConfigAdminBundleId(final long bundleId) {
@@ -168,9 +242,29 @@ public class State extends AbstractState implements Serializable {
         }
     }
 
+    Map<Long, Long> getLastModifiedMap() {
+        return this.bundlesLastModified;
+    }
+
+    Map<Long, Long> getConfigAdminBundleIdMap() {
+        return this.bundlesConfigAdminBundleId;
+    }
+
+    Map<Long, String> getHashMap() {
+        return this.bundlesHash;
+    }
+
+    Map<String, byte[]> getEncodedConfigurations() {
+        if ( this.encodedConfigurations == null ) {
+            this.encodedConfigurations = new HashMap<>();
+        }
+        return this.encodedConfigurations;
+    }
+
     @Override
     public String toString() {
         return "State [bundlesLastModified=" + bundlesLastModified +
+                ", bundlesHash=" + bundlesHash +
                 ", initialHashes=" + initialHashes +
                 ", bundlesConfigAdminBundleId=" + bundlesConfigAdminBundleId + "]";
     }
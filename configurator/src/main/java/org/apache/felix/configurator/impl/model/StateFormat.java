@@ -0,0 +1,427 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.configurator.impl.model;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.reflect.Array;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Dictionary;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Hashtable;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The binary format of the persisted state.
+ *
+ * The file starts with a magic number and the format version, followed
+ * by the bundle information and one record per pid. Each pid record is
+ * prefixed with its length. The encoded record of a config list is kept
+ * in the state and reused as long as the list is not modified, so writing
+ * the state only encodes the pids which changed since the last write.
+ *
+ * Configuration properties are written with a type tag per value. Values
+ * of a type which is not supported by the format are written using Java
+ * serialization.
+ */
+final class StateFormat {
+
+    /** Magic number at the start of the file. */
+    private static final int MAGIC = 0x46435354;
+
+    /** Format version. */
+    private static final int VERSION = 1;
+
+    private static final byte TYPE_NULL = 0;
+    private static final byte TYPE_STRING = 1;
+    private static final byte TYPE_LONG = 2;
+    private static final byte TYPE_INTEGER = 3;
+    private static final byte TYPE_DOUBLE = 4;
+    private static final byte TYPE_FLOAT = 5;
+    private static final byte TYPE_BOOLEAN = 6;
+    private static final byte TYPE_SHORT = 7;
+    private static final byte TYPE_BYTE = 8;
+    private static final byte TYPE_CHARACTER = 9;
+    private static final byte TYPE_ARRAY = 10;
+    private static final byte TYPE_LIST = 11;
+    private static final byte TYPE_SERIALIZED = 12;
+
+    /** Index of the last installed configuration if it is not part of the list. */
+    private static final int LAST_INSTALLED_NONE = -1;
+    private static final int LAST_INSTALLED_EXTERNAL = -2;
+
+    private static final Map<String, Class<?>> ARRAY_TYPES = new HashMap<>();
+    static {
+        for(final Class<?> c : new Class<?>[] {String.class, Long.class, Integer.class, Double.class, Float.class,
+                Boolean.class, Short.class, Byte.class, Character.class,
+                long.class, int.class, double.class, float.class, boolean.class, short.class, byte.class, char.class}) {
+            ARRAY_TYPES.put(c.getName(), c);
+        }
+    }
+
+    private StateFormat() {
+        // static methods only
+    }
+
+    /**
+     * Write the state
+     * @param out The output
+     * @param state The state
+     * @throws IOException If writing fails
+     */
+    static void write(final DataOutputStream out, final State state) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+
+        writeLongMap(out, state.getLastModifiedMap());
+        writeLongMap(out, state.getConfigAdminBundleIdMap());
+
+        final Map<Long, String> hashes = state.getHashMap();
+        out.writeInt(hashes.size());
+        for(final Map.Entry<Long, String> entry : hashes.entrySet()) {
+            out.writeLong(entry.getKey());
+            writeString(out, entry.getValue());
+        }
+
+        final Set<String> initialHashes = state.getInitialHashes();
+        if ( initialHashes == null ) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(initialHashes.size());
+            for(final String h : initialHashes) {
+                writeString(out, h);
+            }
+        }
+
+        final Map<String, byte[]> encoded = state.getEncodedConfigurations();
+        encoded.keySet().retainAll(state.getConfigurations().keySet());
+        out.writeInt(state.getConfigurations().size());
+        for(final Map.Entry<String, ConfigList> entry : state.getConfigurations().entrySet()) {
+            final ConfigList list = entry.getValue();
+            byte[] bytes = encoded.get(entry.getKey());
+            if ( bytes == null || list.isModified() ) {
+                list.setModified(false);
+                bytes = encode(list);
+                encoded.put(entry.getKey(), bytes);
+            }
+            writeString(out, entry.getKey());
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Read the state
+     * @param in The input
+     * @return The state
+     * @throws IOException If reading fails or the input is not a state
+     */
+    static State read(final DataInputStream in) throws IOException {
+        if ( in.readInt() != MAGIC ) {
+            throw new IOException("Invalid state file");
+        }
+        final int version = in.readInt();
+        if ( version < 1 || version > VERSION ) {
+            throw new IOException("Unsupported state file version " + version);
+        }
+        final State state = new State();
+        readLongMap(in, state.getLastModifiedMap());
+        readLongMap(in, state.getConfigAdminBundleIdMap());
+
+        int count = in.readInt();
+        for(int i=0;i<count;i++) {
+            final long bundleId = in.readLong();
+            state.getHashMap().put(bundleId, readString(in));
+        }
+
+        count = in.readInt();
+        if ( count >= 0 ) {
+            final Set<String> initialHashes = new HashSet<>();
+            for(int i=0;i<count;i++) {
+                initialHashes.add(readString(in));
+            }
+            state.setInitialHashes(initialHashes);
+        }
+
+        count = in.readInt();
+        for(int i=0;i<count;i++) {
+            final String pid = readString(in);
+            final byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            final ConfigList list = decode(bytes);
+            list.setModified(false);
+            state.getConfigurations().put(pid, list);
+            state.getEncodedConfigurations().put(pid, bytes);
+        }
+        return state;
+    }
+
+    private static byte[] encode(final ConfigList list) throws IOException {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try ( final DataOutputStream out = new DataOutputStream(baos) ) {
+            out.writeLong(list.getChangeCount());
+            out.writeBoolean(list.hasChanges());
+            out.writeInt(list.size());
+            final Config lastInstalled = list.getLastInstalled();
+            int lastInstalledIndex = lastInstalled == null ? LAST_INSTALLED_NONE : LAST_INSTALLED_EXTERNAL;
+            int index = 0;
+            for(final Config cfg : list) {
+                if ( cfg == lastInstalled ) {
+                    lastInstalledIndex = index;
+                }
+                writeConfig(out, cfg);
+                index++;
+            }
+            out.writeInt(lastInstalledIndex);
+            if ( lastInstalledIndex == LAST_INSTALLED_EXTERNAL ) {
+                writeConfig(out, lastInstalled);
+            }
+        }
+        return baos.toByteArray();
+    }
+
+    private static ConfigList decode(final byte[] bytes) throws IOException {
+        try ( final DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes)) ) {
+            final long changeCount = in.readLong();
+            final boolean hasChanges = in.readBoolean();
+            final int count = in.readInt();
+            final List<Config> configs = new ArrayList<>(count);
+            for(int i=0;i<count;i++) {
+                configs.add(readConfig(in));
+            }
+            final int lastInstalledIndex = in.readInt();
+            final Config lastInstalled;
+            if ( lastInstalledIndex == LAST_INSTALLED_EXTERNAL ) {
+                lastInstalled = readConfig(in);
+            } else if ( lastInstalledIndex >= 0 && lastInstalledIndex < configs.size() ) {
+                lastInstalled = configs.get(lastInstalledIndex);
+            } else {
+                lastInstalled = null;
+            }
+            return new ConfigList(configs, changeCount, hasChanges, lastInstalled);
+        }
+    }
+
+    private static void writeConfig(final DataOutputStream out, final Config cfg) throws IOException {
+        writeString(out, cfg.getPid());
+        out.writeInt(cfg.getRanking());
+        out.writeLong(cfg.getBundleId());
+        writeString(out, cfg.getPolicy().name());
+        out.writeInt(cfg.getIndex());
+        writeString(out, cfg.getState().name());
+        final List<File> files = cfg.getFiles();
+        if ( files == null ) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(files.size());
+            for(final File f : files) {
+                writeString(out, f.getPath());
+            }
+        }
+        final Dictionary<String, Object> properties = cfg.getProperties();
+        if ( properties == null ) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(properties.size());
+            final Enumeration<String> keys = properties.keys();
+            while ( keys.hasMoreElements() ) {
+                final String key = keys.nextElement();
+                writeString(out, key);
+                writeValue(out, properties.get(key));
+            }
+        }
+    }
+
+    private static Config readConfig(final DataInputStream in) throws IOException {
+        final String pid = readString(in);
+        final int ranking = in.readInt();
+        final long bundleId = in.readLong();
+        final ConfigPolicy policy = ConfigPolicy.valueOf(readString(in));
+        final int index = in.readInt();
+        final ConfigState state = ConfigState.valueOf(readString(in));
+        List<File> files = null;
+        int count = in.readInt();
+        if ( count >= 0 ) {
+            files = new ArrayList<>(count);
+            for(int i=0;i<count;i++) {
+                files.add(new File(readString(in)));
+            }
+        }
+        Dictionary<String, Object> properties = null;
+        count = in.readInt();
+        if ( count >= 0 ) {
+            properties = new Hashtable<>();
+            for(int i=0;i<count;i++) {
+                final String key = readString(in);
+                final Object value = readValue(in);
+                if ( value != null ) {
+                    properties.put(key, value);
+                }
+            }
+        }
+        final Config cfg = new Config(pid, properties, bundleId, ranking, policy);
+        cfg.setIndex(index);
+        cfg.setState(state);
+        cfg.setFiles(files);
+        return cfg;
+    }
+
+    private static void writeValue(final DataOutputStream out, final Object value) throws IOException {
+        if ( value == null ) {
+            out.writeByte(TYPE_NULL);
+        } else if ( value instanceof String ) {
+            out.writeByte(TYPE_STRING);
+            writeString(out, (String)value);
+        } else if ( value instanceof Long ) {
+            out.writeByte(TYPE_LONG);
+            out.writeLong((Long)value);
+        } else if ( value instanceof Integer ) {
+            out.writeByte(TYPE_INTEGER);
+            out.writeInt((Integer)value);
+        } else if ( value instanceof Double ) {
+            out.writeByte(TYPE_DOUBLE);
+            out.writeDouble((Double)value);
+        } else if ( value instanceof Float ) {
+            out.writeByte(TYPE_FLOAT);
+            out.writeFloat((Float)value);
+        } else if ( value instanceof Boolean ) {
+            out.writeByte(TYPE_BOOLEAN);
+            out.writeBoolean((Boolean)value);
+        } else if ( value instanceof Short ) {
+            out.writeByte(TYPE_SHORT);
+            out.writeShort((Short)value);
+        } else if ( value instanceof Byte ) {
+            out.writeByte(TYPE_BYTE);
+            out.writeByte((Byte)value);
+        } else if ( value instanceof Character ) {
+            out.writeByte(TYPE_CHARACTER);
+            out.writeChar((Character)value);
+        } else if ( value.getClass().isArray()
+                && ARRAY_TYPES.containsKey(value.getClass().getComponentType().getName()) ) {
+            out.writeByte(TYPE_ARRAY);
+            writeString(out, value.getClass().getComponentType().getName());
+            final int length = Array.getLength(value);
+            out.writeInt(length);
+            for(int i=0;i<length;i++) {
+                writeValue(out, Array.get(value, i));
+            }
+        } else if ( value.getClass() == ArrayList.class ) {
+            out.writeByte(TYPE_LIST);
+            final Collection<?> c = (Collection<?>)value;
+            out.writeInt(c.size());
+            final Iterator<?> iter = c.iterator();
+            while ( iter.hasNext() ) {
+                writeValue(out, iter.next());
+            }
+        } else {
+            out.writeByte(TYPE_SERIALIZED);
+            final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            try ( final ObjectOutputStream oos = new ObjectOutputStream(baos) ) {
+                oos.writeObject(value);
+            }
+            out.writeInt(baos.size());
+            baos.writeTo(out);
+        }
+    }
+
+    private static Object readValue(final DataInputStream in) throws IOException {
+        final byte type = in.readByte();
+        switch ( type ) {
+            case TYPE_NULL : return null;
+            case TYPE_STRING : return readString(in);
+            case TYPE_LONG : return in.readLong();
+            case TYPE_INTEGER : return in.readInt();
+            case TYPE_DOUBLE : return in.readDouble();
+            case TYPE_FLOAT : return in.readFloat();
+            case TYPE_BOOLEAN : return in.readBoolean();
+            case TYPE_SHORT : return in.readShort();
+            case TYPE_BYTE : return in.readByte();
+            case TYPE_CHARACTER : return in.readChar();
+            case TYPE_ARRAY : final Class<?> componentType = ARRAY_TYPES.get(readString(in));
+                              if ( componentType == null ) {
+                                  throw new IOException("Invalid array type in state file");
+                              }
+                              final int length = in.readInt();
+                              final Object array = Array.newInstance(componentType, length);
+                              for(int i=0;i<length;i++) {
+                                  Array.set(array, i, readValue(in));
+                              }
+                              return array;
+            case TYPE_LIST : final int size = in.readInt();
+                             final List<Object> list = new ArrayList<>(size);
+                             for(int i=0;i<size;i++) {
+                                 list.add(readValue(in));
+                             }
+                             return list;
+            case TYPE_SERIALIZED : final byte[] bytes = new byte[in.readInt()];
+                                   in.readFully(bytes);
+                                   try ( final ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes)) ) {
+                                       return ois.readObject();
+                                   } catch ( final ClassNotFoundException cnfe ) {
+                                       throw new IOException("Unable to read value from state file", cnfe);
+                                   }
+        }
+        throw new IOException("Invalid value type in state file : " + type);
+    }
+
+    private static void writeLongMap(final DataOutputStream out, final Map<Long, Long> map) throws IOException {
+        out.writeInt(map.size());
+        for(final Map.Entry<Long, Long> entry : map.entrySet()) {
+            out.writeLong(entry.getKey());
+            out.writeLong(entry.getValue());
+        }
+    }
+
+    private static void readLongMap(final DataInputStream in, final Map<Long, Long> map) throws IOException {
+        final int count = in.readInt();
+        for(int i=0;i<count;i++) {
+            final long key = in.readLong();
+            map.put(key, in.readLong());
+        }
+    }
+
+    /**
+     * Strings are written with their length as an int, {@link DataOutputStream#writeUTF(String)}
+     * is limited to 64k.
+     */
+    private static void writeString(final DataOutputStream out, final String value) throws IOException {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(final DataInputStream in) throws IOException {
+        final byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
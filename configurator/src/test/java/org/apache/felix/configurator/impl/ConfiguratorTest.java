@@ -18,6 +18,8 @@
  */
 package org.apache.felix.configurator.impl;
 
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
@@ -250,4 +252,37 @@ public class ConfiguratorTest {
         inorder.verify(c2).delete();
         inorder.verifyNoMoreInteractions();
     }
+
+    @Test public void testUpdateWithUnchangedConfigurations() throws Exception {
+        final Bundle bV1 = setupBundle(1);
+        final Bundle bV2 = setupBundle(1);
+
+        Configuration c1 = mock(Configuration.class);
+        Configuration c2 = mock(Configuration.class);
+        when(configurationAdmin.getConfiguration("a", "?")).thenReturn(c1);
+        when(configurationAdmin.getConfiguration("b", "?")).thenReturn(c2);
+
+        when(c1.getChangeCount()).thenReturn(1L);
+        when(c2.getChangeCount()).thenReturn(1L);
+        assertTrue(configurator.processAddBundle(bV1));
+        configurator.process();
+
+        // the bundle is updated, but the configurations are the same
+        assertTrue(configurator.processAddBundle(bV2));
+        configurator.process();
+        // no changes at all
+        assertFalse(configurator.processAddBundle(bV2));
+
+        final Dictionary<String, Object> props1 = new Hashtable<>();
+        props1.put("foo", "bar");
+        final Dictionary<String, Object> props2 = new Hashtable<>();
+        props2.put("x", "y");
+
+        InOrder inorder = inOrder(c1, c2);
+        inorder.verify(c1).updateIfDifferent(props1);
+        inorder.verify(c1).getChangeCount();
+        inorder.verify(c2).updateIfDifferent(props2);
+        inorder.verify(c2).getChangeCount();
+        inorder.verifyNoMoreInteractions();
+    }
 }
@@ -18,12 +18,26 @@
  */
 package org.apache.felix.configurator.impl.model;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Dictionary;
+import java.util.Hashtable;
+import java.util.Iterator;
+import java.util.List;
 
 import org.junit.Test;
 
@@ -68,4 +82,99 @@ public class StateTest {
         assertEquals(1, state.getConfigurations("a").size());
         assertEquals(1, state.getConfigurations("b").size());
     }
+
+    @Test public void testWriteReadStateFile() throws Exception {
+        final File dir = Files.createTempDirectory("state").toFile();
+        final File f = new File(dir, State.FILE_NAME);
+
+        final Dictionary<String, Object> props = new Hashtable<>();
+        props.put("string", "value");
+        props.put("long", 7L);
+        props.put("double", 1.5d);
+        props.put("boolean", Boolean.TRUE);
+        props.put("ints", new int[] {1, 2, 3});
+        props.put("strings", new String[] {"a", "b"});
+        final List<Object> list = new ArrayList<>();
+        list.add("x");
+        list.add(5L);
+        props.put("list", list);
+        props.put("other", Collections.singleton("y"));
+
+        final State state = new State();
+        final Config c1 = new Config("a", props, 1,  0, ConfigPolicy.FORCE);
+        final Config c2 = new Config("a", null, 2, 10, ConfigPolicy.DEFAULT);
+        c2.setFiles(Collections.singletonList(new File(dir, "bin")));
+        state.add(c1);
+        state.add(c2);
+        c1.setState(ConfigState.INSTALLED);
+        state.getConfigurations("a").setLastInstalled(c1);
+        state.getConfigurations("a").setChangeCount(3);
+        state.setLastModified(1, 5);
+        state.setHash(1, "hash");
+        state.setConfigAdminBundleId(1, 4);
+        state.setInitialHashes(Collections.singleton("initial"));
+
+        State.writeState(f, state);
+        final State s = State.createOrReadState(f);
+
+        assertEquals(5L, (Object)s.getLastModified(1));
+        assertEquals("hash", s.getHash(1));
+        assertEquals(4L, (Object)s.getConfigAdminBundleId(1));
+        assertEquals(Collections.singleton("initial"), s.getInitialHashes());
+
+        final ConfigList configs = s.getConfigurations("a");
+        assertEquals(2, configs.size());
+        assertEquals(3L, configs.getChangeCount());
+        assertTrue(configs.hasChanges());
+        final Iterator<Config> iter = configs.iterator();
+        final Config r2 = iter.next();
+        final Config r1 = iter.next();
+        assertSame(r1, configs.getLastInstalled());
+        assertEquals(ConfigState.INSTALLED, r1.getState());
+        assertEquals(ConfigPolicy.FORCE, r1.getPolicy());
+        assertEquals(2L, r2.getBundleId());
+        assertEquals(10, r2.getRanking());
+        assertNull(r2.getProperties());
+        assertEquals(c2.getFiles(), r2.getFiles());
+
+        final Dictionary<String, Object> p = r1.getProperties();
+        assertEquals("value", p.get("string"));
+        assertEquals(7L, p.get("long"));
+        assertEquals(1.5d, p.get("double"));
+        assertEquals(Boolean.TRUE, p.get("boolean"));
+        assertArrayEquals(new int[] {1, 2, 3}, (int[])p.get("ints"));
+        assertArrayEquals(new String[] {"a", "b"}, (String[])p.get("strings"));
+        assertEquals(list, p.get("list"));
+        assertEquals(Collections.singleton("y"), p.get("other"));
+
+        // unchanged lists are not encoded again
+        assertFalse(configs.isModified());
+        configs.setChangeCount(4);
+        assertTrue(configs.isModified());
+        State.writeState(f, s);
+        assertFalse(configs.isModified());
+        assertEquals(4L, State.createOrReadState(f).getConfigurations("a").getChangeCount());
+    }
+
+    @Test public void testReadLegacyState() throws Exception {
+        final File dir = Files.createTempDirectory("state").toFile();
+        final File legacy = new File(dir, State.LEGACY_FILE_NAME);
+
+        final State state = new State();
+        state.add(new Config("a", null, 1,  0, ConfigPolicy.DEFAULT));
+        state.setLastModified(1, 5);
+        try ( final ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(legacy))) {
+            oos.writeObject(state);
+        }
+
+        final File f = new File(dir, State.FILE_NAME);
+        final State s = State.createOrReadState(f);
+        assertEquals(1, s.getConfigurations("a").size());
+        assertEquals(5L, (Object)s.getLastModified(1));
+        assertNull(s.getHash(1));
+
+        State.writeState(f, s);
+        assertTrue(f.exists());
+        assertFalse(legacy.exists());
+    }
 }
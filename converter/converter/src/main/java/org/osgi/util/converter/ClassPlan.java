@@ -0,0 +1,713 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.osgi.util.converter;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodHandles.Lookup;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The reflective information the converter needs about a class.
+ * <p>
+ * Discovering how to convert from or to a class (its accessors, setters,
+ * DTO fields, factory methods, constructors and interfaces) is done once
+ * per class and cached with the class. Members are invoked through method
+ * handles adapted to a generic signature. The parts of a plan are computed
+ * lazily, as most classes are only ever used in one or two roles.
+ *
+ * @author $Id$
+ */
+final class ClassPlan {
+	private static final Lookup				LOOKUP	= MethodHandles.lookup();
+
+	private static final MethodType			NULLARY	= MethodType
+			.methodType(Object.class);
+	private static final MethodType			UNARY	= MethodType
+			.methodType(Object.class, Object.class);
+	private static final MethodType			BINARY	= MethodType
+			.methodType(void.class, Object.class, Object.class);
+
+	/** Marks a cached lookup which found nothing. */
+	private static final Object				NONE	= new Object();
+
+	private static final ClassValue<ClassPlan>	PLANS	= new ClassValue<ClassPlan>() {
+		@Override
+		protected ClassPlan computeValue(Class< ? > type) {
+			return new ClassPlan(type);
+		}
+	};
+
+	static ClassPlan forClass(Class< ? > cls) {
+		return PLANS.get(cls);
+	}
+
+	private final Class< ? >					cls;
+
+	// The lazily computed parts. Computing a part twice in a race is
+	// harmless, the results are equal and immutable.
+	private volatile Boolean					dtoType;
+	private volatile Boolean					lenientDTOType;
+	private volatile String						prefix;
+	private volatile Set<Class< ? >>			interfaces;
+	private volatile Boolean					markerAnnotation;
+	private volatile Boolean					writeableJavaBean;
+	private volatile Map<String,Method>			beanKeys;
+	private volatile Map<String,Field>			dtoKeys;
+	private volatile List<Accessor>				beanAccessors;
+	private volatile List<Accessor>				dtoAccessors;
+	private volatile Map<String,String>			fieldNames;
+	private volatile Field[]					publicFields;
+	private volatile List<BeanSetter>			setters;
+	private volatile Object						enumConstants;
+	private volatile Object						valueOf;
+	private volatile Object						stringConstructor;
+	private volatile Object						sizedConstructor;
+	private volatile Object						defaultConstructor;
+	private volatile Object						getProperties;
+	private volatile Object						constructableType;
+	private volatile Constructor< ? >			proxyConstructor;
+	private volatile Object						singleElementAnnotationKey;
+	private volatile Boolean					proxyResultStable;
+
+	private final ConcurrentMap<String,Object>	fields			= new ConcurrentHashMap<>();
+	private final ConcurrentMap<Method,Object>	propertyNames	= new ConcurrentHashMap<>();
+	private final ConcurrentMap<Method,MethodHandle>	defaultMethods	= new ConcurrentHashMap<>();
+
+	private ClassPlan(Class< ? > cls) {
+		this.cls = cls;
+	}
+
+	boolean isDTOType(boolean ignorePublicNoArgsCtor) {
+		Boolean result = ignorePublicNoArgsCtor ? lenientDTOType : dtoType;
+		if (result == null) {
+			result = Boolean
+					.valueOf(DTOUtil.computeDTOType(cls, ignorePublicNoArgsCtor));
+			if (ignorePublicNoArgsCtor)
+				lenientDTOType = result;
+			else
+				dtoType = result;
+		}
+		return result.booleanValue();
+	}
+
+	String getPrefix() {
+		String result = prefix;
+		if (result == null)
+			prefix = result = Util.computePrefix(cls);
+		return result;
+	}
+
+	/**
+	 * @return The ordered and unmodifiable set of interfaces providing a map
+	 *         view
+	 */
+	Set<Class< ? >> getInterfaces() {
+		Set<Class< ? >> result = interfaces;
+		if (result == null)
+			interfaces = result = Collections.unmodifiableSet(
+					new LinkedHashSet<>(ConvertingImpl.computeInterfaces(cls)));
+		return result;
+	}
+
+	boolean isMarkerAnnotation() {
+		Boolean result = markerAnnotation;
+		if (result == null)
+			markerAnnotation = result = Boolean
+					.valueOf(ConvertingImpl.computeMarkerAnnotation(cls));
+		return result.booleanValue();
+	}
+
+	boolean isWriteableJavaBean() {
+		Boolean result = writeableJavaBean;
+		if (result == null)
+			writeableJavaBean = result = Boolean
+					.valueOf(ConvertingImpl.computeWriteableJavaBean(cls));
+		return result.booleanValue();
+	}
+
+	Map<String,Method> getBeanKeys() {
+		Map<String,Method> result = beanKeys;
+		if (result == null)
+			beanKeys = result = Collections
+					.unmodifiableMap(Util.computeBeanKeys(cls));
+		return result;
+	}
+
+	Map<String,Field> getDTOKeys() {
+		Map<String,Field> result = dtoKeys;
+		if (result == null)
+			dtoKeys = result = Collections
+					.unmodifiableMap(Util.computeDTOKeys(cls));
+		return result;
+	}
+
+	/**
+	 * @return All public bean accessors with their property name, in the
+	 *         order of {@link Class#getMethods()}. A name may occur more than
+	 *         once.
+	 */
+	List<Accessor> getBeanAccessors() {
+		List<Accessor> result = beanAccessors;
+		if (result == null) {
+			result = new ArrayList<>();
+			for (Method md : cls.getMethods()) {
+				String key = Util.getBeanKey(md);
+				if (key != null)
+					result.add(new Accessor(key, getter(md)));
+			}
+			beanAccessors = result = Collections.unmodifiableList(result);
+		}
+		return result;
+	}
+
+	/**
+	 * @return All public DTO fields with their key, in the order of
+	 *         {@link Class#getFields()}. A key may occur more than once.
+	 */
+	List<Accessor> getDTOAccessors() {
+		List<Accessor> result = dtoAccessors;
+		if (result == null) {
+			result = new ArrayList<>();
+			for (Field f : cls.getFields()) {
+				String key = Util.getDTOKey(f);
+				if (key != null)
+					result.add(new Accessor(key, getter(f)));
+			}
+			dtoAccessors = result = Collections.unmodifiableList(result);
+		}
+		return result;
+	}
+
+	/**
+	 * Map a key to the name of a public instance field, see
+	 * {@link Util#mangleName(String, String, List)}.
+	 */
+	String mangleName(String prefix, String key) {
+		if (!key.startsWith(prefix))
+			return null;
+
+		String name = getFieldNames().get(key.substring(prefix.length()));
+		if (name != null)
+			return name;
+
+		return Util.mangleName(prefix, key, Collections.<String> emptyList());
+	}
+
+	/**
+	 * @return The names of the public instance fields by their unmangled
+	 *         name
+	 */
+	private Map<String,String> getFieldNames() {
+		Map<String,String> result = fieldNames;
+		if (result == null) {
+			result = new HashMap<>();
+			for (Field field : getPublicFields()) {
+				if (Modifier.isStatic(field.getModifiers()))
+					continue;
+
+				String name = field.getName();
+				String key = Util.unMangleName(name);
+				if (!result.containsKey(key))
+					result.put(key, name);
+			}
+			fieldNames = result;
+		}
+		return result;
+	}
+
+	/**
+	 * @param name The field name
+	 * @return The public field as found by {@link Class#getField(String)} or
+	 *         {@code null}
+	 */
+	FieldAccessor getField(String name) {
+		Object result = fields.get(name);
+		if (result == null) {
+			try {
+				Field f = cls.getField(name);
+				result = new FieldAccessor(f, setter(f));
+			} catch (NoSuchFieldException e) {
+				result = NONE;
+			}
+			fields.put(name, result);
+		}
+		return result == NONE ? null : (FieldAccessor) result;
+	}
+
+	/**
+	 * @param name The field name
+	 * @return The first public field matching the name ignoring case or
+	 *         {@code null}
+	 */
+	FieldAccessor getFieldIgnoreCase(String name) {
+		for (Field f : getPublicFields()) {
+			if (f.getName().equalsIgnoreCase(name)) {
+				return getField(f.getName());
+			}
+		}
+		return null;
+	}
+
+	private Field[] getPublicFields() {
+		Field[] result = publicFields;
+		if (result == null)
+			publicFields = result = cls.getFields();
+		return result;
+	}
+
+	/**
+	 * @return The public single argument setters of the class and its super
+	 *         classes
+	 */
+	List<BeanSetter> getSetters() {
+		List<BeanSetter> result = setters;
+		if (result == null) {
+			result = new ArrayList<>();
+			for (Method setter : ConvertingImpl.computeSetters(cls)) {
+				String setterName = setter.getName();
+				StringBuilder propName = new StringBuilder(Character
+						.valueOf(Character.toLowerCase(setterName.charAt(3)))
+						.toString());
+				if (setterName.length() > 4)
+					propName.append(setterName.substring(4));
+
+				result.add(new BeanSetter(propName.toString(),
+						setter.getParameterTypes()[0], invoker(setter, BINARY)));
+			}
+			setters = result = Collections.unmodifiableList(result);
+		}
+		return result;
+	}
+
+	/**
+	 * @return The constants of an enum class, or {@code null}
+	 */
+	EnumConstants getEnumConstants() {
+		Object result = enumConstants;
+		if (result == null) {
+			Class< ? > enumCls = cls;
+			while (enumCls != null && !enumCls.isEnum())
+				enumCls = enumCls.getSuperclass();
+			Object[] values = enumCls != null ? enumCls.getEnumConstants()
+					: null;
+			enumConstants = result = values != null
+					? new EnumConstants(values) : NONE;
+		}
+		return result == NONE ? null : (EnumConstants) result;
+	}
+
+	/**
+	 * @return The public static {@code valueOf(String)} method, or
+	 *         {@code null}
+	 */
+	Invoker getValueOf() {
+		Object result = valueOf;
+		if (result == null) {
+			try {
+				Method m = cls.getMethod("valueOf", String.class);
+				result = new ValueOf(Modifier.isStatic(m.getModifiers())
+						? invoker(m, UNARY) : null);
+			} catch (NoSuchMethodException | SecurityException e) {
+				result = NONE;
+			}
+			valueOf = result;
+		}
+		return result == NONE ? null : ((ValueOf) result).invoker;
+	}
+
+	/**
+	 * @return {@code true} if the class has a public {@code valueOf(String)}
+	 *         method, static or not
+	 */
+	boolean hasValueOf() {
+		getValueOf();
+		return valueOf != NONE;
+	}
+
+	/**
+	 * @return The public constructor taking a {@code String}, or {@code null}
+	 */
+	Invoker getStringConstructor() {
+		Object result = stringConstructor;
+		if (result == null)
+			stringConstructor = result = constructor(String.class);
+		return result == NONE ? null : (Invoker) result;
+	}
+
+	/**
+	 * @return The public constructor taking an {@code int}, or {@code null}
+	 */
+	Invoker getSizedConstructor() {
+		Object result = sizedConstructor;
+		if (result == null)
+			sizedConstructor = result = constructor(int.class);
+		return result == NONE ? null : (Invoker) result;
+	}
+
+	/**
+	 * @return The public no-arg constructor, or {@code null}
+	 */
+	Invoker getDefaultConstructor() {
+		Object result = defaultConstructor;
+		if (result == null)
+			defaultConstructor = result = constructor();
+		return result == NONE ? null : (Invoker) result;
+	}
+
+	/**
+	 * @return The public {@code getProperties()} method, or {@code null}
+	 */
+	Invoker getGetProperties() {
+		Object result = getProperties;
+		if (result == null) {
+			try {
+				result = getter(cls.getMethod("getProperties"));
+			} catch (NoSuchMethodException e) {
+				result = NONE;
+			}
+			getProperties = result;
+		}
+		return result == NONE ? null : (Invoker) result;
+	}
+
+	Class< ? > getConstructableType() {
+		Object result = constructableType;
+		if (result == null) {
+			Class< ? > type = ConvertingImpl.computeConstructableType(cls);
+			constructableType = result = type != null ? type : NONE;
+		}
+		return result == NONE ? null : (Class< ? >) result;
+	}
+
+	/**
+	 * Create a proxy implementing this interface. The proxy class and its
+	 * constructor are only looked up once.
+	 */
+	Object newProxyInstance(InvocationHandler handler) {
+		Constructor< ? > result = proxyConstructor;
+		try {
+			if (result == null) {
+				result = Proxy.getProxyClass(cls.getClassLoader(), cls)
+						.getConstructor(InvocationHandler.class);
+				if (!Modifier.isPublic(result.getDeclaringClass().getModifiers()))
+					result.setAccessible(true);
+				proxyConstructor = result;
+			}
+			return result.newInstance(handler);
+		} catch (InvocationTargetException e) {
+			throw new ConversionException("Cannot create proxy for " + cls,
+					e.getCause());
+		} catch (Exception e) {
+			throw new ConversionException("Cannot create proxy for " + cls,
+					e);
+		}
+	}
+
+	/**
+	 * @return The single element annotation key of a proxy implementing this
+	 *         interface, see
+	 *         {@link Util#getSingleElementAnnotationKey(Class, Object)}
+	 */
+	String getSingleElementAnnotationKey(Object proxy) {
+		Object result = singleElementAnnotationKey;
+		if (result == null) {
+			String key = Util.getSingleElementAnnotationKey(cls, proxy);
+			if (!isProxyResultStable()) {
+				return key;
+			}
+			singleElementAnnotationKey = result = key != null ? key : NONE;
+		}
+		return result == NONE ? null : (String) result;
+	}
+
+	/**
+	 * @return The property name of a method of a proxy implementing this
+	 *         interface, see
+	 *         {@link Util#getInterfacePropertyName(Method, String, Object)}
+	 */
+	String getInterfacePropertyName(Method md, Object proxy) {
+		Object result = propertyNames.get(md);
+		if (result == null) {
+			String name = Util.getInterfacePropertyName(md,
+					getSingleElementAnnotationKey(proxy), proxy);
+			if (!isProxyResultStable()) {
+				return name;
+			}
+			result = name != null ? name : NONE;
+			propertyNames.put(md, result);
+		}
+		return result == NONE ? null : (String) result;
+	}
+
+	/**
+	 * The property names only depend on the proxy if the interface declares
+	 * an {@code annotationType()} method, which is answered from the data
+	 * unless the interface is an annotation.
+	 */
+	private boolean isProxyResultStable() {
+		Boolean result = proxyResultStable;
+		if (result == null) {
+			boolean stable = true;
+			if (!cls.isAnnotation()) {
+				try {
+					cls.getMethod("annotationType");
+					stable = false;
+				} catch (NoSuchMethodException e) {
+					// The names do not depend on the data
+				}
+			}
+			proxyResultStable = result = Boolean.valueOf(stable);
+		}
+		return result.booleanValue();
+	}
+
+	/**
+	 * @return A method handle invoking the default method on a proxy, which
+	 *         has to be passed as the first argument
+	 */
+	MethodHandle getDefaultMethod(Method method) throws Exception {
+		MethodHandle mh = defaultMethods.get(method);
+		if (mh == null) {
+			double javaVersion = Double
+					.parseDouble(System.getProperty("java.class.version"));
+			double java8 = 52.0;
+			if (javaVersion > java8) {
+				mh = LOOKUP.findSpecial(method.getDeclaringClass(),
+								method.getName(),
+								MethodType.methodType(method.getReturnType(),
+										method.getParameterTypes()),
+								method.getDeclaringClass());
+			} else {
+				Constructor<Lookup> c = Lookup.class
+						.getDeclaredConstructor(Class.class);
+				if (!c.isAccessible()) {
+					c.setAccessible(true);
+				}
+				mh = c.newInstance(cls).in(cls).unreflectSpecial(method, cls);
+			}
+			defaultMethods.put(method, mh);
+		}
+		return mh;
+	}
+
+	private Object constructor(Class< ? >... parameterTypes) {
+		try {
+			return invoker(cls.getConstructor(parameterTypes),
+					parameterTypes.length == 0 ? NULLARY : UNARY);
+		} catch (NoSuchMethodException | SecurityException e) {
+			return NONE;
+		}
+	}
+
+	private static Invoker getter(Method m) {
+		return invoker(m, UNARY);
+	}
+
+	private static Invoker getter(Field f) {
+		try {
+			MethodHandle mh = LOOKUP.unreflectGetter(f);
+			if (Modifier.isStatic(f.getModifiers()))
+				mh = MethodHandles.dropArguments(mh, 0, Object.class);
+			return new Invoker(mh.asType(UNARY), null);
+		} catch (Exception e) {
+			return new Invoker(null, e);
+		}
+	}
+
+	private static Invoker setter(Field f) {
+		try {
+			MethodHandle mh = LOOKUP.unreflectSetter(f);
+			if (Modifier.isStatic(f.getModifiers()))
+				mh = MethodHandles.dropArguments(mh, 0, Object.class);
+			return new Invoker(mh.asType(BINARY), null);
+		} catch (Exception e) {
+			return new Invoker(null, e);
+		}
+	}
+
+	private static Invoker invoker(Method m, MethodType type) {
+		try {
+			MethodHandle mh = LOOKUP.unreflect(m);
+			if (Modifier.isStatic(m.getModifiers()) && m.getParameterTypes().length
+					+ 1 == type.parameterCount())
+				mh = MethodHandles.dropArguments(mh, 0, Object.class);
+			return new Invoker(mh.asType(type), null);
+		} catch (Exception e) {
+			return new Invoker(null, e);
+		}
+	}
+
+	private static Invoker invoker(Constructor< ? > c, MethodType type) {
+		try {
+			return new Invoker(LOOKUP.unreflectConstructor(c).asType(type),
+					null);
+		} catch (Exception e) {
+			return new Invoker(null, e);
+		}
+	}
+
+	/**
+	 * A method, constructor or field access adapted to a generic signature.
+	 * Like reflection, an exception thrown by the member is reported as an
+	 * {@link InvocationTargetException}. If the member is not accessible the
+	 * access exception is thrown on every invocation.
+	 */
+	static final class Invoker {
+		private final MethodHandle	mh;
+		private final Exception		failure;
+
+		Invoker(MethodHandle mh, Exception failure) {
+			this.mh = mh;
+			this.failure = failure;
+		}
+
+		Object invoke() throws Exception {
+			if (mh == null)
+				throw failure;
+			try {
+				return mh.invokeExact();
+			} catch (Throwable t) {
+				throw new InvocationTargetException(t);
+			}
+		}
+
+		Object invoke(Object arg) throws Exception {
+			if (mh == null)
+				throw failure;
+			try {
+				return mh.invokeExact(arg);
+			} catch (Throwable t) {
+				throw new InvocationTargetException(t);
+			}
+		}
+
+		void invoke(Object arg1, Object arg2) throws Exception {
+			if (mh == null)
+				throw failure;
+			try {
+				mh.invokeExact(arg1, arg2);
+			} catch (Throwable t) {
+				throw new InvocationTargetException(t);
+			}
+		}
+	}
+
+	/**
+	 * A bean accessor or DTO field with its map key.
+	 */
+	static final class Accessor {
+		final String	key;
+		final Invoker	getter;
+
+		Accessor(String key, Invoker getter) {
+			this.key = key;
+			this.getter = getter;
+		}
+	}
+
+	/**
+	 * A public field with a setter.
+	 */
+	static final class FieldAccessor {
+		final Field		field;
+		final Invoker	setter;
+
+		FieldAccessor(Field field, Invoker setter) {
+			this.field = field;
+			this.setter = setter;
+		}
+	}
+
+	/**
+	 * A JavaBean setter with the name and type of its property.
+	 */
+	static final class BeanSetter {
+		final String		propertyName;
+		final Class< ? >	type;
+		final Invoker		setter;
+
+		BeanSetter(String propertyName, Class< ? > type, Invoker setter) {
+			this.propertyName = propertyName;
+			this.type = type;
+			this.setter = setter;
+		}
+	}
+
+	/**
+	 * The constants of an enum type.
+	 */
+	static final class EnumConstants {
+		private final Object[]				values;
+		private final Map<String,Object>	byName;
+
+		EnumConstants(Object[] values) {
+			this.values = values;
+			this.byName = new HashMap<>();
+			for (Object v : values)
+				byName.put(((Enum< ? >) v).name(), v);
+		}
+
+		/**
+		 * @throws ArrayIndexOutOfBoundsException if there is no such constant
+		 */
+		Object get(int ordinal) {
+			return values[ordinal];
+		}
+
+		/**
+		 * @return The constant with this name, or else the first constant
+		 *         with a matching {@code toString()} ignoring case, or
+		 *         {@code null}
+		 */
+		Object get(String name) {
+			Object v = byName.get(name);
+			if (v != null)
+				return v;
+
+			for (Object c : values) {
+				if (c.toString().equalsIgnoreCase(name))
+					return c;
+			}
+			return null;
+		}
+	}
+
+	private static final class ValueOf {
+		final Invoker invoker;
+
+		ValueOf(Invoker invoker) {
+			this.invoker = invoker;
+		}
+	}
+}
@@ -17,18 +17,13 @@
 package org.osgi.util.converter;
 
 import java.lang.annotation.Annotation;
-import java.lang.invoke.MethodHandles;
-import java.lang.invoke.MethodType;
-import java.lang.invoke.MethodHandles.Lookup;
 import java.lang.reflect.Array;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.GenericArrayType;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
-import java.lang.reflect.Modifier;
 import java.lang.reflect.ParameterizedType;
-import java.lang.reflect.Proxy;
 import java.lang.reflect.Type;
 import java.lang.reflect.TypeVariable;
 import java.lang.reflect.WildcardType;
@@ -394,57 +389,38 @@ class ConvertingImpl extends AbstractSpecifying<Converting>
 		Map m = mapView(object, sourceCls, c);
 
 		try {
-			String prefix = Util.getPrefix(targetAsCls);
+			ClassPlan plan = ClassPlan.forClass(targetAsCls);
+			String prefix = plan.getPrefix();
 
-			T dto = (T) targetClass.newInstance();
+			T dto = (T) newInstance(targetClass);
 
-			List<String> names = getNames(targetAsClass);
 			for (Map.Entry entry : (Set<Map.Entry>) m.entrySet()) {
 				Object key = entry.getKey();
 				if (key == null)
 					continue;
 
-				String fieldName = Util.mangleName(prefix, key.toString(), names);
+				String fieldName = plan.mangleName(prefix, key.toString());
 				if (fieldName == null)
 					continue;
 
-				Field f = null;
-				try {
-					f = targetAsCls.getField(fieldName);
-				} catch (NoSuchFieldException e) {
-					// There is no field with this name
-					if (keysIgnoreCase) {
-						// If enabled, try again but now ignore case
-						for (Field fs : targetAsCls.getFields()) {
-							if (fs.getName().equalsIgnoreCase(fieldName)) {
-								f = fs;
-								break;
-							}
-						}
-
-						if (f == null) {
-							for (Field fs : targetAsCls.getFields()) {
-								if (fs.getName()
-										.equalsIgnoreCase(fieldName)) {
-									f = fs;
-									break;
-								}
-							}
-						}
-					}
+				ClassPlan.FieldAccessor f = plan.getField(fieldName);
+				if (f == null && keysIgnoreCase) {
+					// If enabled, try again but now ignore case
+					f = plan.getFieldIgnoreCase(fieldName);
 				}
 
 				if (f != null) {
+					Field field = f.field;
 					Object val = entry.getValue();
-					if (sourceAsDTO && DTOUtil.isDTOType(f.getType(), false))
+					if (sourceAsDTO && DTOUtil.isDTOType(field.getType(), false))
 						val = c.convert(val).sourceAsDTO().to(
-								f.getType());
+								field.getType());
 					else {
-						Type genericType = reifyType(f.getGenericType(),
+						Type genericType = reifyType(field.getGenericType(),
 								targetAsClass, typeArguments);
 						val = c.convert(val).to(genericType);
 					}
-					f.set(dto, val);
+					f.setter.invoke(dto, val);
 				}
 			}
 
@@ -542,21 +518,6 @@ class ConvertingImpl extends AbstractSpecifying<Converting>
 		return typeToReify;
 	}
 
-	private List<String> getNames(Class< ? > cls) {
-		List<String> names = new ArrayList<>();
-		for (Field field : cls.getFields()) {
-			int modifiers = field.getModifiers();
-			if (Modifier.isStatic(modifiers))
-				continue;
-
-			String name = field.getName();
-			if (!names.contains(name))
-				names.add(name);
-
-		}
-		return names;
-	}
-
 	@SuppressWarnings({
 			"rawtypes", "unchecked"
 	})
@@ -718,24 +679,17 @@ class ConvertingImpl extends AbstractSpecifying<Converting>
 
 	private Object convertToJavaBean(Class< ? > sourceCls,
 			Class< ? > targetCls, InternalConverter c) {
-		String prefix = Util.getPrefix(targetCls);
+		ClassPlan plan = ClassPlan.forClass(targetCls);
+		String prefix = plan.getPrefix();
 
 		@SuppressWarnings("rawtypes")
 		Map m = mapView(object, sourceCls, c);
 		try {
-			Object res = targetClass.newInstance();
-			for (Method setter : getSetters(targetCls)) {
-				String setterName = setter.getName();
-				StringBuilder propName = new StringBuilder(Character
-						.valueOf(Character.toLowerCase(setterName.charAt(3)))
-						.toString());
-				if (setterName.length() > 4)
-					propName.append(setterName.substring(4));
-
-				Class< ? > setterType = setter.getParameterTypes()[0];
-				String key = propName.toString();
-				Object val = m.get(Util.unMangleName(prefix, key));
-				setter.invoke(res, c.convert(val).to(setterType));
+			Object res = newInstance(targetClass);
+			for (ClassPlan.BeanSetter setter : plan.getSetters()) {
+				Object val = m.get(
+						Util.unMangleName(prefix, setter.propertyName));
+				setter.setter.invoke(res, c.convert(val).to(setter.type));
 			}
 			return res;
 		} catch (Exception e) {
@@ -761,9 +715,8 @@ class ConvertingImpl extends AbstractSpecifying<Converting>
 	}
 
 	private Object createProxy(final Class< ? > cls, final Map< ? , ? > data, final InternalConverter c) {
-		return Proxy.newProxyInstance(cls.getClassLoader(), new Class[] {
-				cls
-		}, new InvocationHandler() {
+		final ClassPlan plan = ClassPlan.forClass(cls);
+		return plan.newProxyInstance(new InvocationHandler() {
 			@SuppressWarnings("boxing")
 			@Override
 			public Object invoke(Object proxy, Method method, Object[] args)
@@ -789,9 +742,7 @@ class ConvertingImpl extends AbstractSpecifying<Converting>
 					}
 				}
 
-				String propName = Util.getInterfacePropertyName(method,
-						Util.getSingleElementAnnotationKey(cls, proxy),
-						proxy);
+				String propName = plan.getInterfacePropertyName(method, proxy);
 				if (propName == null)
 					return null;
 
@@ -815,29 +766,9 @@ class ConvertingImpl extends AbstractSpecifying<Converting>
 					}
 					else if (method.isDefault())
 					{
-						double javaVersion = Double.parseDouble(
-							System.getProperty("java.class.version"));
-						double java8 = 52.0;
-						if (javaVersion > java8)
-						{
-							val = MethodHandles.lookup().findSpecial(
-								method.getDeclaringClass(), method.getName(),
-								MethodType.methodType(method.getReturnType(),
-									new Class[] {}),
-								method.getDeclaringClass()).bindTo(
-									proxy).invokeWithArguments(args);
-						}
-						else
-						{
-							Constructor<Lookup> c = Lookup.class.getDeclaredConstructor(
-								Class.class);
-							if (!c.isAccessible())
-							{
-								c.setAccessible(true);
-							}
-							val = c.newInstance(cls).in(cls).unreflectSpecial(method,
-								cls).bindTo(proxy).invokeWithArguments(args);
-						}
+						val = plan.getDefaultMethod(method)
+								.bindTo(proxy)
+								.invokeWithArguments(args);
 					}
 
 					if (val == null) {
@@ -932,32 +863,22 @@ class ConvertingImpl extends AbstractSpecifying<Converting>
 				}
 			}
 		} else if (Enum.class.isAssignableFrom(targetAsClass)) {
+			ClassPlan.EnumConstants constants = ClassPlan
+					.forClass(targetAsClass)
+					.getEnumConstants();
+			if (constants == null)
+				throw new RuntimeException(
+						"Not an enum type: " + targetAsClass);
+
 			if (object instanceof Number) {
 				try {
-					Method m = targetAsClass.getMethod("values");
-					Object[] values = (Object[]) m.invoke(null);
-					return values[((Number) object).intValue()];
+					return constants.get(((Number) object).intValue());
 				} catch (Exception e) {
 					throw new RuntimeException(e);
 				}
 			} else {
-				try {
-					Method m = targetAsClass.getMethod("valueOf", String.class);
-					return m.invoke(null, object.toString());
-				} catch (Exception e) {
-					try {
-						// Case insensitive fallback
-						Method m = targetAsClass.getMethod("values");
-						for (Object v : (Object[]) m.invoke(null)) {
-							if (v.toString()
-									.equalsIgnoreCase(object.toString())) {
-								return v;
-							}
-						}
-					} catch (Exception e1) {
-						throw new RuntimeException(e1);
-					}
-				}
+				// Falls back to a case insensitive match
+				return constants.get(object.toString());
 			}
 		} else if (Annotation.class.isAssignableFrom(sourceClass)
 				&& isMarkerAnnotation(sourceClass)) {
@@ -986,6 +907,10 @@ class ConvertingImpl extends AbstractSpecifying<Converting>
 	}
 
 	private static boolean isMarkerAnnotation(Class< ? > annClass) {
+		return ClassPlan.forClass(annClass).isMarkerAnnotation();
+	}
+
+	static boolean computeMarkerAnnotation(Class< ? > annClass) {
 		for (Method m : annClass.getMethods()) {
 			if (m.getDeclaringClass() != annClass) {
 				// this is a base annotation or object method
@@ -998,17 +923,23 @@ class ConvertingImpl extends AbstractSpecifying<Converting>
 
 	@SuppressWarnings("unchecked")
 	private <T> T tryStandardMethods() {
+		ClassPlan plan = ClassPlan.forClass(targetAsClass);
 		try {
 			// Section 707.4.2.3 and 707.4.2.5 require valueOf to be public and static
-			Method m = targetAsClass.getMethod("valueOf", String.class);
-			if (m != null && Modifier.isStatic(m.getModifiers())) {
-				return (T) m.invoke(null, object.toString());
+			ClassPlan.Invoker valueOf = plan.getValueOf();
+			if (valueOf != null) {
+				return (T) valueOf.invoke(object.toString());
+			} else if (plan.hasValueOf()) {
+				return null;
 			}
 		} catch (Exception e) {
+			// Try the constructor
+		}
+
+		ClassPlan.Invoker ctr = plan.getStringConstructor();
+		if (ctr != null) {
 			try {
-				Constructor< ? > ctr = targetAsClass
-						.getConstructor(String.class);
-				return (T) ctr.newInstance(object.toString());
+				return (T) ctr.invoke(object.toString());
 			} catch (Exception e2) {
 				// Ignore
 			}
@@ -1060,8 +991,9 @@ class ConvertingImpl extends AbstractSpecifying<Converting>
 
 		Map result = new HashMap();
 		// Bean accessors must be public
-		for (Method md : sourceCls.getMethods()) {
-			handleBeanMethod(obj, md, invokedMethods, result);
+		for (ClassPlan.Accessor accessor : ClassPlan.forClass(sourceCls)
+				.getBeanAccessors()) {
+			handleBeanAccessor(obj, accessor, invokedMethods, result);
 		}
 
 		return result;
@@ -1073,8 +1005,9 @@ class ConvertingImpl extends AbstractSpecifying<Converting>
 
 		Map result = new HashMap();
 		// We only use public fields for mapping a DTO
-		for (Field f : obj.getClass().getFields()) {
-			handleDTOField(obj, f, handledFields, result, ic);
+		for (ClassPlan.Accessor accessor : ClassPlan.forClass(obj.getClass())
+				.getDTOAccessors()) {
+			handleDTOField(obj, accessor, handledFields, result);
 		}
 		return result;
 	}
@@ -1104,13 +1037,19 @@ class ConvertingImpl extends AbstractSpecifying<Converting>
 	@SuppressWarnings("boxing")
 	private static Object createMapOrCollection(Class< ? > cls,
 			int initialSize) {
-		try {
-			Constructor< ? > ctor = cls.getConstructor(int.class);
-			return ctor.newInstance(initialSize);
-		} catch (Exception e1) {
+		ClassPlan plan = ClassPlan.forClass(cls);
+		ClassPlan.Invoker ctor = plan.getSizedConstructor();
+		if (ctor != null) {
 			try {
-				Constructor< ? > ctor2 = cls.getConstructor();
-				return ctor2.newInstance();
+				return ctor.invoke(initialSize);
+			} catch (Exception e1) {
+				// Try the no-arg constructor
+			}
+		}
+		ClassPlan.Invoker ctor2 = plan.getDefaultConstructor();
+		if (ctor2 != null) {
+			try {
+				return ctor2.invoke();
 			} catch (Exception e2) {
 				// ignore
 			}
@@ -1118,7 +1057,19 @@ class ConvertingImpl extends AbstractSpecifying<Converting>
 		return null;
 	}
 
+	private static Object newInstance(Class< ? > cls) throws Exception {
+		ClassPlan.Invoker ctor = ClassPlan.forClass(cls)
+				.getDefaultConstructor();
+		if (ctor == null)
+			throw new InstantiationException(cls.getName());
+		return ctor.invoke();
+	}
+
 	private static Class< ? > getConstructableType(Class< ? > targetCls) {
+		return ClassPlan.forClass(targetCls).getConstructableType();
+	}
+
+	static Class< ? > computeConstructableType(Class< ? > targetCls) {
 		if (targetCls.isArray())
 			return targetCls;
 
@@ -1149,6 +1100,14 @@ class ConvertingImpl extends AbstractSpecifying<Converting>
 
 	// Returns an ordered set
 	private static Set<Class< ? >> getInterfaces(Class< ? > cls) {
+		if (cls == null)
+			return Collections.emptySet();
+
+		return ClassPlan.forClass(cls).getInterfaces();
+	}
+
+	// Returns an ordered set
+	static Set<Class< ? >> computeInterfaces(Class< ? > cls) {
 		if (NO_MAP_VIEW_TYPES.contains(cls))
 			return Collections.emptySet();
 
@@ -1193,17 +1152,14 @@ class ConvertingImpl extends AbstractSpecifying<Converting>
 	@SuppressWarnings({
 			"rawtypes", "unchecked"
 	})
-	private void handleDTOField(Object obj, Field field,
-			Set<String> handledFields, Map result, InternalConverter ic) {
-		String fn = Util.getDTOKey(field);
-		if (fn == null)
-			return;
-
+	private static void handleDTOField(Object obj, ClassPlan.Accessor field,
+			Set<String> handledFields, Map result) {
+		String fn = field.key;
 		if (handledFields.contains(fn))
 			return; // Field with this name was already handled
 
 		try {
-			Object fVal = field.get(obj);
+			Object fVal = field.getter.invoke(obj);
 			result.put(fn, fVal);
 			handledFields.add(fn);
 		} catch (Exception e) {
@@ -1214,17 +1170,14 @@ class ConvertingImpl extends AbstractSpecifying<Converting>
 	@SuppressWarnings({
 			"rawtypes", "unchecked"
 	})
-	private static void handleBeanMethod(Object obj, Method md,
-			Set<String> invokedMethods, Map res) {
-		String bp = Util.getBeanKey(md);
-		if (bp == null)
-			return;
-
+	private static void handleBeanAccessor(Object obj,
+			ClassPlan.Accessor accessor, Set<String> invokedMethods, Map res) {
+		String bp = accessor.key;
 		if (invokedMethods.contains(bp))
 			return; // method with this name already invoked
 
 		try {
-			res.put(bp, md.invoke(obj));
+			res.put(bp, accessor.getter.invoke(obj));
 			invokedMethods.add(bp);
 		} catch (Exception e) {
 			// Ignore
@@ -1278,19 +1231,13 @@ class ConvertingImpl extends AbstractSpecifying<Converting>
 	}
 
 	private boolean hasGetProperties(Class< ? > cls) {
-		try {
-			// Section 707.4.4.4.8 says getProperties must be public
-			Method m = cls.getMethod("getProperties");
-			return m != null;
-		} catch (Exception e) {
-			return false;
-		}
+		// Section 707.4.4.4.8 says getProperties must be public
+		return ClassPlan.forClass(cls).getGetProperties() != null;
 	}
 
 	private Map< ? , ? > getPropertiesDelegate(Object obj, Class< ? > cls, InternalConverter c) {
 		try {
-			// Section 707.4.4.4.8 says getProperties must be public
-			Method m = cls.getMethod("getProperties");
+			ClassPlan.Invoker m = ClassPlan.forClass(cls).getGetProperties();
 
 			return c.convert(m.invoke(obj)).to(Map.class);
 		} catch (Exception e) {
@@ -1307,6 +1254,10 @@ class ConvertingImpl extends AbstractSpecifying<Converting>
 	}
 
 	private static boolean isWriteableJavaBean(Class< ? > cls) {
+		return ClassPlan.forClass(cls).isWriteableJavaBean();
+	}
+
+	static boolean computeWriteableJavaBean(Class< ? > cls) {
 		boolean hasNoArgCtor = false;
 		for (Constructor< ? > ctor : cls.getConstructors()) {
 			if (ctor.getParameterTypes().length == 0)
@@ -1315,10 +1266,10 @@ class ConvertingImpl extends AbstractSpecifying<Converting>
 		if (!hasNoArgCtor)
 			return false; // A JavaBean must have a public no-arg constructor
 
-		return getSetters(cls).size() > 0;
+		return computeSetters(cls).size() > 0;
 	}
 
-	private static Set<Method> getSetters(Class< ? > cls) {
+	static Set<Method> computeSetters(Class< ? > cls) {
 		Set<Method> setters = new HashSet<>();
 		while (!Object.class.equals(cls)) {
 			Set<Method> methods = new HashSet<>();
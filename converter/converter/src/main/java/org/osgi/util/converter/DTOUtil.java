@@ -29,6 +29,11 @@ class DTOUtil {
 	}
 
 	static boolean isDTOType(Class< ? > cls, boolean ignorePublicNoArgsCtor) {
+		return ClassPlan.forClass(cls).isDTOType(ignorePublicNoArgsCtor);
+	}
+
+	static boolean computeDTOType(Class< ? > cls,
+			boolean ignorePublicNoArgsCtor) {
 		if(!ignorePublicNoArgsCtor) {
 			try {
 				cls.getConstructor();
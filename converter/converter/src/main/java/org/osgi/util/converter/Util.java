@@ -80,6 +80,10 @@ class Util {
 	}
 
 	static Map<String,Method> getBeanKeys(Class< ? > beanClass) {
+		return ClassPlan.forClass(beanClass).getBeanKeys();
+	}
+
+	static Map<String,Method> computeBeanKeys(Class< ? > beanClass) {
 		Map<String,Method> keys = new LinkedHashMap<>();
 		// Bean methods must be public and can be on parent classes
 		for (Method md : beanClass.getMethods()) {
@@ -137,6 +141,10 @@ class Util {
 	}
 
 	static Map<String,Field> getDTOKeys(Class< ? > dto) {
+		return ClassPlan.forClass(dto).getDTOKeys();
+	}
+
+	static Map<String,Field> computeDTOKeys(Class< ? > dto) {
 		Map<String,Field> keys = new LinkedHashMap<>();
 
 		for (Field f : dto.getFields()) {
@@ -323,6 +331,10 @@ class Util {
 	}
 
 	static String getPrefix(Class< ? > cls) {
+		return ClassPlan.forClass(cls).getPrefix();
+	}
+
+	static String computePrefix(Class< ? > cls) {
 		try {
 			// We can use getField as the PREFIX must be public (see spec erratum)
 			Field prefixField = cls.getField("PREFIX_");
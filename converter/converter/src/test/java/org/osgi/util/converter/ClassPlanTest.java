@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.osgi.util.converter;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ClassPlanTest {
+    @Test
+    public void testPlanIsCached() {
+        assertSame(ClassPlan.forClass(MyDTO.class), ClassPlan.forClass(MyDTO.class));
+    }
+
+    @Test
+    public void testEnumConstants() {
+        ClassPlan.EnumConstants constants = ClassPlan.forClass(MyDTO.Count.class).getEnumConstants();
+        assertSame(MyDTO.Count.TWO, constants.get(1));
+        assertSame(MyDTO.Count.TWO, constants.get("TWO"));
+        assertSame(MyDTO.Count.TWO, constants.get("two"));
+        assertNull(constants.get("four"));
+
+        assertNull(ClassPlan.forClass(String.class).getEnumConstants());
+    }
+
+    @Test
+    public void testValueOf() throws Exception {
+        ClassPlan integerPlan = ClassPlan.forClass(Integer.class);
+        assertTrue(integerPlan.hasValueOf());
+        assertEquals(42, integerPlan.getValueOf().invoke("42"));
+
+        try {
+            integerPlan.getValueOf().invoke("forty-two");
+            fail("Should have thrown an exception");
+        } catch (InvocationTargetException e) {
+            assertTrue(e.getCause() instanceof NumberFormatException);
+        }
+
+        ClassPlan sbPlan = ClassPlan.forClass(StringBuilder.class);
+        assertFalse(sbPlan.hasValueOf());
+        assertNull(sbPlan.getValueOf());
+        assertEquals("abc", sbPlan.getStringConstructor().invoke("abc").toString());
+    }
+
+    @Test
+    public void testDTOFields() throws Exception {
+        ClassPlan plan = ClassPlan.forClass(MyDTO.class);
+        assertEquals("ping", plan.mangleName("", "ping"));
+        assertNull(plan.getField("nothere"));
+        assertSame(plan.getField("ping"), plan.getFieldIgnoreCase("PING"));
+
+        MyDTO dto = new MyDTO();
+        plan.getField("ping").setter.invoke(dto, "hello");
+        plan.getField("pong").setter.invoke(dto, 12L);
+        assertEquals("hello", dto.ping);
+        assertEquals(12L, dto.pong);
+
+        Set<String> keys = new HashSet<>();
+        for (ClassPlan.Accessor accessor : plan.getDTOAccessors()) {
+            keys.add(accessor.key);
+            if ("ping".equals(accessor.key))
+                assertEquals("hello", accessor.getter.invoke(dto));
+        }
+        assertEquals(plan.getDTOKeys().keySet(), keys);
+    }
+
+    @Test
+    public void testBeanSetters() throws Exception {
+        ClassPlan plan = ClassPlan.forClass(MyBean.class);
+        assertTrue(plan.isWriteableJavaBean());
+
+        MyBean bean = (MyBean) plan.getDefaultConstructor().invoke();
+        Set<String> names = new HashSet<>();
+        for (ClassPlan.BeanSetter setter : plan.getSetters()) {
+            names.add(setter.propertyName);
+            if ("me".equals(setter.propertyName))
+                setter.setter.invoke(bean, "you");
+        }
+        assertTrue(names.contains("me"));
+        assertTrue(names.contains("enabled"));
+        assertFalse(names.contains("s"));
+        assertEquals("you", bean.getMe());
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.osgi.util.converter;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.osgi.framework.Version;
+
+/**
+ * Measures the throughput of conversions which are driven by reflection:
+ * maps to and from DTOs and JavaBeans, maps to interfaces and annotations,
+ * enums and types with a {@code valueOf(String)} method.
+ * <p>
+ * This is not run as part of the build, run the main method with the test
+ * classpath. Arguments: [seconds per conversion].
+ */
+public class ConverterBenchmark {
+    public interface Config {
+        String ping();
+
+        long pong();
+
+        int count();
+    }
+
+    public @interface Annotated {
+        String ping() default "ping";
+
+        long pong() default 0;
+    }
+
+    private interface Conversion {
+        Object run();
+    }
+
+    public static void main(String[] args) {
+        final int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 2;
+        final Converter converter = Converters.standardConverter();
+
+        final Map<String,Object> dtoMap = new HashMap<>();
+        dtoMap.put("ping", "hello");
+        dtoMap.put("pong", "42");
+        dtoMap.put("count", "TWO");
+        final Map<String,Object> embedded = new HashMap<>();
+        embedded.put("alpha", "B");
+        embedded.put("marco", "polo");
+        embedded.put("polo", 3L);
+        dtoMap.put("embedded", embedded);
+
+        final MyDTO dto = converter.convert(dtoMap).to(MyDTO.class);
+
+        final MyBean bean = new MyBean();
+        bean.setMe("me");
+        bean.setEnabled(true);
+        bean.setF(Boolean.TRUE);
+        bean.setNumbers(new int[] {1, 2, 3});
+
+        final Map<String,Object> configMap = new HashMap<>();
+        configMap.put("ping", "hello");
+        configMap.put("pong", 42L);
+        configMap.put("count", "7");
+
+        run("map to DTO", seconds, new Conversion() {
+            @Override
+            public Object run() {
+                return converter.convert(dtoMap).to(MyDTO.class);
+            }
+        });
+        run("DTO to map", seconds, new Conversion() {
+            @Override
+            public Object run() {
+                return converter.convert(dto).to(Map.class);
+            }
+        });
+        run("bean to map", seconds, new Conversion() {
+            @Override
+            public Object run() {
+                return converter.convert(bean).sourceAsBean().to(Map.class);
+            }
+        });
+        run("map to bean", seconds, new Conversion() {
+            @Override
+            public Object run() {
+                return converter.convert(configMap).targetAsBean().to(MyBean.class);
+            }
+        });
+        run("map to interface", seconds, new Conversion() {
+            @Override
+            public Object run() {
+                Config c = converter.convert(configMap).to(Config.class);
+                return c.ping() + c.pong() + c.count();
+            }
+        });
+        run("map to annotation", seconds, new Conversion() {
+            @Override
+            public Object run() {
+                Annotated a = converter.convert(configMap).to(Annotated.class);
+                return a.ping() + a.pong();
+            }
+        });
+        run("string to enum", seconds, new Conversion() {
+            @Override
+            public Object run() {
+                return converter.convert("three").to(MyDTO.Count.class);
+            }
+        });
+        run("string to valueOf type", seconds, new Conversion() {
+            @Override
+            public Object run() {
+                return converter.convert("1.2.3").to(Version.class);
+            }
+        });
+    }
+
+    private static void run(String name, int seconds, Conversion conversion) {
+        // warm up
+        long end = System.nanoTime() + 1000000000L;
+        while (System.nanoTime() < end) {
+            conversion.run();
+        }
+
+        long count = 0;
+        long start = System.nanoTime();
+        end = start + seconds * 1000000000L;
+        long now;
+        do {
+            for (int i = 0; i < 100; i++) {
+                conversion.run();
+            }
+            count += 100;
+        } while ((now = System.nanoTime()) < end);
+
+        System.out.println(String.format("%-24s %10.0f ops/s", name, count / ((now - start) / 1e9)));
+    }
+}
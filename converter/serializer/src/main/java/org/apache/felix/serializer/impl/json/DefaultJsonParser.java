@@ -18,6 +18,7 @@ package org.apache.felix.serializer.impl.json;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.Reader;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -44,4 +45,13 @@ public class DefaultJsonParser implements Parser {
         JSONParser parser = new JSONParser(in);
         return parser.getParsed();
     }
+
+    /**
+     * Parse the JSON while it is read, without reading the input into a string first.
+     * The reader is not closed.
+     */
+    public Map<String, Object> parse(Reader in) throws IOException {
+        JSONParser parser = new JSONParser(in);
+        return parser.getParsed();
+    }
 }
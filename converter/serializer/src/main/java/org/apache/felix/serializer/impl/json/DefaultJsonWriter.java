@@ -41,7 +41,9 @@ public class DefaultJsonWriter implements Writer {
 
     @Override
     public String write(Object obj) {
-        return encode(obj);
+        StringBuilder sb = new StringBuilder();
+        encode(obj, sb);
+        return sb.toString();
     }
 
     @Override
@@ -54,29 +56,35 @@ public class DefaultJsonWriter implements Writer {
         return Collections.emptyMap();
     }
 
+    /**
+     * Append the encoded object. The whole document is written into one
+     * builder, nested values are not encoded into intermediate strings.
+     */
     @SuppressWarnings("rawtypes")
-    private String encode(Object obj) {
+    private void encode(Object obj, StringBuilder sb) {
         if (obj == null) {
-            return ignoreNull ? "" : "null";
+            if (!ignoreNull)
+                sb.append("null");
+            return;
         }
 
         if (obj instanceof String) {
-            return "\"" + (String)obj + "\"";
+            sb.append('"').append((String) obj).append('"');
         } else if (obj instanceof Map) {
-            return encodeMap((Map) obj);
+            encodeMap((Map) obj, sb);
         } else if (obj instanceof Collection) {
-            return encodeCollection((Collection) obj);
+            encodeCollection((Collection) obj, sb);
         } else if (obj instanceof DTO) {
-            return encodeMap(converter.convert(obj).sourceAsDTO().to(Map.class));
+            encodeMap(converter.convert(obj).sourceAsDTO().to(Map.class), sb);
         } else if (obj.getClass().isArray()) {
-            return encodeCollection(asCollection(obj));
+            encodeCollection(asCollection(obj), sb);
         } else if (obj instanceof Number) {
-            return obj.toString();
+            sb.append(obj.toString());
         } else if (obj instanceof Boolean) {
-            return obj.toString();
+            sb.append(obj.toString());
+        } else {
+            sb.append('"').append(converter.convert(obj).to(String.class)).append('"');
         }
-
-        return "\"" + converter.convert(obj).to(String.class) + "\"";
     }
 
     private Collection<?> asCollection(Object arr) {
@@ -89,8 +97,8 @@ public class DefaultJsonWriter implements Writer {
         return l;
     }
 
-    private String encodeCollection(Collection<?> collection) {
-        StringBuilder sb = new StringBuilder("[");
+    private void encodeCollection(Collection<?> collection, StringBuilder sb) {
+        sb.append('[');
 
         boolean first = true;
         for (Object o : collection) {
@@ -99,30 +107,30 @@ public class DefaultJsonWriter implements Writer {
             else
                 sb.append(',');
 
-            sb.append(encode(o));
+            encode(o, sb);
         }
 
-        sb.append("]");
-        return sb.toString();
+        sb.append(']');
     }
 
     @SuppressWarnings({ "rawtypes", "unchecked" })
-    private String encodeMap(Map m) {
-        StringBuilder sb = new StringBuilder("{");
+    private void encodeMap(Map m, StringBuilder sb) {
+        sb.append('{');
+        boolean first = true;
         for (Entry entry : (Set<Entry>) m.entrySet()) {
             if (entry.getKey() == null || entry.getValue() == null)
                 if (ignoreNull)
                     continue;
 
-            if (sb.length() > 1)
+            if (first)
+                first = false;
+            else
                 sb.append(',');
             sb.append('"');
             sb.append(entry.getKey().toString());
             sb.append("\":");
-            sb.append(encode(entry.getValue()));
+            encode(entry.getValue(), sb);
         }
-        sb.append("}");
-
-        return sb.toString();
+        sb.append('}');
     }
 }
@@ -18,6 +18,8 @@ package org.apache.felix.serializer.impl.json;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.lang.reflect.Type;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
@@ -42,9 +44,12 @@ public class JsonDeserializingImpl<T> implements Deserializing<T> {
     }
 
     @Override
-    @SuppressWarnings("unchecked")
     public T from(CharSequence in) {
-        Map<?,?> m = parser.parse(in);
+        return convert(parser.parse(in));
+    }
+
+    @SuppressWarnings("unchecked")
+    private T convert(Map<?,?> m) {
         if (type instanceof Class)
             if (m.getClass().isAssignableFrom((Class<?>) type))
                 return (T) m;
@@ -59,6 +64,15 @@ public class JsonDeserializingImpl<T> implements Deserializing<T> {
 
     @Override
     public T from(InputStream in, Charset charset) {
+        Parser p = parser;
+        if (p instanceof DefaultJsonParser) {
+            // parse while reading instead of reading the whole stream into a string first
+            try (Reader reader = new InputStreamReader(in, charset)) {
+                return convert(((DefaultJsonParser) p).parse(reader));
+            } catch (IOException e) {
+                throw new ConversionException("Error reading inputstream", e);
+            }
+        }
         try {
             byte[] bytes = Util.readStream(in);
             String s = new String(bytes, charset);
@@ -70,6 +84,14 @@ public class JsonDeserializingImpl<T> implements Deserializing<T> {
 
     @Override
     public T from(Readable in) {
+        Parser p = parser;
+        if (p instanceof DefaultJsonParser && in instanceof Reader) {
+            try (Reader reader = (Reader) in) {
+                return convert(((DefaultJsonParser) p).parse(reader));
+            } catch (IOException e) {
+                throw new ConversionException("Error reading input", e);
+            }
+        }
         try (Scanner s = new Scanner(in)) {
             s.useDelimiter("\\Z");
             return from(s.next());
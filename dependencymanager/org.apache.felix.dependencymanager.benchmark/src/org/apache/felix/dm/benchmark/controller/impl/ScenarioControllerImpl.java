@@ -29,6 +29,7 @@ import static org.apache.felix.dm.benchmark.scenario.Helper.debug;
 import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
 import java.text.NumberFormat;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Locale;
@@ -60,9 +61,16 @@ public class ScenarioControllerImpl implements Runnable, ScenarioController {
      */
     final List<String> TESTS = Arrays.asList(
         "org.apache.felix.dependencymanager.benchmark.dependencymanager",
-        "org.apache.felix.dependencymanager.benchmark.dependencymanager.parallel"
+        "org.apache.felix.dependencymanager.benchmark.dependencymanager.parallel",
+        "org.apache.felix.dependencymanager.benchmark.scr",
+        "org.apache.felix.dependencymanager.benchmark.ipojo"
     );
     
+    /**
+     * Number of components created by each tested bundle.
+     */
+    final static int COMPONENTS = ARTISTS + (ARTISTS * (ALBUMS + (ALBUMS * TRACKS)));
+    
     /**
      * Our injected bundle context, used to lookup the bundles to benchmark.
      */
@@ -96,8 +104,7 @@ public class ScenarioControllerImpl implements Runnable, ScenarioController {
         // wait a bit in order to let the gogo banner be displayed before we start the bench.
         Unchecked.run(() -> Thread.sleep(500)); 
         
-        out.println("Starting benchmarks (each tested bundle will add/remove " + (ARTISTS + (ARTISTS * (ALBUMS + (ALBUMS * TRACKS)))) 
-           + " components during bundle activation).");
+        out.println("Starting benchmarks (each tested bundle will add/remove " + COMPONENTS + " components during bundle activation).");
        
         // Stop all tested bundles.
         forEachScenarioBundle(TESTS, Unchecked.consumer(bundle -> {
@@ -111,12 +118,12 @@ public class ScenarioControllerImpl implements Runnable, ScenarioController {
         // Start/stop several times the tested bundles. (no processing done in components start methods).
         m_doProcessingInStartStop = false;
         out.println("\n\t[Starting benchmarks with no processing done in components start methods]");
-        startStopScenarioBundles(TESTS, 50);
+        startStopScenarioBundles(TESTS, 10, 50);
        
         // Start/stop several times the tested bundles (processing is done in components start methods).
         m_doProcessingInStartStop = true;
         out.println("\n\t[Starting benchmarks with processing done in components start methods]");
-        startStopScenarioBundles(TESTS, 5);
+        startStopScenarioBundles(TESTS, 1, 5);
     }
 
     @Override
@@ -166,29 +173,48 @@ public class ScenarioControllerImpl implements Runnable, ScenarioController {
             
     // ------------------- Private methods -----------------------------------------------------
         
-    private void startStopScenarioBundles(List<String> tests, int iterations) {
+    /**
+     * Benchmarks each bundle: the bundle is first started/stopped a few times without recording anything, in order to
+     * let the JIT compile the code paths used by the component model (like the JMH warmup iterations), then
+     * the start and stop durations are recorded. Finally, the heap used by the components is measured.
+     */
+    private void startStopScenarioBundles(List<String> tests, int warmup, int iterations) {
+        List<Result> results = new ArrayList<>();
         forEachScenarioBundle(tests, bundle -> {
-            out.print("\nBenchmarking bundle: " + bundle.getSymbolicName() + " ");            
-            List<Long> sortedResults = LongStream.range(0, iterations)
-                .peek(i -> out.print("."))
-                .map(n -> durationOf(() -> start(bundle)))
-                .peek(n -> stop(bundle))
-                .sorted().boxed().collect(toList());
+            out.print("\nBenchmarking bundle: " + bundle.getSymbolicName() + " ");
+            LongStream.range(0, warmup)
+                .peek(i -> out.print("w"))
+                .forEach(i -> { start(bundle); stop(bundle); });
+            long[] starts = new long[iterations];
+            long[] stops = new long[iterations];
+            for (int i = 0; i < iterations; i ++) {
+                out.print(".");
+                starts[i] = durationOf(() -> start(bundle));
+                stops[i] = durationOf(() -> stop(bundle));
+            }
             out.println();
-            displaySortedResults(sortedResults);
+            Result result = new Result(bundle.getSymbolicName(), sorted(starts), sorted(stops), memoryPerComponent(bundle));
+            displaySortedResults("results", result.m_starts);
+            displaySortedResults("stop results", result.m_stops);
+            results.add(result);
             Unchecked.run(() -> Thread.sleep(500));
-        });               
+        });
+        displaySummary(results);
+    }
+    
+    private List<Long> sorted(long[] durations) {
+        return LongStream.of(durations).sorted().boxed().collect(toList());
     }
 
     /**
      * Displays meaningful values in the sorted results (first=fastest, midle=average, last entry=slowest)
      * @param sortedResults
      */
-    private void displaySortedResults(List<Long> sortedResults) {
+    private void displaySortedResults(String label, List<Long> sortedResults) {
         // We don't display an average of the duration times; Instead, we sort the results,
         // and we display the significant results (the first entry is the fastest, the middle entry is the
         // average, the last entry is the slowest ...)
-        out.printf("-> results in nanos: [%s]%n",  
+        out.printf("-> %s in nanos: [%s]%n", label,
             Stream.of(0f, 24.99f, 49.99f, 74.99f, 99.99f)
                 .mapToInt(perc -> (int) (perc * sortedResults.size() / 100))
                 .mapToObj(sortedResults::get)
@@ -196,6 +222,48 @@ public class ScenarioControllerImpl implements Runnable, ScenarioController {
                 .collect(joining(" | ")));
     }
     
+    /**
+     * Displays the median results of all benchmarked bundles, so they can be compared with each other:
+     * activation time, deactivation time, churn (number of components registered and unregistered per second)
+     * and the heap used by each component.
+     */
+    private void displaySummary(List<Result> results) {
+        out.printf("%n%-70s %15s %15s %20s %15s%n", "Summary (median values)", "start (ms)", "stop (ms)", "churn (comp/s)", "bytes/comp");
+        results.forEach(result -> {
+            long start = median(result.m_starts);
+            long stop = median(result.m_stops);
+            out.printf("%-70s %15.2f %15.2f %,20d %,15d%n", result.m_bundle, 
+                start / 1000000d, stop / 1000000d, 
+                (long) (2d * COMPONENTS * TimeUnit.SECONDS.toNanos(1) / Math.max(1, start + stop)),
+                result.m_bytesPerComponent);
+        });
+    }
+    
+    private long median(List<Long> sortedResults) {
+        return sortedResults.get(sortedResults.size() / 2);
+    }
+    
+    /**
+     * Returns the heap used by each component of a bundle: the used heap is measured when the bundle is stopped, and when its
+     * components are all started.
+     */
+    private long memoryPerComponent(Bundle bundle) {
+        long idle = usedMemory();
+        start(bundle);
+        long active = usedMemory();
+        stop(bundle);
+        return Math.max(0, active - idle) / COMPONENTS;
+    }
+    
+    private long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i ++) {
+            System.gc();
+            Unchecked.run(() -> Thread.sleep(100));
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+    
     /**
      * Displays a nanosecond value using thousands separator. 
      * Example: 1000000 -> 1,000,000
@@ -246,8 +314,7 @@ public class ScenarioControllerImpl implements Runnable, ScenarioController {
      */
     void start(Bundle b) {
         try {
-            m_startLatch = new CountDownLatch(ARTISTS
-                + (ARTISTS * (ALBUMS + (ALBUMS * TRACKS))));
+            m_startLatch = new CountDownLatch(COMPONENTS);
             
             debug(() -> "starting bundle " + b.getSymbolicName());
             b.start();
@@ -274,8 +341,7 @@ public class ScenarioControllerImpl implements Runnable, ScenarioController {
      */
     void stop(Bundle b) {
         try {
-            m_stopLatch = new CountDownLatch(ARTISTS
-                + (ARTISTS * (ALBUMS + (ALBUMS * TRACKS))));
+            m_stopLatch = new CountDownLatch(COMPONENTS);
                         
             debug(() -> "stopping bundle " + b.getSymbolicName());
             b.stop();
@@ -310,4 +376,21 @@ public class ScenarioControllerImpl implements Runnable, ScenarioController {
         }
         return (end - start);
     }
+    
+    /**
+     * Results of a benchmarked bundle.
+     */
+    private static class Result {
+        final String m_bundle;
+        final List<Long> m_starts;
+        final List<Long> m_stops;
+        final long m_bytesPerComponent;
+        
+        Result(String bundle, List<Long> starts, List<Long> stops, long bytesPerComponent) {
+            m_bundle = bundle;
+            m_starts = starts;
+            m_stops = stops;
+            m_bytesPerComponent = bytesPerComponent;
+        }
+    }
 }
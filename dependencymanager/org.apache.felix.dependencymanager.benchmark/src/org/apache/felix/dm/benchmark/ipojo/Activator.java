@@ -0,0 +1,136 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.dm.benchmark.ipojo;
+
+import static java.util.stream.Collectors.joining;
+import static org.apache.felix.dm.benchmark.scenario.Artist.ALBUMS;
+import static org.apache.felix.dm.benchmark.scenario.Artist.ARTISTS;
+import static org.apache.felix.dm.benchmark.scenario.Artist.TRACKS;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.apache.felix.dm.benchmark.controller.ScenarioController;
+import org.apache.felix.dm.benchmark.scenario.Album;
+import org.apache.felix.dm.benchmark.scenario.Helper;
+import org.apache.felix.dm.benchmark.scenario.Track;
+import org.apache.felix.ipojo.ComponentInstance;
+import org.apache.felix.ipojo.api.Dependency;
+import org.apache.felix.ipojo.api.PrimitiveComponentType;
+import org.apache.felix.ipojo.api.Service;
+import org.osgi.framework.BundleActivator;
+import org.osgi.framework.BundleContext;
+
+/**
+ * Creates the same Artists/Albums/Tracks graph as the Dependency Manager benchmark, using iPOJO.
+ * 
+ * The component types are declared using the iPOJO API, so the component classes are manipulated when the bundle starts
+ * and no iPOJO build step is needed. Each Artist (or Album) aggregates its Albums (or Tracks) using an "id" filter configured
+ * per instance. An aggregate dependency is satisfied as soon as one service matches, so the graph is created bottom up to make
+ * sure all Albums and Tracks are bound when an Artist is validated.
+ */
+public class Activator implements BundleActivator {
+    private final List<ComponentInstance> m_instances = new ArrayList<>();
+    private PrimitiveComponentType m_artistType, m_albumType, m_trackType;
+
+    @Override
+    public void start(BundleContext context) throws Exception {
+        Helper.debug(() -> "Benchmark.start");
+        
+        m_trackType = createType(context, TrackComponent.class);
+        m_albumType = createType(context, AlbumComponent.class)
+            .addDependency(new Dependency().setId("track").setSpecification(Track.class.getName())
+                .setAggregate(true).setBindMethod("addTrack").setBindingPolicy(Dependency.STATIC));
+        m_artistType = createType(context, ArtistComponent.class)
+            .addDependency(new Dependency().setId("album").setSpecification(Album.class.getName())
+                .setAggregate(true).setBindMethod("addAlbum").setBindingPolicy(Dependency.STATIC));
+        Stream.of(m_trackType, m_albumType, m_artistType).forEach(PrimitiveComponentType::start);
+        
+        IntStream.range(0, ARTISTS).forEach(i -> {
+            String[] albums = IntStream.range(0, ALBUMS)
+                .mapToObj(j -> createAlbum(IntStream.range(0, TRACKS).mapToObj(k -> createTrack()).toArray(String[]::new)))
+                .toArray(String[]::new);
+            createArtist(albums);
+        });
+    }
+
+    @Override
+    public void stop(BundleContext context) throws Exception {
+        // remove artists first, like the DM benchmark does
+        Collections.reverse(m_instances);
+        m_instances.forEach(ComponentInstance::dispose);
+        m_instances.clear();
+        Stream.of(m_artistType, m_albumType, m_trackType).forEach(PrimitiveComponentType::stop);
+    }
+    
+    private PrimitiveComponentType createType(BundleContext context, Class<?> implementation) {
+        return new PrimitiveComponentType()
+            .setBundleContext(context)
+            .setClassName(implementation.getName())
+            // publish the "id" instance property with the provided service
+            .setPropagation(true)
+            .addService(new Service())
+            .addDependency(new Dependency().setSpecification(ScenarioController.class.getName()).setBindMethod("bindController"))
+            .setValidateMethod("start")
+            .setInvalidateMethod("stop");
+    }
+    
+    private void createArtist(String[] albums) {
+        Hashtable<String, Object> props = new Hashtable<>();
+        props.put("requires.filters", new String[] { "album", anyOf(albums) });
+        m_instances.add(createInstance(m_artistType, props));
+    }
+    
+    private String createAlbum(String[] tracks) {
+        String id = String.valueOf(Helper.generateId());
+        Hashtable<String, Object> props = new Hashtable<>();
+        props.put("id", id);
+        props.put("requires.filters", new String[] { "track", anyOf(tracks) });
+        m_instances.add(createInstance(m_albumType, props));
+        return id;
+    }
+    
+    private String createTrack() {
+        String id = String.valueOf(Helper.generateId());
+        Hashtable<String, Object> props = new Hashtable<>();
+        props.put("id", id);
+        m_instances.add(createInstance(m_trackType, props));
+        return id;
+    }
+    
+    private ComponentInstance createInstance(PrimitiveComponentType type, Hashtable<String, Object> props) {
+        try {
+            return type.createInstance(props);
+        }
+        catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+    
+    /**
+     * Returns a filter matching any of the given ids.
+     */
+    private static String anyOf(String[] ids) {
+        return Stream.of(ids).map(id -> "(id=" + id + ")").collect(joining("", "(|", ")"));
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.dm.benchmark.scr;
+
+import static java.util.stream.Collectors.joining;
+import static org.apache.felix.dm.benchmark.scenario.Artist.ALBUMS;
+import static org.apache.felix.dm.benchmark.scenario.Artist.ARTISTS;
+import static org.apache.felix.dm.benchmark.scenario.Artist.TRACKS;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.apache.felix.dm.benchmark.controller.ScenarioController;
+import org.apache.felix.dm.benchmark.scenario.Helper;
+import org.osgi.service.component.ComponentConstants;
+import org.osgi.service.component.ComponentFactory;
+import org.osgi.service.component.ComponentInstance;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.component.annotations.Reference;
+
+/**
+ * Creates the same Artists/Albums/Tracks graph as the Dependency Manager benchmark, using SCR component factories.
+ * 
+ * The graph is created bottom up: the tracks of an album first, then the album, and the artist once all its albums
+ * have been created. So the services an instance depends on are all registered when it is created, and are bound
+ * when it is activated, without requiring a minimum cardinality.
+ */
+@Component
+public class Benchmark {
+    final List<ComponentInstance> m_instances = new ArrayList<>();
+    
+    /**
+     * Like the DM benchmark, we only start once the controller is available.
+     */
+    @Reference
+    ScenarioController m_controller;
+    
+    @Reference(target = "(" + ComponentConstants.COMPONENT_FACTORY + "=" + ArtistComponent.FACTORY + ")")
+    ComponentFactory m_artistFactory;
+    
+    @Reference(target = "(" + ComponentConstants.COMPONENT_FACTORY + "=" + AlbumComponent.FACTORY + ")")
+    ComponentFactory m_albumFactory;
+    
+    @Reference(target = "(" + ComponentConstants.COMPONENT_FACTORY + "=" + TrackComponent.FACTORY + ")")
+    ComponentFactory m_trackFactory;
+
+    @Activate
+    void start() {
+        Helper.debug(() -> "Benchmark.start");
+        
+        IntStream.range(0, ARTISTS).forEach(i -> {
+            String[] albums = IntStream.range(0, ALBUMS)
+                .mapToObj(j -> createAlbum(IntStream.range(0, TRACKS).mapToObj(k -> createTrack()).toArray(String[]::new)))
+                .toArray(String[]::new);
+            createArtist(albums);
+        });
+    }
+    
+    @Deactivate
+    void stop() {
+        // remove artists first, like the DM benchmark does
+        Collections.reverse(m_instances);
+        m_instances.forEach(ComponentInstance::dispose);
+        m_instances.clear();
+    }
+    
+    private void createArtist(String[] albums) {
+        Hashtable<String, Object> props = new Hashtable<>();
+        props.put("album.target", anyOf(albums));
+        m_instances.add(m_artistFactory.newInstance(props));
+    }
+    
+    private String createAlbum(String[] tracks) {
+        String id = String.valueOf(Helper.generateId());
+        Hashtable<String, Object> props = new Hashtable<>();
+        props.put("id", id);
+        props.put("track.target", anyOf(tracks));
+        m_instances.add(m_albumFactory.newInstance(props));
+        return id;
+    }
+    
+    private String createTrack() {
+        String id = String.valueOf(Helper.generateId());
+        Hashtable<String, Object> props = new Hashtable<>();
+        props.put("id", id);
+        m_instances.add(m_trackFactory.newInstance(props));
+        return id;
+    }
+    
+    /**
+     * Returns a filter matching any of the given ids.
+     */
+    private static String anyOf(String[] ids) {
+        return Stream.of(ids).map(id -> "(id=" + id + ")").collect(joining("", "(|", ")"));
+    }
+}
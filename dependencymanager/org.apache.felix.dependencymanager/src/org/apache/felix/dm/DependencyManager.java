@@ -64,6 +64,11 @@ public class DependencyManager extends DependencyManagerCompat {
 
     public static final String ASPECT = "org.apache.felix.dependencymanager.aspect";
     public static final String SERVICEREGISTRY_CACHE_INDICES = "org.apache.felix.dependencymanager.filterindex";
+    /**
+     * Enables the automatic creation of filter indices for frequently used filter shapes. The value is either "true", or the
+     * number of times a filter shape must be seen before it gets indexed.
+     */
+    public static final String SERVICEREGISTRY_CACHE_ADAPTIVE = "org.apache.felix.dependencymanager.filterindex.adaptive";
     public static final String METHOD_CACHE_SIZE = "org.apache.felix.dependencymanager.methodcache";
     
     private final BundleContext m_context;
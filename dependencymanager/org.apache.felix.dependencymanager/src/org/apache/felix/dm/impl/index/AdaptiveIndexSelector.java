@@ -0,0 +1,236 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.dm.impl.index;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.felix.dm.Logger;
+import org.apache.felix.dm.impl.index.multiproperty.AdaptiveFilterIndex;
+import org.osgi.framework.BundleContext;
+
+/**
+ * Observes the class and filter combinations which are not handled by any filter index, and creates an
+ * {@link AdaptiveFilterIndex} for the shapes which are seen frequently. Indices which have not been used during
+ * a whole idle period and which no longer have any listeners are dropped again.
+ *
+ * Creating an index opens a service tracker on all services, this is done by a background thread, so that the lookup
+ * or listener registration which triggered it isn't delayed. The index is used once it has been opened.
+ *
+ * Adaptive indexing is enabled using the "org.apache.felix.dependencymanager.filterindex.adaptive" system property,
+ * whose value is either "true" or the number of times a filter shape must be seen during an idle period before an
+ * index is created for it.
+ *
+ * @author <a href="mailto:dev@felix.apache.org">Felix Project Team</a>
+ */
+public class AdaptiveIndexSelector {
+	/** Maximum number of adaptive indices (default 16). */
+	protected static final String MAX_INDICES = "org.apache.felix.dependencymanager.filterindex.adaptive.max";
+	/** Idle period in milliseconds after which unused adaptive indices are dropped (default 60000). */
+	protected static final String IDLE_PERIOD = "org.apache.felix.dependencymanager.filterindex.adaptive.idle";
+	private static final int DEFAULT_THRESHOLD = 20;
+	private static final int DEFAULT_MAX_INDICES = 16;
+	private static final long DEFAULT_IDLE_PERIOD = 60000;
+	private static final int MAX_CACHED_SHAPES = 8192;
+	/** Value used in the shape cache for filters which can't be indexed. */
+	private static final String NO_SHAPE = "";
+
+	private final ServiceRegistryCache m_cache;
+	private final Logger m_logger;
+	private final int m_threshold;
+	private final int m_maxIndices;
+	private final long m_idlePeriod;
+	private final Map<String, String> m_shapes = new ConcurrentHashMap<>();
+	private final Map<String, AtomicInteger> m_observations = new ConcurrentHashMap<>();
+	private final Map<String, AdaptiveFilterIndex> m_indices = new ConcurrentHashMap<>();
+	/** The shapes whose index is being created. */
+	private final Set<String> m_creating = ConcurrentHashMap.newKeySet();
+	private final ThreadPoolExecutor m_executor;
+	private final Set<String> m_rejected = ConcurrentHashMap.newKeySet();
+	private final AtomicLong m_nextSweep;
+	private final AtomicLong m_indexed = new AtomicLong();
+	private final AtomicLong m_unindexed = new AtomicLong();
+	private final AtomicLong m_created = new AtomicLong();
+	private final AtomicLong m_dropped = new AtomicLong();
+
+	public AdaptiveIndexSelector(ServiceRegistryCache cache, BundleContext context, String threshold) {
+		m_cache = cache;
+		m_logger = new Logger(context);
+		m_threshold = "true".equalsIgnoreCase(threshold) ? DEFAULT_THRESHOLD
+			: Math.max(1, (int) parse("org.apache.felix.dependencymanager.filterindex.adaptive", threshold, DEFAULT_THRESHOLD));
+		m_maxIndices = (int) parse(MAX_INDICES, context.getProperty(MAX_INDICES), DEFAULT_MAX_INDICES);
+		m_idlePeriod = parse(IDLE_PERIOD, context.getProperty(IDLE_PERIOD), DEFAULT_IDLE_PERIOD);
+		m_nextSweep = new AtomicLong(System.currentTimeMillis() + m_idlePeriod);
+		m_executor = new ThreadPoolExecutor(1, 1, 5, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+			Thread thread = new Thread(r, "DependencyManager adaptive filter index");
+			thread.setDaemon(true);
+			return thread;
+		});
+		m_executor.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * Parses the value of a property, returning the default value if the property is not set or is not a number.
+	 */
+	private long parse(String property, String value, long defaultValue) {
+		if (value == null) {
+			return defaultValue;
+		}
+		try {
+			return Long.parseLong(value.trim());
+		} catch (NumberFormatException e) {
+			m_logger.warn("Invalid value %s for property %s, using %d instead", value, property, defaultValue);
+			return defaultValue;
+		}
+	}
+
+	/**
+	 * Stops creating indices. The indices already created are closed along with the service registry cache.
+	 */
+	public void close() {
+		m_executor.shutdownNow();
+	}
+
+	/**
+	 * Returns the shape of a class and filter combination, or null if it can't be indexed.
+	 * @see AdaptiveFilterIndex#getShape(String, String)
+	 */
+	public String getShape(String clazz, String filter) {
+		String key = (clazz == null ? "" : clazz) + " " + filter;
+		String shape = m_shapes.get(key);
+		if (shape == null) {
+			shape = AdaptiveFilterIndex.getShape(clazz, filter);
+			if (shape == null) {
+				shape = NO_SHAPE;
+			}
+			if (m_shapes.size() >= MAX_CACHED_SHAPES) {
+				m_shapes.clear();
+			}
+			m_shapes.put(key, shape);
+		}
+		return shape.isEmpty() ? null : shape;
+	}
+
+	/** Invoked for each lookup or listener registration handled by an adaptive index. */
+	public void indexed() {
+		m_indexed.incrementAndGet();
+	}
+
+	/**
+	 * Invoked for each lookup or listener registration which has not been handled by any index. Creates an index for the
+	 * shape of the filter once it has been seen often enough.
+	 */
+	public void unindexed(String clazz, String filter) {
+		m_unindexed.incrementAndGet();
+		sweepIfDue();
+		String shape = getShape(clazz, filter);
+		if (shape == null || m_indices.containsKey(shape) || m_creating.contains(shape) || m_rejected.contains(shape)) {
+			return;
+		}
+		AtomicInteger count = m_observations.computeIfAbsent(shape, s -> new AtomicInteger());
+		if (count.incrementAndGet() == m_threshold) {
+			createIndex(shape);
+		}
+	}
+
+	private void createIndex(String shape) {
+		synchronized (this) {
+			if (m_indices.size() + m_creating.size() >= m_maxIndices || m_indices.containsKey(shape)
+					|| !m_creating.add(shape)) {
+				return;
+			}
+		}
+		try {
+			m_executor.execute(() -> {
+				try {
+					AdaptiveFilterIndex index = new AdaptiveFilterIndex(shape, this::getShape, m_logger);
+					m_cache.addFilterIndex(index);
+					// only opened indices are visible to the sweep, which closes them
+					m_indices.put(shape, index);
+					m_created.incrementAndGet();
+					m_logger.info("Created adaptive filter index for frequent filter shape %s", shape);
+				}
+				catch (RuntimeException e) {
+					m_logger.warn("Could not create adaptive filter index for filter shape %s", e, shape);
+				}
+				finally {
+					m_creating.remove(shape);
+				}
+			});
+		}
+		catch (RejectedExecutionException e) {
+			// closed
+			m_creating.remove(shape);
+		}
+	}
+
+	/**
+	 * Drops the adaptive indices which have not been used since the previous sweep, if the idle period has elapsed.
+	 */
+	public void sweepIfDue() {
+		long now = System.currentTimeMillis();
+		long next = m_nextSweep.get();
+		if (now < next || !m_nextSweep.compareAndSet(next, now + m_idlePeriod)) {
+			return;
+		}
+		m_observations.clear();
+		for (AdaptiveFilterIndex index : m_indices.values()) {
+			boolean disabled = index.isDisabled();
+			if (index.getUsesAndReset() == 0 && index.retire()) {
+				m_indices.remove(index.getShape());
+				if (disabled) {
+					// services have values the index can't handle, don't create it again
+					m_rejected.add(index.getShape());
+				}
+				m_cache.removeFilterIndex(index);
+				m_dropped.incrementAndGet();
+				m_logger.info("Dropped unused adaptive filter index: %s", index);
+			}
+		}
+		m_logger.debug("%s", this);
+	}
+
+	/** Returns the adaptive indices currently in use. */
+	public List<AdaptiveFilterIndex> getIndices() {
+		return new ArrayList<>(m_indices.values());
+	}
+
+	public String toString() {
+		StringBuffer sb = new StringBuffer();
+		sb.append("AdaptiveIndexSelector[");
+		sb.append("threshold: " + m_threshold);
+		sb.append(", indexed: " + m_indexed.get());
+		sb.append(", unindexed: " + m_unindexed.get());
+		sb.append(", created: " + m_created.get());
+		sb.append(", dropped: " + m_dropped.get());
+		sb.append(", rejected: " + m_rejected);
+		sb.append(", indices: " + m_indices.values());
+		sb.append("]");
+		return sb.toString();
+	}
+}
@@ -25,6 +25,7 @@ import java.util.List;
 
 import org.apache.felix.dm.FilterIndex;
 import org.apache.felix.dm.Logger;
+import org.apache.felix.dm.impl.index.multiproperty.AdaptiveFilterIndex;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.Constants;
 import org.osgi.framework.InvalidSyntaxException;
@@ -55,11 +56,24 @@ public class BundleContextInterceptor extends BundleContextInterceptorBase {
 
     public void addServiceListener(ServiceListener listener, String filter) throws InvalidSyntaxException {
         FilterIndex filterIndex = m_cache.hasFilterIndexFor(null, filter);
-        if (filterIndex != null) {
+        AdaptiveIndexSelector selector = m_cache.getAdaptiveIndexSelector();
+        if (filterIndex instanceof AdaptiveFilterIndex) {
+            // an adaptive index may have been retired in the meantime
+            if (((AdaptiveFilterIndex) filterIndex).addServiceListenerIfActive(listener, filter)) {
+                selector.indexed();
+            }
+            else {
+                m_context.addServiceListener(listener, filter);
+            }
+        }
+        else if (filterIndex != null) {
             filterIndex.addServiceListener(listener, filter);
         }
         else {
             m_context.addServiceListener(listener, filter);
+            if (selector != null) {
+                selector.unindexed(null, filter);
+            }
         }
     }
 
@@ -89,9 +103,8 @@ public class BundleContextInterceptor extends BundleContextInterceptorBase {
     		start = System.currentTimeMillis();
     	}
         // first we ask the cache if there is an index for our request (class and filter combination)
-        FilterIndex filterIndex = m_cache.hasFilterIndexFor(clazz, filter);
-        if (filterIndex != null) {
-            List<ServiceReference> result = filterIndex.getAllServiceReferences(clazz, filter);
+        List<ServiceReference> result = getIndexedServiceReferences(clazz, filter);
+        if (result != null) {
             Iterator<ServiceReference> iterator = result.iterator();
             while (iterator.hasNext()) {
                 ServiceReference reference = iterator.next();
@@ -129,10 +142,9 @@ public class BundleContextInterceptor extends BundleContextInterceptorBase {
 
 	public ServiceReference[] getAllServiceReferences(String clazz, String filter) throws InvalidSyntaxException {
         // first we ask the cache if there is an index for our request (class and filter combination)
-        FilterIndex filterIndex = m_cache.hasFilterIndexFor(clazz, filter);
-        if (filterIndex != null) {
-            List<ServiceReference> result = filterIndex.getAllServiceReferences(clazz, filter);
-            if (result == null || result.size() == 0) {
+        List<ServiceReference> result = getIndexedServiceReferences(clazz, filter);
+        if (result != null) {
+            if (result.size() == 0) {
                 return null;
             }
             return (ServiceReference[]) result.toArray(new ServiceReference[result.size()]);
@@ -143,6 +155,29 @@ public class BundleContextInterceptor extends BundleContextInterceptorBase {
         }
     }
 
+    /**
+     * Looks up the service references using the filter index applicable to a class and filter combination.
+     * @return the service references, or null if no index could handle the lookup
+     */
+    private List<ServiceReference> getIndexedServiceReferences(String clazz, String filter) {
+        FilterIndex filterIndex = m_cache.hasFilterIndexFor(clazz, filter);
+        AdaptiveIndexSelector selector = m_cache.getAdaptiveIndexSelector();
+        List<ServiceReference> result = null;
+        if (filterIndex instanceof AdaptiveFilterIndex) {
+            result = ((AdaptiveFilterIndex) filterIndex).getServiceReferencesIfActive(clazz, filter);
+            if (result != null) {
+                selector.indexed();
+            }
+        }
+        else if (filterIndex != null) {
+            result = filterIndex.getAllServiceReferences(clazz, filter);
+        }
+        else if (selector != null) {
+            selector.unindexed(clazz, filter);
+        }
+        return result;
+    }
+
     public ServiceReference getServiceReference(String clazz) {
         ServiceReference[] references;
         try {
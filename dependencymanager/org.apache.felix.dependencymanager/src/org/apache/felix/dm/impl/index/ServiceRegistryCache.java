@@ -39,6 +39,7 @@ public class ServiceRegistryCache implements ServiceListener/*, CommandProvider*
 	private final Map<BundleContext, BundleContextInterceptor> m_bundleContextInterceptorMap = new HashMap<>();
     private long m_currentVersion = 0;
     private long m_arrayVersion = -1;
+    private volatile AdaptiveIndexSelector m_adaptiveIndexSelector;
     
     public ServiceRegistryCache(BundleContext context) {
         m_context = context;
@@ -51,11 +52,29 @@ public class ServiceRegistryCache implements ServiceListener/*, CommandProvider*
     
     public void close() {
         m_context.removeServiceListener(this);
+        AdaptiveIndexSelector selector = m_adaptiveIndexSelector;
+        if (selector != null) {
+            selector.close();
+        }
+    }
+    
+    /**
+     * Enables the adaptive creation of filter indices for frequently used filter shapes.
+     * @param threshold "true", or the number of times a filter shape must be seen before it gets indexed
+     */
+    public void enableAdaptiveIndices(String threshold) {
+        m_adaptiveIndexSelector = new AdaptiveIndexSelector(this, m_context, threshold);
+    }
+    
+    /** Returns the adaptive index selector, or null if adaptive indices are not enabled. */
+    public AdaptiveIndexSelector getAdaptiveIndexSelector() {
+        return m_adaptiveIndexSelector;
     }
     
     public void addFilterIndex(FilterIndex index) {
-        m_filterIndexList.add(index);
+        // open the index before making it visible, so lookups never see it while it's still empty
         index.open(m_filterIndexBundleContext);
+        m_filterIndexList.add(index);
     }
     
     public void removeFilterIndex(FilterIndex index) {
@@ -79,6 +98,11 @@ public class ServiceRegistryCache implements ServiceListener/*, CommandProvider*
         }
         
         serviceChangedForFilterIndices(event);
+        
+        AdaptiveIndexSelector selector = m_adaptiveIndexSelector;
+        if (selector != null) {
+            selector.sweepIfDue();
+        }
     }
     
     /** Creates an interceptor for a bundle context that uses our cache. */
@@ -119,6 +143,9 @@ public class ServiceRegistryCache implements ServiceListener/*, CommandProvider*
         sb.append("ServiceRegistryCache[");
         sb.append("FilterIndices: " + m_filterIndexList.size());
         sb.append(", BundleContexts intercepted: " + m_bundleContextInterceptorMap.size());
+        if (m_adaptiveIndexSelector != null) {
+            sb.append(", " + m_adaptiveIndexSelector);
+        }
         sb.append("]");
         return sb.toString();
     }
@@ -35,8 +35,8 @@ import org.osgi.framework.FrameworkUtil;
 public class ServiceRegistryCacheManager {
 	
 	/**
-	 * The Service Registry cache, which is created if you specify the "org.apache.felix.dependencymanager.filterindex" system property
-	 * or if you register as a service a FilterIndex in the service registry.
+	 * The Service Registry cache, which is created if you specify the "org.apache.felix.dependencymanager.filterindex" or 
+	 * "org.apache.felix.dependencymanager.filterindex.adaptive" system properties, or if you register as a service a FilterIndex in the service registry.
 	 */
 	private static volatile ServiceRegistryCache m_cache;
 	
@@ -91,7 +91,7 @@ public class ServiceRegistryCacheManager {
 			cache.removeFilterIndex(index);
 			boolean close = false;
 			synchronized (ServiceRegistryCacheManager.class) {
-				if (cache.getSize() == 0) {
+				if (cache.getSize() == 0 && cache.getAdaptiveIndexSelector() == null) {
 					m_cache = null;
 					close = true;
 				}				
@@ -113,6 +113,9 @@ public class ServiceRegistryCacheManager {
 		synchronized (ServiceRegistryCacheManager.class) {
 			if (m_cache == null) {
 				m_cache = new ServiceRegistryCache(context);
+				if (isAdaptive(context)) {
+					m_cache.enableAdaptiveIndices(context.getProperty(DependencyManager.SERVICEREGISTRY_CACHE_ADAPTIVE));
+				}
 				open = true;
 			}
 			cache = m_cache;
@@ -123,6 +126,14 @@ public class ServiceRegistryCacheManager {
 		return cache;
 	}
 	
+	/**
+	 * Checks if filter indices must be created adaptively, using the "org.apache.felix.dependencymanager.filterindex.adaptive" system property.
+	 */
+	private static boolean isAdaptive(BundleContext context) {
+		String adaptive = context.getProperty(DependencyManager.SERVICEREGISTRY_CACHE_ADAPTIVE);
+		return adaptive != null && !"false".equalsIgnoreCase(adaptive);
+	}
+	
 	/**
 	 * Initialize the service registry cache.
 	 */
@@ -141,6 +152,10 @@ public class ServiceRegistryCacheManager {
 				if (index != null) {
 					resetIndices(index);
 				}
+				else if (isAdaptive(m_context)) {
+					// no configured indices, but they may be created adaptively
+					createCache(m_context);
+				}
 			}
 			Consumer<String> reset = ServiceRegistryCacheManager::reset;
 			System.getProperties().put(RESET, reset);	
@@ -0,0 +1,310 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.dm.impl.index.multiproperty;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+
+import org.apache.felix.dm.Logger;
+import org.osgi.framework.Filter;
+import org.osgi.framework.FrameworkUtil;
+import org.osgi.framework.InvalidSyntaxException;
+import org.osgi.framework.ServiceEvent;
+import org.osgi.framework.ServiceListener;
+import org.osgi.framework.ServiceReference;
+
+/**
+ * A multi property filter index created automatically for a filter shape, i.e. for the set of keys of
+ * filters like <code>(&amp;(objectClass=...)(key1=...)(!(key2=*)))</code>.
+ *
+ * Unlike a configured index, this index is only applicable to filters which are plain conjunctions of
+ * equality and absence tests without wildcards, and to services having string values for the indexed keys.
+ * If a service with another value type shows up, the index disables itself: it is no longer applicable and
+ * it dispatches events to the listeners it already has by evaluating their filters.
+ *
+ * @author <a href="mailto:dev@felix.apache.org">Felix Project Team</a>
+ */
+@SuppressWarnings("rawtypes")
+public class AdaptiveFilterIndex extends MultiPropertyFilterIndex {
+	private final String m_shape;
+	private final BiFunction<String, String, String> m_shapes;
+	private final Logger m_logger;
+	/** The parsed filters of the listeners, used to dispatch the events once the index is disabled. */
+	private final Map<ServiceListener, Filter> m_filters = new ConcurrentHashMap<>();
+	private final long m_created = System.currentTimeMillis();
+	private final AtomicLong m_uses = new AtomicLong();
+	private final AtomicLong m_lookups = new AtomicLong();
+	private final AtomicLong m_registrations = new AtomicLong();
+	private volatile boolean m_disabled;
+	private volatile boolean m_retired;
+
+	/**
+	 * Creates an index for a shape.
+	 * @param shape the shape, as returned by {@link #getShape(String, String)}
+	 * @param shapes the function used to get the shape of a class and filter, possibly caching them
+	 * @param logger the logger used to report invalid listener filters
+	 */
+	public AdaptiveFilterIndex(String shape, BiFunction<String, String, String> shapes, Logger logger) {
+		super(shape);
+		m_shape = shape;
+		m_shapes = shapes;
+		m_logger = logger;
+	}
+
+	/**
+	 * Returns the shape of a class and filter combination, that is the configuration of a multi property
+	 * index applicable to it: the sorted lower case keys, negated keys being prefixed with "!".
+	 * @return the shape, or null if the filter can't be indexed safely
+	 */
+	public static String getShape(String clazz, String filter) {
+		String f = filter;
+		if (clazz != null && !clazz.isEmpty()) {
+			// same combination as done by MultiPropertyFilterIndex
+			if (filter == null) {
+				f = "(objectClass=" + clazz + ")";
+			} else if (!filter.startsWith("(&(objectClass=")) {
+				f = "(&(objectClass=" + clazz + ")" + filter + ")";
+			} else if (!filter.contains("(objectClass=" + clazz + ")")) {
+				return null;
+			}
+		}
+		if (f == null) {
+			return null;
+		}
+		Map<String, Boolean> keys = new TreeMap<>();
+		int end = parse(f, 0, keys);
+		if (end != f.length() || keys.isEmpty()) {
+			return null;
+		}
+		StringBuilder shape = new StringBuilder();
+		for (Map.Entry<String, Boolean> entry : keys.entrySet()) {
+			if (shape.length() > 0) {
+				shape.append(',');
+			}
+			if (entry.getValue()) {
+				shape.append('!');
+			}
+			shape.append(entry.getKey());
+		}
+		return shape.toString();
+	}
+
+	/**
+	 * Parses <code>(&amp;item...)</code>, <code>(!(key=*))</code> or <code>(key=value)</code>.
+	 * @return the position after the item, or -1 if it can't be indexed
+	 */
+	private static int parse(String f, int pos, Map<String, Boolean> keys) {
+		if (pos + 1 >= f.length() || f.charAt(pos) != '(') {
+			return -1;
+		}
+		char c = f.charAt(pos + 1);
+		if (c == '&') {
+			int next = pos + 2;
+			int items = 0;
+			while (next > 0 && next < f.length() && f.charAt(next) == '(') {
+				next = parse(f, next, keys);
+				items++;
+			}
+			if (next < 0 || items == 0 || next >= f.length() || f.charAt(next) != ')') {
+				return -1;
+			}
+			return next + 1;
+		}
+		boolean negate = c == '!';
+		int start = negate ? pos + 3 : pos + 1;
+		if (negate && (pos + 2 >= f.length() || f.charAt(pos + 2) != '(')) {
+			return -1;
+		}
+		int eq = f.indexOf('=', start);
+		int close = f.indexOf(')', start);
+		if (eq <= start || close < eq) {
+			return -1;
+		}
+		String key = f.substring(start, eq);
+		for (int i = 0; i < key.length(); i++) {
+			char k = key.charAt(i);
+			if (!Character.isLetterOrDigit(k) && k != '.' && k != '-' && k != '_') {
+				return -1;
+			}
+		}
+		String value = f.substring(eq + 1, close);
+		if (negate) {
+			if (!value.equals("*") || close + 1 >= f.length() || f.charAt(close + 1) != ')') {
+				return -1;
+			}
+			close++;
+		} else if (value.isEmpty() || !value.trim().equals(value) || value.indexOf('*') >= 0 || value.indexOf('\\') >= 0
+				|| value.indexOf('(') >= 0) {
+			return -1;
+		}
+		if (keys.put(key.toLowerCase(), negate) != null) {
+			// the same key twice
+			return -1;
+		}
+		return close + 1;
+	}
+
+	public String getShape() {
+		return m_shape;
+	}
+
+	@Override
+	public boolean isApplicable(String clazz, String filter) {
+		return !m_disabled && m_shape.equals(m_shapes.apply(clazz, filter));
+	}
+
+	/**
+	 * Returns the service references matching a class and filter, unless this index has been retired or disabled.
+	 * @return the matching service references, or null if the lookup has to be done elsewhere
+	 */
+	public List<ServiceReference> getServiceReferencesIfActive(String clazz, String filter) {
+		if (m_retired || m_disabled) {
+			return null;
+		}
+		m_uses.incrementAndGet();
+		m_lookups.incrementAndGet();
+		List<ServiceReference> result = super.getAllServiceReferences(clazz, filter);
+		// the index may have been retired and closed while we were looking up
+		return m_retired || m_disabled ? null : result;
+	}
+
+	/**
+	 * Adds a listener unless this index has been retired.
+	 * @return false if the index has been retired, the listener then has to be added elsewhere
+	 */
+	public boolean addServiceListenerIfActive(ServiceListener listener, String filter) {
+		synchronized (this) {
+			if (m_retired) {
+				return false;
+			}
+			addServiceListener(listener, filter);
+		}
+		m_uses.incrementAndGet();
+		m_registrations.incrementAndGet();
+		return true;
+	}
+
+	@Override
+	public void addServiceListener(ServiceListener listener, String filter) {
+		try {
+			m_filters.put(listener, FrameworkUtil.createFilter(filter));
+		}
+		catch (InvalidSyntaxException e) {
+			m_logger.err("Invalid filter %s for adaptive filter index %s", e, filter, m_shape);
+		}
+		super.addServiceListener(listener, filter);
+	}
+
+	@Override
+	public void removeServiceListener(ServiceListener listener) {
+		super.removeServiceListener(listener);
+		m_filters.remove(listener);
+	}
+
+	/**
+	 * Retires this index if it has no listeners, a retired index no longer accepts listeners.
+	 * @return true if the index has been retired
+	 */
+	public synchronized boolean retire() {
+		if (!m_retired && getServiceListenerCount() == 0) {
+			m_retired = true;
+		}
+		return m_retired;
+	}
+
+	/**
+	 * Returns the number of lookups and listener registrations since the last call.
+	 */
+	public long getUsesAndReset() {
+		return m_uses.getAndSet(0);
+	}
+
+	public boolean isDisabled() {
+		return m_disabled;
+	}
+
+	@Override
+	public Object addingService(ServiceReference reference) {
+		// the index only needs the properties, don't get the services
+		return reference;
+	}
+
+	@Override
+	public void addedService(ServiceReference reference, Object service) {
+		checkValues(reference);
+		super.addedService(reference, service);
+	}
+
+	@Override
+	public void modifiedService(ServiceReference reference, Object service) {
+		checkValues(reference);
+		super.modifiedService(reference, service);
+	}
+
+	/**
+	 * Disables this index if a service has a value which would not be matched like the framework does,
+	 * for instance a number, which can be written differently in filters.
+	 */
+	private void checkValues(ServiceReference reference) {
+		if (m_disabled) {
+			return;
+		}
+		for (Property property : getProperties()) {
+			if (!property.isNegate()) {
+				Object value = reference.getProperty(property.getKey());
+				if (value != null && !(value instanceof String) && !(value instanceof String[])) {
+					m_disabled = true;
+					return;
+				}
+			}
+		}
+	}
+
+	@Override
+	public void serviceChanged(ServiceEvent event) {
+		if (!m_disabled) {
+			super.serviceChanged(event);
+			return;
+		}
+		for (Map.Entry<ServiceListener, Filter> entry : m_filters.entrySet()) {
+			if (entry.getValue().match(event.getServiceReference())) {
+				entry.getKey().serviceChanged(event);
+			}
+		}
+	}
+
+	public String toString() {
+		StringBuffer sb = new StringBuffer();
+		sb.append("AdaptiveFilterIndex[");
+		sb.append(m_shape);
+		sb.append(", lookups: " + m_lookups.get());
+		sb.append(", listeners: " + getServiceListenerCount());
+		sb.append(", registrations: " + m_registrations.get());
+		sb.append(", age: " + (System.currentTimeMillis() - m_created) / 1000 + " s");
+		if (m_disabled) {
+			sb.append(", disabled");
+		}
+		sb.append("]");
+		return sb.toString();
+	}
+}
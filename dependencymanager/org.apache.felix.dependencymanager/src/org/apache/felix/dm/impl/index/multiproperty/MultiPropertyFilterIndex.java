@@ -501,6 +501,12 @@ public class MultiPropertyFilterIndex implements FilterIndex, ServiceTrackerCust
 		return m_listenerToFilterMap.keySet();
 	}
 
+	protected int getServiceListenerCount() {
+		synchronized (m_keyToListenersMap) {
+			return m_listenerToFilterMap.size();
+		}
+	}
+
 	public String toString() {
 		StringBuffer sb = new StringBuffer();
 		sb.append(" dMultiPropertyExactFilter[");
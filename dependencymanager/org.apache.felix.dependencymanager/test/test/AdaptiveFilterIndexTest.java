@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.felix.dm.Logger;
+import org.apache.felix.dm.impl.index.multiproperty.AdaptiveFilterIndex;
+import org.junit.Test;
+import org.osgi.framework.ServiceEvent;
+import org.osgi.framework.ServiceListener;
+import org.osgi.framework.ServiceReference;
+
+public class AdaptiveFilterIndexTest {
+
+	@Test
+	public void shapes() {
+		assertEquals("objectclass", AdaptiveFilterIndex.getShape("java.lang.String", null));
+		assertEquals("objectclass", AdaptiveFilterIndex.getShape(null, "(objectClass=java.lang.String)"));
+		assertEquals("cid,objectclass", AdaptiveFilterIndex.getShape("java.lang.String", "(cid=cid1)"));
+		assertEquals("cid,!context,objectclass", AdaptiveFilterIndex.getShape(null, "(&(objectClass=java.lang.String)(cid=cid1)(!(context=*)))"));
+		assertEquals(AdaptiveFilterIndex.getShape(null, "(&(objectClass=A)(b=1)(a=2))"), AdaptiveFilterIndex.getShape(null, "(&(a=2)(objectClass=A)(b=1))"));
+
+		// disjunctions, wildcards, ranges and duplicate keys can't be indexed
+		assertNull(AdaptiveFilterIndex.getShape(null, "(|(objectClass=A)(objectClass=B))"));
+		assertNull(AdaptiveFilterIndex.getShape("A", "(cid=*)"));
+		assertNull(AdaptiveFilterIndex.getShape("A", "(cid=c*)"));
+		assertNull(AdaptiveFilterIndex.getShape("A", "(rank>=1)"));
+		assertNull(AdaptiveFilterIndex.getShape(null, "(&(objectClass=A)(objectClass=B))"));
+		assertNull(AdaptiveFilterIndex.getShape(null, "(&(objectClass=A)(!(cid=c1)))"));
+		assertNull(AdaptiveFilterIndex.getShape(null, null));
+	}
+
+	@SuppressWarnings("rawtypes")
+	@Test
+	public void lookups() {
+		AdaptiveFilterIndex index = new AdaptiveFilterIndex("cid,objectclass", AdaptiveFilterIndex::getShape, new Logger(null));
+		TestReference ref1 = new TestReference();
+		ref1.addProperty("service.id", 1);
+		ref1.addProperty("objectclass", "java.lang.String");
+		ref1.addProperty("cid", "cid1");
+
+		TestReference ref2 = new TestReference();
+		ref2.addProperty("service.id", 2);
+		ref2.addProperty("objectclass", "java.lang.String");
+		ref2.addProperty("cid", "cid2");
+
+		index.addedService(ref1, ref1);
+		index.addedService(ref2, ref2);
+
+		assertTrue(index.isApplicable("java.lang.String", "(cid=cid1)"));
+		assertFalse(index.isApplicable("java.lang.String", "(other=cid1)"));
+		List<ServiceReference> result = index.getServiceReferencesIfActive("java.lang.String", "(cid=cid1)");
+		assertEquals(1, result.size());
+		assertEquals(ref1, result.get(0));
+		assertEquals(1, index.getUsesAndReset());
+		assertEquals(0, index.getUsesAndReset());
+
+		// unused and without listeners: the index can be retired
+		assertTrue(index.retire());
+		assertNull(index.getServiceReferencesIfActive("java.lang.String", "(cid=cid1)"));
+		assertFalse(index.addServiceListenerIfActive(e -> {}, "(&(objectClass=java.lang.String)(cid=cid1))"));
+	}
+
+	@Test
+	public void nonStringValuesDisableIndex() {
+		AdaptiveFilterIndex index = new AdaptiveFilterIndex("objectclass,rank", AdaptiveFilterIndex::getShape, new Logger(null));
+		TestReference ref = new TestReference();
+		ref.addProperty("service.id", 1);
+		ref.addProperty("objectclass", "java.lang.String");
+		ref.addProperty("rank", 1);
+		index.addedService(ref, ref);
+
+		assertTrue(index.isDisabled());
+		assertFalse(index.isApplicable("java.lang.String", "(rank=1)"));
+		assertNull(index.getServiceReferencesIfActive("java.lang.String", "(rank=1)"));
+	}
+
+	@Test
+	public void disabledIndexDispatchesByFilter() {
+		AdaptiveFilterIndex index = new AdaptiveFilterIndex("objectclass,rank", AdaptiveFilterIndex::getShape, new Logger(null));
+		List<ServiceEvent> events1 = new ArrayList<>();
+		List<ServiceEvent> events2 = new ArrayList<>();
+		ServiceListener listener1 = events1::add;
+		ServiceListener listener2 = events2::add;
+		index.addServiceListener(listener1, "(&(objectClass=java.lang.String)(rank=1))");
+		index.addServiceListener(listener2, "(&(objectClass=java.lang.String)(rank=2))");
+
+		TestReference ref = new TestReference();
+		ref.addProperty("service.id", 1);
+		ref.addProperty("objectclass", "java.lang.String");
+		// the keys of test references are case sensitive, the filters use the framework's spelling
+		ref.addProperty("objectClass", new String[] { "java.lang.String" });
+		ref.addProperty("rank", 1);
+		index.addedService(ref, ref);
+		assertTrue(index.isDisabled());
+
+		index.serviceChanged(new ServiceEvent(ServiceEvent.REGISTERED, ref));
+		assertEquals(1, events1.size());
+		assertEquals(0, events2.size());
+
+		// removed listeners no longer get events
+		index.removeServiceListener(listener1);
+		index.serviceChanged(new ServiceEvent(ServiceEvent.MODIFIED, ref));
+		assertEquals(1, events1.size());
+		assertEquals(0, events2.size());
+	}
+}
@@ -27,9 +27,11 @@ import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -39,7 +41,15 @@ import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.jar.JarInputStream;
 import java.util.jar.Manifest;
 import java.util.regex.Pattern;
@@ -110,6 +120,7 @@ public class DirectoryWatcher extends Thread implements BundleListener
     public final static String FRAGMENT_SCOPE = "felix.fileinstall.fragmentRefreshScope";
     public final static String DISABLE_NIO2 = "felix.fileinstall.disableNio2";
     public final static String SUBDIR_MODE = "felix.fileinstall.subdir.mode";
+    public final static String PARALLELISM = "felix.fileinstall.parallelism";
 
     public final static String SCOPE_NONE = "none";
     public final static String SCOPE_MANAGED = "managed";
@@ -139,6 +150,7 @@ public class DirectoryWatcher extends Thread implements BundleListener
     String fragmentScope;
     String optionalScope;
     boolean disableNio2;
+    int parallelism;
     int frameworkStartLevel;
 
     // Map of all installed artifacts
@@ -157,7 +169,16 @@ public class DirectoryWatcher extends Thread implements BundleListener
     Set<Bundle> consistentlyFailingBundles = new HashSet<Bundle>();
 
     // Represents artifacts that could not be installed
-    final Map<File, Artifact> installationFailures = new HashMap<File, Artifact>();
+    final Map<File, Artifact> installationFailures = new ConcurrentHashMap<File, Artifact>();
+
+    // Locks by symbolic name so that bundles with the same symbolic name are not installed concurrently
+    private final Map<String, Object> installLocks = new ConcurrentHashMap<String, Object>();
+
+    // Jar files of the watched directories
+    private final Map<File, File> jaredDirectories = new ConcurrentHashMap<File, File>();
+
+    // The threads processing the artifacts of the current scan, null when processing sequentially
+    private ExecutorService executor;
 
     // flag (acces to which must be synchronized) that indicates wheter there's a change in state of system,
     // which may result in an attempt to start the watched bundles
@@ -188,6 +209,7 @@ public class DirectoryWatcher extends Thread implements BundleListener
         fragmentScope = properties.get(FRAGMENT_SCOPE);
         optionalScope = properties.get(OPTIONAL_SCOPE);
         disableNio2 = getBoolean(properties, DISABLE_NIO2, false);
+        parallelism = getInt(properties, PARALLELISM, Runtime.getRuntime().availableProcessors());
         this.context.addBundleListener(this);
 
         if (disableNio2) {
@@ -357,15 +379,33 @@ public class DirectoryWatcher extends Thread implements BundleListener
         }
     }
 
-    private void process(Set<File> files) throws InterruptedException
+    void process(Set<File> files) throws InterruptedException
     {
         fileInstall.lock.readLock().lockInterruptibly();
+        // One pool for all the stages of the scan, its threads are only created
+        // when a stage has work for them
+        executor = parallelism > 1 ? Executors.newFixedThreadPool(parallelism, new ThreadFactory()
+        {
+            private final AtomicInteger count = new AtomicInteger();
+
+            public Thread newThread(Runnable r)
+            {
+                Thread thread = new Thread(r, getName() + "-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        }) : null;
         try
         {
             doProcess(files);
         }
         finally
         {
+            if (executor != null)
+            {
+                executor.shutdownNow();
+                executor = null;
+            }
             fileInstall.lock.readLock().unlock();
         }
     }
@@ -384,109 +424,32 @@ public class DirectoryWatcher extends Thread implements BundleListener
             processingFailures.clear();
         }
 
-        for (File file : files) {
-            boolean exists = file.exists();
-            Artifact artifact = getArtifact(file);
-            // File has been deleted
-            if (!exists) {
-                if (artifact != null) {
-                    deleteJaredDirectory(artifact);
-                    deleteTransformedFile(artifact);
-                    deleted.add(artifact);
-                }
-            }
-            // File exists
-            else {
-                File jar = file;
-                URL jaredUrl = null;
-                try {
-                    jaredUrl = file.toURI().toURL();
-                } catch (MalformedURLException e) {
-                    // Ignore, can't happen
-                }
-                // Jar up the directory if needed
-                if (file.isDirectory()) {
-                    prepareTempDir();
-                    try {
-                        jar = new File(tmpDir, file.getName() + ".jar");
-                        Util.jarDir(file, jar);
-                        jaredUrl = new URL(JarDirUrlHandler.PROTOCOL, null, file.getPath());
-
-                    } catch (IOException e) {
-                        // Notify user of problem, won't retry until the dir is updated.
-                        log(Logger.LOG_ERROR,
-                                "Unable to create jar for: " + file.getAbsolutePath(), e);
-                        continue;
-                    }
-                }
-                // File has been modified
-                if (artifact != null) {
-                    artifact.setChecksum(scanner.getChecksum(file));
-                    // If there's no listener, this is because this artifact has been installed before
-                    // fileinstall has been restarted.  In this case, try to find a listener.
-                    if (artifact.getListener() == null) {
-                        ArtifactListener listener = findListener(jar, listeners);
-                        // If no listener can handle this artifact, we need to defer the
-                        // processing for this artifact until one is found
-                        if (listener == null) {
-                            synchronized (processingFailures) {
-                                processingFailures.add(file);
-                            }
-                            continue;
-                        }
-                        artifact.setListener(listener);
-                    }
-                    // If the listener can not handle this file anymore,
-                    // uninstall the artifact and try as if is was new
-                    if (!listeners.contains(artifact.getListener()) || !artifact.getListener().canHandle(jar)) {
-                        deleted.add(artifact);
-                    }
-                    // The listener is still ok
-                    else {
-                        deleteTransformedFile(artifact);
-                        artifact.setJaredDirectory(jar);
-                        artifact.setJaredUrl(jaredUrl);
-                        if (transformArtifact(artifact)) {
-                            modified.add(artifact);
-                        } else {
-                            deleteJaredDirectory(artifact);
-                            deleted.add(artifact);
-                        }
-                    }
-                }
-                // File has been added
-                else {
-                    // Find the listener
-                    ArtifactListener listener = findListener(jar, listeners);
-                    // If no listener can handle this artifact, we need to defer the
-                    // processing for this artifact until one is found
-                    if (listener == null) {
-                        synchronized (processingFailures) {
-                            processingFailures.add(file);
-                        }
-                        continue;
-                    }
-                    // Create the artifact
-                    artifact = new Artifact();
-                    artifact.setPath(file);
-                    artifact.setJaredDirectory(jar);
-                    artifact.setJaredUrl(jaredUrl);
-                    artifact.setListener(listener);
-                    artifact.setChecksum(scanner.getChecksum(file));
-                    if (transformArtifact(artifact)) {
-                        created.add(artifact);
-                    } else {
-                        deleteJaredDirectory(artifact);
-                    }
+        // The artifacts are processed in stages: jar, listener and transform,
+        // uninstall, update, install, refresh & start.  The work of a stage is
+        // done in parallel for all the artifacts, except for artifact listeners,
+        // which are not required to be thread safe.
+        long t0 = System.nanoTime();
+        final Map<File, File> jars = new ConcurrentHashMap<File, File>();
+        runParallel(files, new Task<File>()
+        {
+            public void run(File file)
+            {
+                File jar = jar(file);
+                if (jar != null) {
+                    jars.put(file, jar);
                 }
             }
+        });
+        for (File file : files) {
+            prepare(file, jars.get(file), listeners, deleted, modified, created);
         }
-        // Handle deleted artifacts
-        // We do the operations in the following order:
-        // uninstall, update, install, refresh & start.
+        long t1 = System.nanoTime();
         Collection<Bundle> uninstalledBundles = uninstall(deleted);
+        long t2 = System.nanoTime();
         Collection<Bundle> updatedBundles = update(modified);
+        long t3 = System.nanoTime();
         Collection<Bundle> installedBundles = install(created);
+        long t4 = System.nanoTime();
 
         if (!uninstalledBundles.isEmpty() || !updatedBundles.isEmpty() || !installedBundles.isEmpty())
         {
@@ -504,6 +467,7 @@ public class DirectoryWatcher extends Thread implements BundleListener
                 setStateChanged(true);
             }
         }
+        long t5 = System.nanoTime();
 
         if (startBundles) {
             int startLevel = systemBundle.adapt(FrameworkStartLevel.class).getStartLevel();
@@ -525,6 +489,163 @@ public class DirectoryWatcher extends Thread implements BundleListener
                 setStateChanged(false);
             }
         }
+        long t6 = System.nanoTime();
+
+        if (!files.isEmpty())
+        {
+            log(Logger.LOG_DEBUG, "Processed " + files.size() + " files in " + millis(t0, t6) + " ms"
+                    + " (prepare: " + millis(t0, t1) + " ms, uninstall: " + millis(t1, t2)
+                    + " ms, update: " + millis(t2, t3) + " ms, install: " + millis(t3, t4)
+                    + " ms, refresh: " + millis(t4, t5) + " ms, start: " + millis(t5, t6) + " ms)", null);
+        }
+    }
+
+    private static long millis(long start, long end)
+    {
+        return (end - start) / 1000000;
+    }
+
+    /**
+     * Jar up a file if it is a directory.
+     *
+     * @return the jar, the file itself if it is not a directory,
+     *          or <code>null</code> if the directory could not be jared up
+     */
+    File jar(File file)
+    {
+        if (!file.isDirectory()) {
+            return file;
+        }
+        try {
+            File jar = getJarFile(file);
+            Util.jarDir(file, jar);
+            return jar;
+        } catch (IOException e) {
+            // Notify user of problem, won't retry until the dir is updated.
+            log(Logger.LOG_ERROR,
+                    "Unable to create jar for: " + file.getAbsolutePath(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Get the jar file of a directory.  Directories with the same name may be
+     * watched in sub directories, so each jar is created in its own temporary
+     * directory, keeping the name of the directory the listeners look at.
+     */
+    File getJarFile(File dir) throws IOException
+    {
+        File jar = jaredDirectories.get(dir);
+        if (jar == null) {
+            prepareTempDir();
+            File parent = Files.createTempDirectory(tmpDir.toPath(), "dir").toFile();
+            jar = new File(parent, dir.getName() + ".jar");
+            jaredDirectories.put(dir, jar);
+        }
+        return jar;
+    }
+
+    /**
+     * Find out if a file has been deleted, modified or created, find its
+     * listener and transform it.
+     *
+     * @param jar the file jared up by {@link #jar(File)}
+     */
+    private void prepare(File file, File jar, List<ArtifactListener> listeners,
+            List<Artifact> deleted, List<Artifact> modified, List<Artifact> created)
+    {
+        boolean exists = file.exists();
+        Artifact artifact = getArtifact(file);
+        // File has been deleted
+        if (!exists) {
+            if (artifact != null) {
+                deleteJaredDirectory(artifact);
+                deleteTransformedFile(artifact);
+                deleted.add(artifact);
+            }
+        }
+        // The directory could not be jared up
+        else if (jar == null) {
+            return;
+        }
+        // File exists
+        else {
+            URL jaredUrl = null;
+            try {
+                jaredUrl = file.toURI().toURL();
+            } catch (MalformedURLException e) {
+                // Ignore, can't happen
+            }
+            if (jar != file) {
+                try {
+                    jaredUrl = new URL(JarDirUrlHandler.PROTOCOL, null, file.getPath());
+                } catch (MalformedURLException e) {
+                    log(Logger.LOG_ERROR,
+                            "Unable to create jar for: " + file.getAbsolutePath(), e);
+                    return;
+                }
+            }
+            // File has been modified
+            if (artifact != null) {
+                artifact.setChecksum(scanner.getChecksum(file));
+                // If there's no listener, this is because this artifact has been installed before
+                // fileinstall has been restarted.  In this case, try to find a listener.
+                if (artifact.getListener() == null) {
+                    ArtifactListener listener = findListener(jar, listeners);
+                    // If no listener can handle this artifact, we need to defer the
+                    // processing for this artifact until one is found
+                    if (listener == null) {
+                        synchronized (processingFailures) {
+                            processingFailures.add(file);
+                        }
+                        return;
+                    }
+                    artifact.setListener(listener);
+                }
+                // If the listener can not handle this file anymore,
+                // uninstall the artifact and try as if is was new
+                if (!listeners.contains(artifact.getListener()) || !artifact.getListener().canHandle(jar)) {
+                    deleted.add(artifact);
+                }
+                // The listener is still ok
+                else {
+                    deleteTransformedFile(artifact);
+                    artifact.setJaredDirectory(jar);
+                    artifact.setJaredUrl(jaredUrl);
+                    if (transformArtifact(artifact)) {
+                        modified.add(artifact);
+                    } else {
+                        deleteJaredDirectory(artifact);
+                        deleted.add(artifact);
+                    }
+                }
+            }
+            // File has been added
+            else {
+                // Find the listener
+                ArtifactListener listener = findListener(jar, listeners);
+                // If no listener can handle this artifact, we need to defer the
+                // processing for this artifact until one is found
+                if (listener == null) {
+                    synchronized (processingFailures) {
+                        processingFailures.add(file);
+                    }
+                    return;
+                }
+                // Create the artifact
+                artifact = new Artifact();
+                artifact.setPath(file);
+                artifact.setJaredDirectory(jar);
+                artifact.setJaredUrl(jaredUrl);
+                artifact.setListener(listener);
+                artifact.setChecksum(scanner.getChecksum(file));
+                if (transformArtifact(artifact)) {
+                    created.add(artifact);
+                } else {
+                    deleteJaredDirectory(artifact);
+                }
+            }
+        }
     }
 
     ArtifactListener findListener(File artifact, List<ArtifactListener> listeners)
@@ -600,10 +721,15 @@ public class DirectoryWatcher extends Thread implements BundleListener
             log(Logger.LOG_WARNING,
                 "Unable to delete jared artifact: " + artifact.getJaredDirectory().getAbsolutePath(), null);
         }
+        File jar = jaredDirectories.remove(artifact.getPath());
+        if (jar != null)
+        {
+            jar.getParentFile().delete();
+        }
     }
 
 
-    private void prepareTempDir()
+    private synchronized void prepareTempDir()
     {
         if (tmpDir == null)
         {
@@ -877,16 +1003,88 @@ public class DirectoryWatcher extends Thread implements BundleListener
      * @param artifacts Collection of {@link Artifact}s to be installed
      * @return List of Bundles just installed
      */
-    private Collection<Bundle> install(Collection<Artifact> artifacts)
+    private Collection<Bundle> install(Collection<Artifact> artifacts) throws InterruptedException
+    {
+        final List<Bundle> bundles = Collections.synchronizedList(new ArrayList<Bundle>());
+        Task<Artifact> task = new Task<Artifact>()
+        {
+            public void run(Artifact artifact)
+            {
+                Bundle bundle = install(artifact);
+                if (bundle != null) {
+                    bundles.add(bundle);
+                }
+            }
+        };
+        runInstallers(artifacts, task);
+        runParallel(getBundleArtifacts(artifacts), task);
+        return bundles;
+    }
+
+    /**
+     * Run a task for the artifacts handled by an {@link ArtifactInstaller},
+     * one after the other as installers are not required to be thread safe.
+     */
+    private void runInstallers(Collection<Artifact> artifacts, Task<Artifact> task)
     {
-        List<Bundle> bundles = new ArrayList<Bundle>();
         for (Artifact artifact : artifacts) {
-            Bundle bundle = install(artifact);
-            if (bundle != null) {
-                bundles.add(bundle);
+            if (artifact.getListener() instanceof ArtifactInstaller) {
+                task.run(artifact);
+            }
+        }
+    }
+
+    /**
+     * Get the artifacts installed as bundles.
+     */
+    private List<Artifact> getBundleArtifacts(Collection<Artifact> artifacts)
+    {
+        List<Artifact> bundleArtifacts = new ArrayList<Artifact>();
+        for (Artifact artifact : artifacts) {
+            if (!(artifact.getListener() instanceof ArtifactInstaller)) {
+                bundleArtifacts.add(artifact);
+            }
+        }
+        return bundleArtifacts;
+    }
+
+    /**
+     * A unit of work of a processing stage.
+     */
+    interface Task<T>
+    {
+        void run(T element);
+    }
+
+    /**
+     * Run a task for each element, using the threads of the current scan,
+     * and wait for all of them to be done.
+     */
+    <T> void runParallel(Collection<T> elements, final Task<T> task) throws InterruptedException
+    {
+        if (executor == null || elements.size() <= 1) {
+            for (T element : elements) {
+                task.run(element);
+            }
+            return;
+        }
+        List<Future<?>> futures = new ArrayList<Future<?>>();
+        for (final T element : elements) {
+            futures.add(executor.submit(new Runnable()
+            {
+                public void run()
+                {
+                    task.run(element);
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                log(Logger.LOG_ERROR, "Unexpected error while processing artifacts", e.getCause());
             }
         }
-        return bundles;
     }
 
     /**
@@ -912,15 +1110,21 @@ public class DirectoryWatcher extends Thread implements BundleListener
      * @param artifacts    Collection of {@link Artifact}s to be updated.
      * @return Collection of bundles that got updated
      */
-    private Collection<Bundle> update(Collection<Artifact> artifacts)
+    private Collection<Bundle> update(Collection<Artifact> artifacts) throws InterruptedException
     {
-        List<Bundle> bundles = new ArrayList<Bundle>();
-        for (Artifact artifact : artifacts) {
-            Bundle bundle = update(artifact);
-            if (bundle != null) {
-                bundles.add(bundle);
+        final List<Bundle> bundles = Collections.synchronizedList(new ArrayList<Bundle>());
+        Task<Artifact> task = new Task<Artifact>()
+        {
+            public void run(Artifact artifact)
+            {
+                Bundle bundle = update(artifact);
+                if (bundle != null) {
+                    bundles.add(bundle);
+                }
             }
-        }
+        };
+        runInstallers(artifacts, task);
+        runParallel(getBundleArtifacts(artifacts), task);
         return bundles;
     }
 
@@ -1007,43 +1211,12 @@ public class DirectoryWatcher extends Thread implements BundleListener
                                 "Make sure, META-INF and MANIFEST.MF are the first 2 entries in your JAR!");
             }
             String sn = m.getMainAttributes().getValue(Constants.BUNDLE_SYMBOLICNAME);
-            String vStr = m.getMainAttributes().getValue(Constants.BUNDLE_VERSION);
-            Version v = vStr == null ? Version.emptyVersion : Version.parseVersion(vStr);
-            Bundle[] bundles = context.getBundles();
-            for (Bundle b : bundles) {
-                if (b.getSymbolicName() != null && b.getSymbolicName().equals(sn)) {
-                    vStr = b.getHeaders().get(Constants.BUNDLE_VERSION);
-                    Version bv = vStr == null ? Version.emptyVersion : Version.parseVersion(vStr);
-                    if (v.equals(bv)) {
-                        is.reset();
-                        if (Util.loadChecksum(b, context) != checksum) {
-                            log(Logger.LOG_WARNING,
-                                    "A bundle with the same symbolic name ("
-                                            + sn + ") and version (" + vStr
-                                            + ") is already installed.  Updating this bundle instead.", null
-                            );
-                            stopTransient(b);
-                            Util.storeChecksum(b, checksum, context);
-                            b.update(is);
-                            modified.set(true);
-                        }
-                        return b;
-                    }
-                }
-            }
-            is.reset();
-            Util.log(context, Logger.LOG_INFO, "Installing bundle " + sn
-                    + " / " + v, null);
-            Bundle b = context.installBundle(bundleLocation, is);
-            Util.storeChecksum(b, checksum, context);
-            modified.set(true);
-
-            // Set default start level at install time, the user can override it if he wants
-            if (startLevel != 0) {
-                b.adapt(BundleStartLevel.class).setStartLevel(startLevel);
+            Object lock = new Object();
+            Object existing = installLocks.putIfAbsent(String.valueOf(sn), lock);
+            synchronized (existing != null ? existing : lock)
+            {
+                return installOrUpdateBundle(bundleLocation, is, checksum, modified, m, sn);
             }
-
-            return b;
         }
         finally
         {
@@ -1054,6 +1227,50 @@ public class DirectoryWatcher extends Thread implements BundleListener
         }
     }
 
+    private Bundle installOrUpdateBundle(
+        String bundleLocation, BufferedInputStream is, long checksum, AtomicBoolean modified,
+        Manifest m, String sn)
+        throws IOException, BundleException
+    {
+        String vStr = m.getMainAttributes().getValue(Constants.BUNDLE_VERSION);
+        Version v = vStr == null ? Version.emptyVersion : Version.parseVersion(vStr);
+        Bundle[] bundles = context.getBundles();
+        for (Bundle b : bundles) {
+            if (b.getSymbolicName() != null && b.getSymbolicName().equals(sn)) {
+                vStr = b.getHeaders().get(Constants.BUNDLE_VERSION);
+                Version bv = vStr == null ? Version.emptyVersion : Version.parseVersion(vStr);
+                if (v.equals(bv)) {
+                    is.reset();
+                    if (Util.loadChecksum(b, context) != checksum) {
+                        log(Logger.LOG_WARNING,
+                                "A bundle with the same symbolic name ("
+                                        + sn + ") and version (" + vStr
+                                        + ") is already installed.  Updating this bundle instead.", null
+                        );
+                        stopTransient(b);
+                        Util.storeChecksum(b, checksum, context);
+                        b.update(is);
+                        modified.set(true);
+                    }
+                    return b;
+                }
+            }
+        }
+        is.reset();
+        Util.log(context, Logger.LOG_INFO, "Installing bundle " + sn
+                + " / " + v, null);
+        Bundle b = context.installBundle(bundleLocation, is);
+        Util.storeChecksum(b, checksum, context);
+        modified.set(true);
+
+        // Set default start level at install time, the user can override it if he wants
+        if (startLevel != 0) {
+            b.adapt(BundleStartLevel.class).setStartLevel(startLevel);
+        }
+
+        return b;
+    }
+
     /**
      * Uninstall a jar file.
      */
@@ -1202,7 +1419,7 @@ public class DirectoryWatcher extends Thread implements BundleListener
      * is set to true or when a bundle is persistently started. Persistently stopped bundles
      * are ignored.
      */
-    private void startAllBundles()
+    private void startAllBundles() throws InterruptedException
     {
         FrameworkStartLevel startLevelSvc = systemBundle.adapt(FrameworkStartLevel.class);
         Set<Bundle> bundles = new LinkedHashSet<>();
@@ -1222,19 +1439,42 @@ public class DirectoryWatcher extends Thread implements BundleListener
     }
 
      /**
-      * Starts a bundle and removes it from the Collection when successfully started.
+      * Starts the bundles and removes them from the Collection when successfully started.
+      * The bundles are started by increasing start level, those with the same start level
+      * in parallel.
       */
-    private void startBundles(Set<Bundle> bundles)
+    private void startBundles(Set<Bundle> bundles) throws InterruptedException
     {
         // Check if this is the consistent set of bundles which failed previously.
-        boolean logFailures = !consistentlyFailingBundles.equals(bundles);
-        for (Iterator<Bundle> b = bundles.iterator(); b.hasNext(); )
+        final boolean logFailures = !consistentlyFailingBundles.equals(bundles);
+        Map<Integer, List<Bundle>> bundlesByStartLevel = new TreeMap<Integer, List<Bundle>>();
+        for (Bundle bundle : bundles)
         {
-            if (startBundle(b.next(), logFailures))
+            int level = bundle.getState() != Bundle.UNINSTALLED
+                    ? bundle.adapt(BundleStartLevel.class).getStartLevel() : 0;
+            List<Bundle> list = bundlesByStartLevel.get(level);
+            if (list == null)
             {
-                b.remove();
+                list = new ArrayList<Bundle>();
+                bundlesByStartLevel.put(level, list);
             }
+            list.add(bundle);
+        }
+        final Set<Bundle> started = Collections.synchronizedSet(new HashSet<Bundle>());
+        for (List<Bundle> list : bundlesByStartLevel.values())
+        {
+            runParallel(list, new Task<Bundle>()
+            {
+                public void run(Bundle bundle)
+                {
+                    if (startBundle(bundle, logFailures))
+                    {
+                        started.add(bundle);
+                    }
+                }
+            });
         }
+        bundles.removeAll(started);
     }
 
      /**
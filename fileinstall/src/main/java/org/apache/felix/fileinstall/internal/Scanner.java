@@ -155,7 +155,7 @@ public class Scanner implements Closeable {
                 }
             }
             else {
-                if (!filter.accept(file.getParentFile(),file.getName())){
+                if (filter != null && !filter.accept(file.getParentFile(),file.getName())){
                     continue;
                 }
             }
@@ -257,7 +257,7 @@ public class Scanner implements Closeable {
         }
     }
 
-    private static void checksum(long l, CRC32 crc)
+    static void checksum(long l, CRC32 crc)
     {
         for (int i = 0; i < 8; i++)
         {
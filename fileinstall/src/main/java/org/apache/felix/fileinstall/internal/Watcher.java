@@ -159,6 +159,7 @@ public abstract class Watcher implements Closeable {
     }
 
     public void processEvents() {
+        boolean overflow = false;
         while (true) {
             WatchKey key = watcher.poll();
             if (key == null) {
@@ -181,10 +182,13 @@ public abstract class Watcher implements Closeable {
                 debug("Processing event {} on path {}", kind, child);
 
                 if (kind == OVERFLOW) {
-//                    rescan();
+                    // Events have been lost, the whole tree has to be scanned again
+                    overflow = true;
                     continue;
                 }
 
+                onEvent(kind, child);
+
                 try {
                     if (kind == ENTRY_CREATE) {
                         if (Files.isDirectory(child)) {
@@ -220,6 +224,15 @@ public abstract class Watcher implements Closeable {
                 }
             }
         }
+        if (overflow) {
+            debug("Events have been lost, scanning " + root);
+            onOverflow();
+            try {
+                rescan();
+            } catch (IOException e) {
+                warn("Unable to scan " + root + ": " + e);
+            }
+        }
     }
 
     private void scan(final Path file) throws IOException {
@@ -250,7 +263,7 @@ public abstract class Watcher implements Closeable {
                     debug("File has been deleted: " + path);
                     processedMap.remove(path);
                     if (isMatchesFile(path)) {
-                        onRemove(file);
+                        onRemove(path);
                         lastModified = System.currentTimeMillis();
                     }
                 }
@@ -321,4 +334,16 @@ public abstract class Watcher implements Closeable {
     protected abstract void warn(String message, Object... args);
     protected abstract void process(Path path);
     protected abstract void onRemove(Path path);
+
+    /**
+     * Called for each event received, before the file matcher is applied.
+     */
+    protected void onEvent(WatchEvent.Kind<?> kind, Path path) {
+    }
+
+    /**
+     * Called when events have been lost, before the whole tree is scanned again.
+     */
+    protected void onOverflow() {
+    }
 }
@@ -23,9 +23,14 @@ import java.io.IOException;
 import java.nio.file.FileSystems;
 import java.nio.file.Path;
 import java.nio.file.PathMatcher;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.Map;
 import java.util.Set;
+import java.util.zip.CRC32;
 
 import org.osgi.framework.BundleContext;
 
@@ -37,6 +42,14 @@ public class WatcherScanner extends Scanner {
 
     Set<File> changed = new HashSet<File>();
 
+    /**
+     * The state of the files and directories inside the sub directories, so that
+     * the checksum of a sub directory can be computed without reading its whole
+     * content again.  Entries are dropped when an event is received for them or
+     * for one of their children.  Guarded by the changed set.
+     */
+    final Map<File, Entry> entries = new HashMap<File, Entry>();
+
     /**
      * Create a scanner for the specified directory and file filter
      *
@@ -74,7 +87,7 @@ public class WatcherScanner extends Scanner {
                 File file = iterator.next();
                 long lastChecksum = lastChecksums.get(file) != null ? (Long) lastChecksums.get(file) : 0;
                 long storedChecksum = storedChecksums.get(file) != null ? (Long) storedChecksums.get(file) : 0;
-                long newChecksum = checksum(file);
+                long newChecksum = cachedChecksum(file);
                 lastChecksums.put(file, newChecksum);
                 if (file.exists()) {
                     // Only handle file when it does not change anymore and it has changed since last reported
@@ -112,6 +125,67 @@ public class WatcherScanner extends Scanner {
         watcher.close();
     }
 
+    /**
+     * Compute the same checksum as {@link Scanner#checksum(File)}, using the
+     * cached state for the content of directories.
+     */
+    long cachedChecksum(File file) {
+        if (!file.isDirectory()) {
+            return checksum(file);
+        }
+        CRC32 crc = new CRC32();
+        cachedChecksum(file, crc);
+        return crc.getValue();
+    }
+
+    private void cachedChecksum(File file, CRC32 crc) {
+        crc.update(file.getName().getBytes());
+        Entry entry = entries.get(file);
+        if (entry == null) {
+            entry = new Entry(file);
+            entries.put(file, entry);
+        }
+        if (entry.file) {
+            checksum(entry.lastModified, crc);
+            checksum(entry.length, crc);
+        } else if (entry.children != null) {
+            for (File child : entry.children) {
+                cachedChecksum(child, crc);
+            }
+        }
+    }
+
+    /**
+     * Drop the cached state of a file, its children if it is a directory,
+     * and of its parent directory whose list of children may have changed.
+     */
+    void invalidate(File file) {
+        Entry entry = entries.remove(file);
+        if (entry != null ? !entry.file : !file.isFile()) {
+            String prefix = file.getPath() + File.separator;
+            for (Iterator<File> iterator = entries.keySet().iterator(); iterator.hasNext(); ) {
+                if (iterator.next().getPath().startsWith(prefix)) {
+                    iterator.remove();
+                }
+            }
+        }
+        entries.remove(file.getParentFile());
+    }
+
+    static class Entry {
+        final boolean file;
+        final long lastModified;
+        final long length;
+        final File[] children;
+
+        Entry(File f) {
+            file = f.isFile();
+            lastModified = file ? f.lastModified() : 0;
+            length = file ? f.length() : 0;
+            children = !file && f.isDirectory() ? f.listFiles() : null;
+        }
+    }
+
     class ScannerWatcher extends Watcher {
 
         @Override
@@ -145,6 +219,29 @@ public class WatcherScanner extends Scanner {
             process(path);
         }
 
+        @Override
+        protected void onEvent(WatchEvent.Kind<?> kind, Path path) {
+            File file = path.toFile();
+            synchronized (changed) {
+                invalidate(file);
+            }
+            if (kind == StandardWatchEventKinds.ENTRY_CREATE && jarSubdir
+                    && file.getParentFile().equals(directory) && file.isDirectory()) {
+                // An exploded bundle, even if still empty
+                process(path);
+            }
+        }
+
+        @Override
+        protected void onOverflow() {
+            synchronized (changed) {
+                // Check all known files again, the following scan
+                // adds the existing ones
+                entries.clear();
+                changed.addAll(storedChecksums.keySet());
+            }
+        }
+
         @Override
         protected void debug(String message, Object... args) {
             log(Util.Logger.LOG_DEBUG, message, args);
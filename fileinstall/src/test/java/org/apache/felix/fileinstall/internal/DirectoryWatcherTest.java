@@ -21,13 +21,17 @@ package org.apache.felix.fileinstall.internal;
 
 import java.io.File;
 import java.net.URISyntaxException;
+import java.net.URL;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 import junit.framework.TestCase;
 import org.apache.felix.fileinstall.ArtifactListener;
+import org.apache.felix.fileinstall.ArtifactUrlTransformer;
 import org.easymock.EasyMock;
 import org.easymock.IMocksControl;
 import org.junit.Assert;
@@ -448,4 +452,105 @@ public class DirectoryWatcherTest extends TestCase
         EasyMock.verify(mockBundleContext, mockBundle,mockServiceReference, mockArtifactListener);
     }
 
+    public void testSameNamedDirectoriesJaredSeparately() throws Exception
+    {
+        File root = new File("target/same-named");
+        File dir1 = new File(root, "a/foo");
+        File dir2 = new File(root, "b/foo");
+        dir1.mkdirs();
+        dir2.mkdirs();
+        new File(dir1, "a.txt").createNewFile();
+        new File(dir2, "b.txt").createNewFile();
+        props.put(DirectoryWatcher.TMPDIR, new File(root, "tmp").getAbsolutePath());
+
+        mockBundleContext.addBundleListener((BundleListener) org.easymock.EasyMock.anyObject());
+        EasyMock.replay(mockBundleContext, mockBundle, mockSysBundle, mockStartLevel);
+
+        dw = new DirectoryWatcher(new FileInstall(), props, mockBundleContext);
+
+        File jar1 = dw.jar(dir1);
+        File jar2 = dw.jar(dir2);
+        assertFalse("same named directories are jared up to different files", jar1.equals(jar2));
+        assertEquals("foo.jar", jar1.getName());
+        assertEquals("foo.jar", jar2.getName());
+        assertTrue(jar1.isFile());
+        assertTrue(jar2.isFile());
+        assertEquals("a directory is jared up to the same file on each scan", jar1, dw.jar(dir1));
+    }
+
+
+    public void testListenersCalledSequentially() throws Exception
+    {
+        File dir = new File("target/sequential");
+        dir.mkdirs();
+        final Set<File> files = new HashSet<File>();
+        for (int i = 0; i < 8; i++)
+        {
+            File file = new File(dir, "file" + i + ".txt");
+            file.createNewFile();
+            files.add(file);
+        }
+        props.put(DirectoryWatcher.DIR, dir.getAbsolutePath());
+        props.put(DirectoryWatcher.START_NEW_BUNDLES, "false");
+        props.put(DirectoryWatcher.PARALLELISM, "4");
+
+        // records the calls made concurrently to the listener
+        final AtomicInteger calls = new AtomicInteger();
+        final AtomicInteger totalCalls = new AtomicInteger();
+        final AtomicInteger concurrentCalls = new AtomicInteger();
+        ArtifactUrlTransformer listener = new ArtifactUrlTransformer()
+        {
+            public boolean canHandle(File artifact)
+            {
+                return call(Boolean.TRUE);
+            }
+
+            public URL transform(URL artifact)
+            {
+                return call(null);
+            }
+
+            private <T> T call(T result)
+            {
+                totalCalls.incrementAndGet();
+                if (calls.incrementAndGet() > 1)
+                {
+                    concurrentCalls.incrementAndGet();
+                }
+                try
+                {
+                    Thread.sleep(5);
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+                calls.decrementAndGet();
+                return result;
+            }
+        };
+        ServiceReference mockServiceReference = EasyMock.createNiceMock(ServiceReference.class);
+
+        mockBundleContext.addBundleListener((BundleListener) org.easymock.EasyMock.anyObject());
+        EasyMock.replay(mockBundleContext, mockBundle, mockServiceReference, mockSysBundle, mockStartLevel);
+
+        FileInstall fileInstall = new FileInstall();
+        fileInstall.listeners.put(mockServiceReference, listener);
+        final Set<String> jarThreads = Collections.synchronizedSet(new HashSet<String>());
+        dw = new DirectoryWatcher(fileInstall, props, mockBundleContext)
+        {
+            File jar(File file)
+            {
+                jarThreads.add(Thread.currentThread().getName());
+                return super.jar(file);
+            }
+        };
+        dw.process(files);
+
+        assertEquals("canHandle and transform are called for each file", 16, totalCalls.get());
+        assertEquals("listeners are not called concurrently", 0, concurrentCalls.get());
+        assertFalse("files are jared up by the threads of the scan", jarThreads.contains(Thread.currentThread().getName()));
+        assertTrue(jarThreads.size() <= 4);
+    }
+
 }
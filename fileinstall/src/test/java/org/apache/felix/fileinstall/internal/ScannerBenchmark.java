@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.fileinstall.internal;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.util.Set;
+
+import org.osgi.framework.BundleContext;
+
+/**
+ * Measure the CPU time used by the polling and the watching scanners on a
+ * large directory, when nothing changes and when a file of an exploded
+ * bundle changes.
+ *
+ * Run with: java -cp ... org.apache.felix.fileinstall.internal.ScannerBenchmark [bundles] [exploded] [files]
+ */
+public class ScannerBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int bundles = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int exploded = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        int files = args.length > 2 ? Integer.parseInt(args[2]) : 500;
+
+        File dir = Files.createTempDirectory("fileinstall").toFile().getCanonicalFile();
+        try {
+            for (int i = 0; i < bundles; i++) {
+                write(new File(dir, "bundle-" + i + ".jar"));
+            }
+            for (int i = 0; i < exploded; i++) {
+                for (int j = 0; j < files; j++) {
+                    write(new File(dir, "exploded-" + i + ".jar/org/foo" + (j % 10) + "/Foo" + j + ".class"));
+                }
+            }
+            System.out.println(bundles + " bundles, " + exploded + " exploded bundles with " + files + " files");
+
+            run("Scanner", new Scanner(dir, null, null), dir);
+            run("WatcherScanner", new WatcherScanner(context(), dir, null, null), dir);
+        } finally {
+            delete(dir);
+        }
+    }
+
+    private static void run(String name, Scanner scanner, File dir) throws Exception {
+        ThreadMXBean mx = ManagementFactory.getThreadMXBean();
+        try {
+            long t0 = mx.getCurrentThreadCpuTime();
+            scanner.scan(true);
+            long t1 = mx.getCurrentThreadCpuTime();
+            int polls = 20;
+            for (int i = 0; i < polls; i++) {
+                scanner.scan(false);
+            }
+            long t2 = mx.getCurrentThreadCpuTime();
+            System.out.println(name + ": initial scan " + (t1 - t0) / 1000000 + " ms, idle poll "
+                    + (t2 - t1) / polls / 1000 + " us");
+
+            File changed = new File(dir, "exploded-0.jar/org/foo0/Foo0.class");
+            long cpu = 0;
+            for (int i = 0; i < 5; i++) {
+                Thread.sleep(1000);
+                try (FileOutputStream os = new FileOutputStream(changed, true)) {
+                    os.write(i);
+                }
+                Thread.sleep(100);
+                int count = 0;
+                long start = mx.getCurrentThreadCpuTime();
+                Set<File> result;
+                do {
+                    result = scanner.scan(false);
+                    count++;
+                } while (result.isEmpty() && count < 10);
+                cpu += mx.getCurrentThreadCpuTime() - start;
+            }
+            System.out.println(name + ": change in an exploded bundle " + cpu / 5 / 1000 + " us");
+        } finally {
+            scanner.close();
+        }
+    }
+
+    private static BundleContext context() {
+        return (BundleContext) Proxy.newProxyInstance(ScannerBenchmark.class.getClassLoader(),
+                new Class[] { BundleContext.class },
+                new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        return null;
+                    }
+                });
+    }
+
+    private static void write(File file) throws IOException {
+        file.getParentFile().mkdirs();
+        try (FileOutputStream os = new FileOutputStream(file)) {
+            os.write(new byte[64]);
+        }
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+}
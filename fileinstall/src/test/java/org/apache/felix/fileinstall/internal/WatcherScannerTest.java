@@ -0,0 +1,141 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.fileinstall.internal;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.osgi.framework.BundleContext;
+
+import static org.apache.felix.fileinstall.internal.Scanner.SUBDIR_MODE_JAR;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class WatcherScannerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File root;
+    private File exploded;
+    private WatcherScanner scanner;
+
+    @Before
+    public void setUp() throws IOException {
+        root = folder.getRoot().getCanonicalFile();
+        write(new File(root, "a.jar"), 10);
+        exploded = new File(root, "b.jar");
+        write(new File(exploded, "META-INF/MANIFEST.MF"), 20);
+        write(new File(exploded, "org/foo/Foo.class"), 30);
+        // Only used for logging
+        BundleContext context = (BundleContext) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[] { BundleContext.class },
+                new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        return null;
+                    }
+                });
+        scanner = new WatcherScanner(context, root, null, SUBDIR_MODE_JAR);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        scanner.close();
+    }
+
+    @Test
+    public void testInitialScan() {
+        Set<File> files = scanner.scan(true);
+        assertEquals(2, files.size());
+        assertTrue(files.contains(new File(root, "a.jar")));
+        assertTrue(files.contains(exploded));
+        assertEquals(Scanner.checksum(exploded), scanner.getChecksum(exploded));
+        assertTrue(scanner.scan(false).isEmpty());
+    }
+
+    @Test
+    public void testChangeInSubDirectory() throws Exception {
+        scanner.scan(true);
+        write(new File(exploded, "org/foo/Foo.class"), 40);
+        assertEquals(exploded, scanUntilReported());
+        assertEquals(Scanner.checksum(exploded), scanner.getChecksum(exploded));
+
+        write(new File(exploded, "org/foo/bar/Bar.class"), 50);
+        assertEquals(exploded, scanUntilReported());
+        assertEquals(Scanner.checksum(exploded), scanner.getChecksum(exploded));
+
+        assertTrue(new File(exploded, "org/foo/bar/Bar.class").delete());
+        assertTrue(new File(exploded, "org/foo/bar").delete());
+        assertEquals(exploded, scanUntilReported());
+        assertEquals(Scanner.checksum(exploded), scanner.getChecksum(exploded));
+    }
+
+    @Test
+    public void testOverflow() throws Exception {
+        scanner.scan(true);
+        // Lose the events of these changes
+        write(new File(exploded, "org/foo/Foo.class"), 40);
+        assertTrue(new File(root, "a.jar").delete());
+        Thread.sleep(500);
+        while (scanner.watcher.getWatcher().poll() != null) {
+        }
+
+        scanner.watcher.onOverflow();
+        scanner.watcher.rescan();
+        Set<File> files = new HashSet<File>();
+        for (int i = 0; i < 3; i++) {
+            files.addAll(scanner.scan(false));
+        }
+        assertTrue(files.contains(new File(root, "a.jar")));
+        assertTrue(files.contains(exploded));
+        assertEquals(Scanner.checksum(exploded), scanner.getChecksum(exploded));
+    }
+
+    private File scanUntilReported() throws InterruptedException {
+        long end = System.currentTimeMillis() + 30000;
+        while (System.currentTimeMillis() < end) {
+            Set<File> files = scanner.scan(false);
+            if (!files.isEmpty()) {
+                assertEquals(1, files.size());
+                return files.iterator().next();
+            }
+            Thread.sleep(100);
+        }
+        return null;
+    }
+
+    private static void write(File file, int length) throws IOException {
+        file.getParentFile().mkdirs();
+        try (FileOutputStream os = new FileOutputStream(file)) {
+            os.write(new byte[length]);
+        }
+    }
+
+}
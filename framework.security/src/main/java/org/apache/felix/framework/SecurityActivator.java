@@ -21,6 +21,11 @@ package org.apache.felix.framework;
 import java.io.File;
 import java.io.IOException;
 import java.util.StringTokenizer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.felix.framework.ext.SecurityProvider;
 import org.apache.felix.framework.security.SecurityConstants;
@@ -30,10 +35,12 @@ import org.apache.felix.framework.security.util.Conditions;
 import org.apache.felix.framework.security.util.LocalPermissions;
 import org.apache.felix.framework.security.util.Permissions;
 import org.apache.felix.framework.security.util.PropertiesCache;
+import org.apache.felix.framework.security.verifier.VerificationCache;
 import org.apache.felix.framework.util.SecureAction;
 import org.osgi.framework.BundleActivator;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.BundleException;
+import org.osgi.framework.BundleListener;
 import org.osgi.framework.Constants;
 import org.osgi.service.condpermadmin.ConditionalPermissionAdmin;
 import org.osgi.service.permissionadmin.PermissionAdmin;
@@ -84,6 +91,11 @@ import org.osgi.service.permissionadmin.PermissionAdmin;
  * certificates. The urls must be separated by a guard (i.e., <tt>|</tt>). The
  * default is {@link SecurityConstants#CRL_FILE_VALUE}.
  * </p>
+ * <p>
+ * {@link SecurityConstants#VERIFIER_THREADS_PROP} - The number of threads
+ * used to verify the signers of the installed bundles on startup. The default
+ * is the number of available processors.
+ * </p>
  * </p>
  */
 /*
@@ -96,6 +108,10 @@ import org.osgi.service.permissionadmin.PermissionAdmin;
  */
 public final class SecurityActivator implements BundleActivator
 {
+    private BundleListener m_listener;
+    private VerificationCache m_store;
+    private ExecutorService m_verifier;
+
     public synchronized void start(BundleContext context) throws Exception
     {
         PermissionAdminImpl pai = null;
@@ -133,6 +149,8 @@ public final class SecurityActivator implements BundleActivator
                 cache, tmp, action));
         }
 
+        Logger logger = ((Felix) context.getBundle(0)).getLogger();
+
         ConditionalPermissionAdminImpl cpai = null;
 
         if ("TRUE".equalsIgnoreCase(getProperty(context,
@@ -152,7 +170,7 @@ public final class SecurityActivator implements BundleActivator
 
             cpai = new ConditionalPermissionAdminImpl(permissions,
                 new Conditions(action), localPermissions, new PropertiesCache(
-                    cpaCache, tmp, action), pai);
+                    cpaCache, tmp, action), pai, logger);
         }
 
         if ((pai != null) || (cpai != null))
@@ -201,10 +219,24 @@ public final class SecurityActivator implements BundleActivator
                     "Each CACerts keystore must have one type and one passwd entry and vice versa.");
             }
 
-            SecurityProvider provider = new SecurityProviderImpl(crlList,
-                typeList, passwdList, storeList, pai, cpai, action, ((Felix) context.getBundle(0)).getLogger());
+            // Verified signers are kept in the bundle cache across restarts
+            File signers = context.getDataFile("security" + File.separator
+                + "signers");
+            m_store = (signers != null) ? new VerificationCache(signers,
+                action, logger) : null;
+
+            SecurityProviderImpl provider = new SecurityProviderImpl(crlList,
+                typeList, passwdList, storeList, pai, cpai, m_store, action, logger);
 
             ((Felix) context.getBundle(0)).setSecurityProvider(provider);
+
+            // Installed bundles are checked on startup, verify them in
+            // parallel in the meantime.
+            if (System.getSecurityManager() != null)
+            {
+                m_verifier = createVerifier(getThreads(context));
+                provider.verify(context.getBundles(), m_verifier);
+            }
         }
 
         if (pai != null)
@@ -214,6 +246,11 @@ public final class SecurityActivator implements BundleActivator
 
         if (cpai != null)
         {
+            // Permissions may refer to the properties of a bundle, which change
+            // on updates, and hold on to the bundle.
+            m_listener = cpai;
+            context.addBundleListener(m_listener);
+
             context.registerService(ConditionalPermissionAdmin.class.getName(),
                 cpai, null);
         }
@@ -221,7 +258,61 @@ public final class SecurityActivator implements BundleActivator
 
     public synchronized void stop(BundleContext context) throws Exception
     {
+        if (m_listener != null)
+        {
+            context.removeBundleListener(m_listener);
+            m_listener = null;
+        }
         ((Felix) context.getBundle(0)).setSecurityProvider(null);
+        if (m_verifier != null)
+        {
+            // Verifications which haven't been started are run by the checks
+            // needing them, if any.
+            m_verifier.shutdownNow();
+            m_verifier = null;
+        }
+        if (m_store != null)
+        {
+            m_store.prune();
+            m_store = null;
+        }
+    }
+
+    /**
+     * Create the executor verifying the installed bundles on startup. Its
+     * daemon threads end once they have been idle for a while.
+     */
+    private ExecutorService createVerifier(int threads)
+    {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads,
+            1, TimeUnit.SECONDS, new LinkedBlockingQueue(), new ThreadFactory()
+            {
+                private int m_count = 0;
+
+                public synchronized Thread newThread(Runnable runnable)
+                {
+                    Thread thread = new Thread(runnable,
+                        "FelixSignatureVerifier-" + m_count++);
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private int getThreads(BundleContext context)
+    {
+        try
+        {
+            return Math.max(1, Integer.parseInt(getProperty(context,
+                SecurityConstants.VERIFIER_THREADS_PROP, Integer.toString(Runtime
+                    .getRuntime().availableProcessors()))));
+        }
+        catch (NumberFormatException ex)
+        {
+            return Runtime.getRuntime().availableProcessors();
+        }
     }
 
     private String getProperty(BundleContext context, String key,
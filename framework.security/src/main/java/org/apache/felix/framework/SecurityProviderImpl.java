@@ -20,6 +20,7 @@ package org.apache.felix.framework;
 
 import java.security.Permission;
 import java.security.ProtectionDomain;
+import java.util.concurrent.Executor;
 
 import org.apache.felix.framework.Logger;
 import org.apache.felix.framework.ext.SecurityProvider;
@@ -27,6 +28,7 @@ import org.apache.felix.framework.security.condpermadmin.ConditionalPermissionAd
 import org.apache.felix.framework.security.permissionadmin.PermissionAdminImpl;
 import org.apache.felix.framework.security.util.TrustManager;
 import org.apache.felix.framework.security.verifier.BundleDNParser;
+import org.apache.felix.framework.security.verifier.VerificationCache;
 import org.apache.felix.framework.util.SecureAction;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.wiring.BundleRevision;
@@ -45,13 +47,32 @@ public final class SecurityProviderImpl implements SecurityProvider
 
     SecurityProviderImpl(String crlList, String typeList, String passwdList,
         String storeList, PermissionAdminImpl pai,
-        ConditionalPermissionAdminImpl cpai, SecureAction action, Logger logger)
+        ConditionalPermissionAdminImpl cpai, VerificationCache store,
+        SecureAction action, Logger logger)
     {
         m_pai = pai;
         m_cpai = cpai;
         m_action = action;
         m_parser = new BundleDNParser(new TrustManager(crlList, typeList,
-            passwdList, storeList, m_action), logger);
+            passwdList, storeList, m_action), store, m_action, logger);
+    }
+
+    /**
+     * Start verifying the given bundles in parallel. The framework checks
+     * all installed bundles one after the other when it restarts, these
+     * checks then only have to wait for the results.
+     */
+    void verify(Bundle[] bundles, Executor executor)
+    {
+        BundleRevisionImpl[] modules = new BundleRevisionImpl[bundles.length];
+        for (int i = 0; i < bundles.length; i++)
+        {
+            if (bundles[i].getBundleId() != 0)
+            {
+                modules[i] = (BundleRevisionImpl) bundles[i].adapt(BundleRevisionImpl.class);
+            }
+        }
+        m_parser.verify(modules, executor);
     }
 
     /**
@@ -43,4 +43,6 @@ public interface SecurityConstants
     public static final String ENABLE_PERMISSIONADMIN_PROP = "felix.security.permissionadmin";
 
     public static final String ENABLE_PERMISSIONADMIN_VALUE = "true";
+
+    public static final String VERIFIER_THREADS_PROP = "felix.security.verifier.threads";
 }
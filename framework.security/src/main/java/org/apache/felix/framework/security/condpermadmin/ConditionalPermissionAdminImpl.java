@@ -48,10 +48,13 @@ import java.util.Map;
 import java.util.Set;
 import java.util.StringTokenizer;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.felix.framework.BundleProtectionDomain;
 import org.apache.felix.framework.BundleRevisionImpl;
 import org.apache.felix.framework.FakeBundle;
+import org.apache.felix.framework.Logger;
 import org.apache.felix.framework.security.permissionadmin.PermissionAdminImpl;
 import org.apache.felix.framework.security.util.Conditions;
 import org.apache.felix.framework.security.util.LocalPermissions;
@@ -70,8 +73,12 @@ import org.apache.felix.framework.cache.Content;
 
 import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleContext;
+import org.osgi.framework.BundleEvent;
 import org.osgi.framework.BundleException;
+import org.osgi.framework.Constants;
+import org.osgi.framework.ServicePermission;
 import org.osgi.framework.ServiceReference;
+import org.osgi.framework.SynchronousBundleListener;
 import org.osgi.framework.Version;
 import org.osgi.service.condpermadmin.ConditionInfo;
 import org.osgi.service.condpermadmin.ConditionalPermissionAdmin;
@@ -85,7 +92,7 @@ import org.osgi.service.permissionadmin.PermissionInfo;
  * to know what bundleprotectiondomains are expected.
  */
 public final class ConditionalPermissionAdminImpl implements
-    ConditionalPermissionAdmin
+    ConditionalPermissionAdmin, SynchronousBundleListener
 {
     private static class OrderedHashMap extends HashMap
     {
@@ -220,10 +227,24 @@ public final class ConditionalPermissionAdminImpl implements
     private final LocalPermissions m_localPermissions;
     private final PermissionAdminImpl m_pai;
 
+    // The maximum number of decisions cached per bundle revision
+    private static final int MAX_DECISIONS = 1024;
+    // The decision for a permission not implied by the local permissions
+    private static final Object DENIED_LOCALLY = new Object();
+    // The cached decisions of hasPermission by bundle revision and permission.
+    // Clearing replaces the map, so decisions made concurrently end up in the
+    // old one.
+    private volatile ConcurrentHashMap m_decisions = new ConcurrentHashMap();
+    private final AtomicLong m_decisionHits = new AtomicLong();
+    private final AtomicLong m_decisionMisses = new AtomicLong();
+    private final Logger m_logger;
+
     public ConditionalPermissionAdminImpl(Permissions permissions,
         Conditions condtions, LocalPermissions localPermissions,
-        PropertiesCache cache, PermissionAdminImpl pai) throws IOException
+        PropertiesCache cache, PermissionAdminImpl pai, Logger logger)
+        throws IOException
     {
+        m_logger = logger;
         m_propertiesCache = cache;
         m_permissions = permissions;
         m_conditions = condtions;
@@ -282,6 +303,7 @@ public final class ConditionalPermissionAdminImpl implements
                 {
                     tmp = null;
                 }
+                clearDecisions();
             }
 
             try
@@ -297,6 +319,7 @@ public final class ConditionalPermissionAdminImpl implements
                         m_condPermInfos.clear();
                         m_condPermInfos.putAll(tmp);
                     }
+                    clearDecisions();
                 }
                 ex.printStackTrace();
                 throw new IllegalStateException(ex.getMessage());
@@ -706,16 +729,59 @@ public final class ConditionalPermissionAdminImpl implements
             }
         }
 
-        // check the local permissions. they need to all the permission if there
-        // are any
-        if (!impliesLocal(module.getBundle(), content, permission))
+        List posts = new ArrayList();
+        boolean result;
+
+        // Decisions not depending on mutable or postponed conditions are
+        // cached, except while evaluating a condition as recursive checks
+        // of the same condition type are denied.
+        boolean cacheable = isCacheable(permission) && !Conditions.isEvaluating();
+        Map decisions = null;
+        Object decision = null;
+        if (cacheable)
+        {
+            decisions = getDecisions(module);
+            decision = decisions.get(permission);
+            if (decision != null)
+            {
+                m_decisionHits.incrementAndGet();
+            }
+            else
+            {
+                m_decisionMisses.incrementAndGet();
+            }
+        }
+        if (decision == DENIED_LOCALLY)
         {
             return false;
         }
+        else if (decision != null)
+        {
+            result = ((Boolean) decision).booleanValue();
+        }
+        else
+        {
+            // check the local permissions. they need to all the permission if there
+            // are any
+            if (!impliesLocal(module.getBundle(), content, permission))
+            {
+                if (cacheable)
+                {
+                    putDecision(decisions, permission, DENIED_LOCALLY);
+                }
+                return false;
+            }
 
-        List posts = new ArrayList();
+            boolean[] immutable = new boolean[] { true };
 
-        boolean result = eval(posts, module, permission, admin);
+            result = eval(posts, module, permission, admin, immutable);
+
+            if (cacheable && immutable[0] && posts.isEmpty())
+            {
+                putDecision(decisions, permission, result ? Boolean.TRUE
+                    : Boolean.FALSE);
+            }
+        }
 
         domains.remove(pd);
 
@@ -748,6 +814,102 @@ public final class ConditionalPermissionAdminImpl implements
         return result;
     }
 
+    /**
+     * Permissions on a service depend on the service properties which can
+     * change at any time, their decisions are not cached.
+     */
+    private boolean isCacheable(Permission permission)
+    {
+        return !((permission instanceof ServicePermission) && permission
+            .getName().startsWith("(" + Constants.SERVICE_ID + "="));
+    }
+
+    private Map getDecisions(BundleRevisionImpl module)
+    {
+        ConcurrentHashMap revisions = m_decisions;
+        Map decisions = (Map) revisions.get(module);
+        if (decisions == null)
+        {
+            decisions = new ConcurrentHashMap();
+            Map existing = (Map) revisions.putIfAbsent(module, decisions);
+            if (existing != null)
+            {
+                decisions = existing;
+            }
+        }
+        return decisions;
+    }
+
+    private void putDecision(Map decisions, Permission permission,
+        Object decision)
+    {
+        // Start over instead of keeping track of the usage of the decisions
+        if (decisions.size() >= MAX_DECISIONS)
+        {
+            decisions.clear();
+        }
+        decisions.put(permission, decision);
+    }
+
+    /**
+     * Clear the cached permission decisions. This is done when the conditional
+     * permission table changes and has to be done when a bundle is updated, as
+     * permissions may refer to the properties of a bundle.
+     */
+    public void clearDecisions()
+    {
+        m_decisions = new ConcurrentHashMap();
+        if (m_logger.getLogLevel() >= Logger.LOG_DEBUG)
+        {
+            m_logger.log(Logger.LOG_DEBUG, "Cleared permission decisions: "
+                + getDecisionStatistics());
+        }
+    }
+
+    /**
+     * Clear the cached permission decisions when a bundle is updated or
+     * uninstalled, or when it is unresolved, which is when the revisions of
+     * a refreshed bundle are dropped.
+     */
+    public void bundleChanged(BundleEvent event)
+    {
+        if ((event.getType() == BundleEvent.UPDATED)
+            || (event.getType() == BundleEvent.UNINSTALLED)
+            || (event.getType() == BundleEvent.UNRESOLVED))
+        {
+            clearDecisions();
+        }
+    }
+
+    long getDecisionHits()
+    {
+        return m_decisionHits.get();
+    }
+
+    long getDecisionMisses()
+    {
+        return m_decisionMisses.get();
+    }
+
+    /**
+     * Return the hit rate of the cached permission decisions since the
+     * framework started.
+     */
+    String getDecisionStatistics()
+    {
+        long hits = m_decisionHits.get();
+        long misses = m_decisionMisses.get();
+        long total = hits + misses;
+        return hits + " hits, " + misses + " misses, "
+            + ((total > 0) ? (hits * 100 / total) : 0) + "% hit rate";
+    }
+
+    public String toString()
+    {
+        return "ConditionalPermissionAdmin (decisions: "
+            + getDecisionStatistics() + ")";
+    }
+
     public boolean impliesLocal(Bundle felixBundle, Content content,
         Permission permission)
     {
@@ -769,6 +931,14 @@ public final class ConditionalPermissionAdminImpl implements
     // else falls and clear the posts first.
     private boolean eval(List posts, BundleRevisionImpl module, Permission permission,
         Object admin)
+    {
+        return eval(posts, module, permission, admin, null);
+    }
+
+    // same as above, if given the immutable flag is cleared in case the result
+    // depends on a mutable condition.
+    private boolean eval(List posts, BundleRevisionImpl module, Permission permission,
+        Object admin, boolean[] immutable)
     {
         List condPermInfos = null;
 
@@ -800,8 +970,13 @@ public final class ConditionalPermissionAdminImpl implements
             List currentPosts = new ArrayList();
 
             Conditions conds = m_conditions.getConditions(module, conditions);
-            if (!conds.isSatisfied(currentPosts, m_permissions
-                .getPermissions(cpi._getPermissionInfos()), permission))
+            boolean satisfied = conds.isSatisfied(currentPosts, m_permissions
+                .getPermissions(cpi._getPermissionInfos()), permission);
+            if ((immutable != null) && !conds.isImmutable())
+            {
+                immutable[0] = false;
+            }
+            if (!satisfied)
             {
                 continue;
             }
@@ -125,6 +125,43 @@ public final class Conditions
         return result;
     }
 
+    /**
+     * Whether the conditions are known to always evaluate to the same result,
+     * that is they are either all immutable and have been evaluated already or
+     * one of them is an immutable condition that evaluated to false.
+     */
+    public boolean isImmutable()
+    {
+        if ((m_conditionInfos == null) || (m_module == null))
+        {
+            return true;
+        }
+        synchronized (m_conditions)
+        {
+            for (int i = 0; i < m_conditions.length; i++)
+            {
+                if (m_conditions[i] == Condition.FALSE)
+                {
+                    return true;
+                }
+                if (m_conditions[i] != Condition.TRUE)
+                {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Whether the current thread is evaluating a condition, permission checks
+     * triggered by the condition are denied for conditions of the same type.
+     */
+    public static boolean isEvaluating()
+    {
+        return m_conditionStack.get() != null;
+    }
+
     // See whether the given list is satisfied or not
     public boolean isSatisfied(List posts, Permissions permissions,
         Permission permission)
@@ -22,10 +22,15 @@ import java.io.File;
 import java.io.InputStream;
 import java.io.PrintStream;
 import java.security.KeyStore;
+import java.security.MessageDigest;
+import java.security.cert.CRL;
+import java.security.cert.Certificate;
 import java.security.cert.CertificateFactory;
+import java.security.cert.X509CRL;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Enumeration;
+import java.util.Iterator;
 import java.util.StringTokenizer;
 
 import org.apache.felix.framework.util.SecureAction;
@@ -44,6 +49,7 @@ public final class TrustManager
     private final String m_storeList;
     private Collection m_caCerts = null;
     private Collection m_crls = null;
+    private byte[] m_fingerprint = null;
 
     public TrustManager(String crlList, String typeList, String passwdList,
         String storeList, SecureAction action)
@@ -190,4 +196,51 @@ public final class TrustManager
 
         return m_caCerts;
     }
+
+    /**
+     * Get a digest of the trusted CA certificates and the CRLs. Verification
+     * results can only be reused as long as this fingerprint doesn't change.
+     * 
+     * @return the fingerprint or <tt>null</tt> if it can't be computed.
+     */
+    public synchronized byte[] getFingerprint()
+    {
+        init();
+
+        if (m_fingerprint == null)
+        {
+            try
+            {
+                MessageDigest digest = MessageDigest.getInstance("SHA-256");
+
+                for (Iterator iter = m_caCerts.iterator(); iter.hasNext();)
+                {
+                    Certificate cert = (Certificate) iter.next();
+                    if (cert != null)
+                    {
+                        digest.update(cert.getEncoded());
+                    }
+                    digest.update((byte) 0);
+                }
+                digest.update((byte) 1);
+                for (Iterator iter = m_crls.iterator(); iter.hasNext();)
+                {
+                    CRL crl = (CRL) iter.next();
+                    digest.update((crl instanceof X509CRL) ? ((X509CRL) crl)
+                        .getEncoded() : crl.toString().getBytes("UTF-8"));
+                    digest.update((byte) 0);
+                }
+
+                m_fingerprint = digest.digest();
+            }
+            catch (Exception ex)
+            {
+                // TODO: log this
+                ex.printStackTrace();
+                return null;
+            }
+        }
+
+        return m_fingerprint;
+    }
 }
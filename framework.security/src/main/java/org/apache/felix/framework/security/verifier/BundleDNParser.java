@@ -18,6 +18,7 @@
  */
 package org.apache.felix.framework.security.verifier;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.Method;
@@ -26,12 +27,16 @@ import java.security.cert.Certificate;
 import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
 import java.util.ArrayList;
+import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.WeakHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
 import java.util.jar.JarInputStream;
 
 import org.apache.felix.framework.BundleRevisionImpl;
@@ -43,6 +48,8 @@ import org.apache.felix.moduleloader.IContent;
 import org.apache.felix.moduleloader.IModule;
 */
 import org.apache.felix.framework.cache.Content;
+import org.apache.felix.framework.cache.JarContent;
+import org.apache.felix.framework.util.SecureAction;
 
 
 import org.osgi.framework.Bundle;
@@ -82,15 +89,73 @@ public final class BundleDNParser
     private final Logger m_logger;
     private final Map m_cache = new WeakHashMap();
     private final Map m_allCache = new WeakHashMap();
+    private final Map m_pending = new WeakHashMap();
 
     private final TrustManager m_manager;
+    private final VerificationCache m_store;
+    private final SecureAction m_action;
 
-    public BundleDNParser(TrustManager manager, Logger logger)
+    public BundleDNParser(TrustManager manager, VerificationCache store,
+        SecureAction action, Logger logger)
     {
         m_manager = manager;
+        m_store = store;
+        m_action = action;
         m_logger = logger;
     }
 
+    /**
+     * Verify the trusted signers of the given revisions in the background
+     * using the given executor. Later checks of these revisions use the
+     * results or wait for them. Verifications the executor doesn't run are
+     * run by the first check needing them.
+     */
+    public void verify(BundleRevisionImpl[] roots, Executor executor)
+    {
+        List queue = new ArrayList();
+
+        synchronized (m_pending)
+        {
+            for (int i = 0; i < roots.length; i++)
+            {
+                if ((roots[i] != null) && !m_pending.containsKey(roots[i]))
+                {
+                    synchronized (m_cache)
+                    {
+                        if (m_cache.containsKey(roots[i]))
+                        {
+                            continue;
+                        }
+                    }
+                    Verification verification = new Verification(
+                        roots[i].getContent());
+                    m_pending.put(roots[i], verification);
+                    queue.add(verification);
+                }
+            }
+        }
+
+        try
+        {
+            for (Iterator iter = queue.iterator(); iter.hasNext();)
+            {
+                executor.execute((Verification) iter.next());
+            }
+        }
+        catch (RejectedExecutionException ex)
+        {
+            // The executor has been shut down
+        }
+    }
+
+    private Verification removePending(BundleRevisionImpl root)
+    {
+        synchronized (m_pending)
+        {
+            return (Verification) m_pending.remove(root);
+        }
+    }
+
     public Map getCache()
     {
         synchronized (m_cache)
@@ -143,14 +208,25 @@ public final class BundleDNParser
 
         Map result = null;
         Exception org = null;
-        try
+        Verification pending = (signersType == Bundle.SIGNERS_TRUSTED)
+            ? removePending(root) : null;
+        if (pending != null)
         {
-            result = _getDNChains(content,
-                signersType == Bundle.SIGNERS_TRUSTED);
+            pending.complete();
+            result = pending.m_result;
+            org = pending.m_exception;
         }
-        catch (Exception ex)
+        else
         {
-            org = ex;
+            try
+            {
+                result = _getDNChains(content,
+                    signersType == Bundle.SIGNERS_TRUSTED);
+            }
+            catch (Exception ex)
+            {
+                org = ex;
+            }
         }
 
         if (signersType == Bundle.SIGNERS_TRUSTED)
@@ -204,14 +280,24 @@ public final class BundleDNParser
 
         Map result = null;
 
-        try
+        Verification pending = (signersType == Bundle.SIGNERS_TRUSTED)
+            ? removePending(root) : null;
+        if (pending != null)
         {
-            result = _getDNChains(bundleRevision,
-                signersType == Bundle.SIGNERS_TRUSTED);
+            pending.complete();
+            result = pending.m_result;
         }
-        catch (Exception ex)
+        else
         {
-            // Ignore
+            try
+            {
+                result = _getDNChains(bundleRevision,
+                    signersType == Bundle.SIGNERS_TRUSTED);
+            }
+            catch (Exception ex)
+            {
+                // Ignore
+            }
         }
 
         if (signersType == Bundle.SIGNERS_TRUSTED)
@@ -235,9 +321,26 @@ public final class BundleDNParser
     private Map _getDNChains(Content content, boolean check)
         throws IOException
     {
+        File file = getFile(content);
+
+        String key = null;
+        if ((file != null) && (m_store != null) && hasSignature(content))
+        {
+            key = m_store.getKey(file, m_manager.getFingerprint(), check);
+            if (key != null)
+            {
+                Map result = m_store.get(key);
+                if (result != null)
+                {
+                    return result;
+                }
+            }
+        }
+
         X509Certificate[] certificates = null;
 
-        certificates = getCertificates(new BundleInputStream(content), check);
+        certificates = (file != null) ? getCertificates(file, check)
+            : getCertificates(new BundleInputStream(content), check);
 
         if (certificates == null)
         {
@@ -265,12 +368,108 @@ public final class BundleDNParser
 
         if (!result.isEmpty())
         {
+            if (key != null)
+            {
+                m_store.put(key, result, m_manager.getCaCerts());
+            }
             return result;
         }
 
         throw new IOException();
     }
 
+    /**
+     * Get the jar file of the given content if it is a jar, which can be
+     * verified without copying its entries.
+     */
+    private File getFile(Content content)
+    {
+        if (content instanceof JarContent)
+        {
+            File file = ((JarContent) content).getFile();
+            if ((file != null) && m_action.fileExists(file)
+                && !m_action.isFileDirectory(file))
+            {
+                return file;
+            }
+        }
+        return null;
+    }
+
+    private static boolean hasSignature(Content content)
+    {
+        for (Enumeration e = content.getEntries(); (e != null)
+            && e.hasMoreElements();)
+        {
+            String entry = ((String) e.nextElement()).toUpperCase();
+            if (entry.startsWith("META-INF/") && entry.endsWith(".SF")
+                && (entry.indexOf('/', "META-INF/".length()) < 0))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private X509Certificate[] getCertificates(File file, boolean check)
+        throws IOException
+    {
+        // The entries are verified while they are read
+        JarFile bundle = m_action.openJarFile(file);
+
+        try
+        {
+            if (bundle.getManifest() == null)
+            {
+                return null;
+            }
+
+            Signers signers = new Signers(check);
+
+            byte[] tmp = new byte[4096];
+
+            for (Enumeration e = bundle.entries(); e.hasMoreElements();)
+            {
+                JarEntry entry = (JarEntry) e.nextElement();
+
+                if (isSignatureOrDirectory(entry))
+                {
+                    continue;
+                }
+
+                InputStream input = bundle.getInputStream(entry);
+                try
+                {
+                    while (input.read(tmp, 0, tmp.length) != -1)
+                    {
+                    }
+                }
+                finally
+                {
+                    input.close();
+                }
+
+                if (!signers.add(entry))
+                {
+                    return null;
+                }
+            }
+
+            return signers.getCertificates();
+        }
+        finally
+        {
+            try
+            {
+                bundle.close();
+            }
+            catch (IOException ex)
+            {
+                // Not much we can do
+            }
+        }
+    }
+
     private X509Certificate[] getCertificates(InputStream input, boolean check)
         throws IOException
     {
@@ -281,21 +480,13 @@ public final class BundleDNParser
             return null;
         }
 
-        List certificateChains = new ArrayList();
-
-        int count = certificateChains.size();
+        Signers signers = new Signers(check);
 
-        // This is tricky: jdk1.3 doesn't say anything about what is happening
-        // if a bad sig is detected on an entry - later jdk's do say that they
-        // will throw a security Exception. The below should cater for both
-        // behaviors.
         for (JarEntry entry = bundle.getNextJarEntry(); entry != null; entry = bundle
             .getNextJarEntry())
         {
 
-            if (entry.isDirectory() || 
-                (entry.getName().startsWith("META-INF/") && 
-                (entry.getName().indexOf('/', "META-INF/".length()) < 0)))
+            if (isSignatureOrDirectory(entry))
             {
                 continue;
             }
@@ -304,6 +495,45 @@ public final class BundleDNParser
             {
             }
 
+            if (!signers.add(entry))
+            {
+                return null;
+            }
+        }
+
+        return signers.getCertificates();
+    }
+
+    private static boolean isSignatureOrDirectory(JarEntry entry)
+    {
+        return entry.isDirectory() || 
+            (entry.getName().startsWith("META-INF/") && 
+            (entry.getName().indexOf('/', "META-INF/".length()) < 0));
+    }
+
+    /**
+     * The certificate chains every entry of a bundle has been signed with.
+     */
+    private final class Signers
+    {
+        private final List m_certificateChains = new ArrayList();
+        private final boolean m_check;
+        private int m_count = 0;
+
+        Signers(boolean check)
+        {
+            m_check = check;
+        }
+
+        /**
+         * Add an entry which has been read completely.
+         * 
+         * @return <tt>false</tt> if the entry isn't signed, i.e., the bundle
+         *         isn't signed.
+         * @throws IOException if no signer is left.
+         */
+        boolean add(JarEntry entry) throws IOException
+        {
             Certificate[] certificates = entry.getCertificates();
 
             // Workaround stupid bug in the sun jdk 1.5.x - getCertificates()
@@ -346,21 +576,21 @@ public final class BundleDNParser
 
             if ((certificates == null) || (certificates.length == 0))
             {
-                return null;
+                return false;
             }
 
             List chains = new ArrayList();
 
-            getRootChains(certificates, chains, check);
+            getRootChains(certificates, chains, m_check);
 
-            if (certificateChains.isEmpty())
+            if (m_certificateChains.isEmpty())
             {
-                certificateChains.addAll(chains);
-                count = certificateChains.size();
+                m_certificateChains.addAll(chains);
+                m_count = m_certificateChains.size();
             }
             else
             {
-                for (Iterator iter2 = certificateChains.iterator(); iter2
+                for (Iterator iter2 = m_certificateChains.iterator(); iter2
                     .hasNext();)
                 {
                     X509Certificate cert = (X509Certificate) ((List) iter2
@@ -385,25 +615,113 @@ public final class BundleDNParser
                 }
             }
 
-            if (certificateChains.isEmpty())
+            if (m_certificateChains.isEmpty())
             {
-                if (count > 0)
+                if (m_count > 0)
                 {
                     throw new IOException("Bad signers");
                 }
-                return null;
+                return false;
             }
+
+            return true;
         }
 
-        List result = new ArrayList();
+        X509Certificate[] getCertificates()
+        {
+            List result = new ArrayList();
+
+            for (Iterator iter = m_certificateChains.iterator(); iter.hasNext();)
+            {
+                result.addAll((List) iter.next());
+            }
 
-        for (Iterator iter = certificateChains.iterator(); iter.hasNext();)
+            return (X509Certificate[]) (!result.isEmpty() ? result.toArray(new X509Certificate[result
+                .size()]) : null);
+        }
+    }
+
+    /**
+     * A verification of the trusted signers of a revision which has been
+     * started in advance. It is either run by the executor or by the
+     * first thread needing the result.
+     */
+    private final class Verification implements Runnable
+    {
+        private final Content m_content;
+        private boolean m_claimed = false;
+        private boolean m_done = false;
+        private Map m_result = null;
+        private Exception m_exception = null;
+
+        Verification(Content content)
         {
-            result.addAll((List) iter.next());
+            m_content = content;
         }
 
-        return (X509Certificate[]) (!result.isEmpty() ? result.toArray(new X509Certificate[result
-            .size()]) : null);
+        public void run()
+        {
+            synchronized (this)
+            {
+                if (m_claimed)
+                {
+                    return;
+                }
+                m_claimed = true;
+            }
+
+            Map result = null;
+            // Never let a failure pass as an unsigned bundle
+            Exception exception = new IOException("Verification failed");
+            try
+            {
+                result = _getDNChains(m_content, true);
+                exception = null;
+            }
+            catch (Exception ex)
+            {
+                exception = ex;
+            }
+            finally
+            {
+                synchronized (this)
+                {
+                    m_result = result;
+                    m_exception = exception;
+                    m_done = true;
+                    notifyAll();
+                }
+            }
+        }
+
+        /**
+         * Run the verification in the current thread unless it has been
+         * started already, in which case wait for it to finish.
+         */
+        void complete()
+        {
+            run();
+
+            boolean interrupted = false;
+            synchronized (this)
+            {
+                while (!m_done)
+                {
+                    try
+                    {
+                        wait();
+                    }
+                    catch (InterruptedException ex)
+                    {
+                        interrupted = true;
+                    }
+                }
+            }
+            if (interrupted)
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
     }
 
     private boolean isRevoked(Certificate certificate)
@@ -0,0 +1,326 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.framework.security.verifier;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.felix.framework.Logger;
+import org.apache.felix.framework.util.SecureAction;
+
+/**
+ * This class persists the signer chains of verified bundle jars in a
+ * directory, usually inside the bundle cache, so that signed bundles don't
+ * have to be verified again after a restart. An entry is keyed by a digest of
+ * the path, size and modification time of the jar file, of the trusted
+ * certificates and CRLs, and of the kind of check. Hashing the content would
+ * read the jar once more on each miss, while the jars of the bundle cache are
+ * not modified in place. Only successful verifications are stored and an entry expires when
+ * the first of the involved certificates does. The directory needs the same
+ * protection as the permission files stored next to it.
+ */
+public final class VerificationCache
+{
+    private static final int VERSION = 1;
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final File m_dir;
+    private final SecureAction m_action;
+    private final Logger m_logger;
+    // Allow for file systems with a coarse modification time
+    private final long m_started = System.currentTimeMillis() - 2000;
+    private volatile boolean m_used = false;
+
+    public VerificationCache(File dir, SecureAction action, Logger logger)
+    {
+        m_dir = dir;
+        m_action = action;
+        m_logger = logger;
+    }
+
+    /**
+     * Compute the key of the verification of a jar file.
+     *
+     * @return the key or <tt>null</tt> if the jar doesn't exist.
+     */
+    public String getKey(File jar, byte[] fingerprint, boolean check)
+    {
+        if ((fingerprint == null) || !m_action.fileExists(jar))
+        {
+            return null;
+        }
+
+        try
+        {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream output = new DataOutputStream(bytes);
+            output.writeUTF(m_action.getAbsolutePath(jar));
+            output.writeLong(m_action.getFileLength(jar));
+            output.writeLong(m_action.getFileLastModified(jar));
+            output.close();
+            digest.update(bytes.toByteArray());
+            digest.update(fingerprint);
+            digest.update((byte) (check ? 1 : 0));
+
+            byte[] hash = digest.digest();
+            StringBuffer result = new StringBuffer(hash.length * 2);
+            for (int i = 0; i < hash.length; i++)
+            {
+                result.append(HEX[(hash[i] >> 4) & 0xf]).append(HEX[hash[i] & 0xf]);
+            }
+            return result.toString();
+        }
+        catch (Exception ex)
+        {
+            m_logger.log(Logger.LOG_DEBUG, "Unable to hash " + jar, ex);
+            return null;
+        }
+    }
+
+    /**
+     * Get the signer chains stored for the given key.
+     *
+     * @return the chains by their first certificate or <tt>null</tt> if
+     *         there are none or they expired.
+     */
+    public Map get(String key)
+    {
+        m_used = true;
+
+        File file = new File(m_dir, key);
+        if (!m_action.fileExists(file))
+        {
+            return null;
+        }
+
+        DataInputStream input = null;
+        try
+        {
+            input = new DataInputStream(new BufferedInputStream(
+                m_action.getFileInputStream(file)));
+
+            if ((input.readInt() != VERSION)
+                || (input.readLong() < System.currentTimeMillis()))
+            {
+                input.close();
+                input = null;
+                m_action.deleteFile(file);
+                return null;
+            }
+
+            CertificateFactory factory = CertificateFactory.getInstance("X.509");
+            Map result = new HashMap();
+            for (int chains = input.readInt(); chains > 0; chains--)
+            {
+                List chain = new ArrayList();
+                for (int certs = input.readInt(); certs > 0; certs--)
+                {
+                    byte[] encoded = new byte[input.readInt()];
+                    input.readFully(encoded);
+                    chain.add(factory.generateCertificate(
+                        new ByteArrayInputStream(encoded)));
+                }
+                result.put(chain.get(0), chain);
+            }
+
+            // Mark the entry as used in this run, see prune()
+            m_action.setFileLastModified(file, System.currentTimeMillis());
+
+            return result.isEmpty() ? null : result;
+        }
+        catch (Exception ex)
+        {
+            m_logger.log(Logger.LOG_WARNING, "Ignoring invalid verification cache entry " + file, ex);
+            close(input);
+            input = null;
+            m_action.deleteFile(file);
+            return null;
+        }
+        finally
+        {
+            close(input);
+        }
+    }
+
+    /**
+     * Store the signer chains of a successful verification.
+     *
+     * @param key the key of the verification.
+     * @param result the chains by their first certificate.
+     * @param caCerts the trusted CA certificates the chains were checked against.
+     */
+    public void put(String key, Map result, Collection caCerts)
+    {
+        if ((result == null) || result.isEmpty())
+        {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        long validUntil = Long.MAX_VALUE;
+        for (Iterator iter = result.values().iterator(); iter.hasNext();)
+        {
+            for (Iterator iter2 = ((List) iter.next()).iterator(); iter2.hasNext();)
+            {
+                validUntil = Math.min(validUntil,
+                    ((X509Certificate) iter2.next()).getNotAfter().getTime());
+            }
+        }
+        for (Iterator iter = caCerts.iterator(); iter.hasNext();)
+        {
+            Object cert = iter.next();
+            if (cert instanceof X509Certificate)
+            {
+                long notAfter = ((X509Certificate) cert).getNotAfter().getTime();
+                if (notAfter >= now)
+                {
+                    validUntil = Math.min(validUntil, notAfter);
+                }
+            }
+        }
+        if (validUntil < now)
+        {
+            return;
+        }
+
+        File tmp = null;
+        DataOutputStream output = null;
+        try
+        {
+            if (!m_action.isFileDirectory(m_dir) && !m_action.mkdirs(m_dir))
+            {
+                throw new IOException("Can't create " + m_dir);
+            }
+            tmp = m_action.createTempFile("tmp", null, m_dir);
+            output = new DataOutputStream(new BufferedOutputStream(
+                m_action.getFileOutputStream(tmp)));
+
+            output.writeInt(VERSION);
+            output.writeLong(validUntil);
+            output.writeInt(result.size());
+            for (Iterator iter = result.values().iterator(); iter.hasNext();)
+            {
+                List chain = (List) iter.next();
+                output.writeInt(chain.size());
+                for (Iterator iter2 = chain.iterator(); iter2.hasNext();)
+                {
+                    byte[] encoded = ((X509Certificate) iter2.next()).getEncoded();
+                    output.writeInt(encoded.length);
+                    output.write(encoded);
+                }
+            }
+            output.close();
+            output = null;
+
+            File file = new File(m_dir, key);
+            m_action.deleteFile(file);
+            if (m_action.renameFile(tmp, file))
+            {
+                tmp = null;
+            }
+        }
+        catch (Exception ex)
+        {
+            m_logger.log(Logger.LOG_WARNING, "Unable to store verification result", ex);
+        }
+        finally
+        {
+            close(output);
+            if (tmp != null)
+            {
+                m_action.deleteFile(tmp);
+            }
+        }
+    }
+
+    /**
+     * Remove the entries which haven't been used since this cache was
+     * created, i.e., those of bundles that have been updated or uninstalled.
+     * Nothing is removed if the cache hasn't been used at all.
+     */
+    public void prune()
+    {
+        if (!m_used)
+        {
+            return;
+        }
+
+        File[] files = m_action.listDirectory(m_dir);
+        if (files != null)
+        {
+            for (int i = 0; i < files.length; i++)
+            {
+                if (m_action.getFileLastModified(files[i]) < m_started)
+                {
+                    m_action.deleteFile(files[i]);
+                }
+            }
+        }
+    }
+
+    private static void close(InputStream input)
+    {
+        if (input != null)
+        {
+            try
+            {
+                input.close();
+            }
+            catch (IOException ex)
+            {
+                // Not much we can do
+            }
+        }
+    }
+
+    private static void close(OutputStream output)
+    {
+        if (output != null)
+        {
+            try
+            {
+                output.close();
+            }
+            catch (IOException ex)
+            {
+                // Not much we can do
+            }
+        }
+    }
+}
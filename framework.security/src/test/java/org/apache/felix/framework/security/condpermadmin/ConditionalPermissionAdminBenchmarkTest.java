@@ -0,0 +1,144 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.framework.security.condpermadmin;
+
+import java.io.File;
+import java.security.Permission;
+import java.security.ProtectionDomain;
+
+import junit.framework.TestCase;
+
+import org.apache.felix.framework.BundleRevisionImpl;
+import org.apache.felix.framework.cache.Content;
+
+/**
+ * Measures concurrent permission checks against a table of conditional
+ * permissions, evaluating the table for each check compared to using the
+ * cached decisions.
+ */
+public class ConditionalPermissionAdminBenchmarkTest extends TestCase
+{
+    private static final int ENTRIES = 100;
+    private static final int THREADS = 8;
+    private static final int CHECKS = 1000;
+
+    private Content m_content;
+    private BundleRevisionImpl m_revision;
+    private ConditionalPermissionAdminImpl m_admin;
+
+    protected void setUp() throws Exception
+    {
+        File dir = new File("target/condpermadmin/" + getName());
+        ConditionalPermissionAdminImplTest.delete(dir);
+        m_admin = ConditionalPermissionAdminImplTest.createAdmin(dir);
+        for (int i = 0; i < ENTRIES; i++)
+        {
+            ConditionalPermissionAdminImplTest.allow(m_admin, "p" + i);
+        }
+        m_content = ConditionalPermissionAdminImplTest.createContent(dir);
+        m_revision = ConditionalPermissionAdminImplTest.createRevision(m_content);
+    }
+
+    protected void tearDown() throws Exception
+    {
+        m_content.close();
+    }
+
+    public void testCachedChecks() throws Exception
+    {
+        // Warm up both ways first
+        run(false);
+        run(true);
+
+        long uncached = run(false);
+        long hits = m_admin.getDecisionHits();
+        long cached = run(true);
+
+        // The first check of the run has been answered by the cache as well
+        assertEquals(THREADS * CHECKS + 1, m_admin.getDecisionHits() - hits);
+        assertTrue("cached checks took " + cached + "ns, evaluated ones "
+            + uncached + "ns", cached < uncached);
+    }
+
+    /**
+     * Check the permission matched by the last entry of the table CHECKS
+     * times on each of THREADS threads.
+     *
+     * @return the time taken in nanoseconds
+     */
+    private long run(final boolean cached) throws Exception
+    {
+        final Permission permission = ConditionalPermissionAdminImplTest
+            .read("p" + (ENTRIES - 1));
+        final ProtectionDomain pd = new ProtectionDomain(null, null);
+        final Throwable[] failure = new Throwable[1];
+        Thread[] threads = new Thread[THREADS];
+        for (int i = 0; i < threads.length; i++)
+        {
+            threads[i] = new Thread()
+            {
+                public void run()
+                {
+                    try
+                    {
+                        for (int j = 0; j < CHECKS; j++)
+                        {
+                            if (!cached)
+                            {
+                                m_admin.clearDecisions();
+                            }
+                            assertTrue(m_admin.hasPermission(m_revision,
+                                m_content, pd, permission, true, null));
+                        }
+                    }
+                    catch (Throwable t)
+                    {
+                        synchronized (failure)
+                        {
+                            failure[0] = t;
+                        }
+                    }
+                }
+            };
+        }
+
+        // Start with the decision cached
+        m_admin.hasPermission(m_revision, m_content, pd, permission, true, null);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < threads.length; i++)
+        {
+            threads[i].start();
+        }
+        for (int i = 0; i < threads.length; i++)
+        {
+            threads[i].join();
+        }
+        long time = System.nanoTime() - start;
+
+        synchronized (failure)
+        {
+            if (failure[0] != null)
+            {
+                throw new Exception(failure[0]);
+            }
+        }
+        return time;
+    }
+}
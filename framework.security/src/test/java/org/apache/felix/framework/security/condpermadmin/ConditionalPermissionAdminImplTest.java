@@ -0,0 +1,253 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.framework.security.condpermadmin;
+
+import java.io.File;
+import java.security.Permission;
+import java.security.ProtectionDomain;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.PropertyPermission;
+
+import junit.framework.TestCase;
+
+import org.apache.felix.framework.BundleRevisionImpl;
+import org.apache.felix.framework.FakeBundle;
+import org.apache.felix.framework.Logger;
+import org.apache.felix.framework.cache.Content;
+import org.apache.felix.framework.cache.JarContent;
+import org.apache.felix.framework.security.permissionadmin.PermissionAdminImpl;
+import org.apache.felix.framework.security.util.Conditions;
+import org.apache.felix.framework.security.util.LocalPermissions;
+import org.apache.felix.framework.security.util.Permissions;
+import org.apache.felix.framework.security.util.PropertiesCache;
+import org.apache.felix.framework.util.SecureAction;
+import org.apache.felix.framework.util.WeakZipFileFactory;
+import org.osgi.framework.BundleEvent;
+import org.osgi.framework.ServicePermission;
+import org.osgi.service.condpermadmin.ConditionInfo;
+import org.osgi.service.condpermadmin.ConditionalPermissionInfo;
+import org.osgi.service.permissionadmin.PermissionInfo;
+
+public class ConditionalPermissionAdminImplTest extends TestCase
+{
+    private static final File UNSIGNED = new File("src/test/resources/verifier/unsigned.jar");
+    private static final ProtectionDomain DOMAIN = new ProtectionDomain(null, null);
+
+    private File m_dir;
+    private Content m_content;
+    private BundleRevisionImpl m_revision;
+    private ConditionalPermissionAdminImpl m_admin;
+
+    protected void setUp() throws Exception
+    {
+        m_dir = new File("target/condpermadmin/" + getName());
+        delete(m_dir);
+        m_admin = createAdmin(m_dir);
+        allow(m_admin, "a");
+        m_content = createContent(m_dir);
+        m_revision = createRevision(m_content);
+    }
+
+    protected void tearDown() throws Exception
+    {
+        m_content.close();
+    }
+
+    public void testDecisionsCached()
+    {
+        assertTrue(check(m_revision, read("a")));
+        assertEquals(0, m_admin.getDecisionHits());
+        assertEquals(1, m_admin.getDecisionMisses());
+
+        assertTrue(check(m_revision, read("a")));
+        assertEquals(1, m_admin.getDecisionHits());
+
+        assertFalse(check(m_revision, read("b")));
+        assertFalse(check(m_revision, read("b")));
+        assertEquals(2, m_admin.getDecisionHits());
+        assertEquals(2, m_admin.getDecisionMisses());
+    }
+
+    public void testDecisionsCachedByRevision()
+    {
+        assertTrue(check(m_revision, read("a")));
+        assertTrue(check(createRevision(m_content), read("a")));
+        assertEquals(0, m_admin.getDecisionHits());
+        assertEquals(2, m_admin.getDecisionMisses());
+    }
+
+    public void testServiceReferencePermissionsNotCached()
+    {
+        check(m_revision, new ServicePermission("(service.id=1)",
+            ServicePermission.GET));
+        assertEquals(0, m_admin.getDecisionHits());
+        assertEquals(0, m_admin.getDecisionMisses());
+    }
+
+    public void testClearedOnTableWrite()
+    {
+        assertFalse(check(m_revision, read("b")));
+
+        ConditionalPermissionInfo info = allow(m_admin, "b");
+        assertTrue(check(m_revision, read("b")));
+        assertEquals(0, m_admin.getDecisionHits());
+
+        info.delete();
+        assertFalse(check(m_revision, read("b")));
+        assertEquals(0, m_admin.getDecisionHits());
+        assertEquals(3, m_admin.getDecisionMisses());
+    }
+
+    public void testClearedOnBundleChanges()
+    {
+        int[] types = new int[] { BundleEvent.UPDATED,
+            BundleEvent.UNINSTALLED, BundleEvent.UNRESOLVED };
+        for (int i = 0; i < types.length; i++)
+        {
+            assertTrue(check(m_revision, read("a")));
+            m_admin.bundleChanged(new BundleEvent(types[i], m_revision.getBundle()));
+        }
+        assertEquals(0, m_admin.getDecisionHits());
+
+        // Other events keep the decisions
+        check(m_revision, read("a"));
+        m_admin.bundleChanged(new BundleEvent(BundleEvent.STARTED,
+            m_revision.getBundle()));
+        check(m_revision, read("a"));
+        assertEquals(1, m_admin.getDecisionHits());
+    }
+
+    public void testDecisionsBounded()
+    {
+        for (int i = 0; i < 2048; i++)
+        {
+            check(m_revision, read("a" + i));
+        }
+        assertEquals(2048, m_admin.getDecisionMisses());
+
+        // The last decisions are still cached
+        check(m_revision, read("a2047"));
+        assertEquals(1, m_admin.getDecisionHits());
+    }
+
+    public void testDecisionStatisticsLogged() throws Exception
+    {
+        final List messages = new ArrayList();
+        Logger logger = new Logger()
+        {
+            protected void doLog(int level, String msg, Throwable throwable)
+            {
+                messages.add(msg);
+            }
+        };
+        logger.setLogLevel(Logger.LOG_DEBUG);
+        m_admin = createAdmin(m_dir, logger);
+        messages.clear();
+
+        check(m_revision, read("a"));
+        check(m_revision, read("a"));
+        check(m_revision, read("a"));
+        check(m_revision, read("b"));
+        assertEquals("ConditionalPermissionAdmin (decisions: 2 hits, 2 misses, "
+            + "50% hit rate)", m_admin.toString());
+
+        m_admin.clearDecisions();
+        assertEquals(1, messages.size());
+        assertEquals("Cleared permission decisions: 2 hits, 2 misses, "
+            + "50% hit rate", messages.get(0));
+
+        // Nothing is logged unless debugging
+        logger.setLogLevel(Logger.LOG_INFO);
+        m_admin.clearDecisions();
+        assertEquals(1, messages.size());
+    }
+
+    private boolean check(BundleRevisionImpl revision, Permission permission)
+    {
+        return m_admin.hasPermission(revision, m_content, DOMAIN, permission,
+            true, null);
+    }
+
+    static PropertyPermission read(String name)
+    {
+        return new PropertyPermission(name, "read");
+    }
+
+    /**
+     * Allow to read the given property to all bundles.
+     */
+    static ConditionalPermissionInfo allow(ConditionalPermissionAdminImpl admin,
+        String property)
+    {
+        return admin.addConditionalPermissionInfo(new ConditionInfo[0],
+            new PermissionInfo[] { new PermissionInfo(
+                PropertyPermission.class.getName(), property, "read") });
+    }
+
+    static ConditionalPermissionAdminImpl createAdmin(File dir) throws Exception
+    {
+        return createAdmin(dir, new Logger());
+    }
+
+    static ConditionalPermissionAdminImpl createAdmin(File dir, Logger logger)
+        throws Exception
+    {
+        File tmp = new File(dir, "tmp");
+        tmp.mkdirs();
+        SecureAction action = new SecureAction();
+        Permissions permissions = new Permissions(null, action);
+        return new ConditionalPermissionAdminImpl(permissions, new Conditions(
+            action), new LocalPermissions(permissions), new PropertiesCache(
+            new File(dir, "condperm.perm"), tmp, action), new PermissionAdminImpl(
+            permissions, new PropertiesCache(new File(dir, "perm.perm"), tmp,
+                action)), logger);
+    }
+
+    static Content createContent(File dir)
+    {
+        return new JarContent(new Logger(), new HashMap(),
+            new WeakZipFileFactory(10), new Object(), dir, UNSIGNED, null);
+    }
+
+    static BundleRevisionImpl createRevision(final Content content)
+    {
+        return new BundleRevisionImpl(new FakeBundle(new HashMap()), "1")
+        {
+            public Content getContent()
+            {
+                return content;
+            }
+        };
+    }
+
+    static void delete(File file)
+    {
+        File[] files = file.listFiles();
+        if (files != null)
+        {
+            for (int i = 0; i < files.length; i++)
+            {
+                delete(files[i]);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.framework.security.verifier;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import junit.framework.TestCase;
+
+import org.apache.felix.framework.BundleRevisionImpl;
+import org.apache.felix.framework.Logger;
+import org.apache.felix.framework.cache.Content;
+import org.apache.felix.framework.cache.JarContent;
+import org.apache.felix.framework.security.util.TrustManager;
+import org.apache.felix.framework.util.SecureAction;
+import org.apache.felix.framework.util.WeakZipFileFactory;
+import org.osgi.framework.Bundle;
+
+public class BundleDNParserTest extends TestCase
+{
+    private static final File UNTRUSTED = new File("src/test/resources/verifier/untrusted.jar");
+    private static final File TRUSTED = new File("src/test/resources/verifier/trusted.jks");
+
+    // Runs the verifications in the calling thread
+    private static final Executor DIRECT = new Executor()
+    {
+        public void execute(Runnable command)
+        {
+            command.run();
+        }
+    };
+
+    // An executor which has been shut down
+    private static final Executor SHUT_DOWN = new Executor()
+    {
+        public void execute(Runnable command)
+        {
+            throw new RejectedExecutionException();
+        }
+    };
+
+    private final List m_contents = new ArrayList();
+    private File m_dir;
+    private File m_store;
+
+    protected void setUp() throws Exception
+    {
+        m_dir = new File("target/bundle-dn-parser/" + getName());
+        VerificationCacheTest.delete(m_dir);
+        m_dir.mkdirs();
+        m_store = new File(m_dir, "signers");
+    }
+
+    protected void tearDown() throws Exception
+    {
+        for (Iterator iter = m_contents.iterator(); iter.hasNext();)
+        {
+            ((Content) iter.next()).close();
+        }
+    }
+
+    public void testVerifiedSignersStored() throws Exception
+    {
+        BundleRevisionImpl root = createRevision(VerificationCacheTest.SIGNED);
+        createParser().checkDNChains(root, root.getContent(), Bundle.SIGNERS_TRUSTED);
+        assertEquals(1, VerificationCacheTest.count(m_store));
+
+        // A new parser, e.g., after a restart, takes the stored signers
+        root = createRevision(VerificationCacheTest.SIGNED);
+        assertEquals(1, createParser().getDNChains(root, root.getContent(),
+            Bundle.SIGNERS_TRUSTED).size());
+        assertEquals(1, VerificationCacheTest.count(m_store));
+    }
+
+    public void testUnsignedNotStored() throws Exception
+    {
+        BundleRevisionImpl root = createRevision(VerificationCacheTest.UNSIGNED);
+        createParser().checkDNChains(root, root.getContent(), Bundle.SIGNERS_TRUSTED);
+        assertEquals(0, VerificationCacheTest.count(m_store));
+    }
+
+    public void testUntrustedNotStored() throws Exception
+    {
+        BundleDNParser parser = createParser();
+        BundleRevisionImpl root = createRevision(UNTRUSTED);
+
+        // Signed by an untrusted signer only, the bundle has no trusted signers
+        parser.checkDNChains(root, root.getContent(), Bundle.SIGNERS_TRUSTED);
+        assertTrue(parser.getDNChains(root, root.getContent(),
+            Bundle.SIGNERS_TRUSTED).isEmpty());
+        assertEquals(0, VerificationCacheTest.count(m_store));
+    }
+
+    public void testTamperedNotStored() throws Exception
+    {
+        BundleRevisionImpl root = createRevision(tamper(VerificationCacheTest.SIGNED));
+        try
+        {
+            createParser().checkDNChains(root, root.getContent(), Bundle.SIGNERS_TRUSTED);
+            fail("The jar has been modified after signing");
+        }
+        catch (Exception ex)
+        {
+            // expected
+        }
+        assertEquals(0, VerificationCacheTest.count(m_store));
+    }
+
+    public void testPrefetch() throws Exception
+    {
+        BundleDNParser parser = createParser();
+        BundleRevisionImpl root = createRevision(VerificationCacheTest.SIGNED);
+
+        parser.verify(new BundleRevisionImpl[] { root, null }, DIRECT);
+        assertEquals(1, VerificationCacheTest.count(m_store));
+
+        parser.checkDNChains(root, root.getContent(), Bundle.SIGNERS_TRUSTED);
+        assertEquals(1, parser.getDNChains(root, root.getContent(),
+            Bundle.SIGNERS_TRUSTED).size());
+    }
+
+    public void testFailedPrefetchReported() throws Exception
+    {
+        BundleDNParser parser = createParser();
+        BundleRevisionImpl root = createRevision(tamper(VerificationCacheTest.SIGNED));
+
+        parser.verify(new BundleRevisionImpl[] { root }, DIRECT);
+        assertEquals(0, VerificationCacheTest.count(m_store));
+
+        try
+        {
+            parser.checkDNChains(root, root.getContent(), Bundle.SIGNERS_TRUSTED);
+            fail("A failed prefetch must be reported by the check");
+        }
+        catch (Exception ex)
+        {
+            // expected
+        }
+    }
+
+    public void testAbortedPrefetchRunByCheck() throws Exception
+    {
+        BundleDNParser parser = createParser();
+        BundleRevisionImpl root = createRevision(VerificationCacheTest.SIGNED);
+
+        parser.verify(new BundleRevisionImpl[] { root }, SHUT_DOWN);
+        assertEquals(0, VerificationCacheTest.count(m_store));
+
+        parser.checkDNChains(root, root.getContent(), Bundle.SIGNERS_TRUSTED);
+        assertEquals(1, VerificationCacheTest.count(m_store));
+    }
+
+    private BundleDNParser createParser() throws Exception
+    {
+        SecureAction action = new SecureAction();
+        Logger logger = new Logger();
+        TrustManager manager = new TrustManager("", "JKS", "password",
+            TRUSTED.toURI().toURL().toString(), action);
+        return new BundleDNParser(manager, new VerificationCache(m_store,
+            action, logger), action, logger);
+    }
+
+    private BundleRevisionImpl createRevision(File jar)
+    {
+        final Content content = new JarContent(new Logger(), new HashMap(),
+            new WeakZipFileFactory(10), new Object(), m_dir, jar, null);
+        m_contents.add(content);
+        return new BundleRevisionImpl(null, "1")
+        {
+            public Content getContent()
+            {
+                return content;
+            }
+        };
+    }
+
+    /**
+     * Copy a jar, changing the content of its entries which aren't signature
+     * files.
+     */
+    private File tamper(File jar) throws Exception
+    {
+        File result = new File(m_dir, "tampered.jar");
+        ZipInputStream input = new ZipInputStream(new FileInputStream(jar));
+        ZipOutputStream output = new ZipOutputStream(new FileOutputStream(result));
+        byte[] buffer = new byte[4096];
+        for (ZipEntry entry = input.getNextEntry(); entry != null; entry = input.getNextEntry())
+        {
+            output.putNextEntry(new ZipEntry(entry.getName()));
+            for (int c = input.read(buffer); c != -1; c = input.read(buffer))
+            {
+                output.write(buffer, 0, c);
+            }
+            if (entry.getName().endsWith(".txt"))
+            {
+                output.write('!');
+            }
+            output.closeEntry();
+        }
+        input.close();
+        output.close();
+        return result;
+    }
+}
@@ -0,0 +1,260 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.framework.security.verifier;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+import junit.framework.TestCase;
+
+import org.apache.felix.framework.Logger;
+import org.apache.felix.framework.util.SecureAction;
+
+public class VerificationCacheTest extends TestCase
+{
+    static final File SIGNED = new File("src/test/resources/verifier/signed.jar");
+    static final File UNSIGNED = new File("src/test/resources/verifier/unsigned.jar");
+
+    private static final byte[] FINGERPRINT = new byte[] { 1, 2, 3 };
+
+    private File m_dir;
+    private X509Certificate m_signer;
+    private X509Certificate m_ca;
+
+    protected void setUp() throws Exception
+    {
+        m_dir = new File("target/verification-cache/" + getName());
+        delete(m_dir);
+
+        // The signed jar is signed by a certificate issued by the CA
+        JarFile jar = new JarFile(SIGNED, true);
+        try
+        {
+            JarEntry entry = jar.getJarEntry("org/example/hello.txt");
+            InputStream input = jar.getInputStream(entry);
+            while (input.read() != -1)
+            {
+            }
+            input.close();
+            Certificate[] certificates = entry.getCertificates();
+            m_signer = (X509Certificate) certificates[0];
+            m_ca = (X509Certificate) certificates[1];
+        }
+        finally
+        {
+            jar.close();
+        }
+    }
+
+    public void testKey() throws Exception
+    {
+        VerificationCache cache = createCache();
+
+        String key = cache.getKey(SIGNED, FINGERPRINT, true);
+        assertEquals("SHA-256 as hex", 64, key.length());
+        assertEquals(key, cache.getKey(SIGNED, new byte[] { 1, 2, 3 }, true));
+
+        assertFalse("the jar is part of the key",
+            key.equals(cache.getKey(UNSIGNED, FINGERPRINT, true)));
+        assertFalse("the trust fingerprint is part of the key",
+            key.equals(cache.getKey(SIGNED, new byte[] { 1, 2, 4 }, true)));
+        assertFalse("the check type is part of the key",
+            key.equals(cache.getKey(SIGNED, FINGERPRINT, false)));
+
+        // A replaced jar is verified again
+        m_dir.mkdirs();
+        File copy = new File(m_dir, "signed.jar");
+        copy(SIGNED, copy);
+        copy.setLastModified(SIGNED.lastModified());
+        String copyKey = cache.getKey(copy, FINGERPRINT, true);
+        copy.setLastModified(SIGNED.lastModified() - 60 * 1000);
+        assertFalse("the modification time is part of the key",
+            copyKey.equals(cache.getKey(copy, FINGERPRINT, true)));
+
+        assertNull(cache.getKey(SIGNED, null, true));
+        assertNull(cache.getKey(new File(m_dir, "missing.jar"), FINGERPRINT, true));
+    }
+
+    public void testPutAndGet() throws Exception
+    {
+        VerificationCache cache = createCache();
+
+        cache.put("key", chains(new X509Certificate[] { m_signer, m_ca }),
+            Collections.singletonList(m_ca));
+
+        Map result = cache.get("key");
+        assertEquals(1, result.size());
+        assertEquals(list(new X509Certificate[] { m_signer, m_ca }), result.get(m_signer));
+        assertNull(cache.get("other"));
+    }
+
+    public void testExpiresWithFirstCertificate() throws Exception
+    {
+        VerificationCache cache = createCache();
+        assertTrue(m_signer.getNotAfter().before(m_ca.getNotAfter()));
+
+        // The signer expires before its CA
+        cache.put("chain", chains(new X509Certificate[] { m_signer, m_ca }),
+            Collections.singletonList(m_ca));
+        assertEquals(m_signer.getNotAfter().getTime(), getValidUntil("chain"));
+
+        // The trusted CA certificates count as well
+        cache.put("trusted", chains(new X509Certificate[] { m_ca }),
+            Collections.singletonList(m_signer));
+        assertEquals(m_signer.getNotAfter().getTime(), getValidUntil("trusted"));
+    }
+
+    public void testExpiredEntryRemoved() throws Exception
+    {
+        VerificationCache cache = createCache();
+        cache.put("key", chains(new X509Certificate[] { m_signer, m_ca }),
+            Collections.singletonList(m_ca));
+
+        // Let the entry expire
+        File file = new File(m_dir, "key");
+        DataOutputStream output = new DataOutputStream(new FileOutputStream(file));
+        output.writeInt(1);
+        output.writeLong(System.currentTimeMillis() - 1000);
+        output.close();
+
+        assertNull(cache.get("key"));
+        assertFalse(file.exists());
+    }
+
+    public void testEmptyResultNotStored()
+    {
+        VerificationCache cache = createCache();
+
+        cache.put("key", new HashMap(), Collections.singletonList(m_ca));
+        cache.put("other", null, Collections.singletonList(m_ca));
+
+        assertEquals(0, count(m_dir));
+    }
+
+    public void testPrune() throws Exception
+    {
+        VerificationCache cache = createCache();
+        cache.put("used", chains(new X509Certificate[] { m_signer, m_ca }),
+            Collections.singletonList(m_ca));
+        cache.put("unused", chains(new X509Certificate[] { m_signer, m_ca }),
+            Collections.singletonList(m_ca));
+
+        // Both entries have been stored in a previous run
+        long before = System.currentTimeMillis() - 60 * 60 * 1000;
+        new File(m_dir, "used").setLastModified(before);
+        new File(m_dir, "unused").setLastModified(before);
+
+        cache = createCache();
+        cache.prune();
+        assertEquals("nothing is pruned if the cache hasn't been used", 2, count(m_dir));
+
+        assertNotNull(cache.get("used"));
+        cache.prune();
+        assertTrue(new File(m_dir, "used").exists());
+        assertFalse(new File(m_dir, "unused").exists());
+    }
+
+    private VerificationCache createCache()
+    {
+        return new VerificationCache(m_dir, new SecureAction(), new Logger());
+    }
+
+    private long getValidUntil(String key) throws Exception
+    {
+        DataInputStream input = new DataInputStream(new FileInputStream(
+            new File(m_dir, key)));
+        try
+        {
+            assertEquals(1, input.readInt());
+            return input.readLong();
+        }
+        finally
+        {
+            input.close();
+        }
+    }
+
+    private static Map chains(X509Certificate[] chain)
+    {
+        Map result = new HashMap();
+        result.put(chain[0], list(chain));
+        return result;
+    }
+
+    private static List list(X509Certificate[] chain)
+    {
+        List result = new ArrayList();
+        for (int i = 0; i < chain.length; i++)
+        {
+            result.add(chain[i]);
+        }
+        return result;
+    }
+
+    private static void copy(File from, File to) throws Exception
+    {
+        InputStream input = new FileInputStream(from);
+        FileOutputStream output = new FileOutputStream(to);
+        try
+        {
+            byte[] buffer = new byte[4096];
+            for (int c = input.read(buffer); c != -1; c = input.read(buffer))
+            {
+                output.write(buffer, 0, c);
+            }
+        }
+        finally
+        {
+            input.close();
+            output.close();
+        }
+    }
+
+    static int count(File dir)
+    {
+        File[] files = dir.listFiles();
+        return (files != null) ? files.length : 0;
+    }
+
+    static void delete(File file)
+    {
+        File[] files = file.listFiles();
+        if (files != null)
+        {
+            for (int i = 0; i < files.length; i++)
+            {
+                delete(files[i]);
+            }
+        }
+        file.delete();
+    }
+}
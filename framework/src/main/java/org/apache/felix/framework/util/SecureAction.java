@@ -321,6 +321,72 @@ public class SecureAction
         }
     }
 
+    public long getFileLastModified(File file)
+    {
+        if (System.getSecurityManager() != null)
+        {
+            try
+            {
+                Actions actions = (Actions) m_actions.get();
+                actions.set(Actions.GET_FILE_LAST_MODIFIED_ACTION, file);
+                return ((Long) AccessController.doPrivileged(actions, m_acc))
+                    .longValue();
+            }
+            catch (PrivilegedActionException ex)
+            {
+                throw (RuntimeException) ex.getException();
+            }
+        }
+        else
+        {
+            return file.lastModified();
+        }
+    }
+
+    public boolean setFileLastModified(File file, long time)
+    {
+        if (System.getSecurityManager() != null)
+        {
+            try
+            {
+                Actions actions = (Actions) m_actions.get();
+                actions.set(Actions.SET_FILE_LAST_MODIFIED_ACTION, file, Long.valueOf(time));
+                return ((Boolean) AccessController.doPrivileged(actions, m_acc))
+                    .booleanValue();
+            }
+            catch (PrivilegedActionException ex)
+            {
+                throw (RuntimeException) ex.getException();
+            }
+        }
+        else
+        {
+            return file.setLastModified(time);
+        }
+    }
+
+    public long getFileLength(File file)
+    {
+        if (System.getSecurityManager() != null)
+        {
+            try
+            {
+                Actions actions = (Actions) m_actions.get();
+                actions.set(Actions.GET_FILE_LENGTH_ACTION, file);
+                return ((Long) AccessController.doPrivileged(actions, m_acc))
+                    .longValue();
+            }
+            catch (PrivilegedActionException ex)
+            {
+                throw (RuntimeException) ex.getException();
+            }
+        }
+        else
+        {
+            return file.length();
+        }
+    }
+
     public boolean isFileDirectory(File file)
     {
         if (System.getSecurityManager() != null)
@@ -1609,6 +1675,9 @@ public class SecureAction
         public static final int INVOKE_WOVEN_CLASS_LISTENER = 56;
         public static final int GET_CANONICAL_PATH = 57;
         public static final int CREATE_PROXY = 58;
+        public static final int GET_FILE_LAST_MODIFIED_ACTION = 59;
+        public static final int SET_FILE_LAST_MODIFIED_ACTION = 60;
+        public static final int GET_FILE_LENGTH_ACTION = 61;
 
         private int m_action = -1;
         private Object m_arg1 = null;
@@ -1872,6 +1941,13 @@ public class SecureAction
                 case CREATE_PROXY:
                     return Proxy.newProxyInstance((ClassLoader)arg1, (Class<?>[])arg2,
                             (InvocationHandler) arg3);
+                case GET_FILE_LAST_MODIFIED_ACTION:
+                    return Long.valueOf(((File) arg1).lastModified());
+                case SET_FILE_LAST_MODIFIED_ACTION:
+                    return ((File) arg1).setLastModified(((Long) arg2).longValue())
+                        ? Boolean.TRUE : Boolean.FALSE;
+                case GET_FILE_LENGTH_ACTION:
+                    return Long.valueOf(((File) arg1).length());
             }
 
             return null;
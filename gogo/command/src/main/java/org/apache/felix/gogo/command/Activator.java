@@ -33,7 +33,7 @@ public class Activator implements BundleActivator
         Hashtable<String, Object> props = new Hashtable<>();
         props.put("osgi.command.scope", "felix");
         props.put("osgi.command.function", new String[] {
-            "bundlelevel", "frameworklevel", "headers",
+            "bundlelevel", "bundles", "frameworklevel", "headers",
             "help", "install", "lb", "log", "refresh",
             "resolve", "start", "stop", "uninstall", "update",
             "which" });
@@ -41,7 +41,7 @@ public class Activator implements BundleActivator
             Basic.class.getName(), new Basic(systemBundleContext), props);
 
         props.put("osgi.command.scope", "felix");
-        props.put("osgi.command.function", new String[] { "inspect" });
+        props.put("osgi.command.function", new String[] { "capabilities", "inspect", "requirements" });
         bc.registerService(
             Inspect.class.getName(), new Inspect(systemBundleContext), props);
 
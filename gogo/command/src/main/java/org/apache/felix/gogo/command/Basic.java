@@ -29,6 +29,8 @@ import java.net.URL;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.Dictionary;
 import java.util.Enumeration;
@@ -463,6 +465,25 @@ public class Basic
         @Descriptor("show symbolic name") @Parameter(names = { "-s", "--symbolicname" }, presentValue = "true", absentValue = "false") boolean showSymbolic,
         @Descriptor("show update location") @Parameter(names = { "-u", "--updatelocation" }, presentValue = "true", absentValue = "false") boolean showUpdate,
         @Descriptor("subtring matched against name or symbolic name") String pattern)
+    {
+        return bundles(showLoc, showSymbolic, showUpdate, pattern).toString();
+    }
+
+    @Descriptor("list all installed bundles, passed as objects to a pipeline stage reading objects")
+    public CharSequence bundles(
+        @Descriptor("show location") @Parameter(names = { "-l", "--location" }, presentValue = "true", absentValue = "false") boolean showLoc,
+        @Descriptor("show symbolic name") @Parameter(names = { "-s", "--symbolicname" }, presentValue = "true", absentValue = "false") boolean showSymbolic,
+        @Descriptor("show update location") @Parameter(names = { "-u", "--updatelocation" }, presentValue = "true", absentValue = "false") boolean showUpdate)
+    {
+        return bundles(showLoc, showSymbolic, showUpdate, null);
+    }
+
+    @Descriptor("list installed bundles matching a substring, passed as objects to a pipeline stage reading objects")
+    public CharSequence bundles(
+        @Descriptor("show location") @Parameter(names = { "-l", "--location" }, presentValue = "true", absentValue = "false") boolean showLoc,
+        @Descriptor("show symbolic name") @Parameter(names = { "-s", "--symbolicname" }, presentValue = "true", absentValue = "false") boolean showSymbolic,
+        @Descriptor("show update location") @Parameter(names = { "-u", "--updatelocation" }, presentValue = "true", absentValue = "false") boolean showUpdate,
+        @Descriptor("subtring matched against name or symbolic name") String pattern)
     {
         if ((showLoc && showSymbolic && showUpdate) ||
             (showLoc && showSymbolic) ||
@@ -490,11 +511,22 @@ public class Basic
 
         if (found.size() > 0)
         {
-            try (Formatter f = new Formatter()) {
-                printBundleList(found.toArray(new Bundle[found.size()]),
-                    showLoc, showSymbolic, showUpdate, m_b0, f);
-                return f.toString();
-            }
+            // the bundles are passed as objects to a pipeline stage reading objects
+            final boolean loc = showLoc, symbolic = showSymbolic, update = showUpdate;
+            return new Listing<Bundle>(found.toArray(new Bundle[found.size()]))
+            {
+                @Override
+                void format(Bundle[] bundles, Formatter f)
+                {
+                    printBundleList(bundles, loc, symbolic, update, m_b0, f);
+                }
+
+                @Override
+                Collection<Bundle> list(Bundle bundle)
+                {
+                    return Collections.singletonList(bundle);
+                }
+            };
         }
         else
         {
@@ -63,69 +63,140 @@ public class Inspect
         @Descriptor("(<namespace> | 'service')") String namespace,
         @Descriptor("target bundles") Bundle[] bundles)
     {
-        return inspect(m_bc, direction, namespace, bundles);
+        // Verify arguments.
+        if (isValidDirection(direction))
+        {
+            return (CAPABILITY.startsWith(direction)
+                ? capabilities(namespace, bundles)
+                : requirements(namespace, bundles)).toString();
+        }
+
+        return "Invalid argument: " + direction;
     }
 
-    private static String inspect(
-        BundleContext bc, String direction, String namespace, Bundle[] bundles)
+    @Descriptor("inspects bundle capabilities, passed as objects to a pipeline stage reading objects")
+    public CharSequence capabilities(
+        @Descriptor("(<namespace> | 'service')") String namespace,
+        @Descriptor("target bundles") Bundle[] bundles)
     {
-        // Verify arguments.
-        if (isValidDirection(direction))
+        final List<String> ns = Util.parseSubstring(namespace);
+        return new Listing<Object>(getBundles(bundles))
         {
-            bundles = ((bundles == null) || (bundles.length == 0))
-                ? bc.getBundles() : bundles;
+            @Override
+            void format(Bundle[] bundles, Formatter f)
+            {
+                printCapabilities(ns, bundles, f);
+            }
 
-            if (CAPABILITY.startsWith(direction))
+            @Override
+            Collection<Object> list(Bundle bundle)
             {
-                return printCapabilities(bc, Util.parseSubstring(namespace), bundles);
+                return listCapabilities(ns, bundle);
             }
-            else
+        };
+    }
+
+    @Descriptor("inspects bundle requirements, passed as objects to a pipeline stage reading objects")
+    public CharSequence requirements(
+        @Descriptor("(<namespace> | 'service')") String namespace,
+        @Descriptor("target bundles") Bundle[] bundles)
+    {
+        final List<String> ns = Util.parseSubstring(namespace);
+        return new Listing<Object>(getBundles(bundles))
+        {
+            @Override
+            void format(Bundle[] bundles, Formatter f)
             {
-                return printRequirements(bc, Util.parseSubstring(namespace), bundles);
+                printRequirements(ns, bundles, f);
             }
-        }
 
-        return "Invalid argument: " + direction;
+            @Override
+            Collection<Object> list(Bundle bundle)
+            {
+                return listRequirements(ns, bundle);
+            }
+        };
+    }
+
+    private Bundle[] getBundles(Bundle[] bundles)
+    {
+        return ((bundles == null) || (bundles.length == 0))
+            ? m_bc.getBundles() : bundles;
     }
 
     public static String printCapabilities(
         BundleContext bc, List<String> namespace, Bundle[] bundles)
     {
         try (Formatter f = new Formatter()) {
-            for (Bundle b : bundles)
+            printCapabilities(namespace, bundles, f);
+            return f.toString();
+        }
+    }
+
+    private static void printCapabilities(List<String> namespace, Bundle[] bundles, Formatter f)
+    {
+        for (Bundle b : bundles)
+        {
+            // Print out any matching generic capabilities.
+            BundleWiring wiring = b.adapt(BundleWiring.class);
+            if (wiring != null)
             {
-                // Print out any matching generic capabilities.
-                BundleWiring wiring = b.adapt(BundleWiring.class);
-                if (wiring != null)
-                {
-                    String title = b + " provides:";
-                    f.format("%s%n%s%n", title, Util.getUnderlineString(title.length()));
+                String title = b + " provides:";
+                f.format("%s%n%s%n", title, Util.getUnderlineString(title.length()));
 
-                    // Print generic capabilities for matching namespaces.
-                    boolean matches = printMatchingCapabilities(wiring, namespace, f);
+                // Print generic capabilities for matching namespaces.
+                boolean matches = printMatchingCapabilities(wiring, namespace, f);
 
-                    // Handle service capabilities separately, since they aren't part
-                    // of the generic model in OSGi.
-                    if (matchNamespace(namespace, NONSTANDARD_SERVICE_NAMESPACE))
-                    {
-                        matches |= printServiceCapabilities(b, f);
-                    }
+                // Handle service capabilities separately, since they aren't part
+                // of the generic model in OSGi.
+                if (matchNamespace(namespace, NONSTANDARD_SERVICE_NAMESPACE))
+                {
+                    matches |= printServiceCapabilities(b, f);
+                }
 
-                    // If there were no capabilities for the specified namespace,
-                    // then say so.
-                    if (!matches)
-                    {
-                        f.format("%s %s%n", Util.unparseSubstring(namespace), EMPTY_MESSAGE);
-                    }
+                // If there were no capabilities for the specified namespace,
+                // then say so.
+                if (!matches)
+                {
+                    f.format("%s %s%n", Util.unparseSubstring(namespace), EMPTY_MESSAGE);
                 }
-                else
+            }
+            else
+            {
+                f.format("Bundle %s is not resolved.",
+                    b.getBundleId());
+            }
+        }
+    }
+
+    /**
+     * Returns the capabilities of a bundle in the namespace, followed by the
+     * references of its registered services if the service namespace matches.
+     */
+    static List<Object> listCapabilities(List<String> namespace, Bundle b)
+    {
+        List<Object> result = new ArrayList<>();
+        BundleWiring wiring = b.adapt(BundleWiring.class);
+        if (wiring != null)
+        {
+            for (BundleCapability cap : wiring.getCapabilities(null))
+            {
+                if (matchNamespace(namespace, cap.getNamespace())
+                    && !"osgi.service".equals(cap.getNamespace()))
                 {
-                    f.format("Bundle %s is not resolved.",
-                        b.getBundleId());
+                    result.add(cap);
+                }
+            }
+            if (matchNamespace(namespace, NONSTANDARD_SERVICE_NAMESPACE))
+            {
+                ServiceReference<?>[] refs = b.getRegisteredServices();
+                if (refs != null)
+                {
+                    result.addAll(Arrays.asList(refs));
                 }
             }
-            return f.toString();
         }
+        return result;
     }
 
     private static boolean printMatchingCapabilities(BundleWiring wiring, List<String> namespace, Formatter f)
@@ -302,38 +373,72 @@ public class Inspect
         BundleContext bc, List<String> namespace, Bundle[] bundles)
     {
         try (Formatter f = new Formatter()) {
-            for (Bundle b : bundles)
+            printRequirements(namespace, bundles, f);
+            return f.toString();
+        }
+    }
+
+    private static void printRequirements(List<String> namespace, Bundle[] bundles, Formatter f)
+    {
+        for (Bundle b : bundles)
+        {
+            // Print out any matching generic requirements.
+            BundleWiring wiring = b.adapt(BundleWiring.class);
+            if (wiring != null)
             {
-                // Print out any matching generic requirements.
-                BundleWiring wiring = b.adapt(BundleWiring.class);
-                if (wiring != null)
+                String title = b + " requires:";
+                f.format("%s%n%s%n", title, Util.getUnderlineString(title.length()));
+                boolean matches = printMatchingRequirements(wiring, namespace, f);
+
+                // Handle service requirements separately, since they aren't part
+                // of the generic model in OSGi.
+                if (matchNamespace(namespace, NONSTANDARD_SERVICE_NAMESPACE))
                 {
-                    String title = b + " requires:";
-                    f.format("%s%n%s%n", title, Util.getUnderlineString(title.length()));
-                    boolean matches = printMatchingRequirements(wiring, namespace, f);
+                    matches |= printServiceRequirements(b, f);
+                }
 
-                    // Handle service requirements separately, since they aren't part
-                    // of the generic model in OSGi.
-                    if (matchNamespace(namespace, NONSTANDARD_SERVICE_NAMESPACE))
-                    {
-                        matches |= printServiceRequirements(b, f);
-                    }
+                // If there were no requirements for the specified namespace,
+                // then say so.
+                if (!matches)
+                {
+                    f.format("%s %s%n", Util.unparseSubstring(namespace), EMPTY_MESSAGE);
+                }
+            }
+            else
+            {
+                f.format("Bundle %s is not resolved.%n",
+                    b.getBundleId());
+            }
+        }
+    }
 
-                    // If there were no requirements for the specified namespace,
-                    // then say so.
-                    if (!matches)
-                    {
-                        f.format("%s %s%n", Util.unparseSubstring(namespace), EMPTY_MESSAGE);
-                    }
+    /**
+     * Returns the requirements of a bundle in the namespace, followed by the
+     * references of the services it uses if the service namespace matches.
+     */
+    static List<Object> listRequirements(List<String> namespace, Bundle b)
+    {
+        List<Object> result = new ArrayList<>();
+        BundleWiring wiring = b.adapt(BundleWiring.class);
+        if (wiring != null)
+        {
+            for (BundleRequirement req : wiring.getRequirements(null))
+            {
+                if (matchNamespace(namespace, req.getNamespace()))
+                {
+                    result.add(req);
                 }
-                else
+            }
+            if (matchNamespace(namespace, NONSTANDARD_SERVICE_NAMESPACE))
+            {
+                ServiceReference<?>[] refs = b.getServicesInUse();
+                if (refs != null)
                 {
-                    f.format("Bundle %s is not resolved.%n",
-                        b.getBundleId());
+                    result.addAll(Arrays.asList(refs));
                 }
             }
-            return f.toString();
         }
+        return result;
     }
 
     private static boolean printMatchingRequirements(BundleWiring wiring, List<String> namespace, Formatter f)
@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.gogo.command;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Formatter;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.osgi.framework.Bundle;
+
+/**
+ * The result of a command listing objects of bundles, such as the bundles
+ * themselves or their capabilities.
+ * <p>
+ * As text, it is the listing the command prints, formatted when it is first
+ * needed. When the next stage of a pipeline reads objects instead, it receives
+ * the objects bundle by bundle as they are looked up, and the listing is not
+ * formatted at all.
+ */
+abstract class Listing<T> implements CharSequence, Iterable<T>
+{
+    private final Bundle[] m_bundles;
+    private String m_text;
+
+    Listing(Bundle[] bundles)
+    {
+        m_bundles = bundles;
+    }
+
+    /**
+     * Formats the listing of the bundles.
+     */
+    abstract void format(Bundle[] bundles, Formatter f);
+
+    /**
+     * Returns the listed objects of a bundle.
+     */
+    abstract Collection<? extends T> list(Bundle bundle);
+
+    @Override
+    public Iterator<T> iterator()
+    {
+        return new Iterator<T>()
+        {
+            private int m_index;
+            private Iterator<? extends T> m_current = Collections.<T>emptyList().iterator();
+
+            @Override
+            public boolean hasNext()
+            {
+                while (!m_current.hasNext() && (m_index < m_bundles.length))
+                {
+                    m_current = list(m_bundles[m_index++]).iterator();
+                }
+                return m_current.hasNext();
+            }
+
+            @Override
+            public T next()
+            {
+                if (!hasNext())
+                {
+                    throw new NoSuchElementException();
+                }
+                return m_current.next();
+            }
+
+            @Override
+            public void remove()
+            {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    @Override
+    public int length()
+    {
+        return toString().length();
+    }
+
+    @Override
+    public char charAt(int index)
+    {
+        return toString().charAt(index);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end)
+    {
+        return toString().subSequence(start, end);
+    }
+
+    @Override
+    public synchronized String toString()
+    {
+        if (m_text == null)
+        {
+            try (Formatter f = new Formatter())
+            {
+                format(m_bundles, f);
+                m_text = f.toString();
+            }
+        }
+        return m_text;
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.gogo.command;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceReference;
+import org.osgi.framework.wiring.BundleCapability;
+import org.osgi.framework.wiring.BundleWire;
+import org.osgi.framework.wiring.BundleWiring;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class InspectTest {
+
+    @Test
+    public void capabilitiesListedAsObjects() {
+        BundleCapability pkg = capability("osgi.wiring.package");
+        BundleCapability other = capability("osgi.identity");
+        Bundle b1 = bundle(1, pkg, other);
+        Bundle b2 = bundle(2);
+        ServiceReference<?> ref = mock(ServiceReference.class);
+        when(b2.getRegisteredServices()).thenReturn(new ServiceReference<?>[] { ref });
+
+        Inspect inspect = new Inspect(mock(BundleContext.class));
+        CharSequence result = inspect.capabilities("osgi.wiring.package", new Bundle[] { b1, b2 });
+        assertEquals(Collections.<Object>singletonList(pkg), list(result));
+        verify(b1, never()).getRegisteredServices();
+
+        result = inspect.capabilities("service", new Bundle[] { b1, b2 });
+        assertEquals(Collections.<Object>singletonList(ref), list(result));
+    }
+
+    @Test
+    public void capabilitiesFormattedAsText() {
+        Bundle b = bundle(1, capability("osgi.wiring.package"));
+        Bundle[] bundles = { b };
+
+        Inspect inspect = new Inspect(mock(BundleContext.class));
+        CharSequence result = inspect.capabilities("osgi.wiring.package", bundles);
+        assertTrue(result instanceof Iterable);
+        String text = Inspect.printCapabilities(null, Arrays.asList("osgi.wiring.package"), bundles);
+        assertEquals(text, result.toString());
+        assertEquals(text, inspect.inspect("cap", "osgi.wiring.package", bundles));
+    }
+
+    @Test
+    public void invalidDirection() {
+        Inspect inspect = new Inspect(mock(BundleContext.class));
+        assertEquals("Invalid argument: foo", inspect.inspect("foo", "service", new Bundle[0]));
+    }
+
+    private static List<Object> list(CharSequence result) {
+        List<Object> objects = new ArrayList<>();
+        for (Object o : (Iterable<?>) result) {
+            objects.add(o);
+        }
+        return objects;
+    }
+
+    private static Bundle bundle(long id, BundleCapability... caps) {
+        BundleWiring wiring = mock(BundleWiring.class);
+        when(wiring.getCapabilities(null)).thenReturn(Arrays.asList(caps));
+        when(wiring.getProvidedWires(null)).thenReturn(Collections.<BundleWire>emptyList());
+        Bundle b = mock(Bundle.class);
+        when(b.getBundleId()).thenReturn(id);
+        when(b.adapt(BundleWiring.class)).thenReturn(wiring);
+        return b;
+    }
+
+    private static BundleCapability capability(String namespace) {
+        BundleCapability cap = mock(BundleCapability.class);
+        when(cap.getNamespace()).thenReturn(namespace);
+        when(cap.getAttributes()).thenReturn(Collections.<String, Object>singletonMap(namespace, "foo"));
+        return cap;
+    }
+}
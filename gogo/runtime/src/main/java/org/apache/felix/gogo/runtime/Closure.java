@@ -81,7 +81,7 @@ public class Closure implements Function, Evaluate
         {
             try
             {
-                this.program = new Parser(source).program();
+                this.program = session.parse(source);
             }
             catch (Exception e)
             {
@@ -248,12 +248,14 @@ public class Closure implements Function, Evaluate
                 Token e = exec.get(exec.size() - 1);
                 Token t = program.subSequence(s.start - program.start, e.start + e.length - program.start);
                 job = session().createJob(t);
+                ObjectPipe objectsIn = null;
                 for (int i = 0; i < exec.size(); i++) {
                     Statement ex = (Statement) exec.get(i);
                     Operator op = i < exec.size() - 1 ? (Operator) exec.get(++i) : null;
                     Channel[] nstreams;
                     boolean[] ntoclose;
                     boolean endOfPipe;
+                    ObjectPipe objectsOut = null;
                     if (i == exec.size() - 1) {
                         nstreams = streams;
                         ntoclose = toclose;
@@ -261,11 +263,12 @@ public class Closure implements Function, Evaluate
                     } else if (Token.eq("|", op)) {
                         PipedInputStream pis = new PipedInputStream();
                         PipedOutputStream pos = new PipedOutputStream(pis);
+                        objectsOut = new ObjectPipe();
                         nstreams = streams.clone();
-                        nstreams[1] = Channels.newChannel(pos);
+                        nstreams[1] = objectsOut.signalOnWrite(Channels.newChannel(pos));
                         ntoclose = toclose.clone();
                         ntoclose[1] = true;
-                        streams[0] = Channels.newChannel(pis);
+                        streams[0] = objectsOut.signalOnRead(Channels.newChannel(pis));
                         toclose[0] = true;
                         endOfPipe = false;
                     } else if (Token.eq("|&", op)) {
@@ -282,6 +285,9 @@ public class Closure implements Function, Evaluate
                         throw new IllegalStateException("Unrecognized pipe operator: '" + op + "'");
                     }
                     Pipe pipe = new Pipe(this, job, ex, nstreams, ntoclose, endOfPipe);
+                    pipe.objectsIn = objectsIn;
+                    pipe.objectsOut = objectsOut;
+                    objectsIn = objectsOut;
                     job.addPipe(pipe);
                 }
             } else {
@@ -35,6 +35,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArraySet;
 
+import org.apache.felix.gogo.runtime.Parser.Program;
 import org.apache.felix.service.command.*;
 import org.apache.felix.service.threadio.ThreadIO;
 import org.osgi.annotation.bundle.Capability;
@@ -53,6 +54,7 @@ public class CommandProcessorImpl implements CommandProcessor
     protected final ThreadIO threadIO;
     protected final WeakHashMap<CommandSession, Object> sessions = new WeakHashMap<>();
     protected boolean stopped;
+    private final ProgramCache programs = new ProgramCache(256);
 
     public CommandProcessorImpl()
     {
@@ -116,6 +118,7 @@ public class CommandProcessorImpl implements CommandProcessor
             // Just in case...
             sessions.clear();
         }
+        programs.clear();
     }
 
     public void addConverter(Converter c)
@@ -405,6 +408,18 @@ public class CommandProcessorImpl implements CommandProcessor
         }
     }
 
+    /**
+     * Parse a program. Programs are cached by their source text, so executing
+     * the same source again does not parse it again.
+     * @param session the session
+     * @param source the source
+     * @return the parsed program
+     */
+    public Program parse(CommandSessionImpl session, CharSequence source)
+    {
+        return programs.get(source);
+    }
+
     public Object expr(CommandSessionImpl session, CharSequence expr)
     {
         return new Expression(expr.toString()).eval(session.variables);
@@ -54,6 +54,7 @@ import org.apache.felix.service.command.Job;
 import org.apache.felix.service.command.Job.Status;
 import org.apache.felix.service.command.JobListener;
 import org.apache.felix.service.command.Process;
+import org.apache.felix.gogo.runtime.Parser.Program;
 import org.apache.felix.gogo.runtime.Pipe.Result;
 import org.apache.felix.service.command.CommandProcessor;
 import org.apache.felix.service.command.CommandSession;
@@ -122,6 +123,11 @@ public class CommandSessionImpl implements CommandSession, Converter
         return processor.threadIO;
     }
 
+    Program parse(CharSequence source)
+    {
+        return processor.parse(this, source);
+    }
+
     public CommandProcessor processor()
     {
         return processor;
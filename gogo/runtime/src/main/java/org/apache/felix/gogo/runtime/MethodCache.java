@@ -0,0 +1,305 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.gogo.runtime;
+
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.felix.service.command.Parameter;
+
+/**
+ * The methods and fields of a class which {@link Reflective} can invoke, by
+ * their lower case command name.
+ * <p>
+ * A cache is held by its class, so it goes away together with the class
+ * loader, e.g. when a bundle is updated. Next to the candidate methods for a
+ * name, the cache remembers which candidate won for a signature of argument
+ * types, if the outcome of the resolution only depends on these types.
+ */
+final class MethodCache
+{
+    private static final ClassValue<MethodCache> CACHES = new ClassValue<MethodCache>()
+    {
+        @Override
+        protected MethodCache computeValue(Class<?> type)
+        {
+            return new MethodCache(type);
+        }
+    };
+
+    /** Upper bound of the resolved signatures remembered per class. */
+    private static final int MAX_RESOLVED = 256;
+
+    private static final Object NONE = new Object();
+
+    private final Class<?> type;
+
+    private volatile Method[] methods;
+
+    private final ConcurrentMap<String, Candidate[]> candidates = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<Signature, Candidate> resolved = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, Object> fields = new ConcurrentHashMap<>();
+
+    private MethodCache(Class<?> type)
+    {
+        this.type = type;
+    }
+
+    static MethodCache forClass(Class<?> type)
+    {
+        return CACHES.get(type);
+    }
+
+    /**
+     * Get the public methods matching a command name, in the order of
+     * {@link Class#getMethods()}. These are the methods named like the
+     * command, optionally prefixed with get, set or is, and the main method.
+     * @param name the lower case command name
+     * @return the candidates, empty if there are none
+     */
+    Candidate[] getCandidates(String name)
+    {
+        Candidate[] result = candidates.get(name);
+        if (result == null)
+        {
+            String mname = Reflective.KEYWORDS.contains(name) ? "_" + name : name;
+            String get = "get" + name;
+            String is = "is" + name;
+            String set = "set" + name;
+
+            List<Candidate> list = new ArrayList<>();
+            for (Method m : getMethods())
+            {
+                String n = m.getName().toLowerCase(Locale.ENGLISH);
+                if (n.equals(mname) || n.equals(get) || n.equals(set)
+                    || n.equals(is) || n.equals(Reflective.MAIN))
+                {
+                    list.add(new Candidate(m, n.equals(Reflective.MAIN)));
+                }
+            }
+            result = list.toArray(new Candidate[list.size()]);
+            candidates.put(name, result);
+        }
+        return result;
+    }
+
+    private Method[] getMethods()
+    {
+        Method[] result = methods;
+        if (result == null)
+        {
+            methods = result = type.getMethods();
+        }
+        return result;
+    }
+
+    /**
+     * @param signature the signature of the arguments
+     * @return the candidate which won for this signature before, or {@code null}
+     */
+    Candidate getResolved(Signature signature)
+    {
+        return resolved.get(signature);
+    }
+
+    void putResolved(Signature signature, Candidate candidate)
+    {
+        if (resolved.size() >= MAX_RESOLVED)
+        {
+            resolved.clear();
+        }
+        resolved.put(signature, candidate);
+    }
+
+    /**
+     * @param name the lower case name
+     * @return the first public field with this name ignoring case, or {@code null}
+     */
+    Field getField(String name)
+    {
+        Object result = fields.get(name);
+        if (result == null)
+        {
+            result = NONE;
+            for (Field f : type.getFields())
+            {
+                if (f.getName().toLowerCase(Locale.ENGLISH).equals(name))
+                {
+                    result = f;
+                    break;
+                }
+            }
+            fields.put(name, result);
+        }
+        return result == NONE ? null : (Field) result;
+    }
+
+    /**
+     * A method which can be invoked for a command.
+     */
+    static final class Candidate
+    {
+        final Method method;
+        final Class<?>[] types;
+        final boolean main;
+        /** The {@link Parameter} annotations, in the order of the parameters. */
+        final Parameter[] parameters;
+        private volatile MethodHandle handle;
+
+        Candidate(Method method, boolean main)
+        {
+            this.method = method;
+            this.types = method.getParameterTypes();
+            this.main = main;
+
+            List<Parameter> list = new ArrayList<>();
+            for (Annotation[] as : method.getParameterAnnotations())
+            {
+                for (Annotation a : as)
+                {
+                    if (a instanceof Parameter)
+                    {
+                        list.add((Parameter) a);
+                    }
+                }
+            }
+            this.parameters = list.toArray(new Parameter[list.size()]);
+        }
+
+        /**
+         * Invoke the method like {@link Method#invoke(Object, Object...)}
+         * after making it accessible.
+         */
+        Object invoke(Object target, Object[] args) throws Exception
+        {
+            for (int i = 0; i < types.length; i++)
+            {
+                if (args[i] == null && types[i].isPrimitive())
+                {
+                    throw new IllegalArgumentException("Cannot pass null for "
+                        + types[i] + " parameter of " + method);
+                }
+            }
+            try
+            {
+                return (Object) getHandle().invokeExact(target, args);
+            }
+            catch (Exception e)
+            {
+                throw e;
+            }
+            catch (Throwable t)
+            {
+                throw new InvocationTargetException(t);
+            }
+        }
+
+        /**
+         * @return a handle of type (Object, Object[])Object
+         */
+        private MethodHandle getHandle() throws IllegalAccessException
+        {
+            MethodHandle mh = handle;
+            if (mh == null)
+            {
+                method.setAccessible(true);
+                mh = MethodHandles.lookup().unreflect(method).asFixedArity();
+                if (Modifier.isStatic(method.getModifiers()))
+                {
+                    mh = MethodHandles.dropArguments(mh, 0, Object.class);
+                }
+                mh = mh.asType(mh.type().generic()).asSpreader(Object[].class, types.length);
+                handle = mh;
+            }
+            return mh;
+        }
+    }
+
+    /**
+     * The name of a command with the types of its arguments. Two invocations
+     * with the same signature are resolved to the same method, if none of
+     * the candidates has {@link Parameter} annotations.
+     */
+    static final class Signature
+    {
+        private final Object[] parts;
+        private final int hash;
+
+        private Signature(Object[] parts)
+        {
+            this.parts = parts;
+            this.hash = Arrays.hashCode(parts);
+        }
+
+        /**
+         * @param name the lower case command name
+         * @param session the session
+         * @param args the arguments
+         * @return the signature
+         */
+        static Signature of(String name, Object session, List<Object> args)
+        {
+            Object[] parts = new Object[2 + args.size() * 2];
+            parts[0] = name;
+            parts[1] = session.getClass();
+            int i = 2;
+            for (Object arg : args)
+            {
+                if (arg instanceof Token)
+                {
+                    // tokens are tried both evaluated and as a string
+                    Object value = Closure.eval(arg);
+                    parts[i++] = value != null ? value.getClass() : null;
+                    parts[i++] = arg.toString().equals(value) ? Boolean.FALSE : Boolean.TRUE;
+                }
+                else
+                {
+                    parts[i++] = arg != null ? arg.getClass() : null;
+                    parts[i++] = null;
+                }
+            }
+            return new Signature(parts);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            return obj instanceof Signature && Arrays.equals(parts, ((Signature) obj).parts);
+        }
+    }
+}
@@ -0,0 +1,297 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.gogo.runtime;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Passes the result of a pipe stage to the next stage as objects, instead of
+ * formatting it as text and writing it to the byte stream between them.
+ * <p>
+ * The next stage asks for objects by calling {@link Pipe#readObjects()}. When
+ * the producing stage completes with a result, it waits until the consuming
+ * stage either asked for objects, started reading its input or completed. Only
+ * if objects were asked for, the elements of the result are passed one by one
+ * through a bounded queue. Otherwise the result is formatted as before.
+ * <p>
+ * As soon as the producing stage writes to its output, the output is passed
+ * as text, so that the consuming stage reads it while the producer is still
+ * running and the producer never blocks on a full pipe.
+ */
+final class ObjectPipe
+{
+    private static final int CAPACITY = 256;
+
+    private static final long POLL_MILLIS = 100;
+
+    private static final Object END = new Object();
+
+    private static final Object NULL = new Object();
+
+    private final BlockingQueue<Object> queue = new ArrayBlockingQueue<>(CAPACITY);
+
+    /** Counted down when the consumer asked for objects, read text or completed. */
+    private final CountDownLatch requested = new CountDownLatch(1);
+
+    /** Counted down when the producer decided between objects and text. */
+    private final CountDownLatch decided = new CountDownLatch(1);
+
+    private volatile boolean wanted;
+
+    private volatile boolean objects;
+
+    private volatile boolean consumerDone;
+
+    private final Object lock = new Object();
+
+    private Iterator<Object> iterator;
+
+    /**
+     * Called by the consumer to receive the result of the producer as objects.
+     * @return the objects, or {@code null} if the producer has no result and
+     * wrote its output as text
+     * @throws InterruptedException if interrupted while waiting for the producer
+     */
+    synchronized Iterator<Object> read() throws InterruptedException
+    {
+        if (iterator == null)
+        {
+            wanted = true;
+            requested.countDown();
+            decided.await();
+            if (!objects)
+            {
+                return null;
+            }
+            iterator = new QueueIterator();
+        }
+        return iterator;
+    }
+
+    /**
+     * Called by the producer when it completes with a result.
+     * @param result the result
+     * @return {@code true} if the result was passed as objects, {@code false}
+     * if it has to be written as text
+     * @throws InterruptedException if interrupted while waiting for the consumer
+     */
+    boolean write(Object result) throws InterruptedException
+    {
+        if (decided.getCount() == 0)
+        {
+            // The producer already wrote text
+            return false;
+        }
+        requested.await();
+        if (!decide(wanted && !consumerDone))
+        {
+            return false;
+        }
+
+        try
+        {
+            if (result instanceof Iterator)
+            {
+                put((Iterator<?>) result);
+            }
+            else if (result instanceof Iterable)
+            {
+                put(((Iterable<?>) result).iterator());
+            }
+            else if (result instanceof Object[])
+            {
+                put(Arrays.asList((Object[]) result).iterator());
+            }
+            else
+            {
+                put(Collections.singleton(result).iterator());
+            }
+        }
+        finally
+        {
+            put(END);
+        }
+        return true;
+    }
+
+    /**
+     * Decide between objects and text, unless already decided.
+     * @return {@code true} if objects are passed
+     */
+    private boolean decide(boolean asObjects)
+    {
+        synchronized (lock)
+        {
+            if (decided.getCount() > 0)
+            {
+                objects = asObjects;
+                decided.countDown();
+            }
+            return objects;
+        }
+    }
+
+    private void put(Iterator<?> it) throws InterruptedException
+    {
+        while (it.hasNext() && !consumerDone)
+        {
+            Object o = it.next();
+            put(o == null ? NULL : o);
+        }
+    }
+
+    private void put(Object o) throws InterruptedException
+    {
+        while (!consumerDone && !queue.offer(o, POLL_MILLIS, TimeUnit.MILLISECONDS))
+        {
+            // wait for the consumer
+        }
+    }
+
+    /**
+     * Called when the producer completes, with or without a result.
+     */
+    void producerDone()
+    {
+        decide(false);
+    }
+
+    /**
+     * Called when the consumer completes.
+     */
+    void consumerDone()
+    {
+        consumerDone = true;
+        requested.countDown();
+        queue.clear();
+    }
+
+    /**
+     * Wrap the input channel of the consumer, so that reading from it
+     * tells the producer to write text.
+     */
+    ReadableByteChannel signalOnRead(final ReadableByteChannel channel)
+    {
+        return new ReadableByteChannel()
+        {
+            @Override
+            public int read(ByteBuffer dst) throws IOException
+            {
+                requested.countDown();
+                return channel.read(dst);
+            }
+
+            @Override
+            public boolean isOpen()
+            {
+                return channel.isOpen();
+            }
+
+            @Override
+            public void close() throws IOException
+            {
+                channel.close();
+            }
+        };
+    }
+
+    /**
+     * Wrap the output channel of the producer, so that writing to it
+     * passes the output as text.
+     */
+    WritableByteChannel signalOnWrite(final WritableByteChannel channel)
+    {
+        return new WritableByteChannel()
+        {
+            @Override
+            public int write(ByteBuffer src) throws IOException
+            {
+                if (src.hasRemaining())
+                {
+                    decide(false);
+                }
+                return channel.write(src);
+            }
+
+            @Override
+            public boolean isOpen()
+            {
+                return channel.isOpen();
+            }
+
+            @Override
+            public void close() throws IOException
+            {
+                channel.close();
+            }
+        };
+    }
+
+    private class QueueIterator implements Iterator<Object>
+    {
+        private Object next;
+
+        @Override
+        public boolean hasNext()
+        {
+            if (next == null)
+            {
+                try
+                {
+                    next = queue.take();
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                    next = END;
+                }
+            }
+            return next != END;
+        }
+
+        @Override
+        public Object next()
+        {
+            if (!hasNext())
+            {
+                throw new NoSuchElementException();
+            }
+            Object o = next;
+            next = null;
+            return o == NULL ? null : o;
+        }
+
+        @Override
+        public void remove()
+        {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
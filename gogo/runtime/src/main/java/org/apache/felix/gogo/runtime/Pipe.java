@@ -39,6 +39,7 @@ import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.Callable;
@@ -125,6 +126,11 @@ public class Pipe implements Callable<Result>, Process
     PrintStream out;
     PrintStream err;
 
+    /** Objects from the previous stage of the pipeline, if any. */
+    ObjectPipe objectsIn;
+    /** Objects for the next stage of the pipeline, if any. */
+    ObjectPipe objectsOut;
+
     public Pipe(Closure closure, JobImpl job, Statement statement, Channel[] streams, boolean[] toclose, boolean endOfPipe)
     {
         this.closure = closure;
@@ -220,6 +226,23 @@ public class Pipe implements Callable<Result>, Process
         this.error = error;
     }
 
+    /**
+     * Read the result of the previous stage of the pipeline as objects,
+     * instead of reading its formatted output from the input stream.
+     * A collection, array or iterator is passed element by element, while
+     * the previous stage is still iterating it.
+     * This has to be called before reading from the input stream.
+     *
+     * @return the objects, or {@code null} if this is the first stage of the
+     * pipeline or the previous stage did not return a result. In that case,
+     * the output of the previous stage has to be read from the input stream.
+     * @throws InterruptedException if interrupted while waiting for the
+     * previous stage
+     */
+    public Iterator<Object> readObjects() throws InterruptedException {
+        return objectsIn != null ? objectsIn.read() : null;
+    }
+
     @Override
     public Result call() {
         Thread thread = Thread.currentThread();
@@ -421,7 +444,10 @@ public class Pipe implements Callable<Result>, Process
                     return new Result(error);
                 }
                 // We don't print the result if we're at the end of the pipe
-                if (result != null && !endOfPipe && !Boolean.FALSE.equals(closure.session().get(".FormatPipe")))
+                // or if the next stage reads it as objects
+                if (result != null && !endOfPipe
+                        && (objectsOut == null || !objectsOut.write(result))
+                        && !Boolean.FALSE.equals(closure.session().get(".FormatPipe")))
                 {
                     out.println(closure.session().format(result, Converter.INSPECT));
                 }
@@ -451,6 +477,14 @@ public class Pipe implements Callable<Result>, Process
         }
         finally
         {
+            if (objectsOut != null)
+            {
+                objectsOut.producerDone();
+            }
+            if (objectsIn != null)
+            {
+                objectsIn.consumerDone();
+            }
             if (out != null)
             {
                 out.flush();
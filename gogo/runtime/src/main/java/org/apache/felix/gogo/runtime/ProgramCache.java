@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.gogo.runtime;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.felix.gogo.runtime.Parser.Program;
+
+/**
+ * A least recently used cache of parsed programs by their source text.
+ * <p>
+ * Parsed programs are immutable, so a program can be executed by several
+ * closures and sessions at the same time. The tokens of a program carry their
+ * line and column, so a source which is a token of another source is cached by
+ * its text and position, and parsed from a copy of its text to not keep the
+ * enclosing source. Very long sources, usually whole scripts, are not cached.
+ * <p>
+ * Closures and sequences within a program are parsed with the program, so
+ * executing them again does not parse them again either.
+ */
+class ProgramCache
+{
+    static final int MAX_SOURCE_LENGTH = 8192;
+
+    private final Map<Key, Program> programs;
+
+    ProgramCache(final int capacity)
+    {
+        this.programs = new LinkedHashMap<Key, Program>(16, 0.75f, true)
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Program> eldest)
+            {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Get the parsed program for a source, parsing it if necessary.
+     * @param source the source
+     * @return the program
+     */
+    Program get(CharSequence source)
+    {
+        if (source.length() > MAX_SOURCE_LENGTH)
+        {
+            return new Parser(source).program();
+        }
+
+        Key key = new Key(source);
+        Program program;
+        synchronized (programs)
+        {
+            program = programs.get(key);
+        }
+        if (program == null)
+        {
+            char[] text = key.text.toCharArray();
+            program = new Parser(new Token(text, 0, text.length, key.line, key.column)).program();
+            synchronized (programs)
+            {
+                programs.put(key, program);
+            }
+        }
+        return program;
+    }
+
+    void clear()
+    {
+        synchronized (programs)
+        {
+            programs.clear();
+        }
+    }
+
+    /**
+     * The text of a source and the position it starts at.
+     */
+    private static final class Key
+    {
+        final String text;
+        final int line;
+        final int column;
+
+        Key(CharSequence source)
+        {
+            this.text = source.toString();
+            this.line = source instanceof Token ? ((Token) source).line() : 0;
+            this.column = source instanceof Token ? ((Token) source).column() : 0;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o)
+            {
+                return true;
+            }
+            if (!(o instanceof Key))
+            {
+                return false;
+            }
+            Key key = (Key) o;
+            return line == key.line && column == key.column && text.equals(key.text);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return (text.hashCode() * 31 + line) * 31 + column;
+        }
+    }
+}
@@ -18,11 +18,9 @@
  */
 package org.apache.felix.gogo.runtime;
 
-import java.lang.annotation.Annotation;
 import java.lang.reflect.Array;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -33,6 +31,7 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 
+import org.apache.felix.gogo.runtime.MethodCache.Candidate;
 import org.apache.felix.service.command.CommandSession;
 import org.apache.felix.service.command.Parameter;
 
@@ -63,115 +62,96 @@ public final class Reflective
     public static Object invoke(CommandSession session, Object target, String name,
         List<Object> args) throws Exception
     {
-        Method[] methods = target.getClass().getMethods();
         name = name.toLowerCase(Locale.ENGLISH);
 
-        String org = name;
-        String get = "get" + name;
-        String is = "is" + name;
-        String set = "set" + name;
+        MethodCache cache = MethodCache.forClass(target.getClass());
+        Candidate[] candidates = cache.getCandidates(name);
 
-        if (KEYWORDS.contains(name))
+        if (target instanceof Class<?>)
         {
-            name = "_" + name;
+            MethodCache staticCache = MethodCache.forClass((Class<?>) target);
+            Candidate[] staticCandidates = staticCache.getCandidates(name);
+            if (staticCandidates.length > 0)
+            {
+                cache = staticCache;
+                candidates = staticCandidates;
+            }
         }
 
-        if (target instanceof Class<?>)
+        // The winner only depends on the types of the arguments, unless
+        // parameters are picked by their names.
+        MethodCache.Signature signature = null;
+        if (!hasParameterAnnotations(candidates))
         {
-            Method[] staticMethods = ((Class<?>) target).getMethods();
-            for (Method m : staticMethods)
+            signature = MethodCache.Signature.of(name, session, args);
+            Candidate resolved = cache.getResolved(signature);
+            if (resolved != null)
             {
-                String mname = m.getName().toLowerCase(Locale.ENGLISH);
-                if (mname.equals(name) || mname.equals(get) || mname.equals(set)
-                    || mname.equals(is) || mname.equals(MAIN))
+                Object[] parms = new Object[resolved.types.length];
+                if (coerce(session, target, resolved, name, parms, args) == 0)
                 {
-                    methods = staticMethods;
-                    break;
+                    return invoke(resolved, target, parms);
                 }
             }
         }
 
-        Method bestMethod = null;
+        Candidate bestMethod = null;
         Object[] bestArgs = null;
         int lowestMatch = Integer.MAX_VALUE;
         ArrayList<Class<?>[]> possibleTypes = new ArrayList<>();
 
-        for (Method m : methods)
+        for (Candidate m : candidates)
         {
-            String mname = m.getName().toLowerCase(Locale.ENGLISH);
-            if (mname.equals(name) || mname.equals(get) || mname.equals(set)
-                || mname.equals(is) || mname.equals(MAIN))
-            {
-                Class<?>[] types = m.getParameterTypes();
-                ArrayList<Object> xargs = new ArrayList<>(args);
-
-                // pass command name as argv[0] to main, so it can handle
-                // multiple commands
-                if (mname.equals(MAIN))
-                {
-                    xargs.add(0, org);
-                }
+            Object[] parms = new Object[m.types.length];
+            int match = coerce(session, target, m, name, parms, args);
 
-                Object[] parms = new Object[types.length];
-                int match = coerce(session, target, m, types, parms, xargs);
-
-                if (match < 0)
+            if (match < 0)
+            {
+                // coerce failed
+                possibleTypes.add(m.types);
+            }
+            else
+            {
+                if (match < lowestMatch)
                 {
-                    // coerce failed
-                    possibleTypes.add(types);
+                    lowestMatch = match;
+                    bestMethod = m;
+                    bestArgs = parms;
                 }
-                else
-                {
-                    if (match < lowestMatch)
-                    {
-                        lowestMatch = match;
-                        bestMethod = m;
-                        bestArgs = parms;
-                    }
 
-                    if (match == 0)
-                        break; // can't get better score
-                }
+                if (match == 0)
+                    break; // can't get better score
             }
         }
 
         if (bestMethod != null)
         {
-            bestMethod.setAccessible(true);
-            try
-            {
-                return bestMethod.invoke(target, bestArgs);
-            }
-            catch (InvocationTargetException e)
+            if (lowestMatch == 0 && signature != null)
             {
-                Throwable cause = e.getCause();
-                if (cause instanceof Exception)
-                {
-                    throw (Exception) cause;
-                }
-                throw e;
+                cache.putResolved(signature, bestMethod);
             }
+            return invoke(bestMethod, target, bestArgs);
         }
         else
         {
+            if (KEYWORDS.contains(name))
+            {
+                name = "_" + name;
+            }
             if (args.isEmpty())
             {
-                Field[] fields;
+                Field f;
                 if (target instanceof Class<?>)
                 {
-                    fields = ((Class<?>) target).getFields();
+                    f = MethodCache.forClass((Class<?>) target).getField(name);
                 }
                 else
-                    {
-                    fields = target.getClass().getFields();
+                {
+                    f = MethodCache.forClass(target.getClass()).getField(name);
                 }
-                for (Field f : fields)
+                if (f != null)
                 {
-                    String mname = f.getName().toLowerCase(Locale.ENGLISH);
-                    if (mname.equals(name))
-                    {
-                        return f.get(target);
-                    }
+                    return f.get(target);
                 }
             }
             ArrayList<String> list = new ArrayList<>();
@@ -206,52 +186,91 @@ public final class Reflective
         }
     }
 
+    private static Object invoke(Candidate m, Object target, Object[] args) throws Exception
+    {
+        try
+        {
+            return m.invoke(target, args);
+        }
+        catch (InvocationTargetException e)
+        {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception)
+            {
+                throw (Exception) cause;
+            }
+            throw e;
+        }
+    }
+
+    private static boolean hasParameterAnnotations(Candidate[] candidates)
+    {
+        for (Candidate m : candidates)
+        {
+            if (m.parameters.length > 0)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Coerce the arguments for a candidate method.
+     * @return the score, see {@link #coerce(CommandSession, Object, Candidate, Object[], List)}
+     */
+    private static int coerce(CommandSession session, Object target, Candidate m,
+        String name, Object[] out, List<Object> args)
+    {
+        ArrayList<Object> xargs = new ArrayList<>(args);
+
+        // pass command name as argv[0] to main, so it can handle
+        // multiple commands
+        if (m.main)
+        {
+            xargs.add(0, name);
+        }
+
+        return coerce(session, target, m, out, xargs);
+    }
+
     /**
      * transform name/value parameters into ordered argument list.
      * params: --param2, value2, --flag1, arg3
      * args: true, value2, arg3
      * @return new ordered list of args.
      */
-    private static List<Object> transformParameters(Method method, List<Object> in)
+    private static List<Object> transformParameters(Candidate method, List<Object> in)
     {
-        Annotation[][] pas = method.getParameterAnnotations();
         ArrayList<Object> out = new ArrayList<>();
         ArrayList<Object> parms = new ArrayList<>(in);
 
-        for (Annotation as[] : pas)
+        for (Parameter p : method.parameters)
         {
-            for (Annotation a : as)
+            int i = -1;
+            for (String name : p.names())
             {
-                if (a instanceof Parameter)
-                {
-                    int i = -1;
-                    Parameter p = (Parameter) a;
-                    for (String name : p.names())
-                    {
-                        i = parms.indexOf(name);
-                        if (i >= 0)
-                            break;
-                    }
-
-                    if (i >= 0)
-                    {
-                        // parameter present
-                        parms.remove(i);
-                        Object value = p.presentValue();
-                        if (Parameter.UNSPECIFIED.equals(value))
-                        {
-                            if (i >= parms.size())
-                                return null; // missing parameter, so try other methods
-                            value = parms.remove(i);
-                        }
-                        out.add(value);
-                    }
-                    else
-                    {
-                        out.add(p.absentValue());
-                    }
+                i = parms.indexOf(name);
+                if (i >= 0)
+                    break;
+            }
 
+            if (i >= 0)
+            {
+                // parameter present
+                parms.remove(i);
+                Object value = p.presentValue();
+                if (Parameter.UNSPECIFIED.equals(value))
+                {
+                    if (i >= parms.size())
+                        return null; // missing parameter, so try other methods
+                    value = parms.remove(i);
                 }
+                out.add(value);
+            }
+            else
+            {
+                out.add(p.absentValue());
             }
         }
 
@@ -268,9 +287,10 @@ public final class Reflective
      * @return -1 if arguments can't be coerced; 0 if no coercion was necessary;
      *          > 0 if coercion was needed.
      */
-    private static int coerce(CommandSession session, Object target, Method m,
-        Class<?> types[], Object out[], List<Object> in)
+    private static int coerce(CommandSession session, Object target, Candidate m,
+        Object out[], List<Object> in)
     {
+        Class<?>[] types = m.types;
         List<Object> cnvIn = new ArrayList<>();
         List<Object> cnvIn2 = new ArrayList<>();
         int different = 0;
@@ -347,7 +367,7 @@ public final class Reflective
         return res;
     }
 
-    private static int docoerce(CommandSession session, Object target, Method m,
+    private static int docoerce(CommandSession session, Object target, Candidate m,
                               Class<?> types[], Object out[], List<Object> in)
     {
         int[] convert = { 0 };
@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.gogo.runtime;
+
+import org.apache.felix.gogo.runtime.Parser.Program;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class ProgramCacheTest
+{
+    @Test
+    public void testSameSourceParsedOnce()
+    {
+        ProgramCache cache = new ProgramCache(16);
+        Program program = cache.get("echo a; echo b");
+        assertSame(program, cache.get("echo a; echo b"));
+        assertSame(program, cache.get(new Token("echo a; echo b")));
+        assertEquals("echo a; echo b", program.toString());
+    }
+
+    @Test
+    public void testTokenCachedByTextAndPosition()
+    {
+        ProgramCache cache = new ProgramCache(16);
+        Token script = new Token("echo a\nfoo { echo b }\nbar { echo b }");
+        Token first = script.subSequence(13, 19);
+        Token second = script.subSequence(28, 34);
+        assertEquals("echo b", first.toString());
+        assertEquals("echo b", second.toString());
+
+        Program program = cache.get(first);
+        assertSame(program, cache.get(script.subSequence(13, 19)));
+        assertEquals(first.line(), program.line());
+        assertEquals(first.column(), program.column());
+        // the cached program does not keep the enclosing source
+        assertNotSame(script.ch, program.ch);
+
+        Program other = cache.get(second);
+        assertNotSame(program, other);
+        assertEquals(2, other.line());
+        assertEquals(second.column(), other.column());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEvicted()
+    {
+        ProgramCache cache = new ProgramCache(2);
+        Program a = cache.get("echo a");
+        Program b = cache.get("echo b");
+        assertSame(a, cache.get("echo a"));
+        cache.get("echo c");
+        assertSame(a, cache.get("echo a"));
+        assertNotSame(b, cache.get("echo b"));
+    }
+}
@@ -68,7 +68,41 @@ public class ReflectiveTest {
                 Collections.<Object>singletonList(conv));
     }
 
+    @Test
+    public void testRepeatedResolution() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            assertEquals("string", invoke("over", Arrays.<Object>asList("a")));
+            assertEquals("long", invoke("over", Arrays.<Object>asList(5L)));
+            assertEquals("long", invoke("over", Arrays.<Object>asList(new Token("5"))));
+            assertEquals("string", invoke("over", Arrays.<Object>asList(new Token("abc"))));
+        }
+    }
+
+    @Test
+    public void testExceptionIsUnwrapped() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            try {
+                invoke("fail", Collections.emptyList());
+                Assert.fail("Expected an exception");
+            } catch (IllegalStateException e) {
+                assertEquals("failed", e.getMessage());
+            }
+        }
+    }
+
     static class Target {
+        public String over(String s) {
+            return "string";
+        }
+
+        public String over(long l) {
+            return "long";
+        }
+
+        public Object fail() {
+            throw new IllegalStateException("failed");
+        }
+
         public Object test1(CommandSession session, Object[] argv) {
             return argv;
         }
@@ -24,6 +24,7 @@ import java.io.InputStreamReader;
 import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 import java.util.regex.Pattern;
 
@@ -155,6 +156,84 @@ public class TestParser extends AbstractParserTest
         assertEquals("defghi", c.execute("(echoout abc; echoout def; echoout ghi)|grep 'def|ghi'|capture"));
     }
 
+    @Test
+    public void testObjectPipe() throws Exception
+    {
+        Context c = new Context();
+        c.addCommand("echo", this);
+        c.addCommand("capture", this);
+        c.addCommand("echoout", this);
+        c.addCommand("numbers", this);
+        c.addCommand("sum", this);
+
+        // the list is passed element by element
+        assertEquals(500500L, c.execute("numbers 1000 | sum"));
+        // a single result
+        assertEquals(42L, c.execute("echo 42 | sum"));
+        // no result, so the output is read as text
+        assertEquals(5L, c.execute("echoout 5 | sum"));
+        // the consumer reads text, so the result is formatted
+        assertEquals("123", c.execute("numbers 3 | capture"));
+        // the captured text is passed as a single object
+        assertEquals(123L, c.execute("numbers 3 | capture | sum"));
+    }
+
+    @Test
+    public void testObjectPipeLargeOutput() throws Exception
+    {
+        Context c = new Context();
+        c.addCommand("ones", this);
+        c.addCommand("sum", this);
+
+        // more output than the pipe buffer, written before completing
+        assertEquals(5000L, c.execute("ones 5000 | sum"));
+    }
+
+    public void ones(int n)
+    {
+        for (int i = 0; i < n; i++)
+        {
+            System.out.println("1");
+        }
+    }
+
+    public List<Integer> numbers(int n)
+    {
+        List<Integer> list = new ArrayList<>();
+        for (int i = 1; i <= n; i++)
+        {
+            list.add(i);
+        }
+        return list;
+    }
+
+    public long sum() throws Exception
+    {
+        long sum = 0;
+        Iterator<Object> objects = Pipe.getCurrentPipe().readObjects();
+        if (objects != null)
+        {
+            while (objects.hasNext())
+            {
+                sum += Long.parseLong(String.valueOf(objects.next()));
+            }
+        }
+        else
+        {
+            BufferedReader rdr = new BufferedReader(new InputStreamReader(System.in));
+            String s = rdr.readLine();
+            while (s != null)
+            {
+                for (char ch : s.trim().toCharArray())
+                {
+                    sum += ch - '0';
+                }
+                s = rdr.readLine();
+            }
+        }
+        return sum;
+    }
+
     @Test
     public void testAssignment() throws Exception
     {
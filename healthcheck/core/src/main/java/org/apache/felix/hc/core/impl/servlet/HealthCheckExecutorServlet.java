@@ -33,12 +33,16 @@ import javax.servlet.http.HttpServletResponse;
 
 import org.apache.commons.lang3.StringEscapeUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
 import org.apache.felix.hc.api.Result;
 import org.apache.felix.hc.api.execution.HealthCheckExecutionOptions;
 import org.apache.felix.hc.api.execution.HealthCheckExecutionResult;
 import org.apache.felix.hc.api.execution.HealthCheckExecutor;
 import org.apache.felix.hc.api.execution.HealthCheckSelector;
 import org.apache.felix.hc.core.impl.executor.CombinedExecutionResult;
+import org.apache.felix.hc.core.impl.executor.HealthCheckExecutorThreadPool;
+import org.apache.felix.hc.core.impl.scheduling.AsyncIntervalJob;
+import org.apache.felix.hc.core.impl.scheduling.AsyncJob;
 import org.osgi.service.component.ComponentContext;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
@@ -64,6 +68,11 @@ import org.slf4j.LoggerFactory;
  * For omitted health check status values the next best code will be used (e.g. for httpStatus=CRITICAL:503 a result WARN will return 200,
  * CRITICAL 503 and HEALTH_CHECK_ERROR also 503). By default all requests answer with an http status of 200.
  * <p>
+ * If a snapshot interval is configured, the results are executed in the background and requests are answered from the latest
+ * snapshot without executing any checks. This applies to the default selection from the start, other selections of tags and
+ * names are executed once on the first request for them. Snapshot responses carry an ETag, requests with a matching If-None-Match header are
+ * answered with 304 and may wait for a change using the parameter waitForChange.
+ * <p>
  * Useful in combination with load balancers. */
 @Component(configurationPolicy = ConfigurationPolicy.REQUIRE)
 @Designate(ocd = HealthCheckExecutorServletConfiguration.class, factory=true)
@@ -106,8 +115,11 @@ public class HealthCheckExecutorServlet extends HttpServlet {
     static final Param PARAM_JSONP_CALLBACK = new Param("callback",
             "name of the JSONP callback function to use, defaults to " + JSONP_CALLBACK_DEFAULT);
 
+    static final Param PARAM_WAIT_FOR_CHANGE = new Param("waitForChange",
+            "(msec) if results are served from snapshots and the If-None-Match header matches the current ETag, waits up to this period for a change before answering 304");
+
     static final Param[] PARAM_LIST = { PARAM_TAGS, PARAM_NAMES, PARAM_FORMAT, PARAM_HTTP_STATUS, PARAM_COMBINE_TAGS_WITH_OR,
-            PARAM_FORCE_INSTANT_EXECUTION, PARAM_OVERRIDE_GLOBAL_TIMEOUT, PARAM_INCLUDE_DEBUG, PARAM_JSONP_CALLBACK };
+            PARAM_FORCE_INSTANT_EXECUTION, PARAM_OVERRIDE_GLOBAL_TIMEOUT, PARAM_INCLUDE_DEBUG, PARAM_JSONP_CALLBACK, PARAM_WAIT_FOR_CHANGE };
 
     static final String FORMAT_HTML = "html";
     static final String FORMAT_JSON = "json";
@@ -120,6 +132,8 @@ public class HealthCheckExecutorServlet extends HttpServlet {
     private static final String CONTENT_TYPE_JSON = "application/json";
     private static final String CONTENT_TYPE_JSONP = "application/javascript";
     private static final String STATUS_HEADER_NAME = "X-Health";
+    private static final String ETAG_HEADER_NAME = "ETag";
+    private static final String IF_NONE_MATCH_HEADER_NAME = "If-None-Match";
 
     private static final String CACHE_CONTROL_KEY = "Cache-control";
     private static final String CACHE_CONTROL_VALUE = "no-cache";
@@ -139,6 +153,10 @@ public class HealthCheckExecutorServlet extends HttpServlet {
     private String[] servletDefaultTags;
     private String defaultFormat;
     private boolean defaultCombineTagsWithOr;
+    private long snapshotMaxWaitInMs;
+
+    volatile HealthCheckResultSnapshots resultSnapshots;
+    private AsyncJob snapshotJob;
     
     @Reference
     private HttpService httpService;
@@ -146,6 +164,9 @@ public class HealthCheckExecutorServlet extends HttpServlet {
     @Reference
     HealthCheckExecutor healthCheckExecutor;
 
+    @Reference
+    HealthCheckExecutorThreadPool healthCheckExecutorThreadPool;
+
     @Reference
     ResultHtmlSerializer htmlSerializer;
 
@@ -183,11 +204,23 @@ public class HealthCheckExecutorServlet extends HttpServlet {
         
         this.corsAccessControlAllowOrigin = configuration.cors_accessControlAllowOrigin();
         LOG.info("corsAccessControlAllowOrigin={}", corsAccessControlAllowOrigin);
+
+        this.snapshotMaxWaitInMs = configuration.snapshotMaxWaitInMs();
+        LOG.info("snapshotMaxWaitInMs={}", snapshotMaxWaitInMs);
         
         if (disabled) {
             LOG.info("Health Check Servlet is disabled by configuration");
             return;
         }
+
+        long snapshotIntervalInSec = configuration.snapshotIntervalInSec();
+        LOG.info("snapshotIntervalInSec={}", snapshotIntervalInSec);
+        if (snapshotIntervalInSec > 0) {
+            this.resultSnapshots = new HealthCheckResultSnapshots(healthCheckExecutor, snapshotIntervalInSec);
+            this.resultSnapshots.pin(getDefaultSelector(), getDefaultExecutionOptions());
+            this.snapshotJob = new AsyncIntervalJob(resultSnapshots, healthCheckExecutorThreadPool, snapshotIntervalInSec);
+            this.snapshotJob.schedule();
+        }
         
         Map<String, HttpServlet> servletsToRegister = new LinkedHashMap<String, HttpServlet>();
         servletsToRegister.put(this.servletPath, this);
@@ -211,6 +244,15 @@ public class HealthCheckExecutorServlet extends HttpServlet {
 
     @Deactivate
     public void deactivate(final ComponentContext componentContext) {
+        if (this.snapshotJob != null) {
+            this.snapshotJob.unschedule();
+            this.snapshotJob = null;
+        }
+        if (this.resultSnapshots != null) {
+            // do not keep requests waiting for a change that will not come
+            this.resultSnapshots.close();
+            this.resultSnapshots = null;
+        }
         if (disabled || this.servletPaths == null) {
             return;
         }
@@ -278,6 +320,15 @@ public class HealthCheckExecutorServlet extends HttpServlet {
             executionOptions.setOverrideGlobalTimeout((int) servletDefaultTimeout);
         }
 
+        HealthCheckResultSnapshots snapshots = this.resultSnapshots;
+        if (snapshots != null && !executionOptions.isForceInstantExecution()) {
+            HealthCheckResultSnapshots.Snapshot snapshot = snapshots.getSnapshot(selector, executionOptions);
+            if (snapshot != null) {
+                sendSnapshotResponse(snapshot, request, response, format, statusMapping, includeDebug);
+                return;
+            }
+        }
+
         List<HealthCheckExecutionResult> executionResults = this.healthCheckExecutor.execute(selector, executionOptions);
 
         CombinedExecutionResult combinedExecutionResult = new CombinedExecutionResult(executionResults);
@@ -300,9 +351,85 @@ public class HealthCheckExecutorServlet extends HttpServlet {
         } else if (StringUtils.endsWith(format, FORMAT_TXT)) {
             sendTxtResponse(overallResult, response, StringUtils.equals(format, FORMAT_VERBOSE_TXT), executionResults, includeDebug);
         } else {
-            response.setContentType("text/plain");
-            response.getWriter().println("Invalid format " + format + " - supported formats: html|json|jsonp|txt|verbose.txt");
+            sendInvalidFormatResponse(format, response);
+        }
+    }
+
+    /** Answers from the latest snapshot without executing any checks. The serialization of a snapshot is reused by all
+     * requests for the same format, so requests are answered in constant time. */
+    private void sendSnapshotResponse(final HealthCheckResultSnapshots.Snapshot snapshot, final HttpServletRequest request,
+            final HttpServletResponse response, final String format, final Map<Result.Status, Integer> statusMapping,
+            final boolean includeDebug) throws IOException {
+        String ifNoneMatch = request.getHeader(IF_NONE_MATCH_HEADER_NAME);
+        HealthCheckResultSnapshots.State state = snapshot.getState();
+
+        long waitForChange = Math.min(NumberUtils.toLong(request.getParameter(PARAM_WAIT_FOR_CHANGE.name)), snapshotMaxWaitInMs);
+        if (waitForChange > 0 && state.etag.equals(ifNoneMatch)) {
+            try {
+                state = snapshot.awaitChange(state.etag, waitForChange);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                state = snapshot.getState();
+            }
+        }
+        Result overallResult = state.overallResult;
+
+        sendNoCacheHeaders(response);
+        sendCorsHeaders(response);
+        response.setHeader(ETAG_HEADER_NAME, state.etag);
+        response.setHeader(STATUS_HEADER_NAME, overallResult.getStatus().toString());
+
+        if (state.etag.equals(ifNoneMatch)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        response.setStatus(statusMapping.get(overallResult.getStatus()));
+
+        String body;
+        if (FORMAT_HTML.equals(format)) {
+            response.setContentType(CONTENT_TYPE_HTML);
+            body = state.getSerialization(format + includeDebug,
+                    s -> htmlSerializer.serialize(s.overallResult, s.executionResults, getHtmlHelpText(), includeDebug));
+        } else if (FORMAT_JSON.equals(format)) {
+            response.setContentType(CONTENT_TYPE_JSON);
+            body = state.getSerialization(format + includeDebug,
+                    s -> jsonSerializer.serialize(s.overallResult, s.executionResults, null, includeDebug));
+        } else if (FORMAT_JSONP.equals(format)) {
+            // the callback is chosen by the client, do not keep its serialization
+            String jsonpCallback = StringUtils.defaultIfEmpty(request.getParameter(PARAM_JSONP_CALLBACK.name), JSONP_CALLBACK_DEFAULT);
+            response.setContentType(CONTENT_TYPE_JSONP);
+            body = jsonSerializer.serialize(overallResult, state.executionResults, jsonpCallback, includeDebug);
+        } else if (FORMAT_VERBOSE_TXT.equals(format)) {
+            response.setContentType(CONTENT_TYPE_TXT);
+            body = state.getSerialization(format + includeDebug,
+                    s -> verboseTxtSerializer.serialize(s.overallResult, s.executionResults, includeDebug));
+        } else if (FORMAT_TXT.equals(format)) {
+            response.setContentType(CONTENT_TYPE_TXT);
+            body = state.getSerialization(format, s -> txtSerializer.serialize(s.overallResult));
+        } else {
+            sendInvalidFormatResponse(format, response);
+            return;
+        }
+        response.setCharacterEncoding("UTF-8");
+        response.getWriter().write(body);
+    }
+
+    private void sendInvalidFormatResponse(final String format, final HttpServletResponse response) throws IOException {
+        response.setContentType("text/plain");
+        response.getWriter().println("Invalid format " + format + " - supported formats: html|json|jsonp|txt|verbose.txt");
+    }
+
+    HealthCheckSelector getDefaultSelector() {
+        return HealthCheckSelector.empty().withTags(servletDefaultTags).withNames("");
+    }
+
+    HealthCheckExecutionOptions getDefaultExecutionOptions() {
+        HealthCheckExecutionOptions executionOptions = new HealthCheckExecutionOptions();
+        executionOptions.setCombineTagsWithOr(defaultCombineTagsWithOr);
+        if (servletDefaultTimeout > -1) {
+            executionOptions.setOverrideGlobalTimeout((int) servletDefaultTimeout);
         }
+        return executionOptions;
     }
 
     @Override
@@ -50,6 +50,12 @@ import org.osgi.service.metatype.annotations.ObjectClassDefinition;
     @AttributeDefinition(name = "CORS Access-Control-Allow-Origin", description = "Sets the Access-Control-Allow-Origin CORS header. If blank no header is sent.")
     String cors_accessControlAllowOrigin() default "*";
 
+    @AttributeDefinition(name = "Snapshot Interval (Sec)", description = "If greater than 0, the health checks are executed in the background in this interval and requests are answered from the latest result snapshot without executing checks. Selections other than the default tags are executed once on their first request. Requests with parameter 'forceInstantExecution' are always executed directly.")
+    long snapshotIntervalInSec() default 0;
+
+    @AttributeDefinition(name = "Snapshot Max Wait (ms)", description = "Maximum time a request with a matching If-None-Match header may wait for a changed snapshot (parameter 'waitForChange')")
+    long snapshotMaxWaitInMs() default 30000;
+
     @AttributeDefinition
     String webconsole_configurationFactory_nameHint() default "{servletPath} default format:{format} default tags:{tags} ";
 
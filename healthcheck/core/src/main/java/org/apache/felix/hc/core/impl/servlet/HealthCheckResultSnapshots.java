@@ -0,0 +1,234 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The SF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.apache.felix.hc.core.impl.servlet;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.apache.felix.hc.api.Result;
+import org.apache.felix.hc.api.execution.HealthCheckExecutionOptions;
+import org.apache.felix.hc.api.execution.HealthCheckExecutionResult;
+import org.apache.felix.hc.api.execution.HealthCheckExecutor;
+import org.apache.felix.hc.api.execution.HealthCheckSelector;
+import org.apache.felix.hc.core.impl.executor.CombinedExecutionResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/** Keeps a continuously updated result snapshot for each selection of health checks requested from the
+ * {@link HealthCheckExecutorServlet}, so requests can be answered without executing any checks.
+ *
+ * The snapshots are refreshed by {@link #run()}, which is scheduled by the servlet. Snapshots that have not been requested
+ * for a number of refreshes are dropped again, except the one for the default selection of the servlet.
+ *
+ * The default selection is pinned and refreshed in the background from the start. Any other selection is executed on the
+ * thread of the first request for it (concurrent first requests wait for that execution), only subsequent requests are
+ * answered from the snapshot. */
+class HealthCheckResultSnapshots implements Runnable {
+    private static final Logger LOG = LoggerFactory.getLogger(HealthCheckResultSnapshots.class);
+
+    /** Maximum number of distinct selections kept, further selections are executed directly. */
+    static final int MAX_SNAPSHOTS = 100;
+
+    /** Number of refreshes without request after which a snapshot is dropped. */
+    static final int MAX_IDLE_REFRESHES = 10;
+
+    /** Maximum number of requests waiting for a change at the same time. */
+    static final int MAX_WAITING_REQUESTS = 50;
+
+    private final HealthCheckExecutor healthCheckExecutor;
+    private final long refreshIntervalInMs;
+    private final Map<String, Snapshot> snapshots = new ConcurrentHashMap<>();
+    private final Semaphore waitingRequests = new Semaphore(MAX_WAITING_REQUESTS);
+    private volatile boolean closed;
+
+    // distinguishes the ETags of different activations
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+
+    HealthCheckResultSnapshots(HealthCheckExecutor healthCheckExecutor, long refreshIntervalInSec) {
+        this.healthCheckExecutor = healthCheckExecutor;
+        this.refreshIntervalInMs = TimeUnit.SECONDS.toMillis(refreshIntervalInSec);
+    }
+
+    /** Keeps a snapshot of the given selection even if it is not requested. The checks are executed with the next refresh. */
+    void pin(HealthCheckSelector selector, HealthCheckExecutionOptions options) {
+        snapshots.put(getKey(selector, options), new Snapshot(selector, options, true));
+    }
+
+    /** Returns the snapshot of the given selection. If the selection was not requested before, the checks are executed on the
+     * calling thread.
+     *
+     * @return the snapshot or null if too many selections are kept already */
+    Snapshot getSnapshot(HealthCheckSelector selector, HealthCheckExecutionOptions options) {
+        String key = getKey(selector, options);
+        Snapshot snapshot = snapshots.get(key);
+        if (snapshot == null) {
+            if (snapshots.size() >= MAX_SNAPSHOTS) {
+                return null;
+            }
+            snapshot = snapshots.computeIfAbsent(key, k -> new Snapshot(selector, options, false));
+        }
+        snapshot.lastRequested = System.currentTimeMillis();
+        snapshot.ensureInitialized();
+        return snapshot;
+    }
+
+    private static String getKey(HealthCheckSelector selector, HealthCheckExecutionOptions options) {
+        return Arrays.toString(selector.tags()) + Arrays.toString(selector.names()) + options.isCombineTagsWithOr() + ":"
+                + options.getOverrideGlobalTimeout();
+    }
+
+    /** Refreshes all snapshots and drops the ones that have not been requested recently.
+     *
+     * The snapshots are refreshed one after the other on the thread of the interval job, the health check executor runs the
+     * checks of each selection in parallel already. */
+    @Override
+    public void run() {
+        long idleLimit = System.currentTimeMillis() - MAX_IDLE_REFRESHES * refreshIntervalInMs;
+        snapshots.entrySet().removeIf(entry -> !entry.getValue().pinned && entry.getValue().lastRequested < idleLimit);
+        for (Snapshot snapshot : snapshots.values()) {
+            try {
+                snapshot.refresh();
+            } catch (Exception e) {
+                LOG.error("Exception while refreshing health check result snapshot for " + snapshot.selector + ": " + e, e);
+            }
+        }
+        LOG.trace("Refreshed {} health check result snapshots", snapshots.size());
+    }
+
+    /** Answers the requests waiting for a change with the current state, further requests no longer wait. */
+    void close() {
+        closed = true;
+        for (Snapshot snapshot : snapshots.values()) {
+            synchronized (snapshot) {
+                snapshot.notifyAll();
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "[HealthCheckResultSnapshots snapshots=" + snapshots.keySet() + "]";
+    }
+
+    /** The continuously updated result of one selection of health checks. */
+    class Snapshot {
+        private final HealthCheckSelector selector;
+        private final HealthCheckExecutionOptions options;
+        private final boolean pinned;
+        private final Object initLock = new Object();
+
+        private volatile State state;
+        private long version = 0;
+        volatile long lastRequested;
+
+        Snapshot(HealthCheckSelector selector, HealthCheckExecutionOptions options, boolean pinned) {
+            this.selector = selector;
+            this.options = options;
+            this.pinned = pinned;
+        }
+
+        State getState() {
+            return state;
+        }
+
+        private void ensureInitialized() {
+            if (state == null) {
+                // concurrent first requests execute the checks only once
+                synchronized (initLock) {
+                    if (state == null) {
+                        refresh();
+                    }
+                }
+            }
+        }
+
+        void refresh() {
+            List<HealthCheckExecutionResult> executionResults = healthCheckExecutor.execute(selector, options);
+            update(executionResults);
+        }
+
+        synchronized void update(List<HealthCheckExecutionResult> executionResults) {
+            String fingerprint = getFingerprint(executionResults);
+            if (state == null || !state.fingerprint.equals(fingerprint)) {
+                version++;
+                LOG.debug("Health check result snapshot for {} changed to version {}", selector, version);
+            }
+            state = new State(executionResults, fingerprint, "\"" + epoch + "-" + Long.toString(version, 36) + "\"");
+            notifyAll();
+        }
+
+        /** Waits until the snapshot no longer has the given ETag, until the timeout expires or until the snapshots are closed.
+         *
+         * @return the current state */
+        State awaitChange(String etag, long timeoutInMs) throws InterruptedException {
+            if (!waitingRequests.tryAcquire()) {
+                // do not let probes pile up threads, answer immediately
+                return state;
+            }
+            try {
+                long deadline = System.currentTimeMillis() + timeoutInMs;
+                synchronized (this) {
+                    long remaining = timeoutInMs;
+                    while (!closed && state.etag.equals(etag) && remaining > 0) {
+                        wait(remaining);
+                        remaining = deadline - System.currentTimeMillis();
+                    }
+                    return state;
+                }
+            } finally {
+                waitingRequests.release();
+            }
+        }
+
+        /** Fingerprint of the status and log of each result, excluding timings that change on every execution. */
+        private String getFingerprint(List<HealthCheckExecutionResult> executionResults) {
+            StringBuilder sb = new StringBuilder();
+            for (HealthCheckExecutionResult executionResult : executionResults) {
+                sb.append(executionResult.getHealthCheckMetadata().getServiceId()).append('=')
+                        .append(executionResult.getHealthCheckResult()).append(';');
+            }
+            return sb.toString();
+        }
+    }
+
+    /** An immutable state of a snapshot, caching its serializations. */
+    static class State {
+        final List<HealthCheckExecutionResult> executionResults;
+        final Result overallResult;
+        final String etag;
+        private final String fingerprint;
+        private final Map<String, String> serializations = new ConcurrentHashMap<>();
+
+        State(List<HealthCheckExecutionResult> executionResults, String fingerprint, String etag) {
+            this.executionResults = executionResults;
+            this.overallResult = new CombinedExecutionResult(executionResults).getHealthCheckResult();
+            this.fingerprint = fingerprint;
+            this.etag = etag;
+        }
+
+        /** Returns the serialization of this state in the given variant, serializing it on first use only. */
+        String getSerialization(String variant, Function<State, String> serializer) {
+            return serializations.computeIfAbsent(variant, v -> serializer.apply(this));
+        }
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The SF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.apache.felix.hc.core.impl.servlet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.felix.hc.api.Result;
+import org.apache.felix.hc.api.execution.HealthCheckExecutionOptions;
+import org.apache.felix.hc.api.execution.HealthCheckExecutionResult;
+import org.apache.felix.hc.api.execution.HealthCheckExecutor;
+import org.apache.felix.hc.api.execution.HealthCheckMetadata;
+import org.apache.felix.hc.api.execution.HealthCheckSelector;
+import org.apache.felix.hc.core.impl.executor.ExecutionResult;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.osgi.framework.Constants;
+import org.osgi.framework.ServiceReference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/** Measures the latency of concurrent probes against slow health checks, executing the checks for each request compared to
+ * serving them from result snapshots. */
+public class HealthCheckExecutorServletLoadTest {
+    private static final Logger LOG = LoggerFactory.getLogger(HealthCheckExecutorServletLoadTest.class);
+
+    private static final long CHECK_DURATION_MS = 300;
+    private static final int THREADS = 8;
+    private static final int PROBES_PER_THREAD = 5;
+
+    @InjectMocks
+    private HealthCheckExecutorServlet healthCheckExecutorServlet = new HealthCheckExecutorServlet();
+
+    @Mock
+    private HealthCheckExecutor healthCheckExecutor;
+
+    @Mock
+    private ResultTxtSerializer txtSerializer;
+
+    @Mock
+    private ServiceReference hcServiceRef;
+
+    @Mock
+    private HealthCheckExecutorServletConfiguration healthCheckExecutorServletConfig;
+
+    private volatile Result.Status checkStatus = Result.Status.OK;
+
+    @Before
+    public void setup() {
+        initMocks(this);
+
+        doReturn(500L).when(hcServiceRef).getProperty(Constants.SERVICE_ID);
+        doReturn(true).when(healthCheckExecutorServletConfig).disabled();
+        doReturn("OK:200,CRITICAL:503").when(healthCheckExecutorServletConfig).httpStatusMapping();
+        doReturn(new String[0]).when(healthCheckExecutorServletConfig).tags();
+        doReturn(HealthCheckExecutorServlet.FORMAT_TXT).when(healthCheckExecutorServletConfig).format();
+        doReturn(10000L).when(healthCheckExecutorServletConfig).snapshotMaxWaitInMs();
+        healthCheckExecutorServlet.activate(healthCheckExecutorServletConfig);
+
+        doReturn("status").when(txtSerializer).serialize(any(Result.class));
+        doAnswer(invocation -> {
+            Thread.sleep(CHECK_DURATION_MS);
+            return Arrays.asList((HealthCheckExecutionResult) new ExecutionResult(new HealthCheckMetadata(hcServiceRef),
+                    new Result(checkStatus, checkStatus.name()), CHECK_DURATION_MS));
+        }).when(healthCheckExecutor).execute(any(HealthCheckSelector.class), any(HealthCheckExecutionOptions.class));
+    }
+
+    @Test
+    public void testProbeLatencyWithSlowChecks() throws Exception {
+        long[] directLatencies = probe();
+        report("direct execution", directLatencies);
+
+        // as on activation, the default selection is pinned and refreshed by the interval job before the first request
+        HealthCheckResultSnapshots snapshots = new HealthCheckResultSnapshots(healthCheckExecutor, 1);
+        snapshots.pin(healthCheckExecutorServlet.getDefaultSelector(), healthCheckExecutorServlet.getDefaultExecutionOptions());
+        snapshots.run();
+        healthCheckExecutorServlet.resultSnapshots = snapshots;
+        clearInvocations(healthCheckExecutor);
+        long[] snapshotLatencies = probe();
+        report("snapshots", snapshotLatencies);
+
+        verify(healthCheckExecutor, never()).execute(any(HealthCheckSelector.class), any(HealthCheckExecutionOptions.class));
+        assertTrue(percentile(directLatencies, 50) >= TimeUnit.MILLISECONDS.toNanos(CHECK_DURATION_MS));
+        assertTrue("max latency of snapshots should not depend on check duration",
+                snapshotLatencies[snapshotLatencies.length - 1] < TimeUnit.MILLISECONDS.toNanos(CHECK_DURATION_MS) / 3);
+    }
+
+    @Test
+    public void testSnapshotETag() throws Exception {
+        HealthCheckResultSnapshots snapshots = new HealthCheckResultSnapshots(healthCheckExecutor, 1);
+        healthCheckExecutorServlet.resultSnapshots = snapshots;
+
+        HttpServletResponse response = mock(HttpServletResponse.class);
+        doReturn(mock(PrintWriter.class)).when(response).getWriter();
+        healthCheckExecutorServlet.doGet(mock(HttpServletRequest.class), response);
+        String etag = getETag(response);
+        verify(response).setStatus(200);
+
+        // unchanged results keep the ETag
+        snapshots.run();
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        doReturn(etag).when(request).getHeader("If-None-Match");
+        response = mock(HttpServletResponse.class);
+        healthCheckExecutorServlet.doGet(request, response);
+        verify(response).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        verify(response, never()).getWriter();
+
+        // a waiting request is answered as soon as the results change
+        checkStatus = Result.Status.CRITICAL;
+        doReturn("10000").when(request).getParameter(HealthCheckExecutorServlet.PARAM_WAIT_FOR_CHANGE.name);
+        final HttpServletResponse waitingResponse = mock(HttpServletResponse.class);
+        doReturn(mock(PrintWriter.class)).when(waitingResponse).getWriter();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<?> waitingRequest = executor.submit(() -> {
+            healthCheckExecutorServlet.doGet(request, waitingResponse);
+            return null;
+        });
+        snapshots.run();
+        waitingRequest.get(5, TimeUnit.SECONDS);
+        executor.shutdown();
+        verify(waitingResponse).setStatus(503);
+        assertNotEquals(etag, getETag(waitingResponse));
+    }
+
+    @Test
+    public void testWaitingRequestAnsweredOnDeactivate() throws Exception {
+        HealthCheckResultSnapshots snapshots = new HealthCheckResultSnapshots(healthCheckExecutor, 1);
+        healthCheckExecutorServlet.resultSnapshots = snapshots;
+
+        HttpServletResponse response = mock(HttpServletResponse.class);
+        doReturn(mock(PrintWriter.class)).when(response).getWriter();
+        healthCheckExecutorServlet.doGet(mock(HttpServletRequest.class), response);
+        String etag = getETag(response);
+
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        doReturn(etag).when(request).getHeader("If-None-Match");
+        doReturn("10000").when(request).getParameter(HealthCheckExecutorServlet.PARAM_WAIT_FOR_CHANGE.name);
+        final HttpServletResponse waitingResponse = mock(HttpServletResponse.class);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<?> waitingRequest = executor.submit(() -> {
+            healthCheckExecutorServlet.doGet(request, waitingResponse);
+            return null;
+        });
+        Thread.sleep(100);
+        healthCheckExecutorServlet.deactivate(null);
+        waitingRequest.get(5, TimeUnit.SECONDS);
+        executor.shutdown();
+        verify(waitingResponse).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+    }
+
+    /** Sends PROBES_PER_THREAD requests from each of THREADS threads.
+     *
+     * @return the sorted latencies in nanoseconds */
+    private long[] probe() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Callable<List<Long>>> tasks = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            tasks.add(() -> {
+                List<Long> latencies = new ArrayList<>();
+                for (int j = 0; j < PROBES_PER_THREAD; j++) {
+                    HttpServletRequest request = mock(HttpServletRequest.class);
+                    HttpServletResponse response = mock(HttpServletResponse.class);
+                    doReturn(mock(PrintWriter.class)).when(response).getWriter();
+                    long start = System.nanoTime();
+                    healthCheckExecutorServlet.doGet(request, response);
+                    latencies.add(System.nanoTime() - start);
+                    verify(response).setStatus(200);
+                }
+                return latencies;
+            });
+        }
+        List<Long> latencies = new ArrayList<>();
+        for (Future<List<Long>> future : executor.invokeAll(tasks)) {
+            latencies.addAll(future.get());
+        }
+        executor.shutdown();
+        assertEquals(THREADS * PROBES_PER_THREAD, latencies.size());
+        Collections.sort(latencies);
+        return latencies.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private String getETag(HttpServletResponse response) {
+        ArgumentCaptor<String> etag = ArgumentCaptor.forClass(String.class);
+        verify(response).setHeader(eq("ETag"), etag.capture());
+        return etag.getValue();
+    }
+
+    private static long percentile(long[] sortedLatencies, int percentile) {
+        return sortedLatencies[Math.min(sortedLatencies.length - 1, sortedLatencies.length * percentile / 100)];
+    }
+
+    private static void report(String mode, long[] sortedLatencies) {
+        LOG.debug("Probe latency with {} ({} probes on {} threads, checks take {}ms): p50={}us p99={}us", mode, sortedLatencies.length,
+                THREADS, CHECK_DURATION_MS, TimeUnit.NANOSECONDS.toMicros(percentile(sortedLatencies, 50)),
+                TimeUnit.NANOSECONDS.toMicros(percentile(sortedLatencies, 99)));
+    }
+}
@@ -18,6 +18,8 @@ package org.apache.felix.http.base.internal;
 
 import java.util.Dictionary;
 
+import org.apache.felix.http.base.internal.dispatch.RequestMetrics;
+import org.apache.felix.http.base.internal.service.ResourceCache;
 import org.jetbrains.annotations.NotNull;
 
 public class HttpConfig {
@@ -30,6 +32,30 @@ public class HttpConfig {
 
     public static final boolean DEFAULT_UNIQUE_SESSION_ID = true;
 
+    public static final String PROP_RESOURCE_CACHE_SIZE = "org.apache.felix.http.resource.cache.size";
+
+    public static final long DEFAULT_RESOURCE_CACHE_SIZE = 4 * 1024 * 1024;
+
+    public static final String PROP_RESOURCE_CACHE_MAX_ENTRY_SIZE = "org.apache.felix.http.resource.cache.maxentrysize";
+
+    public static final long DEFAULT_RESOURCE_CACHE_MAX_ENTRY_SIZE = 128 * 1024;
+
+    public static final String PROP_METRICS_ENABLE = "org.apache.felix.http.metrics.enable";
+
+    public static final boolean DEFAULT_METRICS_ENABLE = false;
+
+    public static final String PROP_SLOW_REQUEST_THRESHOLD = "org.apache.felix.http.metrics.slowrequest.threshold";
+
+    public static final long DEFAULT_SLOW_REQUEST_THRESHOLD = 1000;
+
+    public static final String PROP_SLOW_REQUEST_SAMPLING = "org.apache.felix.http.metrics.slowrequest.sampling";
+
+    public static final long DEFAULT_SLOW_REQUEST_SAMPLING = 1;
+
+    private final ResourceCache resourceCache = new ResourceCache(DEFAULT_RESOURCE_CACHE_SIZE, DEFAULT_RESOURCE_CACHE_MAX_ENTRY_SIZE);
+
+    private final RequestMetrics requestMetrics = new RequestMetrics();
+
     private volatile boolean uniqueSessionId;
 
     private volatile boolean invalidateContainerSession;
@@ -50,9 +76,30 @@ public class HttpConfig {
         this.invalidateContainerSession = invalidateContainerSession;
     }
 
+    /**
+     * The cache shared by all resource registrations
+     * @return The resource cache
+     */
+    public @NotNull ResourceCache getResourceCache() {
+        return resourceCache;
+    }
+
+    /**
+     * The request metrics settings
+     * @return The request metrics
+     */
+    public @NotNull RequestMetrics getRequestMetrics() {
+        return requestMetrics;
+    }
+
     public void configure(@NotNull final Dictionary<String, Object> props) {
         this.setUniqueSessionId(this.getBooleanProperty(props, PROP_UNIQUE_SESSION_ID, DEFAULT_UNIQUE_SESSION_ID));
         this.setInvalidateContainerSession(this.getBooleanProperty(props, PROP_INVALIDATE_SESSION, DEFAULT_INVALIDATE_SESSION));
+        this.resourceCache.configure(this.getLongProperty(props, PROP_RESOURCE_CACHE_SIZE, DEFAULT_RESOURCE_CACHE_SIZE),
+                this.getLongProperty(props, PROP_RESOURCE_CACHE_MAX_ENTRY_SIZE, DEFAULT_RESOURCE_CACHE_MAX_ENTRY_SIZE));
+        this.requestMetrics.configure(this.getBooleanProperty(props, PROP_METRICS_ENABLE, DEFAULT_METRICS_ENABLE),
+                this.getLongProperty(props, PROP_SLOW_REQUEST_THRESHOLD, DEFAULT_SLOW_REQUEST_THRESHOLD),
+                this.getLongProperty(props, PROP_SLOW_REQUEST_SAMPLING, DEFAULT_SLOW_REQUEST_SAMPLING));
     }
 
 
@@ -67,4 +114,22 @@ public class HttpConfig {
 
         return defValue;
     }
+
+    private long getLongProperty(final Dictionary<String, Object> props, final String name, final long defValue)
+    {
+        final Object v = props.get(name);
+        if ( v != null )
+        {
+            try
+            {
+                return Long.parseLong(String.valueOf(v).trim());
+            }
+            catch ( final NumberFormatException nfe )
+            {
+                // ignore and use default
+            }
+        }
+
+        return defValue;
+    }
 }
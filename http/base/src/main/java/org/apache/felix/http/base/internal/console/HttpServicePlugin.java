@@ -37,6 +37,9 @@ import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import org.apache.felix.http.base.internal.runtime.dto.HandlerMetricsDTO;
+import org.apache.felix.http.base.internal.runtime.dto.RequestMetricsDTO;
+import org.apache.felix.http.base.internal.service.HttpServiceRuntimeImpl;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.Constants;
 import org.osgi.framework.InvalidSyntaxException;
@@ -233,10 +236,166 @@ public class HttpServicePlugin extends HttpServlet
         printFailedResourceDetails(pw, dto);
         printFailedErrorPageDetails(pw, dto);
         printFailedListenerDetails(pw, dto);
+        printRequestMetrics(pw);
 
         pw.println("<br/>");
     }
 
+    /**
+     * Get the request metrics if they are collected
+     * @return The metrics or {@code null}
+     */
+    private RequestMetricsDTO getRequestMetricsDTO()
+    {
+        if ( this.runtime instanceof HttpServiceRuntimeImpl )
+        {
+            final RequestMetricsDTO dto = ((HttpServiceRuntimeImpl)this.runtime).getRequestMetricsDTO();
+            if ( dto.enabled )
+            {
+                return dto;
+            }
+        }
+        return null;
+    }
+
+    private String getHistogramAsString(final long[] bounds, final long[] histogram)
+    {
+        final StringBuilder sb = new StringBuilder();
+        for(int i = 0; i < histogram.length; i++)
+        {
+            if ( histogram[i] > 0 )
+            {
+                if ( sb.length() > 0 )
+                {
+                    sb.append(", ");
+                }
+                if ( i < bounds.length )
+                {
+                    sb.append("< ").append(bounds[i]);
+                }
+                else
+                {
+                    sb.append(">= ").append(bounds[bounds.length - 1]);
+                }
+                sb.append(" ms : ").append(histogram[i]);
+            }
+        }
+        return sb.toString();
+    }
+
+    private String[] getMetricsColumns(final String type, final HandlerMetricsDTO dto, final long[] bounds)
+    {
+        return new String[] {
+            type,
+            String.valueOf(dto.serviceId),
+            dto.name,
+            String.valueOf(dto.requestCount),
+            String.valueOf(dto.errorCount),
+            String.valueOf(dto.activeRequests),
+            dto.requestCount == 0 ? "-" : String.format("%.3f", dto.totalTime / 1000.0 / dto.requestCount),
+            String.format("%.3f", dto.maxTime / 1000.0),
+            getHistogramAsString(bounds, dto.histogram)
+        };
+    }
+
+    private void printRequestMetrics(final PrintWriter pw)
+    {
+        final RequestMetricsDTO dto = getRequestMetricsDTO();
+        if ( dto == null )
+        {
+            return;
+        }
+        pw.print("<p class=\"statline ui-state-highlight\">${Request Metrics}");
+        if ( dto.slowRequestThreshold > 0 )
+        {
+            pw.print(" - ${Slow Requests} (&gt;= ");
+            pw.print(String.valueOf(dto.slowRequestThreshold));
+            pw.print(" ms) : ");
+            pw.print(String.valueOf(dto.slowRequestCount));
+        }
+        pw.println("</p>");
+
+        pw.println("<table class=\"nicetable\">");
+        pw.println("<thead><tr>");
+        pw.println("<th class=\"header\">${Type}</th>");
+        pw.println("<th class=\"header\">${service.id}</th>");
+        pw.println("<th class=\"header\">${Name}</th>");
+        pw.println("<th class=\"header\">${Requests}</th>");
+        pw.println("<th class=\"header\">${Errors}</th>");
+        pw.println("<th class=\"header\">${Active}</th>");
+        pw.println("<th class=\"header\">${Mean (ms)}</th>");
+        pw.println("<th class=\"header\">${Max (ms)}</th>");
+        pw.println("<th class=\"header\">${Histogram}</th>");
+        pw.println("</tr></thead>");
+        boolean odd = true;
+        for(final HandlerMetricsDTO m : dto.preprocessorMetricsDTOs)
+        {
+            odd = printRow(pw, odd, getMetricsColumns("${preprocessor}", m, dto.histogramBounds));
+        }
+        for(final HandlerMetricsDTO m : dto.filterMetricsDTOs)
+        {
+            odd = printRow(pw, odd, getMetricsColumns("${filter}", m, dto.histogramBounds));
+        }
+        for(final HandlerMetricsDTO m : dto.servletMetricsDTOs)
+        {
+            odd = printRow(pw, odd, getMetricsColumns("${servlet}", m, dto.histogramBounds));
+        }
+        pw.println("</table>");
+        pw.println("<br/>");
+    }
+
+    private void printRequestMetricsConfiguration(final PrintWriter pw)
+    {
+        final RequestMetricsDTO dto = getRequestMetricsDTO();
+        if ( dto == null )
+        {
+            return;
+        }
+        pw.println("Request Metrics");
+        pw.println("---------------");
+        if ( dto.slowRequestThreshold > 0 )
+        {
+            pw.print("Slow Requests (>= ");
+            pw.print(String.valueOf(dto.slowRequestThreshold));
+            pw.print(" ms) : ");
+            pw.println(String.valueOf(dto.slowRequestCount));
+        }
+        pw.println();
+        printMetricsConfiguration(pw, "Preprocessor", dto.preprocessorMetricsDTOs, dto.histogramBounds);
+        printMetricsConfiguration(pw, "Filter", dto.filterMetricsDTOs, dto.histogramBounds);
+        printMetricsConfiguration(pw, "Servlet", dto.servletMetricsDTOs, dto.histogramBounds);
+    }
+
+    private void printMetricsConfiguration(final PrintWriter pw, final String type, final HandlerMetricsDTO[] dtos, final long[] bounds)
+    {
+        for(final HandlerMetricsDTO m : dtos)
+        {
+            final String[] columns = getMetricsColumns(type, m, bounds);
+            pw.print("Type : ");
+            pw.println(columns[0]);
+            pw.print("service.id : ");
+            pw.println(columns[1]);
+            if ( m.name != null )
+            {
+                pw.print("Name : ");
+                pw.println(columns[2]);
+            }
+            pw.print("Requests : ");
+            pw.println(columns[3]);
+            pw.print("Errors : ");
+            pw.println(columns[4]);
+            pw.print("Active : ");
+            pw.println(columns[5]);
+            pw.print("Mean (ms) : ");
+            pw.println(columns[6]);
+            pw.print("Max (ms) : ");
+            pw.println(columns[7]);
+            pw.print("Histogram : ");
+            pw.println(columns[8]);
+            pw.println();
+        }
+    }
+
     private void printForm(final PrintWriter pw, final String value, final String msg, final String path)
     {
         pw.println("<table class='content' cellpadding='0' cellspacing='0' width='100%'>");
@@ -1333,6 +1492,7 @@ public class HttpServicePlugin extends HttpServlet
             }
             pw.println();
         }
+        printRequestMetricsConfiguration(pw);
         pw.println();
     }
 
@@ -135,6 +135,9 @@ public final class Dispatcher
 		                pr.handler.getMultipartConfig(),
 		                pr.handler.getMultipartSecurityContext());
 		        final FilterHandler[] filterHandlers = handlerRegistry.getFilters(pr, req.getDispatcherType(), pr.requestURI);
+		        final RequestMetrics metrics = handlerRegistry.getConfig().getRequestMetrics();
+		        final InvocationChain filterChain = new InvocationChain(pr.handler, filterHandlers, metrics);
+		        final long start = System.nanoTime();
 
 		        try
 		        {
@@ -142,7 +145,6 @@ public final class Dispatcher
 		            {
 		                servletContext.getServletRequestListener().requestInitialized(new ServletRequestEvent(servletContext, wrappedRequest));
 		            }
-		            final FilterChain filterChain = new InvocationChain(pr.handler, filterHandlers);
 		            filterChain.doFilter(wrappedRequest, wrappedResponse);
 
 		        }
@@ -160,6 +162,10 @@ public final class Dispatcher
 		            {
 		                servletContext.getServletRequestListener().requestDestroyed(new ServletRequestEvent(servletContext, wrappedRequest));
 		            }
+		            if ( metrics.isSlowRequestLogEnabled() )
+		            {
+		                metrics.requestCompleted(req, filterChain, System.nanoTime() - start);
+		            }
 		        }			}
 
 			@Override
@@ -20,6 +20,7 @@ import static javax.servlet.http.HttpServletResponse.SC_FORBIDDEN;
 import static javax.servlet.http.HttpServletResponse.SC_OK;
 
 import java.io.IOException;
+import java.util.concurrent.TimeUnit;
 
 import org.jetbrains.annotations.NotNull;
 import javax.servlet.FilterChain;
@@ -30,19 +31,38 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import org.apache.felix.http.base.internal.handler.FilterHandler;
+import org.apache.felix.http.base.internal.handler.HandlerStatistics;
 import org.apache.felix.http.base.internal.handler.ServletHandler;
+import org.jetbrains.annotations.Nullable;
 
 public class InvocationChain implements FilterChain
 {
     private final ServletHandler servletHandler;
     private final FilterHandler[] filterHandlers;
 
+    /** Duration of each element in nanoseconds, only used with metrics */
+    private final long[] durations;
+
     private int index = -1;
 
     public InvocationChain(@NotNull final ServletHandler servletHandler, @NotNull final FilterHandler[] filterHandlers)
+    {
+        this(servletHandler, filterHandlers, null);
+    }
+
+    /**
+     * Create a new chain
+     * @param servletHandler The servlet handler
+     * @param filterHandlers The filter handlers
+     * @param metrics If not {@code null} each invocation is recorded in the statistics of the handler
+     */
+    public InvocationChain(@NotNull final ServletHandler servletHandler,
+            @NotNull final FilterHandler[] filterHandlers,
+            @Nullable final RequestMetrics metrics)
     {
         this.filterHandlers = filterHandlers;
         this.servletHandler = servletHandler;
+        this.durations = metrics != null && metrics.isEnabled() ? new long[filterHandlers.length + 1] : null;
     }
 
     @Override
@@ -74,19 +94,40 @@ public class InvocationChain implements FilterChain
         }
         this.index++;
 
+        final int current = this.index;
+        final HandlerStatistics statistics;
+        if ( this.durations == null )
+        {
+            statistics = null;
+        }
+        else if ( current < this.filterHandlers.length )
+        {
+            statistics = this.filterHandlers[current].getStatistics();
+        }
+        else
+        {
+            statistics = this.servletHandler.getStatistics();
+        }
+        final long start = statistics != null ? statistics.start() : 0;
+        boolean error = true;
         try
         {
-            if (this.index < this.filterHandlers.length)
+            if (current < this.filterHandlers.length)
             {
-                this.filterHandlers[this.index].handle(req, res, this);
+                this.filterHandlers[current].handle(req, res, this);
             }
             else
             {
                 // Last entry in the chain...
                 this.servletHandler.handle(req, res);
             }
+            error = res instanceof HttpServletResponse && ((HttpServletResponse) res).getStatus() >= 500;
         }
         finally {
+            if ( statistics != null )
+            {
+                this.durations[current] = statistics.end(start, error);
+            }
             if ( callFinish )
             {
                 final HttpServletRequest hReq = (HttpServletRequest) req;
@@ -96,4 +137,30 @@ public class InvocationChain implements FilterChain
             }
         }
     }
+
+    /**
+     * Append the time spent in the elements of the chain, if metrics are enabled
+     * @param sb The string builder
+     */
+    void appendTimings(@NotNull final StringBuilder sb)
+    {
+        if ( this.durations != null )
+        {
+            for(int i = 0; i <= this.index && i < this.durations.length; i++)
+            {
+                sb.append(i == 0 ? ": " : ", ");
+                if ( i < this.filterHandlers.length )
+                {
+                    sb.append("filter '").append(this.filterHandlers[i].getName()).append("' (service.id=");
+                    sb.append(this.filterHandlers[i].getFilterInfo().getServiceId());
+                }
+                else
+                {
+                    sb.append("servlet '").append(this.servletHandler.getName()).append("' (service.id=");
+                    sb.append(this.servletHandler.getServletInfo().getServiceId());
+                }
+                sb.append(") ").append(TimeUnit.NANOSECONDS.toMillis(this.durations[i])).append(" ms");
+            }
+        }
+    }
 }
@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.felix.http.base.internal.dispatch;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.apache.felix.http.base.internal.handler.HandlerStatistics;
+import org.apache.felix.http.base.internal.logger.SystemLogger;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Settings of the request metrics and the slow request log.
+ *
+ * If enabled, each invocation of a servlet, filter or preprocessor is recorded
+ * in the {@link HandlerStatistics} of its handler. Requests taking at least the
+ * slow request threshold are counted, and every n-th of them is logged together
+ * with the time spent in each element of its invocation chain.
+ */
+public final class RequestMetrics
+{
+    private volatile boolean enabled;
+
+    private volatile long slowRequestThreshold;
+
+    private volatile long slowRequestSampling = 1;
+
+    private final AtomicLong slowRequestCount = new AtomicLong();
+
+    /**
+     * Update the settings
+     * @param enabled Whether metrics are collected
+     * @param slowRequestThreshold The threshold in milliseconds, {@code 0} disables the slow request log
+     * @param slowRequestSampling Log every n-th slow request
+     */
+    public void configure(final boolean enabled, final long slowRequestThreshold, final long slowRequestSampling)
+    {
+        this.enabled = enabled;
+        this.slowRequestThreshold = TimeUnit.MILLISECONDS.toNanos(Math.max(0, slowRequestThreshold));
+        this.slowRequestSampling = Math.max(1, slowRequestSampling);
+    }
+
+    /**
+     * @return {@code true} if metrics are collected
+     */
+    public boolean isEnabled()
+    {
+        return this.enabled;
+    }
+
+    /**
+     * @return {@code true} if slow requests are logged
+     */
+    public boolean isSlowRequestLogEnabled()
+    {
+        return this.enabled && this.slowRequestThreshold > 0;
+    }
+
+    /**
+     * @return The slow request threshold in milliseconds, {@code 0} if disabled
+     */
+    public long getSlowRequestThreshold()
+    {
+        return TimeUnit.NANOSECONDS.toMillis(this.slowRequestThreshold);
+    }
+
+    /**
+     * @return The number of requests exceeding the slow request threshold
+     */
+    public long getSlowRequestCount()
+    {
+        return this.slowRequestCount.get();
+    }
+
+    /**
+     * Check a completed request against the slow request threshold
+     * @param request The request
+     * @param chain The invocation chain
+     * @param duration The duration of the request in nanoseconds
+     */
+    void requestCompleted(@NotNull final HttpServletRequest request,
+            @NotNull final InvocationChain chain,
+            final long duration)
+    {
+        final long threshold = this.slowRequestThreshold;
+        if ( threshold > 0 && duration >= threshold )
+        {
+            final long count = this.slowRequestCount.incrementAndGet();
+            if ( (count - 1) % this.slowRequestSampling == 0 )
+            {
+                final StringBuilder sb = new StringBuilder("Slow request ");
+                sb.append(request.getMethod()).append(' ').append(request.getRequestURI());
+                sb.append(" took ").append(TimeUnit.NANOSECONDS.toMillis(duration)).append(" ms");
+                chain.appendTimings(sb);
+                SystemLogger.warning(sb.toString(), null);
+            }
+        }
+    }
+}
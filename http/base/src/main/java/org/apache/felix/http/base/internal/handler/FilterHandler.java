@@ -46,6 +46,8 @@ public abstract class FilterHandler implements Comparable<FilterHandler>
 
     protected volatile int useCount;
 
+    private final HandlerStatistics statistics = new HandlerStatistics();
+
     public FilterHandler(final long contextServiceId,
             final ExtServletContext context,
             final FilterInfo filterInfo)
@@ -86,6 +88,14 @@ public abstract class FilterHandler implements Comparable<FilterHandler>
         return this.filterInfo;
     }
 
+    /**
+     * @return The request statistics of this handler
+     */
+    public HandlerStatistics getStatistics()
+    {
+        return this.statistics;
+    }
+
     public String getName()
     {
         String name = this.filterInfo.getName();
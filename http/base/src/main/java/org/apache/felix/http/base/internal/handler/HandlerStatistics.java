@@ -0,0 +1,156 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.felix.http.base.internal.handler;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Request statistics of a single servlet, filter or preprocessor.
+ *
+ * The time of an invocation includes the time spent in the remaining
+ * chain, for a filter this is the time of all following filters and the servlet.
+ */
+public final class HandlerStatistics
+{
+    /**
+     * Upper bounds of the histogram buckets in milliseconds. The last bucket
+     * of the histogram counts all invocations above the highest bound.
+     */
+    private static final long[] BUCKET_BOUNDS = new long[] {1, 2, 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000};
+
+    private final AtomicLong count = new AtomicLong();
+
+    private final AtomicLong errorCount = new AtomicLong();
+
+    private final AtomicInteger activeCount = new AtomicInteger();
+
+    private final AtomicLong totalTime = new AtomicLong();
+
+    private final AtomicLong maxTime = new AtomicLong();
+
+    private final AtomicLongArray histogram = new AtomicLongArray(BUCKET_BOUNDS.length + 1);
+
+    /**
+     * Mark the start of an invocation
+     * @return The start time to pass to {@link #end(long, boolean)}
+     */
+    public long start()
+    {
+        this.activeCount.incrementAndGet();
+        return System.nanoTime();
+    }
+
+    /**
+     * Mark the end of an invocation
+     * @param start The value returned by {@link #start()}
+     * @param error Whether the invocation failed
+     * @return The duration of the invocation in nanoseconds
+     */
+    public long end(final long start, final boolean error)
+    {
+        final long duration = System.nanoTime() - start;
+        this.activeCount.decrementAndGet();
+        this.count.incrementAndGet();
+        if ( error )
+        {
+            this.errorCount.incrementAndGet();
+        }
+        this.totalTime.addAndGet(duration);
+        long max = this.maxTime.get();
+        while ( duration > max && !this.maxTime.compareAndSet(max, duration) )
+        {
+            max = this.maxTime.get();
+        }
+        this.histogram.incrementAndGet(getBucket(duration));
+        return duration;
+    }
+
+    private static int getBucket(final long duration)
+    {
+        final long millis = TimeUnit.NANOSECONDS.toMillis(duration);
+        int i = 0;
+        while ( i < BUCKET_BOUNDS.length && millis >= BUCKET_BOUNDS[i] )
+        {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * @return The upper bounds of the histogram buckets in milliseconds
+     */
+    public static long[] getHistogramBounds()
+    {
+        return BUCKET_BOUNDS.clone();
+    }
+
+    /**
+     * @return The number of completed invocations
+     */
+    public long getCount()
+    {
+        return this.count.get();
+    }
+
+    /**
+     * @return The number of invocations which threw an exception or resulted in a server error
+     */
+    public long getErrorCount()
+    {
+        return this.errorCount.get();
+    }
+
+    /**
+     * @return The number of invocations in progress
+     */
+    public int getActiveCount()
+    {
+        return this.activeCount.get();
+    }
+
+    /**
+     * @return The total time of all completed invocations in nanoseconds
+     */
+    public long getTotalTime()
+    {
+        return this.totalTime.get();
+    }
+
+    /**
+     * @return The time of the longest invocation in nanoseconds
+     */
+    public long getMaxTime()
+    {
+        return this.maxTime.get();
+    }
+
+    /**
+     * @return The number of invocations per histogram bucket, see {@link #getHistogramBounds()}
+     */
+    public long[] getHistogram()
+    {
+        final long[] result = new long[this.histogram.length()];
+        for(int i = 0; i < result.length; i++)
+        {
+            result[i] = this.histogram.get(i);
+        }
+        return result;
+    }
+}
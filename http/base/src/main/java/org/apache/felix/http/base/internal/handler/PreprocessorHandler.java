@@ -46,6 +46,8 @@ public class PreprocessorHandler implements Comparable<PreprocessorHandler>
 
     private volatile Preprocessor preprocessor;
 
+    private final HandlerStatistics statistics = new HandlerStatistics();
+
     public PreprocessorHandler(final BundleContext bundleContext,
             final ServletContext context,
             final PreprocessorInfo info)
@@ -71,6 +73,14 @@ public class PreprocessorHandler implements Comparable<PreprocessorHandler>
         return this.info;
     }
 
+    /**
+     * @return The request statistics of this handler
+     */
+    public HandlerStatistics getStatistics()
+    {
+        return this.statistics;
+    }
+
     public int init()
     {
         final ServiceReference<Preprocessor> serviceReference = this.info.getServiceReference();
@@ -53,6 +53,8 @@ public abstract class ServletHandler implements Comparable<ServletHandler>
 
     private final MultipartConfig mpConfig;
 
+    private final HandlerStatistics statistics = new HandlerStatistics();
+
     public ServletHandler(final long contextServiceId,
             final ExtServletContext context,
             final ServletInfo servletInfo)
@@ -133,6 +135,14 @@ public abstract class ServletHandler implements Comparable<ServletHandler>
         return this.servletInfo;
     }
 
+    /**
+     * @return The request statistics of this handler
+     */
+    public HandlerStatistics getStatistics()
+    {
+        return this.statistics;
+    }
+
     public String getName()
     {
         String name = this.servletInfo.getName();
@@ -17,6 +17,7 @@
 package org.apache.felix.http.base.internal.registry;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
@@ -40,9 +41,17 @@ import org.osgi.service.http.runtime.dto.ServletContextDTO;
  */
 public final class FilterRegistry
 {
+    private static final FilterHandler[] EMPTY_FILTER_HANDLER = new FilterHandler[0];
+
+    /** Maximum number of filter chains cached per dispatcher type. */
+    private static final int MAX_CACHED_CHAINS = 64;
+
     /** List of all filter registrations. These are sorted by the status objects. */
     private volatile List<FilterRegistrationStatus> filters = Collections.emptyList();
 
+    /** The filter chains per dispatcher type for the current filters, indexed by the ordinal of the type. */
+    private volatile DispatcherChains[] chains = createChains(this.filters);
+
     /**
      * The status object keeps track of the registration status of a filter and holds
      * the resolvers to match against a uri.
@@ -125,7 +134,7 @@ public final class FilterRegistry
         newList.add(status);
         Collections.sort(newList);
 
-        this.filters = newList;
+        this.setFilters(newList);
     }
 
     /**
@@ -150,7 +159,7 @@ public final class FilterRegistry
         }
         if ( found != null )
         {
-            this.filters = newList;
+            this.setFilters(newList);
 
             if ( found.getResult() == -1 && destroy )
             {
@@ -161,7 +170,25 @@ public final class FilterRegistry
 
     public synchronized void cleanup()
     {
-        this.filters = Collections.emptyList();
+        this.setFilters(Collections.<FilterRegistrationStatus>emptyList());
+    }
+
+    private void setFilters(@NotNull final List<FilterRegistrationStatus> list)
+    {
+        // replacing the chains invalidates all cached chains
+        this.chains = createChains(list);
+        this.filters = list;
+    }
+
+    private static DispatcherChains[] createChains(@NotNull final List<FilterRegistrationStatus> list)
+    {
+        final DispatcherType[] types = DispatcherType.values();
+        final DispatcherChains[] result = new DispatcherChains[types.length];
+        for(final DispatcherType type : types)
+        {
+            result[type.ordinal()] = new DispatcherChains(list, type);
+        }
+        return result;
     }
 
     /**
@@ -170,53 +197,172 @@ public final class FilterRegistry
      * @param handler Optional servlet handler
      * @param dispatcherType The dispatcher type
      * @param requestURI The request uri
-     * @return The array of filter handlers, might be empty.
+     * @return The array of filter handlers, might be empty. The array must not be modified.
      */
     public @NotNull FilterHandler[] getFilterHandlers(@Nullable final ServletHandler handler,
             @NotNull final DispatcherType dispatcherType,
             @NotNull final String requestURI)
     {
-        final List<FilterHandler> result = new ArrayList<FilterHandler>();
-        final List<FilterRegistrationStatus> allFilters = this.filters;
+        // check for servlet name if it's not a resource
+        final String servletName = (handler != null && !handler.getServletInfo().isResource()) ? handler.getName() : null;
 
-        for(final FilterRegistrationStatus status : allFilters)
+        return this.chains[dispatcherType.ordinal()].getFilterHandlers(servletName, requestURI);
+    }
+
+    /**
+     * Check if a filter applies to the request
+     * @param status The filter registration
+     * @param servletName Optional servlet name
+     * @param requestURI The request uri
+     * @return {@code true} if the filter applies
+     */
+    private static boolean matches(@NotNull final FilterRegistrationStatus status,
+            @Nullable final String servletName,
+            @NotNull final String requestURI)
+    {
+        for(final PathResolver resolver : status.getResolvers())
         {
-            // as soon as we encounter a failing filter, we can stop
-            if ( status.getResult() != -1 )
+            if ( resolver.matches(requestURI) )
             {
-                break;
+                return true;
+            }
+        }
+        if ( servletName != null && status.getHandler().getFilterInfo().getServletNames() != null )
+        {
+            for(final String name : status.getHandler().getFilterInfo().getServletNames())
+            {
+                if ( servletName.equals(name) )
+                {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The filter chains for a single dispatcher type.
+     *
+     * The chain for a request is determined by the set of filters matching it.
+     * This set is calculated as a bit mask over the candidate filters without
+     * creating any objects, and the resulting chain is cached per mask. As most
+     * requests are handled by a small number of servlets with a stable set of
+     * filters, only a few different chains exist. The chains are discarded
+     * whenever the filters change as a new object is created then.
+     */
+    private static final class DispatcherChains
+    {
+        /** The active filters for the dispatcher type, in the order of the chain */
+        private final FilterRegistrationStatus[] candidates;
+
+        /** The cached chains, copy on write */
+        private volatile CachedChain[] cache = new CachedChain[0];
+
+        DispatcherChains(@NotNull final List<FilterRegistrationStatus> filters, @NotNull final DispatcherType dispatcherType)
+        {
+            final List<FilterRegistrationStatus> list = new ArrayList<FilterRegistrationStatus>();
+            for(final FilterRegistrationStatus status : filters)
+            {
+                // as soon as we encounter a failing filter, we can stop
+                if ( status.getResult() != -1 )
+                {
+                    break;
+                }
+                if ( referencesDispatcherType(status.getHandler(), dispatcherType) )
+                {
+                    list.add(status);
+                }
+            }
+            this.candidates = list.toArray(new FilterRegistrationStatus[list.size()]);
+        }
+
+        @NotNull FilterHandler[] getFilterHandlers(@Nullable final String servletName, @NotNull final String requestURI)
+        {
+            if ( this.candidates.length == 0 )
+            {
+                return EMPTY_FILTER_HANDLER;
             }
-            if (referencesDispatcherType(status.getHandler(), dispatcherType) )
+            if ( this.candidates.length > Long.SIZE )
             {
-                boolean added = false;
-                for(final PathResolver resolver : status.getResolvers())
+                // too many filters for a mask, calculate the chain each time
+                final List<FilterHandler> result = new ArrayList<FilterHandler>();
+                for(final FilterRegistrationStatus status : this.candidates)
                 {
-                    if ( resolver.resolve(requestURI) != null )
+                    if ( matches(status, servletName, requestURI) )
                     {
                         result.add(status.getHandler());
-                        added = true;
-                        break;
                     }
                 }
-                // check for servlet name if it's not a resource
-                final String servletName = (handler != null && !handler.getServletInfo().isResource()) ? handler.getName() : null;
-                if ( !added && servletName != null && status.getHandler().getFilterInfo().getServletNames() != null )
+                return result.toArray(new FilterHandler[result.size()]);
+            }
+
+            long mask = 0;
+            int count = 0;
+            for(int i = 0; i < this.candidates.length; i++)
+            {
+                if ( matches(this.candidates[i], servletName, requestURI) )
+                {
+                    mask |= 1L << i;
+                    count++;
+                }
+            }
+            if ( count == 0 )
+            {
+                return EMPTY_FILTER_HANDLER;
+            }
+
+            final CachedChain[] cached = this.cache;
+            for(final CachedChain chain : cached)
+            {
+                if ( chain.mask == mask )
+                {
+                    return chain.handlers;
+                }
+            }
+
+            final FilterHandler[] handlers = new FilterHandler[count];
+            int index = 0;
+            for(int i = 0; i < this.candidates.length; i++)
+            {
+                if ( (mask & (1L << i)) != 0 )
+                {
+                    handlers[index++] = this.candidates[i].getHandler();
+                }
+            }
+            this.addToCache(new CachedChain(mask, handlers));
+            return handlers;
+        }
+
+        private synchronized void addToCache(@NotNull final CachedChain chain)
+        {
+            final CachedChain[] current = this.cache;
+            if ( current.length < MAX_CACHED_CHAINS )
+            {
+                for(final CachedChain c : current)
                 {
-                    for(final String name : status.getHandler().getFilterInfo().getServletNames())
+                    if ( c.mask == chain.mask )
                     {
-                        if ( servletName.equals(name) )
-                        {
-                            result.add(status.getHandler());
-                            added = true;
-                            break;
-                        }
+                        return;
                     }
                 }
-
+                final CachedChain[] updated = Arrays.copyOf(current, current.length + 1);
+                updated[current.length] = chain;
+                this.cache = updated;
             }
         }
+    }
+
+    private static final class CachedChain
+    {
+        final long mask;
+
+        final FilterHandler[] handlers;
 
-        return result.toArray(new FilterHandler[result.size()]);
+        CachedChain(final long mask, @NotNull final FilterHandler[] handlers)
+        {
+            this.mask = mask;
+            this.handlers = handlers;
+        }
     }
 
     /**
@@ -225,7 +371,7 @@ public final class FilterRegistry
      * @param dispatcherType The requested dispatcher type
      * @return {@code true} if the filter can be applied.
      */
-    private boolean referencesDispatcherType(final FilterHandler handler, final DispatcherType dispatcherType)
+    private static boolean referencesDispatcherType(final FilterHandler handler, final DispatcherType dispatcherType)
     {
         for(final DispatcherType dt : handler.getFilterInfo().getDispatcher())
         {
@@ -237,6 +383,21 @@ public final class FilterRegistry
         return false;
     }
 
+    /**
+     * Get all active filter handlers
+     * @param handlers The list to add the handlers to
+     */
+    public void getActiveHandlers(@NotNull final List<FilterHandler> handlers)
+    {
+        for(final FilterRegistrationStatus status : this.filters)
+        {
+            if ( status.getResult() == -1 )
+            {
+                handlers.add(status.getHandler());
+            }
+        }
+    }
+
     /**
      * Get the runtime information about filters
      * @param servletContextDTO The servlet context DTO
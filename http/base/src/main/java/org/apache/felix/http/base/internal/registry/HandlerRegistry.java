@@ -18,8 +18,10 @@ package org.apache.felix.http.base.internal.registry;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 import javax.servlet.DispatcherType;
 
@@ -45,6 +47,9 @@ public final class HandlerRegistry
     /** Current list of context registrations. */
     private volatile List<PerContextHandlerRegistry> registrations = Collections.emptyList();
 
+    /** Index of the current context registrations by context path. */
+    private volatile ContextIndex contextIndex = new ContextIndex(Collections.<PerContextHandlerRegistry>emptyList());
+
     private final HttpConfig config;
 
     public HandlerRegistry(final HttpConfig config)
@@ -84,7 +89,7 @@ public final class HandlerRegistry
         synchronized ( this )
         {
             list = new ArrayList<>(this.registrations);
-            this.registrations = Collections.emptyList();
+            this.setRegistrations(Collections.<PerContextHandlerRegistry>emptyList());
 
         }
 
@@ -110,7 +115,7 @@ public final class HandlerRegistry
                 if ( reg.getContextServiceId() == info.getServiceId() )
                 {
                     i.remove();
-                    this.registrations = updatedList;
+                    this.setRegistrations(updatedList);
                     break;
                 }
             }
@@ -129,10 +134,16 @@ public final class HandlerRegistry
             updatedList.add(registry);
             Collections.sort(updatedList);
 
-            this.registrations = updatedList;
+            this.setRegistrations(updatedList);
         }
     }
 
+    private void setRegistrations(@NotNull final List<PerContextHandlerRegistry> list)
+    {
+        this.contextIndex = new ContextIndex(list);
+        this.registrations = list;
+    }
+
     public PerContextHandlerRegistry getRegistry(final long key)
     {
         final List<PerContextHandlerRegistry> list = this.registrations;
@@ -200,7 +211,24 @@ public final class HandlerRegistry
 
     public PathResolution resolveServlet(@NotNull final String requestURI)
     {
-        final List<PerContextHandlerRegistry> regs = this.registrations;
+        final ContextIndex index = this.contextIndex;
+        // contexts with the longest matching path first
+        PathTrie.Node<List<PerContextHandlerRegistry>> node = index.paths.longestPathMatch(requestURI, false);
+        while ( node != null )
+        {
+            final PathResolution ps = resolveServlet(node.getValue(), requestURI);
+            if ( ps != null )
+            {
+                return ps;
+            }
+            node = node.getNext();
+        }
+        // root contexts match every request
+        return resolveServlet(index.rootContexts, requestURI);
+    }
+
+    private PathResolution resolveServlet(@NotNull final List<PerContextHandlerRegistry> regs, @NotNull final String requestURI)
+    {
         for(final PerContextHandlerRegistry r : regs)
         {
             final String path = r.isMatching(requestURI);
@@ -244,6 +272,20 @@ public final class HandlerRegistry
         return null;
     }
 
+    /**
+     * Get all active servlet, resource and filter handlers of all contexts
+     * @param servletHandlers The list to add the servlet and resource handlers to
+     * @param filterHandlers The list to add the filter handlers to
+     */
+    public void getActiveHandlers(@NotNull final List<ServletHandler> servletHandlers,
+            @NotNull final List<FilterHandler> filterHandlers)
+    {
+        for(final PerContextHandlerRegistry reg : this.registrations)
+        {
+            reg.getActiveHandlers(servletHandlers, filterHandlers);
+        }
+    }
+
     public boolean getRuntimeInfo(@NotNull final ServletContextDTO dto,
             @NotNull final FailedDTOHolder failedDTOHolder)
     {
@@ -272,4 +314,46 @@ public final class HandlerRegistry
         }
         return found;
     }
+
+    /**
+     * Immutable index of the context registrations. The contexts with the
+     * root path match all requests, all other contexts are kept in a trie
+     * by their path. Each trie node holds the contexts for a path in the
+     * order of the registrations list, and links to the next shorter
+     * path which is a parent path.
+     */
+    private static final class ContextIndex
+    {
+        final PathTrie<List<PerContextHandlerRegistry>> paths = new PathTrie<>();
+
+        final List<PerContextHandlerRegistry> rootContexts = new ArrayList<>();
+
+        ContextIndex(@NotNull final List<PerContextHandlerRegistry> registrations)
+        {
+            final Map<String, List<PerContextHandlerRegistry>> byPath = new HashMap<>();
+            for(final PerContextHandlerRegistry r : registrations)
+            {
+                final String path = r.getPath();
+                if ( path.equals("/") )
+                {
+                    rootContexts.add(r);
+                }
+                else
+                {
+                    List<PerContextHandlerRegistry> list = byPath.get(path);
+                    if ( list == null )
+                    {
+                        list = new ArrayList<>();
+                        byPath.put(path, list);
+                    }
+                    list.add(r);
+                }
+            }
+            for(final Map.Entry<String, List<PerContextHandlerRegistry>> entry : byPath.entrySet())
+            {
+                paths.put(entry.getKey(), entry.getValue());
+            }
+            paths.link();
+        }
+    }
 }
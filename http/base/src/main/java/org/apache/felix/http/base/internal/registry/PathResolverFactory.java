@@ -160,6 +160,11 @@ public abstract class PathResolverFactory {
             }
             return null;
         }
+
+        @Override
+        public boolean matches(final String uri) {
+            return uri.length() == 0 || uri.equals("/");
+        }
     }
 
     public static final class DefaultMatcher extends AbstractMatcher
@@ -179,6 +184,11 @@ public abstract class PathResolverFactory {
 
             return pr;
         }
+
+        @Override
+        public boolean matches(final String uri) {
+            return true;
+        }
     }
 
     public static final class ExactAndPathMatcher extends AbstractMatcher
@@ -219,6 +229,11 @@ public abstract class PathResolverFactory {
             return null;
         }
 
+        @Override
+        public boolean matches(final String uri) {
+            return uri.equals(this.path) || uri.startsWith(this.prefix);
+        }
+
         @Override
         public int getOrdering()
         {
@@ -251,6 +266,11 @@ public abstract class PathResolverFactory {
             return null;
         }
 
+        @Override
+        public boolean matches(final String uri) {
+            return uri.equals(this.path);
+        }
+
         @Override
         public int getOrdering()
         {
@@ -296,6 +316,11 @@ public abstract class PathResolverFactory {
             return null;
         }
 
+        @Override
+        public boolean matches(final String uri) {
+            return uri.equals(this.path) || uri.startsWith(this.prefix);
+        }
+
         @Override
         public int getOrdering()
         {
@@ -328,6 +353,11 @@ public abstract class PathResolverFactory {
             return null;
         }
 
+        @Override
+        public boolean matches(final String uri) {
+            return uri.endsWith(this.extension);
+        }
+
         @Override
         public int getOrdering()
         {
@@ -339,15 +369,46 @@ public abstract class PathResolverFactory {
     {
         private final Pattern pattern;
 
+        /** The literal start of all matching paths, checked before running the pattern. */
+        private final String prefix;
+
+        /** Whether the pattern is a literal, which then only matches the prefix itself. */
+        private final boolean literal;
+
         public RegexMatcher(final String regex)
         {
             super(null, regex, 0);
             this.pattern = Pattern.compile(regex);
+            this.prefix = getLiteralPrefix(regex);
+            this.literal = this.prefix.length() == regex.length();
+        }
+
+        /**
+         * Returns the characters the pattern starts with which are not part of any construct.
+         * The prefix is empty if the pattern has alternatives, which may start differently.
+         */
+        static @NotNull String getLiteralPrefix(@NotNull final String regex)
+        {
+            if ( regex.indexOf('|') != -1 )
+            {
+                return "";
+            }
+            int length = 0;
+            while ( length < regex.length() && "\\[](){}.*+?^$".indexOf(regex.charAt(length)) == -1 )
+            {
+                length++;
+            }
+            if ( length > 0 && length < regex.length() && "*+?{".indexOf(regex.charAt(length)) != -1 )
+            {
+                // the quantifier applies to the last character
+                length--;
+            }
+            return regex.substring(0, length);
         }
 
         @Override
         public @Nullable PathResolution resolve(@NotNull final String uri) {
-            if ( pattern.matcher(uri).matches() )
+            if ( matches(uri) )
             {
                 final PathResolution pr = new PathResolution();
                 pr.pathInfo = null;
@@ -359,6 +420,16 @@ public abstract class PathResolverFactory {
             return null;
         }
 
+        @Override
+        public boolean matches(@NotNull final String uri) {
+            if ( literal )
+            {
+                return prefix.equals(uri);
+            }
+            // most paths are rejected without creating a matcher
+            return uri.startsWith(prefix) && pattern.matcher(uri).matches();
+        }
+
         @Override
         public int getOrdering()
         {
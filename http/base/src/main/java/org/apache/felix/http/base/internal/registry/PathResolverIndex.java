@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.felix.http.base.internal.registry;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.felix.http.base.internal.registry.PathResolverFactory.DefaultMatcher;
+import org.apache.felix.http.base.internal.registry.PathResolverFactory.ExactAndPathMatcher;
+import org.apache.felix.http.base.internal.registry.PathResolverFactory.ExactMatcher;
+import org.apache.felix.http.base.internal.registry.PathResolverFactory.ExtensionMatcher;
+import org.apache.felix.http.base.internal.registry.PathResolverFactory.PathMatcher;
+import org.apache.felix.http.base.internal.registry.PathResolverFactory.RootMatcher;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Immutable index over the active path resolvers of a servlet registry.
+ *
+ * The index finds the same resolver as iterating over the sorted resolvers
+ * and using the first one matching, but it only looks at the resolvers
+ * which can match the request uri: exact patterns are looked up in a map,
+ * path patterns in a trie of their paths and extension patterns in a trie
+ * of their reversed extensions.
+ */
+final class PathResolverIndex
+{
+    /** Exact matches for {@link ExactMatcher} and {@link ExactAndPathMatcher} */
+    private final Map<String, PathResolver> exact = new HashMap<>();
+
+    /** Parent path matches for {@link ExactAndPathMatcher} */
+    private final PathTrie<PathResolver> exactAndPath = new PathTrie<>();
+
+    /** Path matches for {@link PathMatcher} */
+    private final PathTrie<PathResolver> path = new PathTrie<>();
+
+    /** Extension matches for {@link ExtensionMatcher} */
+    private final PathTrie<PathResolver> extension = new PathTrie<>();
+
+    private PathResolver root;
+
+    private PathResolver defaultResolver;
+
+    private PathResolverIndex()
+    {
+        // use create
+    }
+
+    /**
+     * Create an index for the resolvers
+     * @param resolvers The sorted list of resolvers
+     * @return The index or {@code null} if the resolvers contain a resolver which can't be indexed
+     */
+    public static @Nullable PathResolverIndex create(@NotNull final List<PathResolver> resolvers)
+    {
+        final PathResolverIndex index = new PathResolverIndex();
+        // the first resolver for a pattern wins, so add in reverse order
+        for(int i = resolvers.size() - 1; i >= 0; i--)
+        {
+            final PathResolver resolver = resolvers.get(i);
+            final String pattern = resolver.getPattern();
+            if ( resolver instanceof ExactMatcher )
+            {
+                index.exact.put(pattern, resolver);
+            }
+            else if ( resolver instanceof ExactAndPathMatcher )
+            {
+                index.exact.put(pattern, resolver);
+                index.exactAndPath.put(pattern, resolver);
+            }
+            else if ( resolver instanceof PathMatcher )
+            {
+                index.path.put(pattern.substring(0, pattern.length() - 2), resolver);
+            }
+            else if ( resolver instanceof ExtensionMatcher )
+            {
+                index.extension.putReversed(pattern.substring(1), resolver);
+            }
+            else if ( resolver instanceof RootMatcher )
+            {
+                index.root = resolver;
+            }
+            else if ( resolver instanceof DefaultMatcher )
+            {
+                index.defaultResolver = resolver;
+            }
+            else
+            {
+                return null;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Find the resolver for the uri
+     * @param uri The request uri
+     * @return The resolver or {@code null}
+     */
+    public @Nullable PathResolver find(@NotNull final String uri)
+    {
+        // the order of the checks follows the ranking of the matchers
+        final PathResolver exactMatch = this.exact.get(uri);
+        if ( exactMatch != null )
+        {
+            return exactMatch;
+        }
+        if ( !this.exactAndPath.isEmpty() )
+        {
+            final PathTrie.Node<PathResolver> node = this.exactAndPath.longestPathMatch(uri, true);
+            if ( node != null )
+            {
+                return node.getValue();
+            }
+        }
+        if ( !this.path.isEmpty() )
+        {
+            final PathTrie.Node<PathResolver> node = this.path.longestPathMatch(uri, false);
+            if ( node != null )
+            {
+                return node.getValue();
+            }
+        }
+        if ( !this.extension.isEmpty() )
+        {
+            final PathResolver extensionMatch = this.extension.longestSuffixMatch(uri);
+            if ( extensionMatch != null )
+            {
+                return extensionMatch;
+            }
+        }
+        if ( this.root != null && (uri.length() == 0 || uri.equals("/")) )
+        {
+            return this.root;
+        }
+        return this.defaultResolver;
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.felix.http.base.internal.registry;
+
+import java.util.Arrays;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A character trie mapping paths to values.
+ *
+ * The trie is filled once using {@link #put(String, Object)} and
+ * {@link #putReversed(String, Object)} and then only read, so a trie which
+ * is safely published is immutable. Lookups do not allocate.
+ */
+final class PathTrie<T>
+{
+    private static final char[] NO_KEYS = new char[0];
+
+    static final class Node<T>
+    {
+        private char[] keys = NO_KEYS;
+
+        private Node<T>[] children;
+
+        private T value;
+
+        /** The next shorter path matching whenever this path matches, see {@link PathTrie#link()} */
+        private Node<T> next;
+
+        public @Nullable T getValue()
+        {
+            return this.value;
+        }
+
+        public @Nullable Node<T> getNext()
+        {
+            return this.next;
+        }
+
+        private Node<T> child(final char c)
+        {
+            final int index = Arrays.binarySearch(this.keys, c);
+            return index < 0 ? null : this.children[index];
+        }
+
+        @SuppressWarnings("unchecked")
+        private Node<T> getOrCreateChild(final char c)
+        {
+            int index = Arrays.binarySearch(this.keys, c);
+            if ( index < 0 )
+            {
+                index = -index - 1;
+                final char[] newKeys = new char[this.keys.length + 1];
+                final Node<T>[] newChildren = new Node[this.keys.length + 1];
+                System.arraycopy(this.keys, 0, newKeys, 0, index);
+                System.arraycopy(this.keys, index, newKeys, index + 1, this.keys.length - index);
+                if ( this.children != null )
+                {
+                    System.arraycopy(this.children, 0, newChildren, 0, index);
+                    System.arraycopy(this.children, index, newChildren, index + 1, this.keys.length - index);
+                }
+                newKeys[index] = c;
+                newChildren[index] = new Node<>();
+                this.keys = newKeys;
+                this.children = newChildren;
+            }
+            return this.children[index];
+        }
+    }
+
+    private final Node<T> root = new Node<>();
+
+    private boolean empty = true;
+
+    public boolean isEmpty()
+    {
+        return this.empty;
+    }
+
+    /**
+     * Add a path
+     * @param path The path
+     * @param value The value
+     */
+    public void put(@NotNull final String path, @NotNull final T value)
+    {
+        Node<T> node = this.root;
+        for(int i = 0; i < path.length(); i++)
+        {
+            node = node.getOrCreateChild(path.charAt(i));
+        }
+        node.value = value;
+        this.empty = false;
+    }
+
+    /**
+     * Add a suffix, matched by {@link #longestSuffixMatch(String)}
+     * @param suffix The suffix
+     * @param value The value
+     */
+    public void putReversed(@NotNull final String suffix, @NotNull final T value)
+    {
+        Node<T> node = this.root;
+        for(int i = suffix.length() - 1; i >= 0; i--)
+        {
+            node = node.getOrCreateChild(suffix.charAt(i));
+        }
+        node.value = value;
+        this.empty = false;
+    }
+
+    /**
+     * Link each path to the next shorter path which is a parent path
+     * of it. This must be called once all paths have been added if
+     * {@link Node#getNext()} is used.
+     */
+    public void link()
+    {
+        link(this.root, null);
+    }
+
+    private void link(final Node<T> node, final Node<T> parentMatch)
+    {
+        if ( node.value != null )
+        {
+            node.next = parentMatch;
+        }
+        for(int i = 0; i < node.keys.length; i++)
+        {
+            // a path is a parent path if it is followed by a slash
+            final Node<T> nextParentMatch = (node.value != null && node.keys[i] == '/') ? node : parentMatch;
+            link(node.children[i], nextParentMatch);
+        }
+    }
+
+    /**
+     * Find the longest path which is either equal to the uri or a parent path
+     * of it, meaning the uri continues with a slash after the path.
+     * @param uri The uri
+     * @param parentOnly Whether to only consider parent paths and ignore a path equal to the uri
+     * @return The node of the path or {@code null}
+     */
+    public @Nullable Node<T> longestPathMatch(@NotNull final String uri, final boolean parentOnly)
+    {
+        final int length = uri.length();
+        Node<T> match = null;
+        Node<T> node = this.root;
+        for(int i = 0; ; i++)
+        {
+            if ( node.value != null )
+            {
+                if ( i == length ? !parentOnly : uri.charAt(i) == '/' )
+                {
+                    match = node;
+                }
+            }
+            if ( i == length )
+            {
+                break;
+            }
+            node = node.child(uri.charAt(i));
+            if ( node == null )
+            {
+                break;
+            }
+        }
+        return match;
+    }
+
+    /**
+     * Find the value of the longest suffix of the uri added using {@link #putReversed(String, Object)}
+     * @param uri The uri
+     * @return The value or {@code null}
+     */
+    public @Nullable T longestSuffixMatch(@NotNull final String uri)
+    {
+        T match = null;
+        Node<T> node = this.root;
+        for(int i = uri.length() - 1; i >= 0; i--)
+        {
+            node = node.child(uri.charAt(i));
+            if ( node == null )
+            {
+                break;
+            }
+            if ( node.value != null )
+            {
+                match = node.value;
+            }
+        }
+        return match;
+    }
+}
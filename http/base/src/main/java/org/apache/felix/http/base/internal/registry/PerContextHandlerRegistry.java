@@ -16,6 +16,8 @@
  */
 package org.apache.felix.http.base.internal.registry;
 
+import java.util.List;
+
 import javax.servlet.DispatcherType;
 
 import org.apache.felix.http.base.internal.HttpConfig;
@@ -100,6 +102,15 @@ public final class PerContextHandlerRegistry implements Comparable<PerContextHan
         return this.serviceId;
     }
 
+    /**
+     * Get the context path
+     * @return The context path
+     */
+    public @NotNull String getPath()
+    {
+        return this.path;
+    }
+
     public HttpConfig getConfig()
     {
         return this.config;
@@ -208,6 +219,18 @@ public final class PerContextHandlerRegistry implements Comparable<PerContextHan
         this.eventListenerRegistry.getRuntimeInfo(dto, failedDTOHolder.failedListenerDTOs);
     }
 
+    /**
+     * Get all active servlet, resource and filter handlers
+     * @param servletHandlers The list to add the servlet and resource handlers to
+     * @param filterHandlers The list to add the filter handlers to
+     */
+    public void getActiveHandlers(@NotNull final List<ServletHandler> servletHandlers,
+            @NotNull final List<FilterHandler> filterHandlers)
+    {
+        this.servletRegistry.getActiveHandlers(servletHandlers);
+        this.filterRegistry.getActiveHandlers(filterHandlers);
+    }
+
     /**
      * Add a servlet
      * @param handler The servlet handler
@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.felix.http.base.internal.runtime.dto;
+
+import org.osgi.dto.DTO;
+
+/**
+ * Request metrics of a servlet, resource, filter or preprocessor.
+ *
+ * The times of a filter or preprocessor include the time spent in the
+ * remaining chain. This DTO is an extension of the
+ * {@link org.osgi.service.http.runtime.dto.RuntimeDTO}, see {@link RequestMetricsDTO}.
+ */
+public class HandlerMetricsDTO extends DTO
+{
+    /**
+     * The service id of the servlet, resource, filter or preprocessor.
+     */
+    public long serviceId;
+
+    /**
+     * The service id of the servlet context or {@code 0} for preprocessors.
+     */
+    public long servletContextId;
+
+    /**
+     * The name of the servlet, resource or filter, {@code null} for preprocessors.
+     */
+    public String name;
+
+    /**
+     * The number of completed invocations.
+     */
+    public long requestCount;
+
+    /**
+     * The number of invocations which threw an exception or resulted in a server error.
+     */
+    public long errorCount;
+
+    /**
+     * The number of invocations in progress.
+     */
+    public int activeRequests;
+
+    /**
+     * The total time of all completed invocations in microseconds.
+     */
+    public long totalTime;
+
+    /**
+     * The time of the longest invocation in microseconds.
+     */
+    public long maxTime;
+
+    /**
+     * The number of invocations per histogram bucket. Bucket {@code i}
+     * counts the invocations shorter than {@link RequestMetricsDTO#histogramBounds}
+     * {@code [i]} milliseconds, the last bucket all remaining invocations.
+     */
+    public long[] histogram;
+}
@@ -0,0 +1,61 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.felix.http.base.internal.runtime.dto;
+
+import org.osgi.dto.DTO;
+
+/**
+ * Request metrics of the http runtime, an extension of the
+ * {@link org.osgi.service.http.runtime.dto.RuntimeDTO}.
+ */
+public class RequestMetricsDTO extends DTO
+{
+    /**
+     * Whether metrics are collected.
+     */
+    public boolean enabled;
+
+    /**
+     * The slow request threshold in milliseconds, {@code 0} if slow requests are not logged.
+     */
+    public long slowRequestThreshold;
+
+    /**
+     * The number of requests which took at least the slow request threshold.
+     */
+    public long slowRequestCount;
+
+    /**
+     * The upper bounds of the histogram buckets in milliseconds.
+     */
+    public long[] histogramBounds;
+
+    /**
+     * The metrics of the active servlets and resources.
+     */
+    public HandlerMetricsDTO[] servletMetricsDTOs;
+
+    /**
+     * The metrics of the active filters.
+     */
+    public HandlerMetricsDTO[] filterMetricsDTOs;
+
+    /**
+     * The metrics of the active preprocessors.
+     */
+    public HandlerMetricsDTO[] preprocessorMetricsDTOs;
+}
@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.felix.http.base.internal.runtime.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.felix.http.base.internal.dispatch.RequestMetrics;
+import org.apache.felix.http.base.internal.handler.FilterHandler;
+import org.apache.felix.http.base.internal.handler.HandlerStatistics;
+import org.apache.felix.http.base.internal.handler.PreprocessorHandler;
+import org.apache.felix.http.base.internal.handler.ServletHandler;
+import org.apache.felix.http.base.internal.registry.HandlerRegistry;
+import org.jetbrains.annotations.NotNull;
+
+public final class RequestMetricsDTOBuilder
+{
+    private final HandlerRegistry registry;
+
+    private final List<PreprocessorHandler> preprocessorHandlers;
+
+    public RequestMetricsDTOBuilder(@NotNull final HandlerRegistry registry,
+            @NotNull final List<PreprocessorHandler> preprocessorHandlers)
+    {
+        this.registry = registry;
+        this.preprocessorHandlers = preprocessorHandlers;
+    }
+
+    public @NotNull RequestMetricsDTO build()
+    {
+        final RequestMetrics metrics = this.registry.getConfig().getRequestMetrics();
+
+        final List<ServletHandler> servletHandlers = new ArrayList<>();
+        final List<FilterHandler> filterHandlers = new ArrayList<>();
+        this.registry.getActiveHandlers(servletHandlers, filterHandlers);
+
+        final RequestMetricsDTO dto = new RequestMetricsDTO();
+        dto.enabled = metrics.isEnabled();
+        dto.slowRequestThreshold = metrics.isSlowRequestLogEnabled() ? metrics.getSlowRequestThreshold() : 0;
+        dto.slowRequestCount = metrics.getSlowRequestCount();
+        dto.histogramBounds = HandlerStatistics.getHistogramBounds();
+
+        dto.servletMetricsDTOs = new HandlerMetricsDTO[servletHandlers.size()];
+        for(int i = 0; i < dto.servletMetricsDTOs.length; i++)
+        {
+            final ServletHandler handler = servletHandlers.get(i);
+            dto.servletMetricsDTOs[i] = build(handler.getStatistics(), handler.getServletInfo().getServiceId(),
+                    handler.getContextServiceId(), handler.getName());
+        }
+        dto.filterMetricsDTOs = new HandlerMetricsDTO[filterHandlers.size()];
+        for(int i = 0; i < dto.filterMetricsDTOs.length; i++)
+        {
+            final FilterHandler handler = filterHandlers.get(i);
+            dto.filterMetricsDTOs[i] = build(handler.getStatistics(), handler.getFilterInfo().getServiceId(),
+                    handler.getContextServiceId(), handler.getName());
+        }
+        dto.preprocessorMetricsDTOs = new HandlerMetricsDTO[this.preprocessorHandlers.size()];
+        for(int i = 0; i < dto.preprocessorMetricsDTOs.length; i++)
+        {
+            final PreprocessorHandler handler = this.preprocessorHandlers.get(i);
+            dto.preprocessorMetricsDTOs[i] = build(handler.getStatistics(), handler.getPreprocessorInfo().getServiceId(),
+                    0, null);
+        }
+
+        return dto;
+    }
+
+    private static @NotNull HandlerMetricsDTO build(@NotNull final HandlerStatistics statistics,
+            final long serviceId,
+            final long servletContextId,
+            final String name)
+    {
+        final HandlerMetricsDTO dto = new HandlerMetricsDTO();
+        dto.serviceId = serviceId;
+        dto.servletContextId = servletContextId;
+        dto.name = name;
+        dto.requestCount = statistics.getCount();
+        dto.errorCount = statistics.getErrorCount();
+        dto.activeRequests = statistics.getActiveCount();
+        dto.totalTime = TimeUnit.NANOSECONDS.toMicros(statistics.getTotalTime());
+        dto.maxTime = TimeUnit.NANOSECONDS.toMicros(statistics.getMaxTime());
+        dto.histogram = statistics.getHistogram();
+        return dto;
+    }
+}
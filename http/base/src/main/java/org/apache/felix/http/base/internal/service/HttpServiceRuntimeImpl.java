@@ -26,6 +26,8 @@ import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.felix.http.base.internal.registry.HandlerRegistry;
 import org.apache.felix.http.base.internal.runtime.dto.RequestInfoDTOBuilder;
+import org.apache.felix.http.base.internal.runtime.dto.RequestMetricsDTO;
+import org.apache.felix.http.base.internal.runtime.dto.RequestMetricsDTOBuilder;
 import org.apache.felix.http.base.internal.runtime.dto.RuntimeDTOBuilder;
 import org.apache.felix.http.base.internal.whiteboard.WhiteboardManager;
 import org.osgi.framework.BundleContext;
@@ -130,6 +132,16 @@ public final class HttpServiceRuntimeImpl implements HttpServiceRuntime
         return new RequestInfoDTOBuilder(registry, path).build();
     }
 
+    /**
+     * Return the request metrics of the active servlets, resources, filters
+     * and preprocessors. This is an extension to the runtime DTO.
+     * @return The request metrics
+     */
+    public RequestMetricsDTO getRequestMetricsDTO()
+    {
+        return new RequestMetricsDTOBuilder(registry, contextManager.getPreprocessorHandlers()).build();
+    }
+
     public synchronized void setAttribute(String name, Object value)
     {
         Hashtable<String, Object> newAttributes = new Hashtable<>(attributes);
@@ -0,0 +1,475 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.felix.http.base.internal.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.zip.CRC32;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Cache for the resources served by the {@link ResourceServlet}.
+ *
+ * Resources are cached by their URL. URLs of bundle resources contain the
+ * bundle id and revision, so an updated bundle results in new cache entries
+ * while the entries of the old revision are evicted over time. The content of
+ * small resources is kept in memory, for larger resources only the meta data
+ * is cached. Resources backed by a file are never kept in memory as they can
+ * be transferred from the file directly, and they are validated against the
+ * file on each access. Resources from a jar file are validated against the jar
+ * file in the same way. The cache is bounded by the size of the cached content
+ * and evicts the least recently used entries.
+ */
+public final class ResourceCache
+{
+    /** Resources from these protocols do not change for a given URL */
+    private static final String[] IMMUTABLE_PROTOCOLS = new String[] {"bundle", "bundleentry", "bundleresource"};
+
+    /** Size accounted for each entry, in addition to its content */
+    private static final int ENTRY_OVERHEAD = 256;
+
+    public static final class Resource implements Closeable
+    {
+        private final URL url;
+
+        private final long lastModified;
+
+        private final long length;
+
+        private final String etag;
+
+        private final byte[] content;
+
+        private final File file;
+
+        /** The file the resource is validated against, if any */
+        private final File source;
+
+        private final long sourceLastModified;
+
+        private final long sourceLength;
+
+        /** The stream opened while loading the resource, until it is taken */
+        private InputStream stream;
+
+        Resource(@NotNull final URL url, final long lastModified, final long length, @Nullable final String etag,
+                @Nullable final byte[] content, @Nullable final File file)
+        {
+            this(url, lastModified, length, etag, content, file, file, lastModified, length);
+        }
+
+        Resource(@NotNull final URL url, final long lastModified, final long length, @Nullable final String etag,
+                @Nullable final byte[] content, @Nullable final File file,
+                @Nullable final File source, final long sourceLastModified, final long sourceLength)
+        {
+            this.url = url;
+            this.lastModified = lastModified;
+            this.length = length;
+            this.etag = etag;
+            this.content = content;
+            this.file = file;
+            this.source = source;
+            this.sourceLastModified = sourceLastModified;
+            this.sourceLength = sourceLength;
+        }
+
+        public @NotNull URL getURL()
+        {
+            return this.url;
+        }
+
+        /**
+         * @return The last modified time or {@code 0} if unknown
+         */
+        public long getLastModified()
+        {
+            return this.lastModified;
+        }
+
+        /**
+         * @return The length of the resource or {@code -1} if unknown
+         */
+        public long getLength()
+        {
+            return this.length;
+        }
+
+        /**
+         * @return The strong entity tag including the quotes or {@code null}
+         */
+        public @Nullable String getETag()
+        {
+            return this.etag;
+        }
+
+        /**
+         * @return The content if it is kept in memory. The array must not be modified.
+         */
+        public @Nullable byte[] getContent()
+        {
+            return this.content;
+        }
+
+        /**
+         * @return The file if the resource is backed by a file
+         */
+        public @Nullable File getFile()
+        {
+            return this.file;
+        }
+
+        /**
+         * Open the content of the resource. The stream opened while loading
+         * the resource is returned by the first call, so the resource is
+         * not opened twice.
+         * @return The stream, the caller has to close it
+         * @throws IOException If opening the resource fails
+         */
+        public @NotNull InputStream openStream() throws IOException
+        {
+            synchronized ( this )
+            {
+                final InputStream is = this.stream;
+                if ( is != null )
+                {
+                    this.stream = null;
+                    return is;
+                }
+            }
+            return open(this.url).getInputStream();
+        }
+
+        /**
+         * Close the stream opened while loading the resource, if it has not been taken
+         */
+        @Override
+        public void close() throws IOException
+        {
+            final InputStream is;
+            synchronized ( this )
+            {
+                is = this.stream;
+                this.stream = null;
+            }
+            if ( is != null )
+            {
+                is.close();
+            }
+        }
+
+        boolean isValid()
+        {
+            return this.source == null
+                    || (this.source.lastModified() == this.sourceLastModified && this.source.length() == this.sourceLength);
+        }
+
+        boolean isCacheable()
+        {
+            return this.source != null || isImmutable(this.url);
+        }
+
+        /**
+         * @return This resource without the stream opened while loading it
+         */
+        Resource withoutStream()
+        {
+            if ( this.stream == null )
+            {
+                return this;
+            }
+            return new Resource(this.url, this.lastModified, this.length, this.etag, this.content, this.file,
+                    this.source, this.sourceLastModified, this.sourceLength);
+        }
+
+        long getCachedSize()
+        {
+            return ENTRY_OVERHEAD + (this.content == null ? 0 : this.content.length);
+        }
+    }
+
+    private final LinkedHashMap<String, Resource> cache = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long size;
+
+    private volatile long maxSize;
+
+    private volatile long maxEntrySize;
+
+    public ResourceCache(final long maxSize, final long maxEntrySize)
+    {
+        this.configure(maxSize, maxEntrySize);
+    }
+
+    /**
+     * Update the limits of the cache
+     * @param maxSize The maximum size of all cached resources, {@code 0} disables the cache
+     * @param maxEntrySize The maximum size of a resource to keep in memory
+     */
+    public void configure(final long maxSize, final long maxEntrySize)
+    {
+        this.maxSize = Math.max(0, maxSize);
+        this.maxEntrySize = Math.max(0, Math.min(maxEntrySize, Integer.MAX_VALUE - 8));
+        synchronized ( this.cache )
+        {
+            this.evict();
+        }
+    }
+
+    /**
+     * Get the resource for the url
+     * @param url The url
+     * @return The resource
+     * @throws IOException If reading the resource fails
+     */
+    public @NotNull Resource get(@NotNull final URL url) throws IOException
+    {
+        final String key = url.toExternalForm();
+        synchronized ( this.cache )
+        {
+            final Resource cached = this.cache.get(key);
+            if ( cached != null )
+            {
+                if ( cached.isValid() )
+                {
+                    return cached;
+                }
+                this.cache.remove(key);
+                this.size -= cached.getCachedSize();
+            }
+        }
+
+        final Resource resource = load(url);
+        if ( resource.isCacheable() && this.maxSize > 0 )
+        {
+            // the stream is only used by the caller of this method
+            final Resource cached = resource.withoutStream();
+            synchronized ( this.cache )
+            {
+                final Resource old = this.cache.put(key, cached);
+                if ( old != null )
+                {
+                    this.size -= old.getCachedSize();
+                }
+                this.size += cached.getCachedSize();
+                this.evict();
+            }
+        }
+        return resource;
+    }
+
+    /**
+     * Clear the cache
+     */
+    public void clear()
+    {
+        synchronized ( this.cache )
+        {
+            this.cache.clear();
+            this.size = 0;
+        }
+    }
+
+    private void evict()
+    {
+        final Iterator<Resource> iter = this.cache.values().iterator();
+        while ( this.size > this.maxSize && iter.hasNext() )
+        {
+            this.size -= iter.next().getCachedSize();
+            iter.remove();
+        }
+    }
+
+    private static boolean isImmutable(final URL url)
+    {
+        for(final String protocol : IMMUTABLE_PROTOCOLS)
+        {
+            if ( protocol.equals(url.getProtocol()) )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Resource load(final URL url) throws IOException
+    {
+        final File file = getFile(url);
+        if ( file != null )
+        {
+            final long lastModified = file.lastModified();
+            final long length = file.length();
+            return new Resource(url, lastModified, length, createETag(lastModified, length), null, file);
+        }
+
+        // validate against the jar file, read before the content
+        final File jar = getJarFile(url);
+        final long jarLastModified = jar == null ? 0 : jar.lastModified();
+        final long jarLength = jar == null ? 0 : jar.length();
+        final boolean cacheable = jar != null || isImmutable(url);
+
+        final URLConnection conn = open(url);
+        final InputStream is = conn.getInputStream();
+        boolean close = true;
+        try
+        {
+            final long lastModified = conn.getLastModified();
+            final long length = conn.getContentLengthLong();
+            boolean read = false;
+            if ( cacheable && length <= this.maxEntrySize )
+            {
+                final byte[] content = read(is, length);
+                if ( content != null )
+                {
+                    final CRC32 crc = new CRC32();
+                    crc.update(content);
+                    final String etag = "\"" + Long.toHexString(content.length) + "-" + Long.toHexString(crc.getValue()) + "\"";
+                    return new Resource(url, lastModified, content.length, etag, content, null, jar, jarLastModified, jarLength);
+                }
+                read = true;
+            }
+            final Resource resource = new Resource(url, lastModified, length,
+                    lastModified == 0 ? null : createETag(lastModified, length), null, null, jar, jarLastModified, jarLength);
+            if ( !read )
+            {
+                // serve the content from this connection
+                resource.stream = is;
+                close = false;
+            }
+            return resource;
+        }
+        finally
+        {
+            if ( close )
+            {
+                is.close();
+            }
+        }
+    }
+
+    static URLConnection open(final URL url) throws IOException
+    {
+        final URLConnection conn = url.openConnection();
+        if ( "jar".equals(url.getProtocol()) )
+        {
+            // a cached jar file is not reopened when the file is replaced
+            conn.setUseCaches(false);
+        }
+        return conn;
+    }
+
+    /**
+     * Read the stream fully
+     * @return The content or {@code null} if the content is larger than the maximum entry size
+     */
+    private byte[] read(final InputStream is, final long length) throws IOException
+    {
+        final long max = this.maxEntrySize;
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream(length < 0 ? 4096 : (int) length);
+        final byte[] buf = new byte[8192];
+        int n;
+        while ((n = is.read(buf, 0, buf.length)) >= 0)
+        {
+            baos.write(buf, 0, n);
+            if ( baos.size() > max )
+            {
+                return null;
+            }
+        }
+        return baos.toByteArray();
+    }
+
+    private static String createETag(final long lastModified, final long length)
+    {
+        return "\"" + Long.toHexString(length) + "-" + Long.toHexString(lastModified) + "\"";
+    }
+
+    private static File getFile(final URL url)
+    {
+        if ( "file".equals(url.getProtocol()) )
+        {
+            try
+            {
+                final File file = new File(url.toURI());
+                if ( file.isFile() )
+                {
+                    return file;
+                }
+            }
+            catch ( final URISyntaxException | IllegalArgumentException e )
+            {
+                // not a plain file url
+            }
+        }
+        return null;
+    }
+
+    private static File getJarFile(final URL url)
+    {
+        if ( "jar".equals(url.getProtocol()) )
+        {
+            final String spec = url.getFile();
+            final int sep = spec.indexOf("!/");
+            if ( sep != -1 )
+            {
+                try
+                {
+                    return getFile(new URL(spec.substring(0, sep)));
+                }
+                catch ( final MalformedURLException e )
+                {
+                    // not a jar file url
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get the number of cached resources
+     * @return The number of resources
+     */
+    public int getCachedCount()
+    {
+        synchronized ( this.cache )
+        {
+            return this.cache.size();
+        }
+    }
+
+    /**
+     * Get the size of the cached resources, see {@link Resource#getCachedSize()}
+     * @return The size
+     */
+    public long getCachedSize()
+    {
+        synchronized ( this.cache )
+        {
+            return this.size;
+        }
+    }
+}
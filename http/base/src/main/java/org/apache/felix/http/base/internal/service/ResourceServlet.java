@@ -16,33 +16,61 @@
  */
 package org.apache.felix.http.base.internal.service;
 
-import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URL;
-import java.net.URLConnection;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import org.apache.felix.http.base.internal.HttpConfig;
+import org.apache.felix.http.base.internal.context.ExtServletContext;
+
 /**
  * The resource servlet
+ *
+ * Resources are looked up in the {@link ResourceCache}. Responses carry a strong
+ * entity tag and the last modification date if known, conditional requests and
+ * single byte ranges are supported. If the client accepts it, a precompressed
+ * variant of a resource (the resource name with a {@code .br} or {@code .gz}
+ * extension) is served instead of the resource.
  */
 public final class ResourceServlet extends HttpServlet
 {
     private static final long serialVersionUID = 1L;
 
+    /** The precompressed variants, in order of preference */
+    private static final String[][] ENCODINGS = new String[][] {{"br", ".br"}, {"gzip", ".gz"}};
+
     /** The path of the resource registration. */
     private final String prefix;
 
+    private transient volatile ResourceCache cache;
+
     public ResourceServlet(final String prefix)
     {
         this.prefix = prefix;
     }
 
+    @Override
+    public void init() throws ServletException
+    {
+        // use the shared cache if available
+        if ( getServletContext() instanceof ExtServletContext
+             && ((ExtServletContext)getServletContext()).getConfig() != null )
+        {
+            this.cache = ((ExtServletContext)getServletContext()).getConfig().getResourceCache();
+        }
+        else
+        {
+            this.cache = new ResourceCache(HttpConfig.DEFAULT_RESOURCE_CACHE_SIZE, HttpConfig.DEFAULT_RESOURCE_CACHE_MAX_ENTRY_SIZE);
+        }
+    }
+
     @Override
     protected void doGet(final HttpServletRequest req, final HttpServletResponse res)
             throws ServletException, IOException
@@ -72,50 +100,159 @@ public final class ResourceServlet extends HttpServlet
             res.setContentType(contentType);
         }
 
-        final long lastModified = getLastModified(url);
-        if (lastModified != 0)
+        ResourceCache.Resource resource = null;
+        boolean hasVariants = false;
+        final String acceptEncoding = req.getHeader("Accept-Encoding");
+        for(final String[] encoding : ENCODINGS)
         {
-            res.setDateHeader("Last-Modified", lastModified);
+            final URL variantURL = getServletContext().getResource(resName.concat(encoding[1]));
+            if ( variantURL != null )
+            {
+                hasVariants = true;
+                if ( resource == null && acceptEncoding != null && accepts(acceptEncoding, encoding[0]) )
+                {
+                    resource = getCache().get(variantURL);
+                    res.setHeader("Content-Encoding", encoding[0]);
+                }
+            }
+        }
+        // the response depends on the accepted encodings whenever there are variants,
+        // whether or not one of them is served
+        if ( hasVariants )
+        {
+            res.addHeader("Vary", "Accept-Encoding");
+        }
+        if ( resource == null )
+        {
+            resource = getCache().get(url);
         }
 
-        if (!resourceModified(lastModified, req.getDateHeader("If-Modified-Since")))
+        try
         {
-            res.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            serve(req, res, resource);
         }
-        else
+        finally
         {
-            copyResource(url, res);
+            // release the connection if the content is not served
+            resource.close();
         }
     }
 
-    private long getLastModified(final URL url)
+    private void serve(final HttpServletRequest req,
+            final HttpServletResponse res, final ResourceCache.Resource resource)
+    throws IOException
     {
-        long lastModified = 0;
+        final long lastModified = resource.getLastModified();
+        if (lastModified != 0)
+        {
+            res.setDateHeader("Last-Modified", lastModified);
+        }
+        if (resource.getETag() != null)
+        {
+            res.setHeader("ETag", resource.getETag());
+        }
 
-        try
+        if (!resourceModified(req, resource))
         {
-            final URLConnection conn = url.openConnection();
-            lastModified = conn.getLastModified();
+            res.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
         }
-        catch (final Exception e)
+
+        final long length = resource.getLength();
+        long start = 0;
+        long count = length;
+        if ( length >= 0 )
         {
-            // Do nothing
+            res.setHeader("Accept-Ranges", "bytes");
+            final long[] range = getRange(req, resource);
+            if ( range == INVALID_RANGE )
+            {
+                res.setHeader("Content-Range", "bytes */" + length);
+                res.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+            if ( range != null )
+            {
+                start = range[0];
+                count = range[1] - range[0] + 1;
+                res.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                res.setHeader("Content-Range", "bytes " + range[0] + "-" + range[1] + "/" + length);
+            }
+            // FELIX-3987 content length should be set *before* any streaming is done
+            // as headers should be written before the content is actually written...
+            res.setContentLengthLong(count);
         }
 
-        if (lastModified == 0)
+        copyResource(resource, start, count, res);
+    }
+
+    private ResourceCache getCache()
+    {
+        ResourceCache c = this.cache;
+        if ( c == null )
         {
-            final String filepath = url.getPath();
-            if (filepath != null)
+            // not initialized through init()
+            c = new ResourceCache(0, 0);
+            this.cache = c;
+        }
+        return c;
+    }
+
+    private static boolean accepts(final String acceptEncoding, final String encoding)
+    {
+        for(final String part : acceptEncoding.split(","))
+        {
+            final String[] params = part.trim().split(";");
+            if ( params[0].trim().equalsIgnoreCase(encoding) )
             {
-                final File f = new File(filepath);
-                if (f.exists())
+                for(int i = 1; i < params.length; i++)
                 {
-                    lastModified = f.lastModified();
+                    final String param = params[i].trim();
+                    if ( param.startsWith("q=") )
+                    {
+                        try
+                        {
+                            return Double.parseDouble(param.substring(2)) > 0;
+                        }
+                        catch ( final NumberFormatException nfe )
+                        {
+                            return false;
+                        }
+                    }
                 }
+                return true;
             }
         }
+        return false;
+    }
 
-        return lastModified;
+    private boolean resourceModified(final HttpServletRequest req, final ResourceCache.Resource resource)
+    {
+        final String ifNoneMatch = req.getHeader("If-None-Match");
+        if ( ifNoneMatch != null )
+        {
+            // If-None-Match takes precedence over If-Modified-Since
+            return !matchesETag(ifNoneMatch, resource.getETag());
+        }
+        return resourceModified(resource.getLastModified(), req.getDateHeader("If-Modified-Since"));
+    }
+
+    private static boolean matchesETag(final String header, final String etag)
+    {
+        if ( etag == null )
+        {
+            return false;
+        }
+        for(final String value : header.split(","))
+        {
+            final String tag = value.trim();
+            // weak comparison is used for If-None-Match
+            if ( tag.equals("*") || tag.equals(etag) || (tag.startsWith("W/") && tag.substring(2).equals(etag)) )
+            {
+                return true;
+            }
+        }
+        return false;
     }
 
     private boolean resourceModified(long resTimestamp, long modSince)
@@ -126,68 +263,129 @@ public final class ResourceServlet extends HttpServlet
         return resTimestamp == 0 || modSince == -1 || resTimestamp > modSince;
     }
 
-    private void copyResource(final URL url, final HttpServletResponse res) throws IOException
-    {
-        URLConnection conn = null;
-        OutputStream os = null;
-        InputStream is = null;
+    /** Marker for a range which can't be satisfied */
+    private static final long[] INVALID_RANGE = new long[0];
 
-        try
+    /**
+     * Get the requested byte range. Only a single range is supported, for multiple
+     * ranges the whole resource is served.
+     * @return The first and last byte position, {@code null} for the whole resource or {@link #INVALID_RANGE}
+     */
+    private long[] getRange(final HttpServletRequest req, final ResourceCache.Resource resource)
+    {
+        final String range = req.getHeader("Range");
+        if ( range == null || !range.startsWith("bytes=") || range.indexOf(',') != -1 )
         {
-            conn = url.openConnection();
-
-            is = conn.getInputStream();
-            os = res.getOutputStream();
-            // FELIX-3987 content length should be set *before* any streaming is done
-            // as headers should be written before the content is actually written...
-            int len = getContentLength(conn);
-            if (len >= 0)
+            return null;
+        }
+        final String ifRange = req.getHeader("If-Range");
+        if ( ifRange != null )
+        {
+            if ( ifRange.startsWith("\"") || ifRange.startsWith("W/") )
             {
-                res.setContentLength(len);
+                // a range request requires a strong match
+                if ( !ifRange.equals(resource.getETag()) )
+                {
+                    return null;
+                }
             }
-
-            byte[] buf = new byte[1024];
-            int n;
-
-            while ((n = is.read(buf, 0, buf.length)) >= 0)
+            else
             {
-                os.write(buf, 0, n);
+                final long date = req.getDateHeader("If-Range");
+                if ( resource.getLastModified() == 0 || resource.getLastModified() / 1000 != date / 1000 )
+                {
+                    return null;
+                }
             }
         }
-        finally
+
+        final long length = resource.getLength();
+        final String spec = range.substring(6).trim();
+        final int sep = spec.indexOf('-');
+        if ( sep == -1 )
+        {
+            return null;
+        }
+        try
         {
-            if (is != null)
+            final long first;
+            final long last;
+            if ( sep == 0 )
             {
-                is.close();
+                // suffix range
+                final long suffix = Long.parseLong(spec.substring(1).trim());
+                if ( suffix == 0 )
+                {
+                    return INVALID_RANGE;
+                }
+                first = Math.max(0, length - suffix);
+                last = length - 1;
             }
-
-            if (os != null)
+            else
+            {
+                first = Long.parseLong(spec.substring(0, sep).trim());
+                final String end = spec.substring(sep + 1).trim();
+                final long endPos = end.isEmpty() ? length - 1 : Long.parseLong(end);
+                if ( endPos < first )
+                {
+                    // syntactically invalid, ignore
+                    return null;
+                }
+                last = Math.min(endPos, length - 1);
+            }
+            if ( first >= length || length == 0 )
             {
-                os.close();
+                return INVALID_RANGE;
             }
+            return new long[] {first, last};
+        }
+        catch ( final NumberFormatException nfe )
+        {
+            return null;
         }
     }
 
-    private int getContentLength(final URLConnection conn)
+    private void copyResource(final ResourceCache.Resource resource,
+            final long start,
+            final long count,
+            final HttpServletResponse res) throws IOException
     {
-        int length = -1;
-
-        length = conn.getContentLength();
-        if (length < 0)
+        final OutputStream os = res.getOutputStream();
+        try
         {
-            // Unknown, try whether it is a file, and if so, use the file
-            // API to get the length of the content...
-            String path = conn.getURL().getPath();
-            if (path != null)
+            if ( resource.getContent() != null )
+            {
+                os.write(resource.getContent(), (int) start, (int) count);
+            }
+            else
             {
-                File f = new File(path);
-                // In case more than 2GB is streamed
-                if (f.length() < Integer.MAX_VALUE)
+                try (final InputStream is = resource.getFile() != null
+                        ? new FileInputStream(resource.getFile()) : resource.openStream())
                 {
-                    length = (int) f.length();
+                    long toSkip = start;
+                    while ( toSkip > 0 )
+                    {
+                        final long n = is.skip(toSkip);
+                        if ( n <= 0 )
+                        {
+                            break;
+                        }
+                        toSkip -= n;
+                    }
+                    final byte[] buf = new byte[8192];
+                    long remaining = count < 0 ? Long.MAX_VALUE : count;
+                    int n;
+                    while (remaining > 0 && (n = is.read(buf, 0, (int) Math.min(buf.length, remaining))) >= 0)
+                    {
+                        os.write(buf, 0, n);
+                        remaining -= n;
+                    }
                 }
             }
         }
-        return length;
+        finally
+        {
+            os.close();
+        }
     }
 }
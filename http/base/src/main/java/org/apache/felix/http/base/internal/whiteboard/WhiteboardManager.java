@@ -48,6 +48,7 @@ import javax.servlet.http.HttpSessionEvent;
 import org.apache.felix.http.base.internal.console.HttpServicePlugin;
 import org.apache.felix.http.base.internal.context.ExtServletContext;
 import org.apache.felix.http.base.internal.handler.FilterHandler;
+import org.apache.felix.http.base.internal.handler.HandlerStatistics;
 import org.apache.felix.http.base.internal.handler.HttpServiceServletHandler;
 import org.apache.felix.http.base.internal.handler.HttpSessionWrapper;
 import org.apache.felix.http.base.internal.handler.ListenerHandler;
@@ -989,6 +990,7 @@ public final class WhiteboardManager
         }
         else
         {
+	        final boolean collectMetrics = this.registry.getConfig().getRequestMetrics().isEnabled();
 	        final FilterChain chain = new FilterChain()
 	        {
 	        	private int index = 0;
@@ -1005,7 +1007,25 @@ public final class WhiteboardManager
 	            	{
 	            		final PreprocessorHandler handler = localHandlers.get(index);
 	            		index++;
-	            		handler.handle(request, response, this);
+	            		if ( collectMetrics )
+	            		{
+	            		    final HandlerStatistics statistics = handler.getStatistics();
+	            		    final long start = statistics.start();
+	            		    boolean error = true;
+	            		    try
+	            		    {
+	            		        handler.handle(request, response, this);
+	            		        error = response instanceof HttpServletResponse && ((HttpServletResponse) response).getStatus() >= 500;
+	            		    }
+	            		    finally
+	            		    {
+	            		        statistics.end(start, error);
+	            		    }
+	            		}
+	            		else
+	            		{
+	            		    handler.handle(request, response, this);
+	            		}
 	            	}
 	            }
 	        };
@@ -1013,6 +1033,15 @@ public final class WhiteboardManager
         }
     }
 
+    /**
+     * Get the active preprocessors
+     * @return The preprocessor handlers
+     */
+    public @NotNull List<PreprocessorHandler> getPreprocessorHandlers()
+    {
+        return this.preprocessorHandlers;
+    }
+
     private void updateRuntimeChangeCount()
     {
         this.serviceRuntime.updateChangeCount();
@@ -0,0 +1,183 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.felix.http.base.internal.dispatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.felix.http.base.internal.context.ExtServletContext;
+import org.apache.felix.http.base.internal.handler.FilterHandler;
+import org.apache.felix.http.base.internal.handler.HandlerStatistics;
+import org.apache.felix.http.base.internal.handler.ServletHandler;
+import org.apache.felix.http.base.internal.runtime.FilterInfo;
+import org.apache.felix.http.base.internal.runtime.ServletInfo;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+public class InvocationChainTest
+{
+    private ServletHandler servletHandler;
+
+    private FilterHandler filterHandler;
+
+    private HandlerStatistics servletStatistics;
+
+    private HandlerStatistics filterStatistics;
+
+    private HttpServletRequest request;
+
+    private HttpServletResponse response;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        final ExtServletContext context = mock(ExtServletContext.class);
+        when(context.handleSecurity(any(HttpServletRequest.class), any(HttpServletResponse.class))).thenReturn(true);
+
+        this.servletStatistics = new HandlerStatistics();
+        this.servletHandler = mock(ServletHandler.class);
+        when(this.servletHandler.getContext()).thenReturn(context);
+        when(this.servletHandler.getStatistics()).thenReturn(this.servletStatistics);
+        when(this.servletHandler.getName()).thenReturn("servlet");
+        when(this.servletHandler.getServletInfo()).thenReturn(new ServletInfo("servlet", "/", Collections.<String, String>emptyMap()));
+
+        this.filterStatistics = new HandlerStatistics();
+        this.filterHandler = mock(FilterHandler.class);
+        when(this.filterHandler.getStatistics()).thenReturn(this.filterStatistics);
+        when(this.filterHandler.getName()).thenReturn("filter");
+        when(this.filterHandler.getFilterInfo()).thenReturn(new FilterInfo("filter", "/.*", 0, Collections.<String, String>emptyMap()));
+        doAnswer(new Answer<Void>()
+        {
+            @Override
+            public Void answer(final InvocationOnMock invocation) throws Throwable
+            {
+                final Object[] args = invocation.getArguments();
+                ((FilterChain) args[2]).doFilter((ServletRequest) args[0], (ServletResponse) args[1]);
+                return null;
+            }
+        }).when(this.filterHandler).handle(any(ServletRequest.class), any(ServletResponse.class), any(FilterChain.class));
+
+        this.request = mock(HttpServletRequest.class);
+        this.response = mock(HttpServletResponse.class);
+        when(this.response.getStatus()).thenReturn(200);
+    }
+
+    private RequestMetrics createMetrics(final boolean enabled)
+    {
+        final RequestMetrics metrics = new RequestMetrics();
+        metrics.configure(enabled, 1000, 1);
+        return metrics;
+    }
+
+    @Test
+    public void testMetricsDisabled() throws Exception
+    {
+        final InvocationChain chain = new InvocationChain(this.servletHandler,
+                new FilterHandler[] {this.filterHandler}, createMetrics(false));
+        chain.doFilter(this.request, this.response);
+
+        assertEquals(0, this.filterStatistics.getCount());
+        assertEquals(0, this.servletStatistics.getCount());
+
+        final StringBuilder sb = new StringBuilder();
+        chain.appendTimings(sb);
+        assertEquals(0, sb.length());
+    }
+
+    @Test
+    public void testMetricsEnabled() throws Exception
+    {
+        final InvocationChain chain = new InvocationChain(this.servletHandler,
+                new FilterHandler[] {this.filterHandler}, createMetrics(true));
+        chain.doFilter(this.request, this.response);
+
+        assertEquals(1, this.filterStatistics.getCount());
+        assertEquals(0, this.filterStatistics.getErrorCount());
+        assertEquals(0, this.filterStatistics.getActiveCount());
+        assertEquals(1, this.servletStatistics.getCount());
+        assertEquals(0, this.servletStatistics.getErrorCount());
+        assertTrue(this.filterStatistics.getTotalTime() >= this.servletStatistics.getTotalTime());
+    }
+
+    @Test
+    public void testServerErrorIsCounted() throws Exception
+    {
+        when(this.response.getStatus()).thenReturn(503);
+        final InvocationChain chain = new InvocationChain(this.servletHandler,
+                new FilterHandler[0], createMetrics(true));
+        chain.doFilter(this.request, this.response);
+
+        assertEquals(1, this.servletStatistics.getCount());
+        assertEquals(1, this.servletStatistics.getErrorCount());
+    }
+
+    @Test
+    public void testExceptionIsCounted() throws Exception
+    {
+        doThrow(new ServletException()).when(this.servletHandler).handle(any(ServletRequest.class), any(ServletResponse.class));
+        final InvocationChain chain = new InvocationChain(this.servletHandler,
+                new FilterHandler[] {this.filterHandler}, createMetrics(true));
+        try
+        {
+            chain.doFilter(this.request, this.response);
+        }
+        catch ( final ServletException expected )
+        {
+            // expected
+        }
+
+        assertEquals(1, this.filterStatistics.getErrorCount());
+        assertEquals(1, this.servletStatistics.getErrorCount());
+        assertEquals(0, this.servletStatistics.getActiveCount());
+    }
+
+    @Test
+    public void testSlowRequestCount() throws Exception
+    {
+        final RequestMetrics metrics = createMetrics(true);
+        final InvocationChain chain = new InvocationChain(this.servletHandler,
+                new FilterHandler[] {this.filterHandler}, metrics);
+        chain.doFilter(this.request, this.response);
+
+        metrics.requestCompleted(this.request, chain, 0);
+        assertEquals(0, metrics.getSlowRequestCount());
+
+        metrics.requestCompleted(this.request, chain, 2_000_000_000L);
+        assertEquals(1, metrics.getSlowRequestCount());
+
+        final StringBuilder sb = new StringBuilder();
+        chain.appendTimings(sb);
+        assertTrue(sb.toString().contains("filter 'filter'"));
+        assertTrue(sb.toString().contains("servlet 'servlet'"));
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.felix.http.base.internal.handler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class HandlerStatisticsTest
+{
+    @Test
+    public void testCounters()
+    {
+        final HandlerStatistics statistics = new HandlerStatistics();
+
+        final long start1 = statistics.start();
+        final long start2 = statistics.start();
+        assertEquals(2, statistics.getActiveCount());
+
+        final long d1 = statistics.end(start1, false);
+        final long d2 = statistics.end(start2, true);
+
+        assertEquals(0, statistics.getActiveCount());
+        assertEquals(2, statistics.getCount());
+        assertEquals(1, statistics.getErrorCount());
+        assertEquals(d1 + d2, statistics.getTotalTime());
+        assertEquals(Math.max(d1, d2), statistics.getMaxTime());
+    }
+
+    @Test
+    public void testHistogram()
+    {
+        final HandlerStatistics statistics = new HandlerStatistics();
+        final long[] bounds = HandlerStatistics.getHistogramBounds();
+
+        // move the start into the past to end up in a known bucket
+        statistics.end(statistics.start() - 3_000_000L, false);
+        statistics.end(statistics.start() - 60_000_000_000L, false);
+
+        final long[] histogram = statistics.getHistogram();
+        assertEquals(bounds.length + 1, histogram.length);
+        long total = 0;
+        for(final long c : histogram)
+        {
+            total += c;
+        }
+        assertEquals(2, total);
+        // 3 ms is in the bucket up to 5 ms
+        assertEquals(1, histogram[2]);
+        // 60 s is above the highest bound
+        assertEquals(1, histogram[bounds.length]);
+        assertTrue(statistics.getMaxTime() >= 60_000_000_000L);
+    }
+}
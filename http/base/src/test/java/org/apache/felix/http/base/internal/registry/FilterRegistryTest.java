@@ -18,19 +18,27 @@ package org.apache.felix.http.base.internal.registry;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
+import java.util.Collections;
 import java.util.EventListener;
 
+import javax.servlet.DispatcherType;
+import javax.servlet.Filter;
 import javax.servlet.ServletContextListener;
 import javax.servlet.ServletException;
 
 import org.apache.felix.http.base.internal.context.ExtServletContext;
+import org.apache.felix.http.base.internal.handler.FilterHandler;
+import org.apache.felix.http.base.internal.handler.HttpServiceFilterHandler;
 import org.apache.felix.http.base.internal.handler.ListenerHandler;
 import org.apache.felix.http.base.internal.handler.WhiteboardListenerHandler;
+import org.apache.felix.http.base.internal.runtime.FilterInfo;
 import org.apache.felix.http.base.internal.runtime.ListenerInfo;
 import org.apache.felix.http.base.internal.runtime.dto.FailedDTOHolder;
 import org.junit.Test;
@@ -89,6 +97,43 @@ public class FilterRegistryTest {
         assertEmpty(dto, holder);
     }
 
+    @Test public void testCachedFilterChains()
+    {
+        final FilterRegistry reg = new FilterRegistry();
+        final FilterHandler h1 = createFilterHandler("a", "/a.*", 10);
+        final FilterHandler h2 = createFilterHandler("all", "/.*", 0);
+        reg.addFilter(h1);
+        reg.addFilter(h2);
+
+        final FilterHandler[] chain = reg.getFilterHandlers(null, DispatcherType.REQUEST, "/a1");
+        assertEquals(2, chain.length);
+        assertSame(h1, chain[0]);
+        assertSame(h2, chain[1]);
+        // same set of matching filters, same chain
+        assertSame(chain, reg.getFilterHandlers(null, DispatcherType.REQUEST, "/a2"));
+
+        final FilterHandler[] other = reg.getFilterHandlers(null, DispatcherType.REQUEST, "/b");
+        assertEquals(1, other.length);
+        assertSame(h2, other[0]);
+
+        assertEquals(0, reg.getFilterHandlers(null, DispatcherType.FORWARD, "/a1").length);
+
+        // changing the filters invalidates the chains
+        reg.removeFilter(h1.getFilterInfo(), true);
+        final FilterHandler[] updated = reg.getFilterHandlers(null, DispatcherType.REQUEST, "/a1");
+        assertNotSame(chain, updated);
+        assertEquals(1, updated.length);
+        assertSame(h2, updated[0]);
+    }
+
+    private static FilterHandler createFilterHandler(final String name, final String regex, final int ranking)
+    {
+        final FilterInfo info = new FilterInfo(name, regex, ranking, Collections.<String, String>emptyMap());
+        final ExtServletContext ctx = mock(ExtServletContext.class);
+
+        return new HttpServiceFilterHandler(ctx, info, mock(Filter.class));
+    }
+
     private static ListenerInfo createListenerInfo(final long id, final int ranking, final Class<? extends EventListener> type) throws InvalidSyntaxException
     {
         final String[] typeNames = new String[1];
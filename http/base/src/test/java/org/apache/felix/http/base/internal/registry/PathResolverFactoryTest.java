@@ -75,4 +75,54 @@ public class PathResolverFactoryTest {
 
         assertResult(pr, "", "", null);
     }
+
+    @Test public void testRegexMatcher()
+    {
+        final PathResolver pr = PathResolverFactory.createRegexMatcher("/foo/.*\\.html");
+        assertNotNull(pr);
+
+        assertResult(pr, "/foo/bar.html", "/foo/bar.html", null);
+        assertNull(pr.resolve("/foo/bar.txt"));
+        assertNull(pr.resolve("/bar/foo.html"));
+        assertNull(pr.resolve("/fo"));
+    }
+
+    @Test public void testRegexMatcherLiteral()
+    {
+        final PathResolver pr = PathResolverFactory.createRegexMatcher("/foo");
+
+        assertResult(pr, "/foo", "/foo", null);
+        assertNull(pr.resolve("/foo/bar"));
+        assertNull(pr.resolve("/fo"));
+    }
+
+    @Test public void testRegexMatcherOptionalCharacter()
+    {
+        final PathResolver pr = PathResolverFactory.createRegexMatcher("/foos?/.*");
+
+        assertResult(pr, "/foo/bar", "/foo/bar", null);
+        assertResult(pr, "/foos/bar", "/foos/bar", null);
+        assertNull(pr.resolve("/fo/bar"));
+    }
+
+    @Test public void testRegexMatcherAlternatives()
+    {
+        final PathResolver pr = PathResolverFactory.createRegexMatcher("/foo|/bar");
+
+        assertResult(pr, "/foo", "/foo", null);
+        assertResult(pr, "/bar", "/bar", null);
+        assertNull(pr.resolve("/baz"));
+    }
+
+    @Test public void testGetLiteralPrefix()
+    {
+        assertEquals("/foo/", PathResolverFactory.RegexMatcher.getLiteralPrefix("/foo/.*"));
+        assertEquals("/foo", PathResolverFactory.RegexMatcher.getLiteralPrefix("/foo"));
+        assertEquals("/fo", PathResolverFactory.RegexMatcher.getLiteralPrefix("/foo*"));
+        assertEquals("/fo", PathResolverFactory.RegexMatcher.getLiteralPrefix("/foo{2}"));
+        assertEquals("/foo", PathResolverFactory.RegexMatcher.getLiteralPrefix("/foo\\.bar"));
+        assertEquals("", PathResolverFactory.RegexMatcher.getLiteralPrefix("^/foo"));
+        assertEquals("", PathResolverFactory.RegexMatcher.getLiteralPrefix("(?i)/foo"));
+        assertEquals("", PathResolverFactory.RegexMatcher.getLiteralPrefix("/foo|/bar"));
+    }
 }
@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.felix.http.base.internal.registry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.felix.http.base.internal.handler.ServletHandler;
+import org.apache.felix.http.base.internal.service.HttpServiceFactory;
+import org.junit.Test;
+
+public class PathResolverIndexTest {
+
+    private static final String[] URIS = new String[] {
+            "", "/", "/a", "/a/", "/a/b", "/a/b/c", "/ab", "/a.jsp", "/a/b.jsp",
+            "/a/b/c.do", "/foo", "/foo/bar", "/foo/bar.html", "/foo/bar/x.tar.gz",
+            "/x.gz", "/bar", "/bar/", "/bar/baz", "/barbaz", "/jsp", ".jsp"
+    };
+
+    private List<PathResolver> createResolvers(final ServletHandler handler, final String... patterns)
+    {
+        final List<PathResolver> resolvers = new ArrayList<>();
+        for(final String pattern : patterns)
+        {
+            resolvers.add(PathResolverFactory.createPatternMatcher(handler, pattern));
+        }
+        Collections.sort(resolvers);
+        return resolvers;
+    }
+
+    private PathResolver findLinear(final List<PathResolver> resolvers, final String uri)
+    {
+        for(final PathResolver pr : resolvers)
+        {
+            if ( pr.resolve(uri) != null )
+            {
+                return pr;
+            }
+        }
+        return null;
+    }
+
+    private void assertSameAsLinear(final List<PathResolver> resolvers)
+    {
+        final PathResolverIndex index = PathResolverIndex.create(resolvers);
+        assertNotNull(index);
+        for(final String uri : URIS)
+        {
+            assertSame(uri, findLinear(resolvers, uri), index.find(uri));
+        }
+    }
+
+    @Test public void testWhiteboardPatterns()
+    {
+        assertSameAsLinear(createResolvers(null,
+                "/a", "/a/b", "/a/*", "/a/b/*", "/foo/*", "/*", "*.jsp", "*.gz", "*.tar.gz", "", "/"));
+        assertSameAsLinear(createResolvers(null, "/a/b/*", "*.jsp"));
+        assertSameAsLinear(createResolvers(null, "/"));
+        assertSameAsLinear(createResolvers(null, ""));
+        assertSameAsLinear(createResolvers(null));
+    }
+
+    @Test public void testHttpServicePatterns()
+    {
+        final ServletHandler handler = mock(ServletHandler.class);
+        when(handler.getContextServiceId()).thenReturn(HttpServiceFactory.HTTP_SERVICE_CONTEXT_SERVICE_ID);
+
+        assertSameAsLinear(createResolvers(handler, "/a", "/a/b", "/bar", "/foo/*", "*.jsp", "/"));
+        assertSameAsLinear(createResolvers(handler, "/a/b", "/a/*", "*.html"));
+    }
+
+    @Test public void testFirstResolverWins()
+    {
+        final ServletHandler h1 = mock(ServletHandler.class);
+        final ServletHandler h2 = mock(ServletHandler.class);
+        final List<PathResolver> resolvers = new ArrayList<>();
+        resolvers.add(PathResolverFactory.createPatternMatcher(h1, "/a/*"));
+        resolvers.add(PathResolverFactory.createPatternMatcher(h2, "/a/*"));
+
+        final PathResolverIndex index = PathResolverIndex.create(resolvers);
+        assertSame(h1, index.find("/a/b").getServletHandler());
+        assertNull(index.find("/b"));
+    }
+
+    @Test public void testRegexNotIndexed()
+    {
+        final List<PathResolver> resolvers = new ArrayList<>();
+        resolvers.add(PathResolverFactory.createRegexMatcher(".*"));
+        assertNull(PathResolverIndex.create(resolvers));
+    }
+
+    @Test public void testContextPathLinks()
+    {
+        final PathTrie<String> trie = new PathTrie<>();
+        trie.put("/a", "/a");
+        trie.put("/a/b", "/a/b");
+        trie.put("/a/bc", "/a/bc");
+        trie.put("/a/bc/d", "/a/bc/d");
+        trie.link();
+
+        PathTrie.Node<String> node = trie.longestPathMatch("/a/bc/d/e", false);
+        assertEquals("/a/bc/d", node.getValue());
+        node = node.getNext();
+        assertEquals("/a/bc", node.getValue());
+        node = node.getNext();
+        assertEquals("/a", node.getValue());
+        assertNull(node.getNext());
+
+        assertEquals("/a", trie.longestPathMatch("/a/bcd", false).getValue());
+        assertNull(trie.longestPathMatch("/ab", false));
+        assertNull(trie.longestPathMatch("/a", true));
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.felix.http.base.internal.registry;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.GenericServlet;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+
+import org.apache.felix.http.base.internal.HttpConfig;
+import org.apache.felix.http.base.internal.handler.HttpServiceServletHandler;
+import org.apache.felix.http.base.internal.runtime.ServletContextHelperInfo;
+import org.apache.felix.http.base.internal.runtime.ServletInfo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures the cost of resolving a request uri to a servlet with many
+ * contexts and servlets registered.
+ *
+ * The benchmark is not run as part of the build. Run it from the IDE
+ * or with the test classpath using the main method.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ServletResolutionBenchmark
+{
+    @Param({"40"})
+    public int contexts;
+
+    @Param({"20"})
+    public int servletsPerContext;
+
+    private HandlerRegistry registry;
+
+    private String[] uris;
+
+    private int current;
+
+    private static final class NoopServlet extends GenericServlet
+    {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public void service(final ServletRequest req, final ServletResponse res)
+        {
+            // nothing to do
+        }
+    }
+
+    @Setup
+    public void setup()
+    {
+        this.registry = new HandlerRegistry(new HttpConfig());
+        this.registry.init();
+        for(int c = 0; c < contexts; c++)
+        {
+            final ServletContextHelperInfo info = new ServletContextHelperInfo(0, c + 1, "context" + c, "/context" + c,
+                    Collections.<String, String>emptyMap());
+            final PerContextHandlerRegistry reg = new PerContextHandlerRegistry(info, new HttpConfig());
+            this.registry.add(reg);
+            for(int s = 0; s < servletsPerContext; s++)
+            {
+                // mix exact, path and extension mappings
+                final String pattern;
+                switch ( s % 3 )
+                {
+                    case 0 : pattern = "/servlet" + s; break;
+                    case 1 : pattern = "/servlet" + s + "/*"; break;
+                    default : pattern = "*.ext" + s;
+                }
+                final ServletInfo si = new ServletInfo("servlet" + s, pattern, Collections.<String, String>emptyMap());
+                reg.registerServlet(new HttpServiceServletHandler(null, si, new NoopServlet()));
+            }
+        }
+
+        this.uris = new String[] {
+                "/context0/servlet0",
+                "/context" + (contexts / 2) + "/servlet1/some/path/info",
+                "/context" + (contexts - 1) + "/some/file.ext2",
+                "/context" + (contexts - 1) + "/servlet" + (servletsPerContext - 1),
+                "/unknown/path"
+        };
+    }
+
+    @Benchmark
+    public void resolveServlet(final Blackhole blackhole)
+    {
+        final String uri = this.uris[this.current++ % this.uris.length];
+        blackhole.consume(this.registry.resolveServlet(uri));
+    }
+
+    public static void main(final String[] args) throws RunnerException
+    {
+        new Runner(new OptionsBuilder().include(ServletResolutionBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.felix.http.base.internal.service;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.jar.JarOutputStream;
+import java.util.zip.ZipEntry;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ResourceCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private URL createJar(final String name, final byte[]... contents) throws IOException
+    {
+        final File jar = folder.newFile(name);
+        try (final JarOutputStream jos = new JarOutputStream(new FileOutputStream(jar)))
+        {
+            for(int i = 0; i < contents.length; i++)
+            {
+                jos.putNextEntry(new ZipEntry("res" + i));
+                jos.write(contents[i]);
+                jos.closeEntry();
+            }
+        }
+        return jar.toURI().toURL();
+    }
+
+    @Test public void testJarResourceCached() throws IOException
+    {
+        final byte[] content = "hello world".getBytes(StandardCharsets.UTF_8);
+        final URL jar = createJar("a.jar", content, new byte[100]);
+        final URL url = new URL("jar:" + jar + "!/res0");
+
+        final ResourceCache cache = new ResourceCache(10000, 1000);
+        final ResourceCache.Resource r = cache.get(url);
+        assertArrayEquals(content, r.getContent());
+        assertEquals(content.length, r.getLength());
+        assertNotNull(r.getETag());
+        assertNull(r.getFile());
+
+        assertSame(r, cache.get(url));
+        assertEquals(1, cache.getCachedCount());
+
+        final ResourceCache.Resource other = cache.get(new URL("jar:" + jar + "!/res1"));
+        assertNotEquals(r.getETag(), other.getETag());
+        assertEquals(2, cache.getCachedCount());
+    }
+
+    @Test public void testLargeResourceNotInMemory() throws IOException
+    {
+        final URL jar = createJar("b.jar", new byte[2000]);
+        final URL url = new URL("jar:" + jar + "!/res0");
+
+        final ResourceCache cache = new ResourceCache(10000, 1000);
+        final ResourceCache.Resource r = cache.get(url);
+        assertNull(r.getContent());
+        assertEquals(2000, r.getLength());
+    }
+
+    @Test public void testEviction() throws IOException
+    {
+        final URL jar = createJar("c.jar", new byte[500], new byte[500], new byte[500]);
+
+        // room for two entries
+        final ResourceCache cache = new ResourceCache(1600, 1000);
+        final ResourceCache.Resource r0 = cache.get(new URL("jar:" + jar + "!/res0"));
+        cache.get(new URL("jar:" + jar + "!/res1"));
+        // access the first entry, the second one is now least recently used
+        assertSame(r0, cache.get(new URL("jar:" + jar + "!/res0")));
+        cache.get(new URL("jar:" + jar + "!/res2"));
+
+        assertEquals(2, cache.getCachedCount());
+        assertSame(r0, cache.get(new URL("jar:" + jar + "!/res0")));
+    }
+
+    @Test public void testFileResourceValidated() throws IOException
+    {
+        final File file = folder.newFile("file.txt");
+        try (final FileOutputStream fos = new FileOutputStream(file))
+        {
+            fos.write(new byte[10]);
+        }
+        final URL url = file.toURI().toURL();
+
+        final ResourceCache cache = new ResourceCache(10000, 1000);
+        final ResourceCache.Resource r = cache.get(url);
+        assertNull(r.getContent());
+        assertEquals(file, r.getFile());
+        assertEquals(10, r.getLength());
+        assertSame(r, cache.get(url));
+
+        try (final FileOutputStream fos = new FileOutputStream(file, true))
+        {
+            fos.write(new byte[10]);
+        }
+        assertEquals(20, cache.get(url).getLength());
+    }
+
+    @Test public void testJarResourceValidated() throws IOException
+    {
+        final URL jar = createJar("d.jar", "hello".getBytes(StandardCharsets.UTF_8));
+        final URL url = new URL("jar:" + jar + "!/res0");
+
+        final ResourceCache cache = new ResourceCache(10000, 1000);
+        final ResourceCache.Resource r = cache.get(url);
+        assertSame(r, cache.get(url));
+
+        // replace the jar file
+        final File file = new File(folder.getRoot(), "d.jar");
+        file.delete();
+        createJar("d.jar", "hello world".getBytes(StandardCharsets.UTF_8));
+        file.setLastModified(r.getLastModified() + 2000);
+
+        final ResourceCache.Resource replaced = cache.get(url);
+        assertNotSame(r, replaced);
+        assertArrayEquals("hello world".getBytes(StandardCharsets.UTF_8), replaced.getContent());
+        assertNotEquals(r.getETag(), replaced.getETag());
+    }
+
+    @Test public void testResourceOpenedOnce() throws IOException
+    {
+        final byte[] content = "hello world".getBytes(StandardCharsets.UTF_8);
+        final AtomicInteger opened = new AtomicInteger();
+        final URL url = new URL(null, "test:/res", new URLStreamHandler()
+        {
+            @Override
+            protected URLConnection openConnection(final URL u)
+            {
+                opened.incrementAndGet();
+                return new URLConnection(u)
+                {
+                    @Override
+                    public void connect()
+                    {
+                    }
+
+                    @Override
+                    public InputStream getInputStream()
+                    {
+                        return new ByteArrayInputStream(content);
+                    }
+
+                    @Override
+                    public long getContentLengthLong()
+                    {
+                        return content.length;
+                    }
+                };
+            }
+        });
+
+        final ResourceCache cache = new ResourceCache(10000, 1000);
+        try (final ResourceCache.Resource r = cache.get(url);
+             final InputStream is = r.openStream())
+        {
+            assertEquals(content.length, r.getLength());
+            final byte[] read = new byte[content.length];
+            assertEquals(content.length, is.read(read));
+            assertArrayEquals(content, read);
+        }
+        assertEquals(1, opened.get());
+        assertEquals(0, cache.getCachedCount());
+    }
+}
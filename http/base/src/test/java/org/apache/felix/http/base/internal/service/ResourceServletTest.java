@@ -0,0 +1,136 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.felix.http.base.internal.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import javax.servlet.ServletConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ResourceServletTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final ServletContext context = mock(ServletContext.class);
+
+    private final ByteArrayOutputStream content = new ByteArrayOutputStream();
+
+    private ResourceServlet servlet;
+
+    @Before
+    public void setUp() throws ServletException
+    {
+        final ServletConfig config = mock(ServletConfig.class);
+        when(config.getServletContext()).thenReturn(context);
+        this.servlet = new ResourceServlet("/res");
+        this.servlet.init(config);
+    }
+
+    private void addResource(final String name, final String text) throws IOException
+    {
+        final File file = folder.newFile(name.replace('/', '_'));
+        Files.write(file.toPath(), text.getBytes(StandardCharsets.UTF_8));
+        when(context.getResource(name)).thenReturn(file.toURI().toURL());
+    }
+
+    private HttpServletResponse get(final String acceptEncoding) throws ServletException, IOException
+    {
+        final HttpServletRequest req = mock(HttpServletRequest.class);
+        when(req.getPathInfo()).thenReturn("/app.js");
+        when(req.getHeader("Accept-Encoding")).thenReturn(acceptEncoding);
+        final HttpServletResponse res = mock(HttpServletResponse.class);
+        when(res.getOutputStream()).thenReturn(new ServletOutputStream()
+        {
+            @Override
+            public void write(final int b)
+            {
+                content.write(b);
+            }
+
+            @Override
+            public boolean isReady()
+            {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(final WriteListener writeListener)
+            {
+                // blocking only
+            }
+        });
+        this.servlet.doGet(req, res);
+        return res;
+    }
+
+    @Test public void testVariantServed() throws Exception
+    {
+        addResource("/res/app.js", "plain");
+        addResource("/res/app.js.gz", "gzipped");
+
+        final HttpServletResponse res = get("gzip, deflate");
+        verify(res).setHeader("Content-Encoding", "gzip");
+        verify(res).addHeader("Vary", "Accept-Encoding");
+        assertEquals("gzipped", content.toString("UTF-8"));
+    }
+
+    @Test public void testVaryWithoutAcceptedVariant() throws Exception
+    {
+        addResource("/res/app.js", "plain");
+        addResource("/res/app.js.br", "brotli");
+
+        // a cache must not serve this response to clients accepting br
+        HttpServletResponse res = get(null);
+        verify(res, never()).setHeader("Content-Encoding", "br");
+        verify(res).addHeader("Vary", "Accept-Encoding");
+
+        res = get("gzip");
+        verify(res, never()).setHeader("Content-Encoding", "br");
+        verify(res).addHeader("Vary", "Accept-Encoding");
+        assertEquals("plainplain", content.toString("UTF-8"));
+    }
+
+    @Test public void testNoVaryWithoutVariants() throws Exception
+    {
+        addResource("/res/app.js", "plain");
+
+        final HttpServletResponse res = get("gzip, br");
+        verify(res, never()).addHeader("Vary", "Accept-Encoding");
+        assertEquals("plain", content.toString("UTF-8"));
+    }
+}
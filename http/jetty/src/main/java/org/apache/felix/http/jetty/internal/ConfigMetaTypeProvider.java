@@ -431,6 +431,31 @@ class ConfigMetaTypeProvider implements MetaTypeProvider
         adList.add(new AttributeDefinitionImpl(JettyConfig.FELIX_JETTY_STOP_TIMEOUT, "Server stop timeout",
                 "If not -1, stop timeout for the server in milliseconds.", -1L,
                 bundle.getBundleContext().getProperty(JettyConfig.FELIX_JETTY_STOP_TIMEOUT)));
+        adList.add(new AttributeDefinitionImpl(JettyConfig.FELIX_JETTY_VIRTUAL_THREADS_ENABLE,
+                "Enable Virtual Threads",
+                "Whether requests should be handled on virtual threads instead of the thread pool. Requires Java 21 or higher, the thread pool settings are ignored if enabled. Default is false.",
+                false,
+                bundle.getBundleContext().getProperty(JettyConfig.FELIX_JETTY_VIRTUAL_THREADS_ENABLE)));
+        adList.add(new AttributeDefinitionImpl(JettyConfig.FELIX_JETTY_HTTP2_ENABLE,
+                "Enable HTTP/2",
+                "Whether HTTP/2 should be supported, using h2c for http and h2 for https connections. Default is false.",
+                false,
+                bundle.getBundleContext().getProperty(JettyConfig.FELIX_JETTY_HTTP2_ENABLE)));
+        adList.add(new AttributeDefinitionImpl(JettyConfig.FELIX_JETTY_HTTP2_MAX_CONCURRENT_STREAMS,
+                "HTTP/2 Max Concurrent Streams",
+                String.format("The maximum number of concurrent streams per HTTP/2 connection. Default is %d.", JettyConfig.DEFAULT_HTTP2_MAX_CONCURRENT_STREAMS),
+                JettyConfig.DEFAULT_HTTP2_MAX_CONCURRENT_STREAMS,
+                bundle.getBundleContext().getProperty(JettyConfig.FELIX_JETTY_HTTP2_MAX_CONCURRENT_STREAMS)));
+        adList.add(new AttributeDefinitionImpl(JettyConfig.FELIX_JETTY_HTTP2_INITIAL_STREAM_RECV_WINDOW,
+                "HTTP/2 Initial Stream Receive Window",
+                String.format("The initial receive window of a HTTP/2 stream in bytes. Default is %d.", JettyConfig.DEFAULT_HTTP2_INITIAL_STREAM_RECV_WINDOW),
+                JettyConfig.DEFAULT_HTTP2_INITIAL_STREAM_RECV_WINDOW,
+                bundle.getBundleContext().getProperty(JettyConfig.FELIX_JETTY_HTTP2_INITIAL_STREAM_RECV_WINDOW)));
+        adList.add(new AttributeDefinitionImpl(JettyConfig.FELIX_JETTY_HTTP2_INITIAL_SESSION_RECV_WINDOW,
+                "HTTP/2 Initial Session Receive Window",
+                String.format("The initial receive window of a HTTP/2 session in bytes. Default is %d.", JettyConfig.DEFAULT_HTTP2_INITIAL_SESSION_RECV_WINDOW),
+                JettyConfig.DEFAULT_HTTP2_INITIAL_SESSION_RECV_WINDOW,
+                bundle.getBundleContext().getProperty(JettyConfig.FELIX_JETTY_HTTP2_INITIAL_SESSION_RECV_WINDOW)));
 
         return new ObjectClassDefinition()
         {
@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.felix.http.jetty.internal;
+
+import org.apache.felix.http.base.internal.logger.SystemLogger;
+import org.eclipse.jetty.alpn.server.ALPNServerConnectionFactory;
+import org.eclipse.jetty.http2.HTTP2Cipher;
+import org.eclipse.jetty.http2.server.AbstractHTTP2ServerConnectionFactory;
+import org.eclipse.jetty.http2.server.HTTP2CServerConnectionFactory;
+import org.eclipse.jetty.http2.server.HTTP2ServerConnectionFactory;
+import org.eclipse.jetty.server.ConnectionFactory;
+import org.eclipse.jetty.server.HttpConnectionFactory;
+import org.eclipse.jetty.server.SslConnectionFactory;
+import org.eclipse.jetty.util.ssl.SslContextFactory;
+
+/**
+ * Creates the connection factories for HTTP/2.
+ *
+ * The Jetty HTTP/2 classes are only referenced from this class, so the
+ * light bundle works without them as long as HTTP/2 is not enabled.
+ */
+final class Http2Support
+{
+    private Http2Support()
+    {
+        // static methods only
+    }
+
+    /**
+     * Create the connection factories for a plain connector supporting
+     * HTTP/1.1 and h2c (prior knowledge and upgrade).
+     */
+    static ConnectionFactory[] createHttpFactories(final JettyConfig config, final HttpConnectionFactory http1)
+    {
+        final HTTP2CServerConnectionFactory h2c = new HTTP2CServerConnectionFactory(http1.getHttpConfiguration());
+        configure(config, h2c);
+
+        return new ConnectionFactory[] {http1, h2c};
+    }
+
+    /**
+     * Create the connection factories for a secure connector negotiating
+     * h2 or HTTP/1.1 using ALPN. If ALPN is not available in the runtime,
+     * only HTTP/1.1 is supported.
+     */
+    static ConnectionFactory[] createHttpsFactories(final JettyConfig config,
+            final SslContextFactory sslContextFactory,
+            final HttpConnectionFactory http1)
+    {
+        final ALPNServerConnectionFactory alpn;
+        // Jetty looks up the ALPN processors with the service loader of the
+        // context class loader, which in OSGi does not see the embedded
+        // META-INF/services entries
+        final Thread thread = Thread.currentThread();
+        final ClassLoader contextClassLoader = thread.getContextClassLoader();
+        thread.setContextClassLoader(Http2Support.class.getClassLoader());
+        try
+        {
+            alpn = new ALPNServerConnectionFactory(HTTP2ServerConnectionFactory.H2, http1.getProtocol());
+        }
+        catch ( final IllegalStateException ise )
+        {
+            SystemLogger.warning("No ALPN processor available, HTTP/2 is disabled for https", ise);
+            return new ConnectionFactory[] {new SslConnectionFactory(sslContextFactory, http1.getProtocol()), http1};
+        }
+        finally
+        {
+            thread.setContextClassLoader(contextClassLoader);
+        }
+        alpn.setDefaultProtocol(http1.getProtocol());
+
+        final HTTP2ServerConnectionFactory h2 = new HTTP2ServerConnectionFactory(http1.getHttpConfiguration());
+        configure(config, h2);
+
+        // HTTP/2 requires a minimum set of cipher suites
+        sslContextFactory.setCipherComparator(HTTP2Cipher.COMPARATOR);
+        sslContextFactory.setUseCipherSuitesOrder(true);
+
+        return new ConnectionFactory[] {new SslConnectionFactory(sslContextFactory, alpn.getProtocol()), alpn, h2, http1};
+    }
+
+    private static void configure(final JettyConfig config, final AbstractHTTP2ServerConnectionFactory factory)
+    {
+        factory.setMaxConcurrentStreams(config.getHttp2MaxConcurrentStreams());
+        factory.setInitialStreamRecvWindow(config.getHttp2InitialStreamRecvWindow());
+        factory.setInitialSessionRecvWindow(config.getHttp2InitialSessionRecvWindow());
+    }
+}
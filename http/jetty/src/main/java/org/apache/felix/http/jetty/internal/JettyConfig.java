@@ -267,6 +267,27 @@ public final class JettyConfig
     /** Felix specific property to specify the stop timeout of the jetty server */
     public static final String FELIX_JETTY_STOP_TIMEOUT = "org.apache.felix.jetty.stopTimeout";
 
+    /** Felix specific property to run requests on virtual threads instead of a thread pool */
+    public static final String FELIX_JETTY_VIRTUAL_THREADS_ENABLE = "org.apache.felix.jetty.virtualthreads.enable";
+
+    /** Felix specific property to enable HTTP/2, h2c for http and h2 for https */
+    public static final String FELIX_JETTY_HTTP2_ENABLE = "org.apache.felix.jetty.http2.enable";
+
+    /** Felix specific property to specify the maximum number of concurrent HTTP/2 streams per connection */
+    public static final String FELIX_JETTY_HTTP2_MAX_CONCURRENT_STREAMS = "org.apache.felix.jetty.http2.maxConcurrentStreams";
+
+    /** Felix specific property to specify the initial HTTP/2 stream receive window */
+    public static final String FELIX_JETTY_HTTP2_INITIAL_STREAM_RECV_WINDOW = "org.apache.felix.jetty.http2.initialStreamRecvWindow";
+
+    /** Felix specific property to specify the initial HTTP/2 session receive window */
+    public static final String FELIX_JETTY_HTTP2_INITIAL_SESSION_RECV_WINDOW = "org.apache.felix.jetty.http2.initialSessionRecvWindow";
+
+    public static final int DEFAULT_HTTP2_MAX_CONCURRENT_STREAMS = 128;
+
+    public static final int DEFAULT_HTTP2_INITIAL_STREAM_RECV_WINDOW = 512 * 1024;
+
+    public static final int DEFAULT_HTTP2_INITIAL_SESSION_RECV_WINDOW = 1024 * 1024;
+
     private static String validateContextPath(String ctxPath)
     {
         // undefined, empty, or root context path
@@ -668,6 +689,26 @@ public final class JettyConfig
         return getLongProperty(FELIX_JETTY_STOP_TIMEOUT, -1l);
     }
 
+    public boolean isUseVirtualThreads() {
+        return getBooleanProperty(FELIX_JETTY_VIRTUAL_THREADS_ENABLE, false);
+    }
+
+    public boolean isUseHttp2() {
+        return getBooleanProperty(FELIX_JETTY_HTTP2_ENABLE, false);
+    }
+
+    public int getHttp2MaxConcurrentStreams() {
+        return getIntProperty(FELIX_JETTY_HTTP2_MAX_CONCURRENT_STREAMS, DEFAULT_HTTP2_MAX_CONCURRENT_STREAMS);
+    }
+
+    public int getHttp2InitialStreamRecvWindow() {
+        return getIntProperty(FELIX_JETTY_HTTP2_INITIAL_STREAM_RECV_WINDOW, DEFAULT_HTTP2_INITIAL_STREAM_RECV_WINDOW);
+    }
+
+    public int getHttp2InitialSessionRecvWindow() {
+        return getIntProperty(FELIX_JETTY_HTTP2_INITIAL_SESSION_RECV_WINDOW, DEFAULT_HTTP2_INITIAL_SESSION_RECV_WINDOW);
+    }
+
     public void reset()
     {
         update(null);
@@ -38,6 +38,7 @@ import org.eclipse.jetty.http.HttpVersion;
 import org.eclipse.jetty.io.ConnectionStatistics;
 import org.eclipse.jetty.security.HashLoginService;
 import org.eclipse.jetty.security.UserStore;
+import org.eclipse.jetty.server.ConnectionFactory;
 import org.eclipse.jetty.server.Connector;
 import org.eclipse.jetty.server.HttpConfiguration;
 import org.eclipse.jetty.server.HttpConnectionFactory;
@@ -255,10 +256,17 @@ public final class JettyService extends AbstractLifeCycle.AbstractLifeCycleListe
         {
 
             final int threadPoolMax = this.config.getThreadPoolMax();
-            if (threadPoolMax >= 0) {
-                this.server = new Server( new QueuedThreadPool(threadPoolMax) );
+            if (this.config.isUseVirtualThreads() && VirtualThreadPool.isSupported()) {
+                this.server = new Server( new VirtualThreadPool() );
             } else {
-                this.server = new Server();
+                if (this.config.isUseVirtualThreads()) {
+                    SystemLogger.warning("Virtual threads are not supported by this Java runtime, using a thread pool", null);
+                }
+                if (threadPoolMax >= 0) {
+                    this.server = new Server( new QueuedThreadPool(threadPoolMax) );
+                } else {
+                    this.server = new Server();
+                }
             }
             this.server.addLifeCycleListener(this);
 
@@ -365,6 +373,11 @@ public final class JettyService extends AbstractLifeCycle.AbstractLifeCycleListe
                     ThreadPool.SizedThreadPool sizedThreadPool = (ThreadPool.SizedThreadPool) threadPool;
                     message.append("minThreads=").append(sizedThreadPool.getMinThreads()).append(",");
                     message.append("maxThreads=").append(sizedThreadPool.getMaxThreads()).append(",");
+                } else if (threadPool instanceof VirtualThreadPool) {
+                    message.append("virtualThreads=true,");
+                }
+                if (this.config.isUseHttp2()) {
+                    message.append("http2=true,");
                 }
                 Connector connector = this.server.getConnectors()[0];
                 if (connector instanceof ServerConnector) {
@@ -431,11 +444,21 @@ public final class JettyService extends AbstractLifeCycle.AbstractLifeCycleListe
         HttpConnectionFactory connFactory = new HttpConnectionFactory();
         configureHttpConnectionFactory(connFactory);
 
+        final ConnectionFactory[] factories;
+        if (this.config.isUseHttp2())
+        {
+            factories = Http2Support.createHttpFactories(this.config, connFactory);
+        }
+        else
+        {
+            factories = new ConnectionFactory[] {connFactory};
+        }
+
         ServerConnector connector = new ServerConnector(
             server,
             config.getAcceptors(),
             config.getSelectors(),
-            connFactory
+            factories
         );
 
         configureConnector(connector, this.config.getHttpPort());
@@ -455,12 +478,24 @@ public final class JettyService extends AbstractLifeCycle.AbstractLifeCycleListe
         SslContextFactory sslContextFactory = new SslContextFactory.Server();
         configureSslContextFactory(sslContextFactory);
 
+        final ConnectionFactory[] factories;
+        if (this.config.isUseHttp2())
+        {
+            factories = Http2Support.createHttpsFactories(this.config, sslContextFactory, connFactory);
+        }
+        else
+        {
+            factories = new ConnectionFactory[] {
+                new SslConnectionFactory(sslContextFactory, HttpVersion.HTTP_1_1.toString()),
+                connFactory
+            };
+        }
+
         ServerConnector connector = new ServerConnector(
             server,
             config.getAcceptors(),
             config.getSelectors(),
-            new SslConnectionFactory(sslContextFactory, HttpVersion.HTTP_1_1.toString()),
-            connFactory
+            factories
         );
 
         HttpConfiguration httpConfiguration = connFactory.getHttpConfiguration();
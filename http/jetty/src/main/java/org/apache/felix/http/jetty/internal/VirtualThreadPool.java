@@ -0,0 +1,149 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.felix.http.jetty.internal;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.jetty.util.component.AbstractLifeCycle;
+import org.eclipse.jetty.util.thread.ThreadPool;
+
+/**
+ * Jetty thread pool running each task on a new virtual thread.
+ *
+ * Virtual threads are available with Java 21, as the bundle supports older
+ * Java versions the executor is created reflectively. Use {@link #isSupported()}
+ * to check whether the runtime provides virtual threads.
+ */
+public class VirtualThreadPool extends AbstractLifeCycle implements ThreadPool
+{
+    private static final Method NEW_EXECUTOR = getExecutorFactory();
+
+    private final AtomicInteger activeThreads = new AtomicInteger();
+
+    private volatile ExecutorService executor;
+
+    private static Method getExecutorFactory()
+    {
+        try
+        {
+            return java.util.concurrent.Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        }
+        catch ( final NoSuchMethodException | SecurityException e )
+        {
+            return null;
+        }
+    }
+
+    /**
+     * Check whether virtual threads are supported by the runtime
+     * @return {@code true} if supported
+     */
+    public static boolean isSupported()
+    {
+        return NEW_EXECUTOR != null;
+    }
+
+    @Override
+    protected void doStart() throws Exception
+    {
+        if ( NEW_EXECUTOR == null )
+        {
+            throw new IllegalStateException("Virtual threads are not supported by this Java runtime");
+        }
+        this.executor = (ExecutorService) NEW_EXECUTOR.invoke(null);
+        super.doStart();
+    }
+
+    @Override
+    protected void doStop() throws Exception
+    {
+        final ExecutorService service = this.executor;
+        if ( service != null )
+        {
+            service.shutdown();
+        }
+        super.doStop();
+    }
+
+    @Override
+    public void execute(final Runnable task)
+    {
+        final ExecutorService service = this.executor;
+        if ( service == null )
+        {
+            throw new RejectedExecutionException("Thread pool is not started");
+        }
+        service.execute(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                activeThreads.incrementAndGet();
+                try
+                {
+                    task.run();
+                }
+                finally
+                {
+                    activeThreads.decrementAndGet();
+                }
+            }
+
+            @Override
+            public String toString()
+            {
+                return task.toString();
+            }
+        });
+    }
+
+    @Override
+    public void join() throws InterruptedException
+    {
+        final ExecutorService service = this.executor;
+        if ( service != null )
+        {
+            while ( !service.awaitTermination(1, TimeUnit.SECONDS) )
+            {
+                // keep on waiting
+            }
+        }
+    }
+
+    @Override
+    public int getThreads()
+    {
+        return this.activeThreads.get();
+    }
+
+    @Override
+    public int getIdleThreads()
+    {
+        return 0;
+    }
+
+    @Override
+    public boolean isLowOnThreads()
+    {
+        // a new thread is created for each task
+        return false;
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.felix.http.jetty.internal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.eclipse.jetty.util.thread.ThreadPool;
+
+/**
+ * Local load test comparing the concurrency of request handling on the
+ * default thread pool with request handling on virtual threads.
+ *
+ * The servlet simulates a blocking call to a downstream service. With the
+ * thread pool, the number of concurrently handled requests is capped by the
+ * pool size, with virtual threads it is only limited by the clients.
+ *
+ * This is not run as part of the build, run the main method with the test
+ * classpath. Arguments: [clients] [seconds] [blocking millis].
+ */
+public class ConcurrencyLoadHarness
+{
+    private static final class BlockingServlet extends HttpServlet
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final long blockMillis;
+
+        final AtomicInteger active = new AtomicInteger();
+
+        final AtomicInteger maxActive = new AtomicInteger();
+
+        BlockingServlet(final long blockMillis)
+        {
+            this.blockMillis = blockMillis;
+        }
+
+        @Override
+        protected void doGet(final HttpServletRequest req, final HttpServletResponse resp) throws IOException
+        {
+            final int current = active.incrementAndGet();
+            int max = maxActive.get();
+            while ( current > max && !maxActive.compareAndSet(max, current) )
+            {
+                max = maxActive.get();
+            }
+            try
+            {
+                Thread.sleep(blockMillis);
+            }
+            catch ( final InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+            }
+            finally
+            {
+                active.decrementAndGet();
+            }
+            resp.setContentType("text/plain");
+            resp.getWriter().write("ok");
+        }
+    }
+
+    public static void main(final String[] args) throws Exception
+    {
+        final int clients = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        final int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        final long blockMillis = args.length > 2 ? Long.parseLong(args[2]) : 100;
+
+        run("thread pool (200)", new QueuedThreadPool(200), clients, seconds, blockMillis);
+        if ( VirtualThreadPool.isSupported() )
+        {
+            run("virtual threads", new VirtualThreadPool(), clients, seconds, blockMillis);
+        }
+        else
+        {
+            System.out.println("Virtual threads are not supported by this Java runtime");
+        }
+    }
+
+    private static void run(final String name,
+            final ThreadPool pool,
+            final int clients,
+            final int seconds,
+            final long blockMillis) throws Exception
+    {
+        final Server server = new Server(pool);
+        final ServerConnector connector = new ServerConnector(server);
+        connector.setPort(0);
+        connector.setAcceptQueueSize(clients);
+        server.addConnector(connector);
+
+        final BlockingServlet servlet = new BlockingServlet(blockMillis);
+        final ServletContextHandler context = new ServletContextHandler();
+        context.addServlet(new ServletHolder(servlet), "/*");
+        server.setHandler(context);
+        server.start();
+
+        final URL url = new URL("http://localhost:" + connector.getLocalPort() + "/");
+        final AtomicLong requests = new AtomicLong();
+        final AtomicLong failures = new AtomicLong();
+        final long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+
+        final ExecutorService clientPool = Executors.newFixedThreadPool(clients);
+        try
+        {
+            final List<Future<?>> futures = new ArrayList<>();
+            for(int i = 0; i < clients; i++)
+            {
+                futures.add(clientPool.submit(new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        final byte[] buf = new byte[256];
+                        while ( System.nanoTime() < end )
+                        {
+                            try
+                            {
+                                final HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+                                try (final InputStream is = conn.getInputStream())
+                                {
+                                    while ( is.read(buf) != -1 )
+                                    {
+                                        // drain
+                                    }
+                                }
+                                requests.incrementAndGet();
+                            }
+                            catch ( final IOException e )
+                            {
+                                failures.incrementAndGet();
+                            }
+                        }
+                    }
+                }));
+            }
+            for(final Future<?> f : futures)
+            {
+                f.get();
+            }
+        }
+        finally
+        {
+            clientPool.shutdownNow();
+            server.stop();
+        }
+
+        System.out.println(String.format("%s: %d requests in %d s (%.1f req/s), %d failures, max %d concurrent requests",
+                name, requests.get(), seconds, requests.get() / (double) seconds, failures.get(), servlet.maxActive.get()));
+    }
+}
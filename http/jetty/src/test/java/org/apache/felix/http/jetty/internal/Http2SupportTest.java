@@ -0,0 +1,175 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.felix.http.jetty.internal;
+package org.apache.felix.http.jetty.internal;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.http.HttpFields;
+import org.eclipse.jetty.http.HttpURI;
+import org.eclipse.jetty.http.HttpVersion;
+import org.eclipse.jetty.http.MetaData;
+import org.eclipse.jetty.http2.api.Session;
+import org.eclipse.jetty.http2.api.Stream;
+import org.eclipse.jetty.http2.api.server.ServerSessionListener;
+import org.eclipse.jetty.http2.client.HTTP2Client;
+import org.eclipse.jetty.http2.frames.HeadersFrame;
+import org.eclipse.jetty.server.ConnectionFactory;
+import org.eclipse.jetty.server.HttpConfiguration;
+import org.eclipse.jetty.server.HttpConnectionFactory;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.SecureRequestCustomizer;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.eclipse.jetty.util.FuturePromise;
+import org.eclipse.jetty.util.Promise;
+import org.eclipse.jetty.util.ssl.SslContextFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.osgi.framework.BundleContext;
+
+/**
+ * Negotiates HTTP/2 with connectors created by {@link Http2Support}.
+ */
+public class Http2SupportTest
+{
+    private final AtomicReference<String> protocol = new AtomicReference<>();
+
+    private JettyConfig config;
+
+    private Server server;
+
+    private HTTP2Client client;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        this.config = new JettyConfig(Mockito.mock(BundleContext.class));
+        this.server = new Server();
+        this.server.setHandler(new AbstractHandler()
+        {
+            @Override
+            public void handle(final String target, final Request baseRequest, final HttpServletRequest request,
+                    final HttpServletResponse response) throws IOException
+            {
+                protocol.set(request.getProtocol());
+                response.setStatus(HttpServletResponse.SC_OK);
+                baseRequest.setHandled(true);
+            }
+        });
+        this.client = new HTTP2Client();
+    }
+
+    @After
+    public void tearDown() throws Exception
+    {
+        this.client.stop();
+        this.server.stop();
+    }
+
+    @Test public void testH2WithAlpn() throws Exception
+    {
+        final HttpConfiguration httpConfig = new HttpConfiguration();
+        httpConfig.addCustomizer(new SecureRequestCustomizer());
+        final SslContextFactory.Server sslContextFactory = new SslContextFactory.Server();
+        sslContextFactory.setKeyStorePath(getClass().getResource("/keystore.jks").toExternalForm());
+        sslContextFactory.setKeyStorePassword("password");
+
+        // as in OSGi, the context class loader does not see the ALPN processors
+        final ConnectionFactory[] factories;
+        final Thread thread = Thread.currentThread();
+        final ClassLoader contextClassLoader = thread.getContextClassLoader();
+        thread.setContextClassLoader(new URLClassLoader(new URL[0], null));
+        try
+        {
+            factories = Http2Support.createHttpsFactories(this.config, sslContextFactory, new HttpConnectionFactory(httpConfig));
+        }
+        finally
+        {
+            thread.setContextClassLoader(contextClassLoader);
+        }
+        assertEquals("alpn", factories[1].getProtocol());
+        final int port = start(factories);
+
+        final SslContextFactory.Client clientSslContextFactory = new SslContextFactory.Client(true);
+        clientSslContextFactory.setEndpointIdentificationAlgorithm(null);
+        this.client.addBean(clientSslContextFactory);
+        this.client.start();
+        final FuturePromise<Session> session = new FuturePromise<>();
+        this.client.connect(clientSslContextFactory, new InetSocketAddress("localhost", port),
+                new ServerSessionListener.Adapter(), session);
+
+        assertEquals(HttpServletResponse.SC_OK, get(session.get(5, TimeUnit.SECONDS), "https", port));
+        assertEquals("HTTP/2.0", this.protocol.get());
+    }
+
+    @Test public void testH2c() throws Exception
+    {
+        final int port = start(Http2Support.createHttpFactories(this.config,
+                new HttpConnectionFactory(new HttpConfiguration())));
+
+        this.client.start();
+        final FuturePromise<Session> session = new FuturePromise<>();
+        this.client.connect(new InetSocketAddress("localhost", port), new ServerSessionListener.Adapter(), session);
+
+        assertEquals(HttpServletResponse.SC_OK, get(session.get(5, TimeUnit.SECONDS), "http", port));
+        assertEquals("HTTP/2.0", this.protocol.get());
+    }
+
+    private int start(final ConnectionFactory[] factories) throws Exception
+    {
+        final ServerConnector connector = new ServerConnector(this.server, factories);
+        connector.setHost("localhost");
+        connector.setPort(0);
+        this.server.addConnector(connector);
+        this.server.start();
+        return connector.getLocalPort();
+    }
+
+    private static int get(final Session session, final String scheme, final int port) throws Exception
+    {
+        final MetaData.Request request = new MetaData.Request("GET",
+                new HttpURI(scheme + "://localhost:" + port + "/"), HttpVersion.HTTP_2, new HttpFields());
+        final CompletableFuture<MetaData.Response> response = new CompletableFuture<>();
+        session.newStream(new HeadersFrame(request, null, true), new Promise.Adapter<Stream>(), new Stream.Listener.Adapter()
+        {
+            @Override
+            public void onHeaders(final Stream stream, final HeadersFrame frame)
+            {
+                if ( frame.getMetaData().isResponse() )
+                {
+                    response.complete((MetaData.Response) frame.getMetaData());
+                }
+            }
+        });
+        return response.get(5, TimeUnit.SECONDS).getStatus();
+    }
+}
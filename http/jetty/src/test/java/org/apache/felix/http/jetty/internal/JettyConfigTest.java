@@ -18,6 +18,7 @@ package org.apache.felix.http.jetty.internal;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
@@ -149,6 +150,26 @@ public class JettyConfigTest
         assertEquals("string2", ((List<String>)toCheck.get("list")).get(1));
     }
 
+    @Test public void testHttp2AndVirtualThreads()
+    {
+        assertFalse(this.config.isUseHttp2());
+        assertFalse(this.config.isUseVirtualThreads());
+        assertEquals(JettyConfig.DEFAULT_HTTP2_MAX_CONCURRENT_STREAMS, this.config.getHttp2MaxConcurrentStreams());
+
+        Hashtable<String, Object> props = new Hashtable<>();
+        props.put(JettyConfig.FELIX_JETTY_HTTP2_ENABLE, "true");
+        props.put(JettyConfig.FELIX_JETTY_VIRTUAL_THREADS_ENABLE, true);
+        props.put(JettyConfig.FELIX_JETTY_HTTP2_MAX_CONCURRENT_STREAMS, "256");
+        props.put(JettyConfig.FELIX_JETTY_HTTP2_INITIAL_STREAM_RECV_WINDOW, 65536);
+        this.config.update(props);
+
+        assertTrue(this.config.isUseHttp2());
+        assertTrue(this.config.isUseVirtualThreads());
+        assertEquals(256, this.config.getHttp2MaxConcurrentStreams());
+        assertEquals(65536, this.config.getHttp2InitialStreamRecvWindow());
+        assertEquals(JettyConfig.DEFAULT_HTTP2_INITIAL_SESSION_RECV_WINDOW, this.config.getHttp2InitialSessionRecvWindow());
+    }
+
     @Before
     public void setUp()
     {
@@ -20,8 +20,11 @@ package org.apache.felix.httplite.server;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.SequenceInputStream;
 import java.net.Socket;
 
 import javax.servlet.ServletException;
@@ -40,6 +43,11 @@ import org.apache.felix.httplite.servlet.HttpServletResponseImpl;
  * clients. A given persistent connection is limited in the number of
  * consecutive requests it is allowed to make before having its connection
  * closed as well as after a period of inactivity.
+ * <p>
+ * A connection accepted by the {@link ConnectionSelector} only services the
+ * request whose header has been received by the selector. Afterwards it is
+ * handed back to the selector to wait for the next request, instead of
+ * blocking a thread of the pool while the connection is idle.
 **/
 public class Connection
 {
@@ -53,12 +61,14 @@ public class Connection
     public static final int DEFAULT_CONNECTION_REQUESTLIMIT = 50;
 
     private final Socket m_socket;
+    private InputStream m_socketIs;
     private ConcreteServletInputStream m_is;
     private OutputStream m_os;
     private int m_requestCount = 0;
     private final int m_requestLimit;
     private final ServiceRegistrationResolver m_resolver;
     private final Logger m_logger;
+    private final ConnectionSelector m_selector;
 
     /**
      * Constructs a connection with a default inactivity timeout and request limit.
@@ -84,17 +94,37 @@ public class Connection
      * @throws java.io.IOException If any I/O error occurs.
      */
     public Connection(final Socket socket, final int timeout, final int requestLimit, final ServiceRegistrationResolver resolver, final Logger logger) throws IOException
+    {
+        this(socket, timeout, requestLimit, resolver, logger, null);
+    }
+
+    /**
+     * Constructs a connection with the specified inactivity timeout and request limit
+     * which is parked in the selector while waiting for requests.
+     * @param socket The client socket.
+     * @param timeout The inactivity timeout of the connection in milliseconds.
+     * @param requestLimit The maximum number of consecutive requests.
+     * @param resolver resolves a request URI to a client or servlet registration via the HTTP Service.
+     * @param logger logger instance.
+     * @param selector The selector waiting for requests or <tt>null</tt>.
+     * @throws java.io.IOException If any I/O error occurs.
+     */
+    Connection(final Socket socket, final int timeout, final int requestLimit, final ServiceRegistrationResolver resolver, final Logger logger, final ConnectionSelector selector) throws IOException
     {
         m_socket = socket;
         m_resolver = resolver;
         m_logger = logger;
+        m_selector = selector;
         m_socket.setSoTimeout(timeout);
         m_socket.setTcpNoDelay(true);
         m_requestLimit = requestLimit;
         try
         {
-            m_is = new ConcreteServletInputStream(new BufferedInputStream(
-                m_socket.getInputStream()));
+            m_socketIs = m_socket.getInputStream();
+            if (m_selector == null)
+            {
+                m_is = new ConcreteServletInputStream(new BufferedInputStream(m_socketIs));
+            }
             m_os = new BufferedOutputStream(m_socket.getOutputStream());
         }
         catch (IOException ex)
@@ -136,6 +166,27 @@ public class Connection
         }
     }
 
+    /**
+     * Returns the client socket of this connection.
+     * @return The client socket.
+    **/
+    Socket getSocket()
+    {
+        return m_socket;
+    }
+
+    /**
+     * Sets the bytes of the next request which have already been read from the
+     * socket by the selector. They are read before any further data of the socket.
+     * @param head The buffer containing the bytes.
+     * @param length The number of bytes in the buffer.
+    **/
+    void setRequestHead(final byte[] head, final int length)
+    {
+        m_is = new ConcreteServletInputStream(new BufferedInputStream(
+            new SequenceInputStream(new ByteArrayInputStream(head, 0, length), m_socketIs)));
+    }
+
     /**
      * Performs the actual servicing of the connection and its subsequent requests.
      * This method will be called by threads in the thread pool. This method
@@ -143,17 +194,22 @@ public class Connection
      * connection close, the inactivity timeout expires, the maximum request
      * limit was reached, or an I/O error occurred. When this method returns,
      * the associated socket will be closed, regardless of whether or not an
-     * expection was thrown.
+     * expection was thrown. A connection created by the selector returns once
+     * its request has been serviced and is parked in the selector again, unless
+     * the connection is closed.
+     * @return <tt>true</tt> if the connection was closed, <tt>false</tt> if it
+     *         is parked in the selector waiting for the next request.
      * @throws java.net.SocketTimeoutException If the inactivity timeout expired
      *         while trying to read from the socket.
      * @throws java.io.IOException If any I/O error occurs.
      * @throws ServletException on servlet errors
     **/
-    public void process() throws IOException, ServletException
+    public boolean process() throws IOException, ServletException
     {
         HttpServletRequestImpl request = m_resolver.getServletRequest(m_socket);
         HttpServletResponseImpl response = m_resolver.getServletResponse(m_os);
 
+        boolean parked = false;
         try
         {
             // Loop until we close the connection.
@@ -257,34 +313,63 @@ public class Connection
                     response.setConnectionType(HttpConstants.CLOSE_CONNECTION);
                     response.sendNotFoundResponse();
                 }
+
+                // If the connection is kept open and the next request has not
+                // been sent yet, then wait for it in the selector rather than
+                // blocking this thread.
+                if (!close && (m_selector != null) && (m_is.available() == 0))
+                {
+                    m_os.flush();
+                    parked = true;
+                    break;
+                }
             }
         }
         finally
         {
-            try
+            if (parked)
             {
-                m_is.close();
+                m_selector.park(this);
             }
-            catch (IOException ex)
+            else
             {
-                m_logger.log(Logger.LOG_ERROR, "Error closing socket input stream.", ex);
-            }
-            try
-            {
-                m_os.close();
-            }
-            catch (IOException ex)
-            {
-                m_logger.log(Logger.LOG_ERROR, "Error closing socket output stream.", ex);
+                close();
             }
+        }
+        return !parked;
+    }
+
+    /**
+     * Closes the streams and the socket of this connection.
+    **/
+    void close()
+    {
+        if (m_is != null)
+        {
             try
             {
-                m_socket.close();
+                m_is.close();
             }
             catch (IOException ex)
             {
-                m_logger.log(Logger.LOG_ERROR, "Error closing socket.", ex);
+                m_logger.log(Logger.LOG_ERROR, "Error closing socket input stream.", ex);
             }
         }
+        try
+        {
+            m_os.close();
+        }
+        catch (IOException ex)
+        {
+            m_logger.log(Logger.LOG_ERROR, "Error closing socket output stream.", ex);
+        }
+        try
+        {
+            m_socket.close();
+        }
+        catch (IOException ex)
+        {
+            m_logger.log(Logger.LOG_ERROR, "Error closing socket.", ex);
+        }
     }
 }
\ No newline at end of file
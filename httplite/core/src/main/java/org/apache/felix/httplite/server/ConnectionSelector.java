@@ -0,0 +1,465 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.httplite.server;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.felix.httplite.osgi.Logger;
+import org.apache.felix.httplite.osgi.ServiceRegistrationResolver;
+
+/**
+ * This class implements a selector based front end for the server. It accepts
+ * connections and keeps them in a selector until the header of a request has
+ * been received. Only then the connection is added to the thread pool to service
+ * the request, after which the connection returns to the selector. This way idle
+ * persistent connections and slow clients do not occupy threads of the pool.
+ * Connections which do not send a request within the connection timeout are
+ * closed by the selector.
+**/
+class ConnectionSelector
+{
+    /**
+     * Maximum number of bytes read by the selector before a request is
+     * dispatched, even if its header is not complete yet.
+     */
+    private static final int MAX_HEADER_SIZE = 8192;
+    /**
+     * Maximum time between checks for idle connections.
+     */
+    private static final int MAX_SELECT_TIMEOUT = 1000;
+
+    private final Selector m_selector;
+    private final ServerSocketChannel m_serverChannel;
+    private final ByteBuffer m_readBuffer = ByteBuffer.allocate(MAX_HEADER_SIZE);
+    private final List m_dispatchList = new ArrayList();
+    private final List m_parkedList = new ArrayList();
+    private boolean m_closed = false;
+
+    private final ThreadPool m_threadPool;
+    private final int m_connectionTimeout;
+    private final int m_connectionRequestLimit;
+    private final ServiceRegistrationResolver m_resolver;
+    private final Logger m_logger;
+
+    /**
+     * State of a connection waiting in the selector for a request.
+     */
+    private static class PendingRequest
+    {
+        final Connection m_connection;
+        byte[] m_head;
+        int m_length;
+        long m_lastActivity;
+
+        PendingRequest(final Connection connection)
+        {
+            m_connection = connection;
+            m_lastActivity = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Opens the server channel and the selector.
+     * @param bindAddr The address to bind to or <tt>null</tt> for all interfaces.
+     * @param port The port to listen on.
+     * @param threadPool The thread pool servicing the requests.
+     * @param connectionTimeout The inactivity timeout of connections in milliseconds.
+     * @param connectionRequestLimit The maximum number of consecutive requests of a connection.
+     * @param resolver resolves a request URI to a client or servlet registration via the HTTP Service.
+     * @param logger Logger instance.
+     * @throws java.io.IOException If the server channel can't be opened.
+    **/
+    ConnectionSelector(final InetAddress bindAddr, final int port, final ThreadPool threadPool,
+        final int connectionTimeout, final int connectionRequestLimit,
+        final ServiceRegistrationResolver resolver, final Logger logger) throws IOException
+    {
+        m_threadPool = threadPool;
+        m_connectionTimeout = connectionTimeout;
+        m_connectionRequestLimit = connectionRequestLimit;
+        m_resolver = resolver;
+        m_logger = logger;
+
+        m_selector = Selector.open();
+        ServerSocketChannel serverChannel = null;
+        try
+        {
+            serverChannel = ServerSocketChannel.open();
+            serverChannel.socket().bind(new InetSocketAddress(bindAddr, port));
+            serverChannel.configureBlocking(false);
+            serverChannel.register(m_selector, SelectionKey.OP_ACCEPT);
+        }
+        catch (IOException ex)
+        {
+            if (serverChannel != null)
+            {
+                serverChannel.close();
+            }
+            m_selector.close();
+            throw ex;
+        }
+        m_serverChannel = serverChannel;
+    }
+
+    /**
+     * Closes the selector; the selector thread closes all connections waiting
+     * in the selector and returns from {@link #run()}.
+    **/
+    void close()
+    {
+        synchronized (m_parkedList)
+        {
+            m_closed = true;
+        }
+        m_selector.wakeup();
+    }
+
+    /**
+     * Hands a connection back to the selector to wait for its next request. This
+     * is called by the threads of the thread pool.
+     * @param connection The connection.
+    **/
+    void park(final Connection connection)
+    {
+        synchronized (m_parkedList)
+        {
+            if (m_closed)
+            {
+                connection.close();
+                return;
+            }
+            m_parkedList.add(connection);
+        }
+        m_selector.wakeup();
+    }
+
+    /**
+     * This method is the main loop of the selector. This is only ever called
+     * by the server thread.
+    **/
+    void run()
+    {
+        m_logger.log(Logger.LOG_DEBUG, "Waiting for connections.");
+
+        final int selectTimeout = (m_connectionTimeout > 0)
+            ? Math.min(m_connectionTimeout, MAX_SELECT_TIMEOUT) : 0;
+        try
+        {
+            while (!isClosed())
+            {
+                registerParkedConnections();
+
+                m_selector.select(selectTimeout);
+
+                Iterator i = m_selector.selectedKeys().iterator();
+                while (i.hasNext())
+                {
+                    SelectionKey key = (SelectionKey) i.next();
+                    i.remove();
+                    if (!key.isValid())
+                    {
+                        continue;
+                    }
+                    if (key.isAcceptable())
+                    {
+                        acceptConnections();
+                    }
+                    else if (key.isReadable())
+                    {
+                        readRequest(key);
+                    }
+                }
+
+                dispatchRequests();
+                closeIdleConnections();
+            }
+        }
+        catch (IOException ex)
+        {
+            m_logger.log(Logger.LOG_ERROR, "The selector terminated with an exception.", ex);
+        }
+        finally
+        {
+            closeAll();
+        }
+    }
+
+    private boolean isClosed()
+    {
+        synchronized (m_parkedList)
+        {
+            return m_closed;
+        }
+    }
+
+    private void registerParkedConnections()
+    {
+        Object[] parked;
+        synchronized (m_parkedList)
+        {
+            parked = m_parkedList.toArray();
+            m_parkedList.clear();
+        }
+        for (int i = 0; i < parked.length; i++)
+        {
+            register((Connection) parked[i]);
+        }
+    }
+
+    private void register(final Connection connection)
+    {
+        try
+        {
+            SocketChannel channel = connection.getSocket().getChannel();
+            channel.configureBlocking(false);
+            channel.register(m_selector, SelectionKey.OP_READ, new PendingRequest(connection));
+        }
+        catch (IOException ex)
+        {
+            m_logger.log(Logger.LOG_DEBUG, "Unable to wait for next request.", ex);
+            connection.close();
+        }
+    }
+
+    private void acceptConnections()
+    {
+        SocketChannel channel;
+        do
+        {
+            try
+            {
+                channel = m_serverChannel.accept();
+            }
+            catch (IOException ex)
+            {
+                m_logger.log(Logger.LOG_ERROR, "The call to accept() terminated with an exception.", ex);
+                return;
+            }
+            if (channel != null)
+            {
+                try
+                {
+                    // The connection constructor closes the socket on failure.
+                    Connection connection = new Connection(channel.socket(), m_connectionTimeout,
+                        m_connectionRequestLimit, m_resolver, m_logger, this);
+                    m_logger.log(Logger.LOG_DEBUG, "Accepted a new connection.");
+                    register(connection);
+                }
+                catch (IOException ex)
+                {
+                    m_logger.log(Logger.LOG_ERROR, "Error creating connection.", ex);
+                }
+            }
+        }
+        while (channel != null);
+    }
+
+    private void readRequest(final SelectionKey key)
+    {
+        PendingRequest pending = (PendingRequest) key.attachment();
+        SocketChannel channel = (SocketChannel) key.channel();
+
+        m_readBuffer.clear();
+        m_readBuffer.limit(MAX_HEADER_SIZE - pending.m_length);
+        int count;
+        try
+        {
+            count = channel.read(m_readBuffer);
+        }
+        catch (IOException ex)
+        {
+            count = -1;
+        }
+        if (count < 0)
+        {
+            // The client closed the connection.
+            key.cancel();
+            pending.m_connection.close();
+            return;
+        }
+        if (count == 0)
+        {
+            return;
+        }
+
+        // Append the bytes to the request head.
+        if (pending.m_head == null)
+        {
+            pending.m_head = new byte[Math.max(count, 512)];
+        }
+        else if (pending.m_head.length < pending.m_length + count)
+        {
+            byte[] head = new byte[Math.min(MAX_HEADER_SIZE,
+                Math.max(pending.m_length + count, pending.m_head.length * 2))];
+            System.arraycopy(pending.m_head, 0, head, 0, pending.m_length);
+            pending.m_head = head;
+        }
+        m_readBuffer.flip();
+        m_readBuffer.get(pending.m_head, pending.m_length, count);
+        int start = Math.max(0, pending.m_length - 3);
+        pending.m_length += count;
+        pending.m_lastActivity = System.currentTimeMillis();
+
+        if (isHeaderComplete(pending.m_head, start, pending.m_length)
+            || (pending.m_length == MAX_HEADER_SIZE))
+        {
+            // The channel must be deregistered before it can be switched to
+            // blocking mode, which happens on the next select.
+            key.cancel();
+            m_dispatchList.add(pending);
+        }
+    }
+
+    /**
+     * Checks whether the header of a request has been received, which is
+     * terminated by an empty line.
+    **/
+    private static boolean isHeaderComplete(final byte[] head, final int start, final int length)
+    {
+        for (int i = start; i < length - 1; i++)
+        {
+            if (head[i] == '\n')
+            {
+                if (head[i + 1] == '\n')
+                {
+                    return true;
+                }
+                if ((head[i + 1] == '\r') && (i + 2 < length) && (head[i + 2] == '\n'))
+                {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private void dispatchRequests() throws IOException
+    {
+        if (m_dispatchList.isEmpty())
+        {
+            return;
+        }
+
+        // Flush the cancelled keys.
+        m_selector.selectNow();
+
+        for (int i = 0; i < m_dispatchList.size(); i++)
+        {
+            PendingRequest pending = (PendingRequest) m_dispatchList.get(i);
+            try
+            {
+                pending.m_connection.getSocket().getChannel().configureBlocking(true);
+                pending.m_connection.setRequestHead(pending.m_head, pending.m_length);
+                m_threadPool.addConnection(pending.m_connection);
+            }
+            catch (IOException ex)
+            {
+                m_logger.log(Logger.LOG_ERROR, "Error dispatching request.", ex);
+                pending.m_connection.close();
+            }
+            catch (IllegalStateException ex)
+            {
+                // The thread pool is stopping.
+                pending.m_connection.close();
+            }
+        }
+        m_dispatchList.clear();
+    }
+
+    private void closeIdleConnections()
+    {
+        if (m_connectionTimeout <= 0)
+        {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        Iterator i = m_selector.keys().iterator();
+        while (i.hasNext())
+        {
+            SelectionKey key = (SelectionKey) i.next();
+            PendingRequest pending = (PendingRequest) key.attachment();
+            if (key.isValid() && (pending != null)
+                && (now - pending.m_lastActivity >= m_connectionTimeout))
+            {
+                key.cancel();
+                pending.m_connection.close();
+                m_logger.log(Logger.LOG_INFO, "Connection closed due to inactivity.");
+            }
+        }
+    }
+
+    private void closeAll()
+    {
+        try
+        {
+            m_serverChannel.close();
+        }
+        catch (IOException ex)
+        {
+            m_logger.log(Logger.LOG_ERROR, "Error closing server socket.", ex);
+        }
+
+        Iterator i = m_selector.keys().iterator();
+        while (i.hasNext())
+        {
+            SelectionKey key = (SelectionKey) i.next();
+            PendingRequest pending = (PendingRequest) key.attachment();
+            if (pending != null)
+            {
+                pending.m_connection.close();
+            }
+        }
+        for (int j = 0; j < m_dispatchList.size(); j++)
+        {
+            ((PendingRequest) m_dispatchList.get(j)).m_connection.close();
+        }
+        m_dispatchList.clear();
+
+        try
+        {
+            m_selector.close();
+        }
+        catch (IOException ex)
+        {
+            m_logger.log(Logger.LOG_ERROR, "Error closing selector.", ex);
+        }
+
+        // Close connections which returned from the thread pool in the meantime.
+        Object[] parked;
+        synchronized (m_parkedList)
+        {
+            m_closed = true;
+            parked = m_parkedList.toArray();
+            m_parkedList.clear();
+        }
+        for (int j = 0; j < parked.length; j++)
+        {
+            ((Connection) parked[j]).close();
+        }
+    }
+}
@@ -69,6 +69,10 @@ public class Server
      * The address of the host interface to bind http to. The default is to bind to all interfaces.
      */
     public static final String CONFIG_PROPERTY_HTTP_HOST = "org.apache.felix.http.host"; 
+    /**
+     * Flag to enable the selector based handling of connections. The default is false.
+     */
+    public static final String CONFIG_PROPERTY_NIO_ENABLE = "org.apache.felix.http.nio.enable";
 
     /**
      * Default HTTP port to listen on.
@@ -101,7 +105,9 @@ public class Server
 
     private Thread m_serverThread;
     private ServerSocket m_serverSocket;
+    private ConnectionSelector m_connectionSelector;
     private final ThreadPool m_threadPool;
+    private final boolean m_useSelector;
 
     private final int m_connectionTimeout;
     private final int m_connectionRequestLimit;
@@ -138,6 +144,10 @@ public class Server
      *       connections after which the connection is closed; the default value
      *       is 10000 milliseconds.
      *   </li>
+     *   <li><tt>org.apache.felix.http.nio.enable</tt> - if <tt>true</tt>, connections are
+     *       kept in a selector while waiting for a request, so that only requests whose header
+     *       has been received occupy a thread of the thread pool; the default is <tt>false</tt>.
+     *   </li>
      * </ul>
      * The configuration properties cannot be changed after construction. The
      * web server is not active until it is started.
@@ -163,6 +173,7 @@ public class Server
             : Integer.parseInt((String) configMap.get(Server.CONFIG_PROPERTY_CONNECTION_TIMEOUT_PROP));
         m_connectionRequestLimit = (configMap.get(Server.CONFIG_PROPERTY_CONNECTION_REQUESTLIMIT_PROP) == null) ? Connection.DEFAULT_CONNECTION_REQUESTLIMIT
             : Integer.parseInt((String) configMap.get(Server.CONFIG_PROPERTY_CONNECTION_REQUESTLIMIT_PROP));
+        m_useSelector = "true".equalsIgnoreCase((String) configMap.get(Server.CONFIG_PROPERTY_NIO_ENABLE));
     }
 
     /**
@@ -266,7 +277,12 @@ public class Server
         {
             // If inactive, then create server socket, server thread, and
             // set state to active.
-            if (m_bindAddr == null)
+            if (m_useSelector)
+            {
+                m_connectionSelector = new ConnectionSelector(m_bindAddr, m_port, m_threadPool,
+                    m_connectionTimeout, m_connectionRequestLimit, m_resolver, m_logger);
+            }
+            else if (m_bindAddr == null)
             {
                 m_serverSocket = new ServerSocket(m_port);
             }
@@ -328,12 +344,19 @@ public class Server
 
                 // Close the server socket, which will cause the server thread
                 // to exit its accept() loop.
-                try
+                if (m_connectionSelector != null)
                 {
-                    m_serverSocket.close();
+                    m_connectionSelector.close();
                 }
-                catch (IOException ex)
+                else
                 {
+                    try
+                    {
+                        m_serverSocket.close();
+                    }
+                    catch (IOException ex)
+                    {
+                    }
                 }
             }
         }
@@ -354,6 +377,14 @@ public class Server
         // Start the thread pool.
         m_threadPool.start();
 
+        if (m_connectionSelector != null)
+        {
+            // Let the selector accept connections and wait for requests.
+            m_connectionSelector.run();
+            shutdown();
+            return;
+        }
+
         Socket socket;
 
         m_logger.log(Logger.LOG_DEBUG, "Waiting for connections.");
@@ -427,6 +458,7 @@ public class Server
             // gate and set the state to inactive.
             m_shutdownGate.open();
             m_shutdownGate = null;
+            m_connectionSelector = null;
             m_state = INACTIVE_STATE;
         }
         m_logger.log(Logger.LOG_DEBUG, "Shutdown complete.");
@@ -302,8 +302,10 @@ public class ThreadPool
             // service those remaining connections before stopping.
             try
             {
-                connection.process();
-                m_logger.log(Logger.LOG_DEBUG, "Connection closed normally.");
+                if (connection.process())
+                {
+                    m_logger.log(Logger.LOG_DEBUG, "Connection closed normally.");
+                }
             }
             catch (SocketTimeoutException ex)
             {
@@ -0,0 +1,227 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.httplite.server;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.felix.httplite.osgi.Logger;
+import org.apache.felix.httplite.osgi.ServiceRegistration;
+import org.apache.felix.httplite.osgi.ServiceRegistrationHandler;
+import org.apache.felix.httplite.osgi.ServiceRegistrationResolver;
+import org.apache.felix.httplite.servlet.HttpServletRequestImpl;
+import org.apache.felix.httplite.servlet.HttpServletResponseImpl;
+
+/**
+ * Compares the blocking and the selector based connection handling of the
+ * server while many clients keep idle connections open.
+ * <p>
+ * With blocking connection handling each idle connection occupies a thread
+ * of the pool until the connection timeout expires, so the active clients
+ * compete for the remaining threads. With the selector, idle connections
+ * do not occupy any thread.
+ * <p>
+ * This is not run as part of the build, run the main method with the test
+ * classpath. Arguments: [idle clients] [active clients] [seconds].
+**/
+public class IdleConnectionBenchmark
+{
+    private static final Logger LOGGER = new Logger();
+
+    static
+    {
+        // the blocking run logs an error for each idle connection closed at the end
+        LOGGER.setLogLevel(0);
+    }
+
+    /**
+     * Resolver answering every request with a small plain text response.
+     */
+    private static class StaticResolver implements ServiceRegistrationResolver
+    {
+        public HttpServletRequestImpl getServletRequest(final Socket socket)
+        {
+            return new HttpServletRequestImpl(socket, this, LOGGER);
+        }
+
+        public ServiceRegistration getServiceRegistration(final String requestPath)
+        {
+            return null;
+        }
+
+        public HttpServletResponseImpl getServletResponse(final OutputStream output)
+        {
+            return new HttpServletResponseImpl(output);
+        }
+
+        public ServiceRegistrationHandler getProcessor(final HttpServletRequestImpl request,
+            final HttpServletResponseImpl response, final String requestPath)
+        {
+            return new ServiceRegistrationHandler()
+            {
+                public void handle(final boolean closeConnection) throws IOException
+                {
+                    response.setContentType("text/plain");
+                    response.getWriter().print("ok");
+                    response.flushBuffer();
+                }
+            };
+        }
+    }
+
+    /**
+     * Client sending requests until the end of the run.
+     */
+    private static class ActiveClient extends Thread
+    {
+        private final int m_port;
+        private final long m_end;
+        int m_requests = 0;
+        int m_failures = 0;
+        long m_maxLatency = 0;
+
+        ActiveClient(final int port, final long end)
+        {
+            m_port = port;
+            m_end = end;
+        }
+
+        public void run()
+        {
+            byte[] request = "GET / HTTP/1.0\r\n\r\n".getBytes();
+            byte[] buf = new byte[1024];
+            while (System.currentTimeMillis() < m_end)
+            {
+                long start = System.currentTimeMillis();
+                try
+                {
+                    Socket socket = new Socket("localhost", m_port);
+                    try
+                    {
+                        socket.setSoTimeout(5000);
+                        socket.getOutputStream().write(request);
+                        InputStream is = socket.getInputStream();
+                        while (is.read(buf) != -1)
+                        {
+                            // drain
+                        }
+                    }
+                    finally
+                    {
+                        socket.close();
+                    }
+                    m_requests++;
+                    m_maxLatency = Math.max(m_maxLatency, System.currentTimeMillis() - start);
+                }
+                catch (IOException ex)
+                {
+                    m_failures++;
+                }
+            }
+        }
+    }
+
+    public static void main(final String[] args) throws Exception
+    {
+        int idleClients = (args.length > 0) ? Integer.parseInt(args[0]) : 200;
+        int activeClients = (args.length > 1) ? Integer.parseInt(args[1]) : 4;
+        int seconds = (args.length > 2) ? Integer.parseInt(args[2]) : 5;
+
+        run("blocking", false, idleClients, activeClients, seconds);
+        run("selector", true, idleClients, activeClients, seconds);
+    }
+
+    private static void run(final String name, final boolean useSelector,
+        final int idleClients, final int activeClients, final int seconds) throws Exception
+    {
+        int port = getFreePort();
+        Map config = new HashMap();
+        config.put(Server.CONFIG_PROPERTY_HTTP_PORT, Integer.toString(port));
+        config.put(Server.CONFIG_PROPERTY_HTTP_HOST, "localhost");
+        config.put(Server.CONFIG_PROPERTY_NIO_ENABLE, Boolean.toString(useSelector));
+        config.put(Server.CONFIG_PROPERTY_CONNECTION_TIMEOUT_PROP, Integer.toString(seconds * 2000));
+
+        Server server = new Server(config, LOGGER);
+        server.setStopping();
+        server.start(new StaticResolver());
+
+        Socket[] idle = new Socket[idleClients];
+        try
+        {
+            // Open connections which never send a request.
+            for (int i = 0; i < idle.length; i++)
+            {
+                idle[i] = new Socket("localhost", port);
+            }
+
+            long end = System.currentTimeMillis() + seconds * 1000L;
+            ActiveClient[] clients = new ActiveClient[activeClients];
+            for (int i = 0; i < clients.length; i++)
+            {
+                clients[i] = new ActiveClient(port, end);
+                clients[i].start();
+            }
+
+            int requests = 0;
+            int failures = 0;
+            long maxLatency = 0;
+            for (int i = 0; i < clients.length; i++)
+            {
+                clients[i].join();
+                requests += clients[i].m_requests;
+                failures += clients[i].m_failures;
+                maxLatency = Math.max(maxLatency, clients[i].m_maxLatency);
+            }
+
+            System.out.println(name + ": " + idleClients + " idle connections, "
+                + requests + " requests in " + seconds + " s ("
+                + (requests / seconds) + " req/s), " + failures + " failures, max latency "
+                + maxLatency + " ms");
+        }
+        finally
+        {
+            for (int i = 0; i < idle.length; i++)
+            {
+                if (idle[i] != null)
+                {
+                    idle[i].close();
+                }
+            }
+            server.stop();
+        }
+    }
+
+    private static int getFreePort() throws IOException
+    {
+        ServerSocket socket = new ServerSocket(0);
+        try
+        {
+            return socket.getLocalPort();
+        }
+        finally
+        {
+            socket.close();
+        }
+    }
+}
@@ -29,6 +29,7 @@ import org.osgi.framework.BundleContext;
 
 import java.lang.reflect.*;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * This class defines the container of primitive instances. It manages content initialization
@@ -95,10 +96,18 @@ public class InstanceManager implements ComponentInstance, InstanceStateListener
     private final BundleContext m_context;
 
     /**
-     * The map [field, {@link FieldInterceptor} list] storing interceptors monitoring fields.
-     * Once configured, this map can't change.
+     * The map [field, {@link FieldSlot}] storing the value of the POJO managed fields
+     * and the {@link FieldInterceptor} list monitoring them.
+     * Slots are never removed, so the interception path reads and writes them without locking.
      */
-    private Map m_fieldRegistration;
+    private final ConcurrentHashMap m_fields = new ConcurrentHashMap();
+
+    /**
+     * The names of the fields monitored by at least one {@link FieldInterceptor}.
+     * The set is never modified, registering the first interceptor of a field
+     * replaces it while holding the lock of {@link #m_fields}.
+     */
+    private volatile Set m_fieldRegistration = Collections.EMPTY_SET;
 
     /**
      * the map [method identifier, {@link MethodInterceptor} list] interested
@@ -138,16 +147,17 @@ public class InstanceManager implements ComponentInstance, InstanceStateListener
     private List m_stateQueue = new ArrayList();
 
     /**
-     * The map of [field, value], storing POJO managed
-     * field value.
+     * The Map storing the Member objects by ids.
+     * [id=>{@link Member}], or [id=>{@link InstanceManager#NO_MEMBER}] if the id cannot be resolved.
+     * Filled for the registered methods when the class is loaded.
      */
-    private Map m_fields = new HashMap();
+    private final Map m_methods = new ConcurrentHashMap();
 
     /**
-     * The Map storing the Method objects by ids.
-     * [id=>{@link Method}].
+     * Marker stored in {@link InstanceManager#m_methods} for ids without member object
+     * (anonymous classes, or methods that cannot be found).
      */
-    private Map m_methods =  Collections.synchronizedMap(new HashMap());
+    private static final Object NO_MEMBER = new Object();
 
     /**
      * The instance's bundle context.
@@ -348,12 +358,20 @@ public class InstanceManager implements ComponentInstance, InstanceStateListener
      * @param fieldName the field name.
      * @return the field value, <code>null</code> is returned if the value is managed and not already set.
      */
-    public synchronized Object getFieldValue(String fieldName) {
-        if (m_pojoObjects == null) {
-            return getFieldValue(fieldName, null);
-        } else {
-            return getFieldValue(fieldName, m_pojoObjects.get(0)); // Use the first pojo.
+    public Object getFieldValue(String fieldName) {
+        FieldSlot slot = (FieldSlot) m_fields.get(fieldName);
+        Object setByContainer = (slot != null) ? slot.m_value : null;
+        if (setByContainer != null) {
+            return setByContainer;
         }
+        // The pojo list is guarded by the instance lock, but the field is read without it.
+        Object pojo = null;
+        synchronized (this) {
+            if (m_pojoObjects != null && !m_pojoObjects.isEmpty()) {
+                pojo = m_pojoObjects.get(0); // Use the first pojo.
+            }
+        }
+        return getFieldValue(fieldName, pojo);
     }
 
     /**
@@ -365,11 +383,12 @@ public class InstanceManager implements ComponentInstance, InstanceStateListener
      * @param pojo      the pojo on which computing field value.
      * @return the field value, <code>null</code> is returned if the value is managed and not already set.
      */
-    public synchronized Object getFieldValue(String fieldName, Object pojo) {
+    public Object getFieldValue(String fieldName, Object pojo) {
         Object setByContainer = null;
 
-        if (m_fields != null) {
-            setByContainer = m_fields.get(fieldName);
+        FieldSlot slot = (FieldSlot) m_fields.get(fieldName);
+        if (slot != null) {
+            setByContainer = slot.m_value;
         }
 
         if (setByContainer == null && pojo != null) { // In the case of no given pojo, return null.
@@ -671,6 +690,60 @@ public class InstanceManager implements ComponentInstance, InstanceStateListener
             stop();
             return;
         }
+        computeMethodTable();
+    }
+
+    /**
+     * Resolves the member objects of the registered methods, so the method
+     * interception path does not need to reflect on the class.
+     * Only ids that are not already in the table are resolved, so calling
+     * this method several times is cheap.
+     */
+    private void computeMethodTable() {
+        Map registrations = m_methodRegistration; // Immutable once configured.
+        if (registrations == null || m_clazz == null) {
+            return;
+        }
+        Map members = null;
+        for (Iterator it = registrations.keySet().iterator(); it.hasNext(); ) {
+            String methodId = (String) it.next();
+            if (m_methods.containsKey(methodId)) {
+                continue;
+            }
+            if (methodId.contains("___")) {
+                // Inner class methods are resolved individually.
+                getMethodById(methodId);
+                continue;
+            }
+            if (members == null) {
+                members = computeMembers(m_clazz);
+            }
+            Member member = (Member) members.get(methodId);
+            if (member == null) {
+                m_logger.log(Logger.INFO, "A methodID cannot be associated with a method from the POJO class: " + methodId);
+            }
+            m_methods.put(methodId, member == null ? NO_MEMBER : member);
+        }
+    }
+
+    /**
+     * Computes the [id=>{@link Member}] map of the methods and constructors declared by the given class.
+     *
+     * @param clazz the class
+     * @return the map of members by ids
+     */
+    private static Map computeMembers(Class clazz) {
+        Map members = new HashMap();
+        Constructor[] constructors = clazz.getDeclaredConstructors();
+        for (int i = 0; i < constructors.length; i++) {
+            members.put(MethodMetadata.computeMethodId(constructors[i]), constructors[i]);
+        }
+        // Methods take precedence over constructors, as in the lookup by id.
+        Method[] mets = clazz.getDeclaredMethods();
+        for (int i = 0; i < mets.length; i++) {
+            members.put(MethodMetadata.computeMethodId(mets[i]), mets[i]);
+        }
+        return members;
     }
 
     /**
@@ -1060,13 +1133,16 @@ public class InstanceManager implements ComponentInstance, InstanceStateListener
      * @param interceptor the field interceptor object
      */
     public void register(FieldMetadata field, FieldInterceptor interceptor) {
-        if (m_fieldRegistration == null) {
-            m_fieldRegistration = new HashMap();
-            m_fieldRegistration.put(field.getFieldName(), new FieldInterceptor[]{interceptor});
-        } else {
-            FieldInterceptor[] list = (FieldInterceptor[]) m_fieldRegistration.get(field.getFieldName());
+        FieldSlot slot = getFieldSlot(field.getFieldName());
+        synchronized (slot) {
+            FieldInterceptor[] list = slot.m_interceptors;
             if (list == null) {
-                m_fieldRegistration.put(field.getFieldName(), new FieldInterceptor[]{interceptor});
+                slot.m_interceptors = new FieldInterceptor[]{interceptor};
+                synchronized (m_fields) {
+                    Set fields = new HashSet(m_fieldRegistration);
+                    fields.add(field.getFieldName());
+                    m_fieldRegistration = Collections.unmodifiableSet(fields);
+                }
             } else {
                 for (int j = 0; j < list.length; j++) {
                     if (list[j] == interceptor) {
@@ -1076,11 +1152,29 @@ public class InstanceManager implements ComponentInstance, InstanceStateListener
                 FieldInterceptor[] newList = new FieldInterceptor[list.length + 1];
                 System.arraycopy(list, 0, newList, 0, list.length);
                 newList[list.length] = interceptor;
-                m_fieldRegistration.put(field.getFieldName(), newList);
+                slot.m_interceptors = newList;
             }
         }
     }
 
+    /**
+     * Gets the slot of the given field, creating it if needed.
+     *
+     * @param fieldName the field name
+     * @return the slot of the field
+     */
+    private FieldSlot getFieldSlot(String fieldName) {
+        FieldSlot slot = (FieldSlot) m_fields.get(fieldName);
+        if (slot == null) {
+            FieldSlot newSlot = new FieldSlot();
+            slot = (FieldSlot) m_fields.putIfAbsent(fieldName, newSlot);
+            if (slot == null) {
+                slot = newSlot;
+            }
+        }
+        return slot;
+    }
+
     /**
      * Registers a method interceptor.
      * A method interceptor will be notified of method entries, exits
@@ -1180,14 +1274,15 @@ public class InstanceManager implements ComponentInstance, InstanceStateListener
      * @return the value decided by the last asked handler (throws a warning if two fields decide two different values)
      */
     public Object onGet(Object pojo, String fieldName) {
-        Object initialValue = null;
-        synchronized (this) { // Stack confinement.
-            initialValue = m_fields.get(fieldName);
+        FieldSlot slot = (FieldSlot) m_fields.get(fieldName);
+        if (slot == null) {
+            return null; // Neither set nor monitored.
         }
+        Object initialValue = slot.m_value; // Stack confinement.
         Object result = initialValue;
         boolean hasChanged = false;
         // Get the list of registered handlers
-        FieldInterceptor[] list = (FieldInterceptor[]) m_fieldRegistration.get(fieldName); // Immutable list.
+        FieldInterceptor[] list = slot.m_interceptors; // Immutable list.
         for (int i = 0; list != null && i < list.length; i++) {
             // Call onGet outside of a synchronized block.
             Object handlerResult = list[i].onGet(pojo, fieldName, initialValue);
@@ -1210,10 +1305,7 @@ public class InstanceManager implements ComponentInstance, InstanceStateListener
         }
         if (hasChanged) {
             // A change occurs => notify the change
-            //TODO consider just changing the reference, however multiple thread can be an issue
-            synchronized (this) {
-                m_fields.put(fieldName, result);
-            }
+            slot.m_value = result;
             // Call onset outside of a synchronized block.
             for (int i = 0; list != null && i < list.length; i++) {
                 list[i].onSet(pojo, fieldName, result);
@@ -1237,6 +1329,9 @@ public class InstanceManager implements ComponentInstance, InstanceStateListener
         }
 
         MethodInterceptor[] list = (MethodInterceptor[]) m_methodRegistration.get(methodId);
+        if (list == null) {
+            return;
+        }
         Member method = getMethodById(methodId);
         // We can't find the member object of anonymous methods.
 
@@ -1264,6 +1359,9 @@ public class InstanceManager implements ComponentInstance, InstanceStateListener
             return;
         }
         MethodInterceptor[] list = (MethodInterceptor[]) m_methodRegistration.get(methodId);
+        if (list == null) {
+            return;
+        }
         Member method = getMethodById(methodId);
         for (int i = 0; list != null && i < list.length; i++) {
             list[i].onExit(pojo, method, result);
@@ -1289,6 +1387,9 @@ public class InstanceManager implements ComponentInstance, InstanceStateListener
             return;
         }
         MethodInterceptor[] list = (MethodInterceptor[]) m_methodRegistration.get(methodId);
+        if (list == null) {
+            return;
+        }
         Member method = getMethodById(methodId);
         for (int i = 0; list != null && i < list.length; i++) {
             list[i].onError(pojo, method, error);
@@ -1300,80 +1401,88 @@ public class InstanceManager implements ComponentInstance, InstanceStateListener
 
     /**
      * Computes the {@link Method} object from the given id.
-     * Once computes, a map is used as a cache to avoid to recompute for
-     * the same id.
+     * The members of the registered methods are resolved when the class is loaded,
+     * other ids are computed once and then cached.
      *
      * @param methodId the method id
      * @return the method object or <code>null</code> if the method cannot be found.
      */
     private Member getMethodById(String methodId) {
-        // Used a synchronized map.
-        Member member = (Member) m_methods.get(methodId);
-        if (!m_methods.containsKey(methodId) && m_clazz != null) {
-            // Is it a inner class method
-            if (methodId.contains("___")) { // Mark to detect a inner class method.
-                String[] split = methodId.split("___");
-                if (split.length != 2) {
-                    m_logger.log(Logger.INFO, "A methodID cannot be associated with a method from the POJO class: " + methodId);
-                    return null;
-                } else {
-                    String innerClassName = split[0];
-                    methodId = split[1];
-
-                    // We can't find the member objects from anonymous methods, identified by their numeric name
-                    // Just escaping in this case.
-                    if (innerClassName.matches("-?\\d+")) {
-                        m_methods.put(methodId, null);
-                        return null;
-                    }
+        Object member = m_methods.get(methodId);
+        if (member == null) {
+            Class clazz = m_clazz;
+            if (clazz == null) {
+                return null;
+            }
+            member = findMember(clazz, methodId);
+            if (member == null) {
+                member = NO_MEMBER;
+            }
+            m_methods.put(methodId, member);
+        }
+        return member == NO_MEMBER ? null : (Member) member;
+    }
 
-                    for (Class c : m_clazz.getDeclaredClasses()) {
-                        if (innerClassName.equals(c.getSimpleName())) {
-                            Method[] mets = c.getDeclaredMethods();
-                            for (Method met : mets) {
-                                if (MethodMetadata.computeMethodId(met).equals(methodId)) {
-                                    // Store the new methodId
-                                    m_methods.put(methodId, met);
-                                    return met;
-                                }
-                            }
+    /**
+     * Looks for the member object matching the given id in the given class.
+     *
+     * @param clazz    the manipulated class
+     * @param methodId the method id
+     * @return the method or constructor object or <code>null</code> if the method cannot be found.
+     */
+    private Member findMember(Class clazz, String methodId) {
+        // Is it a inner class method
+        if (methodId.contains("___")) { // Mark to detect a inner class method.
+            String[] split = methodId.split("___");
+            if (split.length != 2) {
+                m_logger.log(Logger.INFO, "A methodID cannot be associated with a method from the POJO class: " + methodId);
+                return null;
+            }
+            String innerClassName = split[0];
+            String innerMethodId = split[1];
+
+            // We can't find the member objects from anonymous methods, identified by their numeric name
+            // Just escaping in this case.
+            if (innerClassName.matches("-?\\d+")) {
+                return null;
+            }
+
+            for (Class c : clazz.getDeclaredClasses()) {
+                if (innerClassName.equals(c.getSimpleName())) {
+                    Method[] mets = c.getDeclaredMethods();
+                    for (Method met : mets) {
+                        if (MethodMetadata.computeMethodId(met).equals(innerMethodId)) {
+                            return met;
                         }
-                        m_logger.log(Logger.INFO, "Cannot find the member associated to " + methodId + " - reason: " +
-                                "cannot find the class " + innerClassName + " declared in " + m_clazz.getName());
                     }
                 }
             }
+            m_logger.log(Logger.INFO, "Cannot find the member associated to " + innerMethodId + " - reason: " +
+                    "cannot find the class " + innerClassName + " declared in " + clazz.getName());
+            methodId = innerMethodId;
+        }
 
-
-            // First try on methods.
-            Method[] mets = m_clazz.getDeclaredMethods();
-            for (int i = 0; i < mets.length; i++) {
-                if (MethodMetadata.computeMethodId(mets[i]).equals(methodId)) {
-                    // Store the new methodId
-                    m_methods.put(methodId, mets[i]);
-                    return mets[i];
-                }
+        // First try on methods.
+        Method[] mets = clazz.getDeclaredMethods();
+        for (int i = 0; i < mets.length; i++) {
+            if (MethodMetadata.computeMethodId(mets[i]).equals(methodId)) {
+                return mets[i];
             }
+        }
 
-            // If not found, it is a constructor, return the constructor object in this case.
-            if (methodId.startsWith(MethodMetadata.CONSTRUCTOR_PREFIX)) {
-                Constructor[] constructors = m_clazz.getDeclaredConstructors();
-                for (int i = 0; i < constructors.length; i++) {
-                    // Check if the constructor was not already computed. If not, compute the Id and check.
-                    if (MethodMetadata.computeMethodId(constructors[i]).equals(methodId)) {
-                        // Store the new methodId
-                        m_methods.put(methodId, constructors[i]);
-                        return constructors[i];
-                    }
+        // If not found, it is a constructor, return the constructor object in this case.
+        if (methodId.startsWith(MethodMetadata.CONSTRUCTOR_PREFIX)) {
+            Constructor[] constructors = clazz.getDeclaredConstructors();
+            for (int i = 0; i < constructors.length; i++) {
+                if (MethodMetadata.computeMethodId(constructors[i]).equals(methodId)) {
+                    return constructors[i];
                 }
             }
-
-            // Should not happen
-            m_logger.log(Logger.INFO, "A methodID cannot be associated with a method from the POJO class: " + methodId);
-            return null;
-        } else {
-            return member;
         }
+
+        // Should not happen
+        m_logger.log(Logger.INFO, "A methodID cannot be associated with a method from the POJO class: " + methodId);
+        return null;
     }
 
     /**
@@ -1388,16 +1497,11 @@ public class InstanceManager implements ComponentInstance, InstanceStateListener
      * @param objectValue the new value of the field
      */
     public void onSet(final Object pojo, final String fieldName, final Object objectValue) {
-        synchronized (this) {
-            // First, store the new value.
-            // This must be done in a synchronized block to avoid
-            // concurrent modification
-            m_fields.put(fieldName, objectValue);
-        }
-        // The registrations cannot be modified, so we can directly access
-        // the interceptor list.
-        FieldInterceptor[] list = (FieldInterceptor[]) m_fieldRegistration
-                .get(fieldName);
+        // First, store the new value in the (volatile) slot of the field.
+        FieldSlot slot = getFieldSlot(fieldName);
+        slot.m_value = objectValue;
+        // The interceptor lists are immutable, so we can directly iterate over them.
+        FieldInterceptor[] list = slot.m_interceptors;
         for (int i = 0; list != null && i < list.length; i++) {
             // The callback must be call outside the synchronization block.
             list[i].onSet(pojo, fieldName, objectValue);
@@ -1544,10 +1648,8 @@ public class InstanceManager implements ComponentInstance, InstanceStateListener
      */
     public Set getRegistredFields() {
         // IMPORTANT - method used by the manipulator
-        if (m_fieldRegistration == null) {
-            return null;
-        }
-        return m_fieldRegistration.keySet();
+        Set fields = m_fieldRegistration; // Immutable set.
+        return fields.isEmpty() ? null : fields;
     }
 
     /**
@@ -1575,4 +1677,22 @@ public class InstanceManager implements ComponentInstance, InstanceStateListener
     public BundleContext getInstanceContext() {
         return m_instanceContext;
     }
+
+    /**
+     * The slot of a POJO managed field: the value set by the container and the
+     * interceptors monitoring the field.
+     * Both are volatile, so the field interception path does not require any lock.
+     */
+    private static final class FieldSlot {
+        /**
+         * The current value of the field.
+         */
+        volatile Object m_value;
+
+        /**
+         * The interceptors monitoring the field, <code>null</code> if none.
+         * The array is never modified, registering an interceptor replaces it.
+         */
+        volatile FieldInterceptor[] m_interceptors;
+    }
 }
@@ -0,0 +1,297 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.ipojo;
+
+import org.apache.felix.ipojo.metadata.Attribute;
+import org.apache.felix.ipojo.metadata.Element;
+import org.apache.felix.ipojo.parser.FieldMetadata;
+import org.apache.felix.ipojo.parser.MethodMetadata;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+
+import java.lang.reflect.Member;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Compares the throughput of the field and method interception path of the {@link InstanceManager}
+ * with the former one, guarded by the instance lock, when many threads access the same instance.
+ * The benchmark only runs when the <code>ipojo.benchmark</code> system property is <code>true</code>:
+ * <pre>mvn test -Dtest=InstanceManagerBenchmarkTest -Dipojo.benchmark=true</pre>
+ */
+public class InstanceManagerBenchmarkTest {
+
+    private static final int THREADS = 16;
+
+    private static final int ITERATIONS = 200000;
+
+    private static final int RUNS = 5;
+
+    private InstanceManager manager;
+
+    private LockedInterception locked;
+
+    private MyComponent component;
+
+    private String methodId;
+
+    @Before
+    public void setUp() throws ClassNotFoundException {
+        Assume.assumeTrue(Boolean.getBoolean("ipojo.benchmark"));
+
+        ComponentFactory factory = mock(ComponentFactory.class);
+        when(factory.loadClass(anyString())).thenReturn(MyComponent.class);
+        when(factory.getClassName()).thenReturn(MyComponent.class.getName());
+        Bundle bundle = mock(Bundle.class);
+        when(bundle.getHeaders()).thenReturn(new Hashtable<String, String>());
+        BundleContext context = mock(BundleContext.class);
+        when(context.getBundle()).thenReturn(bundle);
+        manager = new InstanceManager(factory, context, new HandlerManager[0]);
+
+        FieldInterceptor fieldInterceptor = new FieldInterceptor() {
+            public void onSet(Object pojo, String fieldName, Object value) {
+            }
+
+            public Object onGet(Object pojo, String fieldName, Object value) {
+                return value;
+            }
+        };
+        manager.register(new FieldMetadata("value", "java.lang.Integer"), fieldInterceptor);
+
+        Element method = new Element("method", "");
+        method.addAttribute(new Attribute("name", "foo"));
+        method.addAttribute(new Attribute("arguments", "{java.lang.String}"));
+        method.addAttribute(new Attribute("names", "{name}"));
+        MethodMetadata metadata = new MethodMetadata(method);
+        methodId = metadata.getMethodIdentifier();
+        MethodInterceptor methodInterceptor = new MethodInterceptor() {
+            public void onEntry(Object pojo, Member method, Object[] args) {
+            }
+
+            public void onExit(Object pojo, Member method, Object returnedObj) {
+            }
+
+            public void onError(Object pojo, Member method, Throwable throwable) {
+            }
+
+            public void onFinally(Object pojo, Member method) {
+            }
+        };
+        manager.register(metadata, methodInterceptor);
+
+        component = new MyComponent();
+        manager.start();
+        manager.load();
+
+        locked = new LockedInterception(fieldInterceptor, methodInterceptor, methodId,
+                MyComponent.class.getDeclaredMethods()[0]);
+    }
+
+    @Test
+    public void benchmarkFieldAccesses() throws InterruptedException {
+        final Integer[] values = new Integer[THREADS];
+        for (int i = 0; i < THREADS; i++) {
+            values[i] = i;
+        }
+        compare("onSet/onGet", new Task() {
+            public void run(int thread) {
+                locked.onSet(component, "value", values[thread]);
+                locked.onGet(component, "value");
+            }
+        }, new Task() {
+            public void run(int thread) {
+                manager.onSet(component, "value", values[thread]);
+                manager.onGet(component, "value");
+            }
+        });
+    }
+
+    @Test
+    public void benchmarkMethodInterception() throws InterruptedException {
+        final Object[] args = new Object[] {"name"};
+        compare("onEntry/onExit", new Task() {
+            public void run(int thread) {
+                locked.onEntry(component, methodId, args);
+                locked.onExit(component, methodId, null);
+            }
+        }, new Task() {
+            public void run(int thread) {
+                manager.onEntry(component, methodId, args);
+                manager.onExit(component, methodId, null);
+            }
+        });
+    }
+
+    /**
+     * Runs both tasks alternately RUNS times, the first run of each being a warm up,
+     * and prints the best throughput of each.
+     */
+    private void compare(String path, Task before, Task after) throws InterruptedException {
+        long bestBefore = Long.MAX_VALUE;
+        long bestAfter = Long.MAX_VALUE;
+        for (int i = 0; i < RUNS; i++) {
+            long durationBefore = run(before);
+            long durationAfter = run(after);
+            if (i > 0) {
+                bestBefore = Math.min(bestBefore, durationBefore);
+                bestAfter = Math.min(bestAfter, durationAfter);
+            }
+        }
+        System.out.println(path + " on " + THREADS + " threads: " + throughput(bestBefore)
+                + " ops/s with the instance lock, " + throughput(bestAfter) + " ops/s without ("
+                + (bestBefore * 100 / Math.max(1, bestAfter)) + "%)");
+    }
+
+    private static long throughput(long duration) {
+        return (long) THREADS * ITERATIONS * TimeUnit.SECONDS.toNanos(1) / Math.max(1, duration);
+    }
+
+    /**
+     * Runs the task ITERATIONS times on THREADS threads started together.
+     *
+     * @return the elapsed time in nanoseconds
+     */
+    private long run(final Task task) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        final CountDownLatch startSignal = new CountDownLatch(1);
+        final CountDownLatch doneSignal = new CountDownLatch(THREADS);
+        for (int i = 0; i < THREADS; i++) {
+            final int thread = i;
+            executor.execute(new Runnable() {
+                public void run() {
+                    try {
+                        startSignal.await();
+                        for (int j = 0; j < ITERATIONS; j++) {
+                            task.run(thread);
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        doneSignal.countDown();
+                    }
+                }
+            });
+        }
+        long start = System.nanoTime();
+        startSignal.countDown();
+        assertThat(doneSignal.await(5, TimeUnit.MINUTES)).isTrue();
+        long duration = System.nanoTime() - start;
+        executor.shutdown();
+        return duration;
+    }
+
+    private interface Task {
+        void run(int thread);
+    }
+
+    /**
+     * The former interception path: the field values are stored in a map guarded by the
+     * instance lock, and the member objects of the methods are looked up in a synchronized map.
+     */
+    private static class LockedInterception {
+
+        private final Map m_fields = new HashMap();
+
+        private final Map m_fieldRegistration = new HashMap();
+
+        private final Map m_methodRegistration = new HashMap();
+
+        private final Map m_methods = Collections.synchronizedMap(new HashMap());
+
+        LockedInterception(FieldInterceptor field, MethodInterceptor method, String methodId, Member member) {
+            m_fieldRegistration.put("value", new FieldInterceptor[] {field});
+            m_methodRegistration.put(methodId, new MethodInterceptor[] {method});
+            m_methods.put(methodId, member);
+        }
+
+        public void onSet(Object pojo, String fieldName, Object value) {
+            synchronized (this) {
+                m_fields.put(fieldName, value);
+            }
+            FieldInterceptor[] list = (FieldInterceptor[]) m_fieldRegistration.get(fieldName);
+            for (int i = 0; list != null && i < list.length; i++) {
+                list[i].onSet(pojo, fieldName, value);
+            }
+        }
+
+        public Object onGet(Object pojo, String fieldName) {
+            Object value;
+            synchronized (this) {
+                value = m_fields.get(fieldName);
+            }
+            FieldInterceptor[] list = (FieldInterceptor[]) m_fieldRegistration.get(fieldName);
+            for (int i = 0; list != null && i < list.length; i++) {
+                list[i].onGet(pojo, fieldName, value);
+            }
+            return value;
+        }
+
+        public void onEntry(Object pojo, String methodId, Object[] args) {
+            MethodInterceptor[] list = (MethodInterceptor[]) m_methodRegistration.get(methodId);
+            Member method = getMethodById(methodId);
+            for (int i = 0; list != null && i < list.length; i++) {
+                list[i].onEntry(pojo, method, args);
+            }
+        }
+
+        public void onExit(Object pojo, String methodId, Object result) {
+            MethodInterceptor[] list = (MethodInterceptor[]) m_methodRegistration.get(methodId);
+            Member method = getMethodById(methodId);
+            for (int i = 0; list != null && i < list.length; i++) {
+                list[i].onExit(pojo, method, result);
+            }
+            for (int i = 0; list != null && i < list.length; i++) {
+                list[i].onFinally(pojo, method);
+            }
+        }
+
+        private Member getMethodById(String methodId) {
+            Member member = (Member) m_methods.get(methodId);
+            if (!m_methods.containsKey(methodId)) {
+                throw new IllegalStateException("Unknown method " + methodId);
+            }
+            return member;
+        }
+    }
+
+    private class MyComponent {
+
+        private Integer value;
+
+        public void foo(String name) {
+            value = name.length();
+        }
+
+    }
+
+}
@@ -0,0 +1,218 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.ipojo;
+
+import org.apache.felix.ipojo.metadata.Attribute;
+import org.apache.felix.ipojo.metadata.Element;
+import org.apache.felix.ipojo.parser.FieldMetadata;
+import org.apache.felix.ipojo.parser.MethodMetadata;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+
+import java.lang.reflect.Member;
+import java.util.Hashtable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Drives the field and method interception path of the {@link InstanceManager} from many threads
+ * accessing the same instance, and checks that no update is lost.
+ */
+public class InstanceManagerConcurrencyTest {
+
+    private static final int THREADS = 16;
+
+    private static final int ITERATIONS = 50000;
+
+    private InstanceManager manager;
+
+    private MyComponent component;
+
+    private String methodId;
+
+    private final AtomicInteger sets = new AtomicInteger();
+
+    private final AtomicInteger methods = new AtomicInteger();
+
+    @Before
+    public void setUp() throws ClassNotFoundException {
+        ComponentFactory factory = mock(ComponentFactory.class);
+        when(factory.loadClass(anyString())).thenReturn(MyComponent.class);
+        when(factory.getClassName()).thenReturn(MyComponent.class.getName());
+        Bundle bundle = mock(Bundle.class);
+        when(bundle.getHeaders()).thenReturn(new Hashtable<String, String>());
+        BundleContext context = mock(BundleContext.class);
+        when(context.getBundle()).thenReturn(bundle);
+        manager = new InstanceManager(factory, context, new HandlerManager[0]);
+
+        manager.register(new FieldMetadata("value", "java.lang.Integer"), new FieldInterceptor() {
+            public void onSet(Object pojo, String fieldName, Object value) {
+                sets.incrementAndGet();
+            }
+
+            public Object onGet(Object pojo, String fieldName, Object value) {
+                return value;
+            }
+        });
+
+        Element method = new Element("method", "");
+        method.addAttribute(new Attribute("name", "foo"));
+        method.addAttribute(new Attribute("arguments", "{java.lang.String}"));
+        method.addAttribute(new Attribute("names", "{name}"));
+        MethodMetadata metadata = new MethodMetadata(method);
+        methodId = metadata.getMethodIdentifier();
+        manager.register(metadata, new MethodInterceptor() {
+            public void onEntry(Object pojo, Member method, Object[] args) {
+                if (method != null) {
+                    methods.incrementAndGet();
+                }
+            }
+
+            public void onExit(Object pojo, Member method, Object returnedObj) {
+            }
+
+            public void onError(Object pojo, Member method, Throwable throwable) {
+            }
+
+            public void onFinally(Object pojo, Member method) {
+            }
+        });
+
+        component = new MyComponent();
+        manager.start();
+        manager.load();
+    }
+
+    @Test
+    public void testConcurrentFieldAccesses() throws InterruptedException {
+        assertThat(manager.getRegistredFields()).containsOnly("value");
+
+        final Integer[] values = new Integer[THREADS];
+        for (int i = 0; i < THREADS; i++) {
+            values[i] = i;
+        }
+        run(new Task() {
+            public void run(int thread, int iteration) {
+                manager.onSet(component, "value", values[thread]);
+                Object value = manager.onGet(component, "value");
+                if (!(value instanceof Integer)) {
+                    throw new IllegalStateException("Unexpected field value " + value);
+                }
+            }
+        });
+
+        assertThat(sets.get()).isEqualTo(THREADS * ITERATIONS);
+        assertThat(manager.getFieldValue("value")).isIn((Object[]) values);
+    }
+
+    @Test
+    public void testConcurrentMethodInterception() throws InterruptedException {
+        run(new Task() {
+            public void run(int thread, int iteration) {
+                manager.onEntry(component, methodId, new Object[] {"name"});
+                manager.onExit(component, methodId, null);
+            }
+        });
+
+        assertThat(methods.get()).isEqualTo(THREADS * ITERATIONS);
+    }
+
+    @Test
+    public void testConcurrentFieldRegistrations() throws InterruptedException {
+        run(new Task() {
+            public void run(int thread, int iteration) {
+                if (iteration < 100) {
+                    String name = "field" + thread + "_" + iteration;
+                    manager.register(new FieldMetadata(name, "java.lang.Integer"), new FieldInterceptor() {
+                        public void onSet(Object pojo, String fieldName, Object value) {
+                        }
+
+                        public Object onGet(Object pojo, String fieldName, Object value) {
+                            return value;
+                        }
+                    });
+                    if (!manager.getRegistredFields().contains(name)) {
+                        throw new IllegalStateException("Registration of " + name + " lost");
+                    }
+                }
+            }
+        });
+
+        assertThat(manager.getRegistredFields()).hasSize(THREADS * 100 + 1);
+    }
+
+    /**
+     * Runs the task ITERATIONS times on THREADS threads started together.
+     */
+    private void run(final Task task) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        final CountDownLatch startSignal = new CountDownLatch(1);
+        final CountDownLatch doneSignal = new CountDownLatch(THREADS);
+        final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+        for (int i = 0; i < THREADS; i++) {
+            final int thread = i;
+            executor.execute(new Runnable() {
+                public void run() {
+                    try {
+                        startSignal.await();
+                        for (int j = 0; j < ITERATIONS; j++) {
+                            task.run(thread, j);
+                        }
+                    } catch (Throwable e) {
+                        error.compareAndSet(null, e);
+                    } finally {
+                        doneSignal.countDown();
+                    }
+                }
+            });
+        }
+        startSignal.countDown();
+        assertThat(doneSignal.await(1, TimeUnit.MINUTES)).isTrue();
+        executor.shutdown();
+        if (error.get() != null) {
+            throw new AssertionError(error.get());
+        }
+    }
+
+    private interface Task {
+        void run(int thread, int iteration);
+    }
+
+    private class MyComponent {
+
+        private Integer value;
+
+        public void foo(String name) {
+            value = name.length();
+        }
+
+    }
+
+}
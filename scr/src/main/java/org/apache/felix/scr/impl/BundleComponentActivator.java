@@ -81,7 +81,7 @@ public class BundleComponentActivator implements ComponentActivator
     private final List<ComponentHolder<?>> m_holders = new ArrayList<>();
 
     // thread acting upon configurations
-    private final ComponentActorThread m_componentActor;
+    private final ComponentActor m_componentActor;
 
     // true as long as the dispose method is not called
     private final AtomicBoolean m_active = new AtomicBoolean( true );
@@ -242,7 +242,7 @@ public class BundleComponentActivator implements ComponentActivator
      */
     public BundleComponentActivator(final ScrLogger scrLogger,
             final ComponentRegistry componentRegistry,
-            final ComponentActorThread componentActor,
+            final ComponentActor componentActor,
             final BundleContext context,
             final ScrConfiguration configuration,
             final List<ComponentMetadata> cachedComponentMetadata)
@@ -714,13 +714,28 @@ public class BundleComponentActivator implements ComponentActivator
      */
     @Override
     public void schedule(Runnable task)
+    {
+        schedule( null, task );
+    }
+
+    /**
+     * Schedules the given <code>task</code> for asynchrounous execution after
+     * all tasks previously scheduled with the same <code>key</code> or
+     * synchronously runs the task if the thread is not running. If this instance
+     * is {@link #isActive() not active}, the task is not executed.
+     *
+     * @param key The ordering key of the task, usually the component holder
+     * @param task The component task to execute
+     */
+    @Override
+    public void schedule(Object key, Runnable task)
     {
         if ( isActive() )
         {
-            ComponentActorThread cat = m_componentActor;
+            ComponentActor cat = m_componentActor;
             if ( cat != null )
             {
-                cat.schedule( task );
+                cat.schedule( key, task );
             }
             else
             {
@@ -796,7 +811,7 @@ public class BundleComponentActivator implements ComponentActivator
     }
 
     @Override
-    public void updateChangeCount() {
-        this.m_componentRegistry.updateChangeCount();
+    public long updateChangeCount() {
+        return this.m_componentRegistry.updateChangeCount();
     }
 }
@@ -0,0 +1,300 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.scr.impl;
+
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.felix.scr.impl.logger.ScrLogger;
+import org.osgi.service.log.LogService;
+
+
+/**
+ * The <code>ComponentActor</code> runs the asynchronous tasks acting upon
+ * registered components of the service component runtime.
+ * <p>
+ * Tasks are scheduled with an ordering key, usually the component holder the
+ * task acts upon. Tasks sharing the same key are run one after the other in
+ * the order they have been scheduled, while tasks of different keys may be
+ * run concurrently by the worker threads of this actor. With a single worker
+ * thread (the default) this actor behaves like the former single
+ * <i>SCR Component Actor</i> thread.
+ */
+class ComponentActor
+{
+
+    // ordering key of tasks scheduled without an explicit key
+    private static final Object DEFAULT_KEY = new Object()
+    {
+        @Override
+        public String toString()
+        {
+            return "SCR Default Task Key";
+        }
+    };
+
+    private final ScrLogger logger;
+
+    private final Thread[] workers;
+
+    // the lock protecting the task queues and the statistics
+    private final Object lock = new Object();
+
+    // the tasks pending per ordering key; a key remains mapped while
+    // one of its tasks is running to keep further tasks in order
+    private final Map<Object, ArrayDeque<Task>> tasks = new HashMap<>();
+
+    // the ordering keys with tasks ready to be run
+    private final LinkedList<Object> readyKeys = new LinkedList<>();
+
+    // the number of tasks scheduled but not finished yet
+    private int pending;
+
+    private boolean terminated;
+
+    // queue wait statistics in nanoseconds
+    private long completedTasks;
+
+    private long totalWait;
+
+    private long maxWait;
+
+
+    ComponentActor( final ScrLogger log, final int threads )
+    {
+        logger = log;
+        workers = new Thread[Math.max( 1, threads )];
+        for ( int i = 0; i < workers.length; i++ )
+        {
+            final String name = ( workers.length == 1 ) ? "SCR Component Actor" : "SCR Component Actor " + ( i + 1 );
+            workers[i] = new Thread( new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    ComponentActor.this.run();
+                }
+            }, name );
+            workers[i].setDaemon( true );
+        }
+    }
+
+
+    void start()
+    {
+        logger.log( LogService.LOG_DEBUG, "Starting ComponentActor with {0} thread(s)", null, workers.length );
+        for ( Thread worker : workers )
+        {
+            worker.start();
+        }
+    }
+
+
+    // waits on tasks becoming ready to run. As tasks come in, this method
+    // calls the Runnable.run method, logs any exception happening and keeps
+    // on waiting for the next task. Once this actor is terminated and no more
+    // tasks are pending, the thread terminates.
+    private void run()
+    {
+        for ( ;; )
+        {
+            final Object key;
+            final Task task;
+            synchronized ( lock )
+            {
+                while ( readyKeys.isEmpty() )
+                {
+                    if ( terminated && pending == 0 )
+                    {
+                        logger.log( LogService.LOG_DEBUG, "Shutting down {0}", null, Thread.currentThread().getName() );
+                        return;
+                    }
+
+                    boolean interrupted = Thread.interrupted();
+                    try
+                    {
+                        lock.wait();
+                    }
+                    catch ( InterruptedException ie )
+                    {
+                        interrupted = true;
+                        // don't care
+                    }
+                    finally
+                    {
+                        if (interrupted)
+                        { // restore interrupt status
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                }
+
+                key = readyKeys.removeFirst();
+                task = tasks.get( key ).peekFirst();
+
+                final long wait = System.nanoTime() - task.scheduled;
+                completedTasks++;
+                totalWait += wait;
+                maxWait = Math.max( maxWait, wait );
+            }
+
+            try
+            {
+                // execute the task, log any issues
+                logger.log( LogService.LOG_DEBUG, "Running task: {0}", null, task.runnable );
+                task.runnable.run();
+            }
+            catch ( Throwable t )
+            {
+                logger.log( LogService.LOG_ERROR, "Unexpected problem executing task " + task.runnable, t );
+            }
+            finally
+            {
+                synchronized ( lock )
+                {
+                    final ArrayDeque<Task> queue = tasks.get( key );
+                    queue.removeFirst();
+                    if ( queue.isEmpty() )
+                    {
+                        tasks.remove( key );
+                    }
+                    else
+                    {
+                        readyKeys.addLast( key );
+                    }
+                    pending--;
+                    lock.notifyAll();
+                }
+            }
+        }
+    }
+
+
+    // causes the worker threads to terminate once all tasks scheduled so
+    // far have been run and waits for the queue to be empty
+    void terminate()
+    {
+        synchronized ( lock )
+        {
+            terminated = true;
+            lock.notifyAll();
+
+            while ( pending > 0 )
+            {
+                boolean interrupted = Thread.interrupted();
+                try
+                {
+                    lock.wait();
+                }
+                catch ( InterruptedException e )
+                {
+                    interrupted = true;
+                    logger.log(LogService.LOG_ERROR,
+                        "Interrupted exception waiting for queue to empty", e);
+                }
+                finally
+                {
+                    if (interrupted)
+                    { // restore interrupt status
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        }
+    }
+
+
+    // queue the given runnable to be run as soon as possible
+    void schedule( Runnable task )
+    {
+        schedule( DEFAULT_KEY, task );
+    }
+
+
+    // queue the given runnable to be run as soon as possible after all
+    // tasks previously scheduled with the same key have been run
+    void schedule( Object key, Runnable task )
+    {
+        if ( key == null )
+        {
+            key = DEFAULT_KEY;
+        }
+
+        synchronized ( lock )
+        {
+            if ( terminated && pending == 0 )
+            {
+                // the worker threads are gone or about to go, none would run
+                // the task; while tasks are pending, the workers are still alive
+                // and also run the tasks scheduled by them during termination
+                logger.log( LogService.LOG_DEBUG, "Ignoring task [{0}] scheduled after termination", null, task );
+                return;
+            }
+
+            ArrayDeque<Task> queue = tasks.get( key );
+            if ( queue == null )
+            {
+                queue = new ArrayDeque<>();
+                tasks.put( key, queue );
+                readyKeys.addLast( key );
+            }
+            queue.addLast( new Task( task ) );
+            pending++;
+
+            logger.log( LogService.LOG_DEBUG, "Adding task [{0}] as #{1} in the queue", null,
+                    task, pending);
+
+            // notify the waiting threads
+            lock.notifyAll();
+        }
+    }
+
+
+    /**
+     * Returns a short description of the number of worker threads and of the
+     * time tasks have been waiting in the queue before being run.
+     */
+    String getStatistics()
+    {
+        synchronized ( lock )
+        {
+            final long avgWait = ( completedTasks == 0 ) ? 0 : totalWait / completedTasks;
+            return String.format( "%d thread(s), %d task(s) pending, %d task(s) run, wait avg %d ms, max %d ms",
+                workers.length, pending, completedTasks,
+                TimeUnit.NANOSECONDS.toMillis( avgWait ), TimeUnit.NANOSECONDS.toMillis( maxWait ) );
+        }
+    }
+
+
+    private static final class Task
+    {
+        final Runnable runnable;
+
+        final long scheduled = System.nanoTime();
+
+        Task( final Runnable runnable )
+        {
+            this.runnable = runnable;
+        }
+    }
+}
@@ -39,6 +39,9 @@ import java.util.SortedMap;
 import java.util.TreeMap;
 
 import org.apache.felix.scr.impl.manager.ScrConfiguration;
+import org.apache.felix.scr.impl.runtime.ComponentStatisticsDTO;
+import org.apache.felix.scr.impl.runtime.ReferenceStatisticsDTO;
+import org.apache.felix.scr.impl.runtime.ServiceComponentRuntimeImpl;
 import org.apache.felix.scr.info.ScrInfo;
 import org.apache.felix.service.command.Converter;
 import org.apache.felix.service.command.Descriptor;
@@ -70,6 +73,7 @@ public class ComponentCommands implements ServiceTrackerCustomizer<Object, Servi
     private final BundleContext context;
     private final ServiceComponentRuntime scr;
     private final ScrConfiguration scrConfig;
+    private final ComponentActor componentActor;
     private final ServiceTracker<Object, ServiceRegistration<?>> gogoRuntimeTracker;
 
     private final Comparator<ComponentConfigurationDTO> configDtoComparator = new Comparator<ComponentConfigurationDTO>() {
@@ -104,7 +108,8 @@ public class ComponentCommands implements ServiceTrackerCustomizer<Object, Servi
                 "disable",
                 "enable",
                 "info",
-                "list"
+                "list",
+                "stats"
         });
         svcProps.put(Constants.SERVICE_DESCRIPTION, "SCR Gogo Shell Support");
         svcProps.put(Constants.SERVICE_VENDOR, "The Apache Software Foundation");
@@ -133,10 +138,11 @@ public class ComponentCommands implements ServiceTrackerCustomizer<Object, Servi
         }
     }
 
-    protected ComponentCommands(BundleContext context, ServiceComponentRuntime scr, ScrConfiguration scrConfig) {
+    protected ComponentCommands(BundleContext context, ServiceComponentRuntime scr, ScrConfiguration scrConfig, ComponentActor componentActor) {
         this.context = context;
         this.scr = scr;
         this.scrConfig = scrConfig;
+        this.componentActor = componentActor;
         this.gogoRuntimeTracker = new ServiceTracker<>(context, "org.apache.felix.service.command.CommandProcessor", this);
     }
 
@@ -234,12 +240,76 @@ public class ComponentCommands implements ServiceTrackerCustomizer<Object, Servi
         out.put("Stop timeout ms", Long.toString(scrConfig.stopTimeout()));
         out.put("Global extender", Boolean.toString(scrConfig.globalExtender()));
         out.put("Info Service registered", scrConfig.infoAsService() ? "Supported" : "Unsupported");
+        out.put("Component actor", componentActor != null ? componentActor.getStatistics() : Integer.toString(scrConfig.actorThreads()) + " thread(s)");
 
         StringBuilder builder = new StringBuilder();
         printColumnsAligned("SCR Configuration", out, '=', builder);
         return builder.toString();
     }
 
+    @Descriptor("Show activation, binding and lock statistics of all component configurations, slowest activation first")
+    public String stats() {
+        List<ComponentStatisticsDTO> stats = new ArrayList<>();
+        for (ComponentDescriptionDTO descDto : scr.getComponentDescriptionDTOs()) {
+            stats.addAll(getComponentStatisticsDTOs(descDto));
+        }
+        Collections.sort(stats, new Comparator<ComponentStatisticsDTO>() {
+            @Override
+            public int compare(ComponentStatisticsDTO o1, ComponentStatisticsDTO o2) {
+                return Long.compare(o2.activationTime, o1.activationTime);
+            }
+        });
+
+        StringBuilder builder = new StringBuilder();
+        builder.append(String.format("%6s %10s %12s %10s %10s %10s %12s %8s  %s",
+            "Id", "Activated", "Act. time", "Deact.", "Binds", "Unbinds", "Lock wait", "Timeouts", "Name"));
+        for (ComponentStatisticsDTO dto : stats) {
+            builder.append('\n').append(String.format("%6d %10d %12s %10d %10d %10d %12s %8d  %s",
+                dto.id, dto.activations, millis(dto.activationTime), dto.deactivations, dto.binds, dto.unbinds,
+                millis(dto.lockWaitTime), dto.lockTimeouts, dto.name));
+        }
+        return builder.toString();
+    }
+
+    @Descriptor("Show activation, binding and lock statistics of a component")
+    public String stats(@Descriptor("Name of the component") String name) {
+        StringBuilder builder = new StringBuilder();
+        for (ComponentDescriptionDTO descDto : findComponents(name)) {
+            for (ComponentStatisticsDTO dto : getComponentStatisticsDTOs(descDto)) {
+                if (builder.length() > 0) builder.append("\n\n");
+                Map<String, String> out = new LinkedHashMap<>();
+                out.put("Bundle", Long.toString(dto.bundle));
+                out.put("Activations", String.format("%d (%d failed), total %s, max %s", dto.activations,
+                    dto.activationFailures, millis(dto.activationTime), millis(dto.maxActivationTime)));
+                out.put("Deactivations", String.format("%d, total %s, max %s", dto.deactivations,
+                    millis(dto.deactivationTime), millis(dto.maxDeactivationTime)));
+                out.put("Binds", Long.toString(dto.binds));
+                out.put("Unbinds", Long.toString(dto.unbinds));
+                out.put("Locks", String.format("%d obtained, wait total %s, max %s, %d timed out", dto.lockAcquisitions,
+                    millis(dto.lockWaitTime), millis(dto.maxLockWaitTime), dto.lockTimeouts));
+                if (dto.references != null) for (ReferenceStatisticsDTO refDto : dto.references) {
+                    out.put("Reference " + refDto.name, String.format("%d binds, %d unbinds", refDto.binds, refDto.unbinds));
+                }
+                printColumnsAligned(String.format("Component Statistics: %s (%d)", dto.name, dto.id), out, '=', builder);
+            }
+        }
+        if (builder.length() == 0) {
+            throw new IllegalArgumentException(MessageFormat.format("No component configuration matching \"{0}\".", name));
+        }
+        return builder.toString();
+    }
+
+    private Collection<ComponentStatisticsDTO> getComponentStatisticsDTOs(ComponentDescriptionDTO descDto) {
+        if (scr instanceof ServiceComponentRuntimeImpl) {
+            return ((ServiceComponentRuntimeImpl) scr).getComponentStatisticsDTOs(descDto);
+        }
+        return Collections.emptyList();
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.3f ms", nanos / 1000000d);
+    }
+
     public Object convert(Class<?> desiredType, Object in) throws Exception {
         return null;
     }
@@ -25,6 +25,7 @@ import java.util.Dictionary;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Hashtable;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -32,6 +33,7 @@ import java.util.Timer;
 import java.util.TimerTask;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.felix.scr.impl.inject.ComponentMethods;
@@ -560,37 +562,55 @@ public class ComponentRegistry
      * @param serviceReference
      * @param actor
      */
-    public synchronized <T> void missingServicePresent( final ServiceReference<T> serviceReference, ComponentActorThread actor )
+    public synchronized <T> void missingServicePresent( final ServiceReference<T> serviceReference, ComponentActor actor )
     {
         final List<Entry<?, ?>> dependencyManagers = m_missingDependencies.remove( serviceReference );
         if ( dependencyManagers != null )
         {
-
-            Runnable runnable = new Runnable()
+            // late binding acts upon the components of the dependency managers and
+            // must be ordered with their other tasks, so schedule it per component
+            final Map<Object, List<Entry<?, ?>>> entriesByContainer = new LinkedHashMap<>();
+            for ( Entry<?, ?> entry : dependencyManagers )
             {
+                final Object container = entry.getDm().getComponentContainer();
+                List<Entry<?, ?>> entries = entriesByContainer.get( container );
+                if ( entries == null )
+                {
+                    entries = new ArrayList<>();
+                    entriesByContainer.put( container, entries );
+                }
+                entries.add( entry );
+            }
 
-                @Override
-                @SuppressWarnings("unchecked")
-                public void run()
+            for ( final Map.Entry<Object, List<Entry<?, ?>>> containerEntries : entriesByContainer.entrySet() )
+            {
+                final List<Entry<?, ?>> entries = containerEntries.getValue();
+                Runnable runnable = new Runnable()
                 {
-                    for ( Entry<?, ?> entry : dependencyManagers )
+
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public void run()
                     {
-                        ((DependencyManager<?, T>)entry.getDm()).invokeBindMethodLate( serviceReference, entry.getTrackingCount() );
+                        for ( Entry<?, ?> entry : entries )
+                        {
+                            ((DependencyManager<?, T>)entry.getDm()).invokeBindMethodLate( serviceReference, entry.getTrackingCount() );
+                        }
+                        m_logger.log(LogService.LOG_DEBUG,
+                            "Ran {0} asynchronously", null, this);
                     }
-                    m_logger.log(LogService.LOG_DEBUG,
-                        "Ran {0} asynchronously", null, this);
-                }
 
-                @Override
-                public String toString()
-                {
-                    return "Late binding task of reference " + serviceReference + " for dependencyManagers " + dependencyManagers;
-                }
+                    @Override
+                    public String toString()
+                    {
+                        return "Late binding task of reference " + serviceReference + " for dependencyManagers " + entries;
+                    }
 
-            } ;
-            m_logger.log(LogService.LOG_DEBUG,
-                "Scheduling runnable {0} asynchronously", null, runnable);
-            actor.schedule( runnable );
+                } ;
+                m_logger.log(LogService.LOG_DEBUG,
+                    "Scheduling runnable {0} asynchronously", null, runnable);
+                actor.schedule( containerEntries.getKey(), runnable );
+            }
         }
     }
 
@@ -708,6 +728,8 @@ public class ComponentRegistry
 
     private final Object changeCountTimerLock = new Object();
 
+    private final AtomicBoolean changeCountUpdatePending = new AtomicBoolean();
+
     private volatile ServiceRegistration<ServiceComponentRuntime> registration;
 
     public Dictionary<String, Object> getServiceRegistrationProperties()
@@ -718,60 +740,79 @@ public class ComponentRegistry
         return props;
     }
 
+    /**
+     * Returns the current change count. The change count is incremented
+     * whenever a component is registered, unregistered or changes its state,
+     * bindings or properties.
+     */
+    public long getChangeCount()
+    {
+        return this.changeCount.get();
+    }
+
     public void setRegistration(final ServiceRegistration<ServiceComponentRuntime> reg)
     {
         this.registration = reg;
     }
 
-    public void updateChangeCount()
+    public long updateChangeCount()
     {
-        if ( registration != null )
+        final long count = this.changeCount.incrementAndGet();
+        // coalesce updates, only one timer task is pending at any time
+        if ( registration != null && this.changeCountUpdatePending.compareAndSet( false, true ) )
         {
-            final long count = this.changeCount.incrementAndGet();
+            scheduleChangeCountUpdate( count );
+        }
+        return count;
+    }
 
-            final Timer timer;
+    private void scheduleChangeCountUpdate(final long count)
+    {
+        try
+        {
             synchronized ( this.changeCountTimerLock ) {
                 if ( this.changeCountTimer == null ) {
                     this.changeCountTimer = new Timer();
                 }
-                timer = this.changeCountTimer;
-            }
-            try
-            {
-                timer.schedule(new TimerTask()
+                this.changeCountTimer.schedule(new TimerTask()
                     {
 
                         @Override
                         public void run()
                         {
-                            if ( changeCount.get() == count )
+                            final long current = changeCount.get();
+                            if ( current != count )
                             {
-                                try
-                                {
-                                    registration.setProperties(getServiceRegistrationProperties());
-                                }
-                                catch ( final IllegalStateException ise)
-                                {
-                                    // we ignore this as this might happen on shutdown
-                                }
-                                synchronized ( changeCountTimerLock )
+                                // still changing, wait for the changes to settle
+                                scheduleChangeCountUpdate( current );
+                                return;
+                            }
+                            changeCountUpdatePending.set( false );
+                            try
+                            {
+                                registration.setProperties(getServiceRegistrationProperties());
+                            }
+                            catch ( final IllegalStateException ise)
+                            {
+                                // we ignore this as this might happen on shutdown
+                            }
+                            synchronized ( changeCountTimerLock )
+                            {
+                                if ( !changeCountUpdatePending.get() && changeCountTimer != null )
                                 {
-                                    if ( changeCount.get() == count )
-                                    {
-                                        changeCountTimer.cancel();
-                                        changeCountTimer = null;
-                                    }
+                                    changeCountTimer.cancel();
+                                    changeCountTimer = null;
                                 }
-
                             }
                         }
                     }, m_configuration.serviceChangecountTimeout());
             }
-            catch (Exception e) {
-                m_logger.log(LogService.LOG_WARNING,
-                    "Service changecount Timer for {0} had a problem", e,
-                    registration.getReference());
-            }
+        }
+        catch (Exception e) {
+            changeCountUpdatePending.set( false );
+            m_logger.log(LogService.LOG_WARNING,
+                "Service changecount Timer for {0} had a problem", e,
+                registration.getReference());
         }
     }
 }
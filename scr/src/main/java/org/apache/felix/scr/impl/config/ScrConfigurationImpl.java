@@ -89,6 +89,8 @@ public class ScrConfigurationImpl implements ScrConfiguration
 
     private long serviceChangecountTimeout = DEFAULT_SERVICE_CHANGECOUNT_TIMEOUT_MILLISECONDS;
 
+    private int actorThreads = DEFAULT_ACTOR_THREADS;
+
     private Boolean globalExtender;
 
     private volatile BundleContext bundleContext;
@@ -178,6 +180,7 @@ public class ScrConfigurationImpl implements ScrConfiguration
                         serviceChangecountTimeout = DEFAULT_SERVICE_CHANGECOUNT_TIMEOUT_MILLISECONDS;
                         newGlobalExtender = false;
                         cacheMetadata = false;
+                        actorThreads = DEFAULT_ACTOR_THREADS;
                     }
                     else
                     {
@@ -190,6 +193,7 @@ public class ScrConfigurationImpl implements ScrConfiguration
                         serviceChangecountTimeout = getServiceChangecountTimeout();
                         newGlobalExtender = getDefaultGlobalExtender();
                         cacheMetadata = getDefaultCacheMetadata();
+                        actorThreads = getDefaultActorThreads();
                     }
                 }
                 else
@@ -210,6 +214,7 @@ public class ScrConfigurationImpl implements ScrConfiguration
                 newGlobalExtender = VALUE_TRUE.equalsIgnoreCase( String.valueOf( config.get( PROP_GLOBAL_EXTENDER) ) );
                 cacheMetadata = VALUE_TRUE.equalsIgnoreCase(
                     String.valueOf(config.get(PROP_CACHE_METADATA)));
+                actorThreads = getActorThreads( config.get( PROP_ACTOR_THREADS ) );
             }
             if ( scrCommand != null )
             {
@@ -285,6 +290,12 @@ public class ScrConfigurationImpl implements ScrConfiguration
         return serviceChangecountTimeout;
     }
 
+    @Override
+    public int actorThreads()
+    {
+        return actorThreads;
+    }
+
     private boolean getDefaultFactoryEnabled()
     {
         return VALUE_TRUE.equals( bundleContext.getProperty( PROP_FACTORY_ENABLED ) );
@@ -348,6 +359,36 @@ public class ScrConfigurationImpl implements ScrConfiguration
             bundleContext.getProperty(PROP_CACHE_METADATA));
     }
 
+    private int getDefaultActorThreads()
+    {
+        return getActorThreads( bundleContext.getProperty( PROP_ACTOR_THREADS ) );
+    }
+
+    private int getActorThreads( final Object threadsObject )
+    {
+        if ( threadsObject instanceof Number )
+        {
+            return Math.max( 1, ( ( Number ) threadsObject ).intValue() );
+        }
+        if ( threadsObject != null )
+        {
+            String threadsString = threadsObject.toString();
+            if ( "cpus".equalsIgnoreCase( threadsString ) )
+            {
+                return Runtime.getRuntime().availableProcessors();
+            }
+            try
+            {
+                return Math.max( 1, Integer.parseInt( threadsString ) );
+            }
+            catch ( NumberFormatException nfe )
+            {
+                // fall back to default
+            }
+        }
+        return DEFAULT_ACTOR_THREADS;
+    }
+
     private int getLogLevel( final Object levelObject )
     {
         if ( levelObject != null )
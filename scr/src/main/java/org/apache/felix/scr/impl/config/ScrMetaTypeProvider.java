@@ -117,6 +117,17 @@ class ScrMetaTypeProvider implements MetaTypeProvider
                 new String[] { String.valueOf(this.configuration.stopTimeout())},
                 0, null, null) );
 
+        adList.add( new AttributeDefinitionImpl(
+                ScrConfiguration.PROP_ACTOR_THREADS,
+                "Component actor threads",
+                "Number of threads running asynchronous component enable and disable tasks. Tasks of the same "
+                    + "component are always run in order while tasks of different components may run concurrently. "
+                    + "The value cpus uses one thread per available processor. Changes take effect when SCR is restarted. "
+                    + "The default is a single thread.",
+                AttributeDefinition.STRING,
+                new String[] { String.valueOf(this.configuration.actorThreads())},
+                0, null, null) );
+
         adList.add( new AttributeDefinitionImpl(
                 ScrConfiguration.PROP_GLOBAL_EXTENDER,
                 "Global Extender",
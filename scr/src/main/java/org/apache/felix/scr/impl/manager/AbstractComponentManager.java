@@ -163,6 +163,11 @@ public abstract class AbstractComponentManager<S> implements ComponentManager<S>
 
     private volatile String failureReason;
 
+    private final ComponentStatistics m_statistics = new ComponentStatistics();
+
+    // the registry change count at the last change of this component
+    private volatile long m_changeCount;
+
     /**
      * The constructor receives both the container and the methods.
      *
@@ -221,6 +226,15 @@ public abstract class AbstractComponentManager<S> implements ComponentManager<S>
         }
     }
 
+    /**
+     * Returns the container of this component manager, which is the ordering
+     * key of the tasks scheduled for this component.
+     */
+    final ComponentContainer<S> getContainer()
+    {
+        return m_container;
+    }
+
     final long getLockTimeout()
     {
         //for tests....
@@ -233,10 +247,13 @@ public abstract class AbstractComponentManager<S> implements ComponentManager<S>
 
     private void obtainLock(Lock lock)
     {
+        final long start = System.nanoTime();
+        boolean timedOut = false;
         try
         {
             if (!lock.tryLock(getLockTimeout(), TimeUnit.MILLISECONDS))
             {
+                timedOut = true;
                 dumpThreads();
                 throw new IllegalStateException("Could not obtain lock");
             }
@@ -247,6 +264,7 @@ public abstract class AbstractComponentManager<S> implements ComponentManager<S>
             {
                 if (!lock.tryLock(getLockTimeout(), TimeUnit.MILLISECONDS))
                 {
+                    timedOut = true;
                     dumpThreads();
                     throw new IllegalStateException("Could not obtain lock");
                 }
@@ -258,6 +276,10 @@ public abstract class AbstractComponentManager<S> implements ComponentManager<S>
             }
             Thread.currentThread().interrupt();
         }
+        finally
+        {
+            m_statistics.lockWaited(System.nanoTime() - start, timedOut);
+        }
     }
 
     final void obtainActivationReadLock()
@@ -444,7 +466,7 @@ public abstract class AbstractComponentManager<S> implements ComponentManager<S>
         if (async)
         {
             final Deferred<Void> latch = enableLatch;
-            m_container.getActivator().schedule(new Runnable()
+            m_container.getActivator().schedule(m_container, new Runnable()
             {
 
                 long count = taskCounter.incrementAndGet();
@@ -536,7 +558,7 @@ public abstract class AbstractComponentManager<S> implements ComponentManager<S>
         if (async)
         {
             final Deferred<Void> latch = enableLatch;
-            m_container.getActivator().schedule(new Runnable()
+            m_container.getActivator().schedule(m_container, new Runnable()
             {
 
                 long count = taskCounter.incrementAndGet();
@@ -592,6 +614,27 @@ public abstract class AbstractComponentManager<S> implements ComponentManager<S>
 
     //---------- Component interface ------------------------------------------
 
+    /**
+     * Records a change of the state, bindings or properties of this component
+     * which is visible in its <code>ComponentConfigurationDTO</code>.
+     */
+    void changed()
+    {
+        m_changeCount = m_container.getActivator().updateChangeCount();
+    }
+
+    @Override
+    public long getChangeCount()
+    {
+        return m_changeCount;
+    }
+
+    @Override
+    public ComponentStatistics getStatistics()
+    {
+        return m_statistics;
+    }
+
     @Override
     public long getId()
     {
@@ -1418,7 +1461,7 @@ public abstract class AbstractComponentManager<S> implements ComponentManager<S>
             {
                 this.failureReason = null;
             }
-            m_container.getActivator().updateChangeCount();
+            changed();
         }
         else
         {
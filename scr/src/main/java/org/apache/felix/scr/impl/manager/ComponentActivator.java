@@ -36,6 +36,8 @@ public interface ComponentActivator extends ExtendedServiceListenerContext<Exten
 
     void schedule(Runnable runnable);
 
+    void schedule(Object key, Runnable runnable);
+
     long registerComponentId(AbstractComponentManager<?> sAbstractComponentManager);
 
     void unregisterComponentId(AbstractComponentManager<?> sAbstractComponentManager);
@@ -57,6 +59,9 @@ public interface ComponentActivator extends ExtendedServiceListenerContext<Exten
 
     void unsetRegionConfigurationSupport(RegionConfigurationSupport rcs);
 
-    /** Inform about any change in the state of the components. */
-    void updateChangeCount();
+    /**
+     * Inform about any change in the state of the components.
+     * @return The new change count
+     */
+    long updateChangeCount();
 }
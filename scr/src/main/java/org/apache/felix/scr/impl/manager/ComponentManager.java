@@ -45,4 +45,12 @@ public interface ComponentManager<S> {
 
     ServiceReference<S> getRegisteredServiceReference();
 
+    ComponentStatistics getStatistics();
+
+    /**
+     * Returns the change count of the component registry at the time this
+     * component last changed its state, bindings or properties.
+     */
+    long getChangeCount();
+
 }
\ No newline at end of file
@@ -0,0 +1,175 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.scr.impl.manager;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The <code>ComponentStatistics</code> collects counters and timings of a
+ * single component configuration. Updating the statistics only involves
+ * atomic increments, so they are always collected. Times are kept in
+ * nanoseconds.
+ */
+public class ComponentStatistics
+{
+
+    private final AtomicLong activations = new AtomicLong();
+
+    private final AtomicLong activationFailures = new AtomicLong();
+
+    private final AtomicLong activationTime = new AtomicLong();
+
+    private final AtomicLong maxActivationTime = new AtomicLong();
+
+    private final AtomicLong deactivations = new AtomicLong();
+
+    private final AtomicLong deactivationTime = new AtomicLong();
+
+    private final AtomicLong maxDeactivationTime = new AtomicLong();
+
+    private final AtomicLong binds = new AtomicLong();
+
+    private final AtomicLong unbinds = new AtomicLong();
+
+    private final AtomicLong lockAcquisitions = new AtomicLong();
+
+    private final AtomicLong lockWaitTime = new AtomicLong();
+
+    private final AtomicLong maxLockWaitTime = new AtomicLong();
+
+    private final AtomicLong lockTimeouts = new AtomicLong();
+
+    void activated( final long duration, final boolean success )
+    {
+        activations.incrementAndGet();
+        if ( !success )
+        {
+            activationFailures.incrementAndGet();
+        }
+        activationTime.addAndGet( duration );
+        max( maxActivationTime, duration );
+    }
+
+    void deactivated( final long duration )
+    {
+        deactivations.incrementAndGet();
+        deactivationTime.addAndGet( duration );
+        max( maxDeactivationTime, duration );
+    }
+
+    void bound()
+    {
+        binds.incrementAndGet();
+    }
+
+    void unbound()
+    {
+        unbinds.incrementAndGet();
+    }
+
+    void lockWaited( final long duration, final boolean timedOut )
+    {
+        lockAcquisitions.incrementAndGet();
+        lockWaitTime.addAndGet( duration );
+        max( maxLockWaitTime, duration );
+        if ( timedOut )
+        {
+            lockTimeouts.incrementAndGet();
+        }
+    }
+
+    public long getActivations()
+    {
+        return activations.get();
+    }
+
+    public long getActivationFailures()
+    {
+        return activationFailures.get();
+    }
+
+    public long getActivationTime()
+    {
+        return activationTime.get();
+    }
+
+    public long getMaxActivationTime()
+    {
+        return maxActivationTime.get();
+    }
+
+    public long getDeactivations()
+    {
+        return deactivations.get();
+    }
+
+    public long getDeactivationTime()
+    {
+        return deactivationTime.get();
+    }
+
+    public long getMaxDeactivationTime()
+    {
+        return maxDeactivationTime.get();
+    }
+
+    public long getBinds()
+    {
+        return binds.get();
+    }
+
+    public long getUnbinds()
+    {
+        return unbinds.get();
+    }
+
+    /**
+     * Returns the number of times the component state or activation locks
+     * have been obtained. Together with {@link #getLockWaitTime()} this gives
+     * the average time spent waiting for the locks.
+     */
+    public long getLockAcquisitions()
+    {
+        return lockAcquisitions.get();
+    }
+
+    public long getLockWaitTime()
+    {
+        return lockWaitTime.get();
+    }
+
+    public long getMaxLockWaitTime()
+    {
+        return maxLockWaitTime.get();
+    }
+
+    public long getLockTimeouts()
+    {
+        return lockTimeouts.get();
+    }
+
+    private static void max( final AtomicLong max, final long value )
+    {
+        long current = max.get();
+        while ( value > current && !max.compareAndSet( current, value ) )
+        {
+            current = max.get();
+        }
+    }
+}
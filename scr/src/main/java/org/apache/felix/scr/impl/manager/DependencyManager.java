@@ -28,6 +28,7 @@ import java.util.SortedMap;
 import java.util.TreeMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.felix.scr.impl.helper.Coercions;
@@ -79,6 +80,10 @@ public class DependencyManager<S, T> implements ReferenceManager<S, T>
 
     private volatile int m_minCardinality;
 
+    private final AtomicLong m_bindCount = new AtomicLong();
+
+    private final AtomicLong m_unbindCount = new AtomicLong();
+
     /**
      * Constructor that receives several parameters.
      * @param dependency An object that contains data about the dependency
@@ -1322,6 +1327,51 @@ public class DependencyManager<S, T> implements ReferenceManager<S, T>
         }
     }
 
+    /**
+     * Records a change of the component after each tracked service is added,
+     * modified or removed, as the satisfied and unsatisfied references of its
+     * <code>ComponentConfigurationDTO</code> list the target services.
+     */
+    private class ChangeCountCustomizer implements ServiceTrackerCustomizer<T, RefPair<S, T>, ExtendedServiceEvent>
+    {
+        private final Customizer<S, T> m_delegate;
+
+        ChangeCountCustomizer(Customizer<S, T> delegate)
+        {
+            m_delegate = delegate;
+        }
+
+        @Override
+        public RefPair<S, T> addingService(ServiceReference<T> serviceReference)
+        {
+            return m_delegate.addingService(serviceReference);
+        }
+
+        @Override
+        public void addedService(ServiceReference<T> serviceReference, RefPair<S, T> refPair, int trackingCount,
+            int serviceCount, ExtendedServiceEvent event)
+        {
+            m_delegate.addedService(serviceReference, refPair, trackingCount, serviceCount, event);
+            m_componentManager.changed();
+        }
+
+        @Override
+        public void modifiedService(ServiceReference<T> serviceReference, RefPair<S, T> refPair, int trackingCount,
+            ExtendedServiceEvent event)
+        {
+            m_delegate.modifiedService(serviceReference, refPair, trackingCount, event);
+            m_componentManager.changed();
+        }
+
+        @Override
+        public void removedService(ServiceReference<T> serviceReference, RefPair<S, T> refPair, int trackingCount,
+            ExtendedServiceEvent event)
+        {
+            m_delegate.removedService(serviceReference, refPair, trackingCount, event);
+            m_componentManager.changed();
+        }
+    }
+
     private String getServiceName()
     {
         return m_dependencyMetadata.getInterface();
@@ -1613,6 +1663,18 @@ public class DependencyManager<S, T> implements ReferenceManager<S, T>
         return m_customizer.isSatisfied();
     }
 
+    @Override
+    public long getBindCount()
+    {
+        return m_bindCount.get();
+    }
+
+    @Override
+    public long getUnbindCount()
+    {
+        return m_unbindCount.get();
+    }
+
     /**
      * Returns <code>true</code> if the component providing bundle has permission
      * to get the service described by this reference.
@@ -1756,6 +1818,15 @@ public class DependencyManager<S, T> implements ReferenceManager<S, T>
         latch.countDown();
     }
 
+    /**
+     * Returns the container of the component of this dependency, which is the
+     * ordering key of the tasks acting upon the component.
+     */
+    public ComponentContainer<S> getComponentContainer()
+    {
+        return m_componentManager.getContainer();
+    }
+
     public void invokeBindMethodLate(final ServiceReference<T> ref, int trackingCount)
     {
         final ServiceTracker<T, RefPair<S, T>, ExtendedServiceEvent> tracker = m_tracker;
@@ -1881,10 +1952,13 @@ public class DependencyManager<S, T> implements ReferenceManager<S, T>
         }
         MethodResult result = bindMethod.invoke(componentContext.getImplementationObject(false),
             new BindParameters(componentContext, refPair), MethodResult.VOID);
+        m_componentManager.changed();
         if (result == null)
         {
             return false;
         }
+        m_bindCount.incrementAndGet();
+        m_componentManager.getStatistics().bound();
         m_componentManager.setServiceProperties(result, trackingCount);
         return true;
     }
@@ -2007,8 +2081,11 @@ public class DependencyManager<S, T> implements ReferenceManager<S, T>
             }
             MethodResult methodResult = m_bindMethods.getUnbind().invoke(
                 componentContext.getImplementationObject(false), new BindParameters(componentContext, refPair), MethodResult.VOID);
+            m_componentManager.changed();
             if (methodResult != null)
             {
+                m_unbindCount.incrementAndGet();
+                m_componentManager.getStatistics().unbound();
                 m_componentManager.setServiceProperties(methodResult, trackingCount);
             }
             componentContext.getComponentServiceObjectsHelper().closeServiceObjects(refPair.getRef());
@@ -2283,7 +2360,7 @@ public class DependencyManager<S, T> implements ReferenceManager<S, T>
             null, getName(), initialActive, refMap, classFilterString, eventFilter,
                     initialReferenceFilterString );
         ServiceTracker<T, RefPair<S, T>, ExtendedServiceEvent> tracker = new ServiceTracker<>(
-            bundleContext, m_customizer, initialActive, m_componentManager.getActivator(), eventFilter,
+            bundleContext, new ChangeCountCustomizer(m_customizer), initialActive, m_componentManager.getActivator(), eventFilter,
             classFilterString, initialReferenceFilterString);
         m_customizer.setTracker(tracker);
         //set minimum cardinality
@@ -46,4 +46,16 @@ public interface ReferenceManager<S, T> {
 	String getTarget();
 
     boolean isSatisfied();
+
+    /**
+     * Returns the number of times a service has been bound to the component
+     * through this reference.
+     */
+    long getBindCount();
+
+    /**
+     * Returns the number of times a service has been unbound from the
+     * component through this reference.
+     */
+    long getUnbindCount();
 }
\ No newline at end of file
@@ -222,8 +222,24 @@ public class SingleComponentManager<S> extends AbstractComponentManager<S> imple
     }
 
 
-    @SuppressWarnings("unchecked")
     protected S createImplementationObject( Bundle usingBundle, SetImplementationObject<S> setter, ComponentContextImpl<S> componentContext )
+    {
+        final long start = System.nanoTime();
+        S implementationObject = null;
+        try
+        {
+            implementationObject = doCreateImplementationObject( usingBundle, setter, componentContext );
+            return implementationObject;
+        }
+        finally
+        {
+            getStatistics().activated( System.nanoTime() - start, implementationObject != null );
+        }
+    }
+
+
+    @SuppressWarnings("unchecked")
+    private S doCreateImplementationObject( Bundle usingBundle, SetImplementationObject<S> setter, ComponentContextImpl<S> componentContext )
     {
         S implementationObject = null;
 
@@ -402,6 +418,7 @@ public class SingleComponentManager<S> extends AbstractComponentManager<S> imple
 
         if ( implementationObject != null )
         {
+            final long start = System.nanoTime();
             // 1. Call the deactivate method, if present
             // don't care for the result, the error (acccording to 112.5.12 If the deactivate
             // method throws an exception, SCR must log an error message containing the
@@ -417,6 +434,7 @@ public class SingleComponentManager<S> extends AbstractComponentManager<S> imple
             {
                 md.close( componentContext, componentContext.getEdgeInfo( md ) );
             }
+            getStatistics().deactivated( System.nanoTime() - start );
         }
         componentContext.cleanup();
     }
@@ -622,6 +640,7 @@ public class SingleComponentManager<S> extends AbstractComponentManager<S> imple
                 if ( !servicePropertiesMatches( sr, regProps ) )
                 {
                     sr.setProperties( regProps );
+                    changed();
                 }
                 else
                 {
@@ -671,6 +690,7 @@ public class SingleComponentManager<S> extends AbstractComponentManager<S> imple
     {
         // store the properties
         m_configurationProperties = configuration;
+        changed();
 
         reconfigure(configurationDeleted);
     }
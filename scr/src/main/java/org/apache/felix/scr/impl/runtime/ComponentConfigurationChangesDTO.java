@@ -0,0 +1,48 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.scr.impl.runtime;
+
+import org.osgi.dto.DTO;
+import org.osgi.service.component.runtime.dto.ComponentConfigurationDTO;
+
+/**
+ * The component configurations which changed since a given change count.
+ * This is a Felix SCR specific extension of the
+ * <code>ServiceComponentRuntime</code> DTOs.
+ */
+public class ComponentConfigurationChangesDTO extends DTO
+{
+    /**
+     * The change count these changes are current with. Pass it to the next
+     * request to only receive further changes.
+     */
+    public long changeCount;
+
+    /**
+     * The component configurations which changed. These DTOs are shared
+     * between callers and must not be modified.
+     */
+    public ComponentConfigurationDTO[] changed;
+
+    /**
+     * The ids of all current component configurations. Configurations
+     * previously received whose id is missing have been removed.
+     */
+    public long[] ids;
+}
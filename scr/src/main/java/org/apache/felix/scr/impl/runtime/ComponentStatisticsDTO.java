@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.scr.impl.runtime;
+
+import org.osgi.dto.DTO;
+import org.osgi.service.component.runtime.dto.ComponentConfigurationDTO;
+
+/**
+ * Statistics of a single component configuration. This is a Felix SCR
+ * specific extension of the {@link ComponentConfigurationDTO}, sharing its
+ * {@link #id}. All times are in nanoseconds.
+ */
+public class ComponentStatisticsDTO extends DTO
+{
+    /**
+     * The id of the component configuration.
+     */
+    public long id;
+
+    /**
+     * The name of the component.
+     */
+    public String name;
+
+    /**
+     * The id of the bundle declaring the component.
+     */
+    public long bundle;
+
+    public long activations;
+
+    public long activationFailures;
+
+    public long activationTime;
+
+    public long maxActivationTime;
+
+    public long deactivations;
+
+    public long deactivationTime;
+
+    public long maxDeactivationTime;
+
+    public long binds;
+
+    public long unbinds;
+
+    public long lockAcquisitions;
+
+    public long lockWaitTime;
+
+    public long maxLockWaitTime;
+
+    public long lockTimeouts;
+
+    /**
+     * The bind and unbind counts per reference.
+     */
+    public ReferenceStatisticsDTO[] references;
+}
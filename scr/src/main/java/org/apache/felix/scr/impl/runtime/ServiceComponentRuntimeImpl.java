@@ -23,13 +23,16 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.felix.scr.impl.ComponentRegistry;
 import org.apache.felix.scr.impl.manager.ComponentHolder;
 import org.apache.felix.scr.impl.manager.ComponentManager;
+import org.apache.felix.scr.impl.manager.ComponentStatistics;
 import org.apache.felix.scr.impl.manager.ReferenceManager;
 import org.apache.felix.scr.impl.metadata.ComponentMetadata;
 import org.apache.felix.scr.impl.metadata.ReferenceMetadata;
@@ -62,6 +65,12 @@ public class ServiceComponentRuntimeImpl implements ServiceComponentRuntime, Ser
 
     private volatile SoftReference<ConcurrentHashMap<Long, ServiceReferenceDTO[]>> dtoCache = new SoftReference<>(new ConcurrentHashMap<Long, ServiceReferenceDTO[]>());
 
+    // shared description DTOs per bundle id and component name, see getComponentConfigurationChanges
+    private final ConcurrentHashMap<Long, ConcurrentHashMap<String, ComponentDescriptionDTO>> descriptionCache = new ConcurrentHashMap<>();
+
+    // shared configuration DTOs per component configuration id, see getComponentConfigurationChanges
+    private final ConcurrentHashMap<Long, CachedConfiguration> configurationCache = new ConcurrentHashMap<>();
+
     public ServiceComponentRuntimeImpl(final BundleContext context, final ComponentRegistry componentRegistry)
     {
         this.context = context;
@@ -209,6 +218,189 @@ public class ServiceComponentRuntimeImpl implements ServiceComponentRuntime, Ser
         }
     }
 
+    /**
+     * Returns the current change count of the component registry. This is
+     * the value of the <code>service.changecount</code> property the
+     * <code>ServiceComponentRuntime</code> service is eventually updated to.
+     */
+    public long getChangeCount()
+    {
+        return componentRegistry.getChangeCount();
+    }
+
+    /**
+     * Returns the component configurations which changed their state,
+     * bindings or properties since the given change count. This is a Felix
+     * SCR specific extension to the {@link ServiceComponentRuntime} service
+     * for callers polling the runtime state.
+     * <p>
+     * Unlike the DTOs returned by {@link #getComponentConfigurationDTOs(ComponentDescriptionDTO)}
+     * the returned DTOs are cached and shared between callers. They are only
+     * rebuilt once the component configuration changes, so they must not be
+     * modified.
+     *
+     * @param changeCount The change count of a previous call or a negative
+     *      value to get all component configurations
+     * @return The changed component configurations
+     */
+    public ComponentConfigurationChangesDTO getComponentConfigurationChanges(long changeCount)
+    {
+        final ComponentConfigurationChangesDTO result = new ComponentConfigurationChangesDTO();
+        // read the change count first, a concurrent change is reported again
+        // on the next call rather than being missed
+        result.changeCount = componentRegistry.getChangeCount();
+
+        final List<ComponentConfigurationDTO> changed = new ArrayList<>();
+        final Set<Long> ids = new HashSet<>();
+        for (ComponentHolder<?> holder: componentRegistry.getComponentHolders())
+        {
+            ComponentDescriptionDTO description = null;
+            for (ComponentManager<?> manager: holder.getComponents())
+            {
+                final long id = manager.getId();
+                final long managerChangeCount = manager.getChangeCount();
+                if (id >= 0)
+                {
+                    ids.add(id);
+                }
+                if (changeCount >= 0 && managerChangeCount <= changeCount)
+                {
+                    continue;
+                }
+
+                CachedConfiguration cached = (id >= 0) ? configurationCache.get(id) : null;
+                if (cached == null || cached.changeCount != managerChangeCount)
+                {
+                    if (description == null)
+                    {
+                        description = getCachedDescription(holder);
+                        if (description == null)
+                        {
+                            continue;
+                        }
+                    }
+                    cached = new CachedConfiguration(managerChangeCount, managerToConfiguration(manager, description));
+                    if (id >= 0)
+                    {
+                        configurationCache.put(id, cached);
+                    }
+                }
+                changed.add(cached.dto);
+            }
+        }
+        configurationCache.keySet().retainAll(ids);
+
+        result.changed = changed.toArray(new ComponentConfigurationDTO[changed.size()]);
+        result.ids = new long[ids.size()];
+        int i = 0;
+        for (Long id: ids)
+        {
+            result.ids[i++] = id;
+        }
+        return result;
+    }
+
+    private ComponentDescriptionDTO getCachedDescription(final ComponentHolder<?> holder)
+    {
+        final BundleContext bundleContext = holder.getActivator().getBundleContext();
+        final Bundle bundle = bundleContext == null ? null : bundleContext.getBundle();
+        if (bundle == null)
+        {
+            return null;
+        }
+        ConcurrentHashMap<String, ComponentDescriptionDTO> descriptions = descriptionCache.get(bundle.getBundleId());
+        if (descriptions == null)
+        {
+            descriptions = new ConcurrentHashMap<>();
+            final ConcurrentHashMap<String, ComponentDescriptionDTO> existing = descriptionCache.putIfAbsent(bundle.getBundleId(), descriptions);
+            if (existing != null)
+            {
+                descriptions = existing;
+            }
+        }
+        final String name = holder.getComponentMetadata().getName();
+        ComponentDescriptionDTO dto = descriptions.get(name);
+        if (dto == null)
+        {
+            dto = holderToDescription(holder);
+            if (dto != null)
+            {
+                descriptions.put(name, dto);
+            }
+        }
+        return dto;
+    }
+
+    /**
+     * Returns the statistics of the component configurations of the given
+     * component description. This is a Felix SCR specific extension to the
+     * {@link ServiceComponentRuntime} service.
+     *
+     * @param description The component description
+     * @return The statistics, one per component configuration
+     */
+    public Collection<ComponentStatisticsDTO> getComponentStatisticsDTOs(ComponentDescriptionDTO description)
+    {
+        if ( description == null)
+        {
+            return Collections.emptyList();
+        }
+        try
+        {
+            ComponentHolder<?> holder = getHolderFromDescription( description);
+            if ( holder == null )
+            {
+                return Collections.emptyList();
+            }
+            List<? extends ComponentManager<?>> managers = holder.getComponents();
+            List<ComponentStatisticsDTO> result = new ArrayList<>(managers.size());
+            for (ComponentManager<?> manager: managers)
+            {
+                result.add(managerToStatistics(manager, description));
+            }
+            return result;
+        }
+        catch ( IllegalStateException ise)
+        {
+            return Collections.emptyList();
+        }
+    }
+
+    private ComponentStatisticsDTO managerToStatistics(final ComponentManager<?> manager, final ComponentDescriptionDTO description)
+    {
+        final ComponentStatistics statistics = manager.getStatistics();
+        final ComponentStatisticsDTO dto = new ComponentStatisticsDTO();
+        dto.id = manager.getId();
+        dto.name = description.name;
+        dto.bundle = description.bundle.id;
+        dto.activations = statistics.getActivations();
+        dto.activationFailures = statistics.getActivationFailures();
+        dto.activationTime = statistics.getActivationTime();
+        dto.maxActivationTime = statistics.getMaxActivationTime();
+        dto.deactivations = statistics.getDeactivations();
+        dto.deactivationTime = statistics.getDeactivationTime();
+        dto.maxDeactivationTime = statistics.getMaxDeactivationTime();
+        dto.binds = statistics.getBinds();
+        dto.unbinds = statistics.getUnbinds();
+        dto.lockAcquisitions = statistics.getLockAcquisitions();
+        dto.lockWaitTime = statistics.getLockWaitTime();
+        dto.maxLockWaitTime = statistics.getMaxLockWaitTime();
+        dto.lockTimeouts = statistics.getLockTimeouts();
+
+        final List<? extends ReferenceManager<?, ?>> referenceManagers = manager.getReferenceManagers();
+        dto.references = new ReferenceStatisticsDTO[referenceManagers.size()];
+        int i = 0;
+        for (ReferenceManager<?, ?> ref: referenceManagers)
+        {
+            final ReferenceStatisticsDTO refDto = new ReferenceStatisticsDTO();
+            refDto.name = ref.getName();
+            refDto.binds = ref.getBindCount();
+            refDto.unbinds = ref.getUnbindCount();
+            dto.references[i++] = refDto;
+        }
+        return dto;
+    }
+
     private ComponentConfigurationDTO managerToConfiguration(final ComponentManager<?> manager, final ComponentDescriptionDTO description)
     {
         final ComponentConfigurationDTO dto = new ComponentConfigurationDTO();
@@ -484,6 +676,7 @@ public class ServiceComponentRuntimeImpl implements ServiceComponentRuntime, Ser
         {
             cache.remove(event.getBundle().getBundleId());
         }
+        descriptionCache.remove(event.getBundle().getBundleId());
     }
 
     @Override
@@ -499,5 +692,16 @@ public class ServiceComponentRuntimeImpl implements ServiceComponentRuntime, Ser
         }
     }
 
+    private static final class CachedConfiguration
+    {
+        final long changeCount;
+
+        final ComponentConfigurationDTO dto;
 
+        CachedConfiguration(final long changeCount, final ComponentConfigurationDTO dto)
+        {
+            this.changeCount = changeCount;
+            this.dto = dto;
+        }
+    }
 }
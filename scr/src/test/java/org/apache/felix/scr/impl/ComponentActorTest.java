@@ -0,0 +1,175 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.scr.impl;
+
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.felix.scr.impl.logger.MockScrLogger;
+
+import junit.framework.TestCase;
+
+
+public class ComponentActorTest extends TestCase
+{
+
+    public void test_same_key_runs_in_order() throws Exception
+    {
+        final ComponentActor actor = new ComponentActor( new MockScrLogger(), 4 );
+        actor.start();
+
+        final Object key = new Object();
+        final List<Integer> order = Collections.synchronizedList( new ArrayList<Integer>() );
+        for ( int i = 0; i < 100; i++ )
+        {
+            final int index = i;
+            actor.schedule( key, new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    order.add( index );
+                }
+            } );
+        }
+        actor.terminate();
+
+        assertEquals( 100, order.size() );
+        for ( int i = 0; i < 100; i++ )
+        {
+            assertEquals( Integer.valueOf( i ), order.get( i ) );
+        }
+    }
+
+
+    public void test_different_keys_run_concurrently() throws Exception
+    {
+        final ComponentActor actor = new ComponentActor( new MockScrLogger(), 2 );
+        actor.start();
+
+        // the first task only completes once the second one has run
+        final CountDownLatch secondRun = new CountDownLatch( 1 );
+        final CountDownLatch firstDone = new CountDownLatch( 1 );
+        actor.schedule( "first", new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    if ( secondRun.await( 5, TimeUnit.SECONDS ) )
+                    {
+                        firstDone.countDown();
+                    }
+                }
+                catch ( InterruptedException e )
+                {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        } );
+        actor.schedule( "second", new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                secondRun.countDown();
+            }
+        } );
+
+        assertTrue( firstDone.await( 5, TimeUnit.SECONDS ) );
+        actor.terminate();
+        assertTrue( actor.getStatistics().contains( "2 task(s) run" ) );
+    }
+
+
+    public void test_tasks_scheduled_during_termination_run() throws Exception
+    {
+        final ComponentActor actor = new ComponentActor( new MockScrLogger(), 2 );
+        actor.start();
+
+        final CountDownLatch release = new CountDownLatch( 1 );
+        final List<String> run = Collections.synchronizedList( new ArrayList<String>() );
+        actor.schedule( "key", new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    release.await( 5, TimeUnit.SECONDS );
+                }
+                catch ( InterruptedException e )
+                {
+                    Thread.currentThread().interrupt();
+                }
+                // scheduled while terminate() waits for the pending tasks
+                actor.schedule( "key", new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        run.add( "follow-up" );
+                    }
+                } );
+            }
+        } );
+
+        final Thread terminator = new Thread( new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                actor.terminate();
+            }
+        } );
+        terminator.start();
+        release.countDown();
+        terminator.join( 5000 );
+
+        assertFalse( terminator.isAlive() );
+        assertEquals( Collections.singletonList( "follow-up" ), run );
+    }
+
+
+    public void test_tasks_scheduled_after_termination_are_ignored() throws Exception
+    {
+        final ComponentActor actor = new ComponentActor( new MockScrLogger(), 2 );
+        actor.start();
+        actor.terminate();
+
+        final List<String> run = Collections.synchronizedList( new ArrayList<String>() );
+        actor.schedule( "key", new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                run.add( "late" );
+            }
+        } );
+
+        // nothing is left pending that no worker would ever run
+        assertTrue( actor.getStatistics().contains( "0 task(s) pending" ) );
+        assertTrue( run.isEmpty() );
+    }
+}
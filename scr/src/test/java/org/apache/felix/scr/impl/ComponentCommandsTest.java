@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.scr.impl;
+
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.apache.felix.scr.impl.runtime.ComponentStatisticsDTO;
+import org.apache.felix.scr.impl.runtime.ReferenceStatisticsDTO;
+import org.apache.felix.scr.impl.runtime.ServiceComponentRuntimeImpl;
+import org.mockito.Mockito;
+import org.osgi.framework.BundleContext;
+import org.osgi.service.component.runtime.dto.ComponentDescriptionDTO;
+
+import junit.framework.TestCase;
+
+
+public class ComponentCommandsTest extends TestCase
+{
+
+    private final ServiceComponentRuntimeImpl scr = Mockito.mock( ServiceComponentRuntimeImpl.class );
+
+    private final ComponentCommands commands = new ComponentCommands( Mockito.mock( BundleContext.class ), scr, null, null );
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        ComponentDescriptionDTO fast = description( "org.example.Fast" );
+        ComponentDescriptionDTO slow = description( "org.example.Slow" );
+        Mockito.when( scr.getComponentDescriptionDTOs() ).thenReturn( Arrays.asList( fast, slow ) );
+        Mockito.when( scr.getComponentStatisticsDTOs( fast ) ).thenReturn(
+            Collections.singletonList( statistics( 1, fast.name, 2000000L ) ) );
+        Mockito.when( scr.getComponentStatisticsDTOs( slow ) ).thenReturn(
+            Collections.singletonList( statistics( 2, slow.name, 5000000L ) ) );
+    }
+
+    public void test_stats_sorted_by_activation_time() throws Exception
+    {
+        String[] lines = commands.stats().split( "\n" );
+
+        assertEquals( 3, lines.length );
+        assertEquals( String.format( "%6s %10s %12s %10s %10s %10s %12s %8s  %s", "Id", "Activated", "Act. time",
+            "Deact.", "Binds", "Unbinds", "Lock wait", "Timeouts", "Name" ), lines[0] );
+        assertEquals( String.format( "%6d %10d %12s %10d %10d %10d %12s %8d  %s", 2, 3, millis( 5000000L ), 1, 4, 1,
+            millis( 1000L ), 0, "org.example.Slow" ), lines[1] );
+        assertTrue( lines[2], lines[2].endsWith( "org.example.Fast" ) );
+    }
+
+    public void test_stats_of_component() throws Exception
+    {
+        String[] lines = commands.stats( "slow" ).split( "\n" );
+
+        assertEquals( "Component Statistics: org.example.Slow (2)", lines[0] );
+        assertEquals( "Bundle:        42", lines[2] );
+        assertEquals( "Activations:   3 (1 failed), total " + millis( 5000000L ) + ", max " + millis( 2500000L ),
+            lines[3] );
+        assertEquals( "Reference log: 4 binds, 1 unbinds", lines[lines.length - 1] );
+    }
+
+    public void test_stats_of_unknown_component() throws Exception
+    {
+        try
+        {
+            commands.stats( "missing" );
+            fail( "Expected IllegalArgumentException" );
+        }
+        catch ( IllegalArgumentException iae )
+        {
+            // expected
+        }
+    }
+
+    private static ComponentDescriptionDTO description( String name )
+    {
+        ComponentDescriptionDTO dto = new ComponentDescriptionDTO();
+        dto.name = name;
+        return dto;
+    }
+
+    private static ComponentStatisticsDTO statistics( long id, String name, long activationTime )
+    {
+        ComponentStatisticsDTO dto = new ComponentStatisticsDTO();
+        dto.id = id;
+        dto.name = name;
+        dto.bundle = 42;
+        dto.activations = 3;
+        dto.activationFailures = 1;
+        dto.activationTime = activationTime;
+        dto.maxActivationTime = activationTime / 2;
+        dto.deactivations = 1;
+        dto.binds = 4;
+        dto.unbinds = 1;
+        dto.lockAcquisitions = 5;
+        dto.lockWaitTime = 1000L;
+        ReferenceStatisticsDTO ref = new ReferenceStatisticsDTO();
+        ref.name = "log";
+        ref.binds = 4;
+        ref.unbinds = 1;
+        dto.references = new ReferenceStatisticsDTO[] { ref };
+        return dto;
+    }
+
+    private static String millis( long nanos )
+    {
+        return String.format( "%.3f ms", nanos / 1000000d );
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.scr.impl;
+
+
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.apache.felix.scr.impl.logger.MockScrLogger;
+import org.apache.felix.scr.impl.manager.ComponentActivator;
+import org.apache.felix.scr.impl.manager.ComponentHolder;
+import org.apache.felix.scr.impl.manager.ComponentManager;
+import org.apache.felix.scr.impl.metadata.ComponentMetadata;
+import org.apache.felix.scr.impl.metadata.DSVersion;
+import org.apache.felix.scr.impl.runtime.ComponentConfigurationChangesDTO;
+import org.apache.felix.scr.impl.runtime.ServiceComponentRuntimeImpl;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.Version;
+import org.osgi.service.component.runtime.dto.ComponentConfigurationDTO;
+
+import junit.framework.TestCase;
+
+
+public class ComponentConfigurationChangesTest extends TestCase
+{
+
+    private ComponentRegistry registry;
+
+    private ServiceComponentRuntimeImpl scr;
+
+    private Bundle bundle;
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        registry = new ComponentRegistry( null, new MockScrLogger() );
+        scr = new ServiceComponentRuntimeImpl( mock( BundleContext.class ), registry );
+
+        bundle = mock( Bundle.class );
+        when( bundle.getBundleId() ).thenReturn( 42L );
+        when( bundle.getVersion() ).thenReturn( Version.emptyVersion );
+    }
+
+    public void test_all_configurations_for_negative_change_count() throws Exception
+    {
+        ComponentManager<?> m1 = manager( 1, 3 );
+        ComponentManager<?> m2 = manager( 2, 5 );
+        register( "foo", bundle, m1, m2 );
+
+        ComponentConfigurationChangesDTO changes = scr.getComponentConfigurationChanges( -1 );
+
+        assertEquals( registry.getChangeCount(), changes.changeCount );
+        assertEquals( 2, changes.changed.length );
+        assertEquals( "foo", changes.changed[0].description.name );
+        assertEquals( 42, changes.changed[0].description.bundle.id );
+        assertIds( changes, 1, 2 );
+    }
+
+    public void test_only_changed_configurations() throws Exception
+    {
+        ComponentManager<?> m1 = manager( 1, 3 );
+        ComponentManager<?> m2 = manager( 2, 5 );
+        register( "foo", bundle, m1, m2 );
+
+        ComponentConfigurationChangesDTO changes = scr.getComponentConfigurationChanges( 4 );
+
+        assertEquals( 1, changes.changed.length );
+        assertEquals( 2, changes.changed[0].id );
+        assertIds( changes, 1, 2 );
+
+        changes = scr.getComponentConfigurationChanges( 5 );
+        assertEquals( 0, changes.changed.length );
+        assertIds( changes, 1, 2 );
+    }
+
+    public void test_dtos_cached_until_changed() throws Exception
+    {
+        ComponentManager<?> m1 = manager( 1, 3 );
+        register( "foo", bundle, m1 );
+
+        ComponentConfigurationDTO dto = scr.getComponentConfigurationChanges( -1 ).changed[0];
+        assertSame( dto, scr.getComponentConfigurationChanges( -1 ).changed[0] );
+
+        when( m1.getChangeCount() ).thenReturn( 7L );
+        ComponentConfigurationChangesDTO changes = scr.getComponentConfigurationChanges( 3 );
+        assertEquals( 1, changes.changed.length );
+        assertNotSame( dto, changes.changed[0] );
+        assertEquals( 1, changes.changed[0].id );
+    }
+
+    public void test_removed_configurations_missing_from_ids() throws Exception
+    {
+        ComponentManager<?> m1 = manager( 1, 3 );
+        ComponentManager<?> m2 = manager( 2, 5 );
+        ComponentHolder<?> holder = register( "foo", bundle, m1, m2 );
+        scr.getComponentConfigurationChanges( -1 );
+
+        doReturn( Collections.singletonList( m2 ) ).when( holder ).getComponents();
+        ComponentConfigurationChangesDTO changes = scr.getComponentConfigurationChanges( 5 );
+
+        assertEquals( 0, changes.changed.length );
+        assertIds( changes, 2 );
+    }
+
+    public void test_components_of_stopped_bundle_are_skipped() throws Exception
+    {
+        // the bundle context of a stopping bundle no longer returns the bundle
+        Bundle stopped = mock( Bundle.class );
+        when( stopped.getBundleId() ).thenReturn( 43L );
+        register( "stopped", stopped, manager( 1, 3 ), manager( 2, 3 ) );
+        register( "foo", bundle, manager( 3, 3 ) );
+
+        ComponentConfigurationChangesDTO changes = scr.getComponentConfigurationChanges( -1 );
+
+        assertEquals( 1, changes.changed.length );
+        assertEquals( 3, changes.changed[0].id );
+        assertIds( changes, 1, 2, 3 );
+    }
+
+    private ComponentHolder<?> register( final String name, final Bundle bundle, final ComponentManager<?>... managers )
+    {
+        ComponentMetadata metadata = new ComponentMetadata( DSVersion.DS13 );
+        metadata.setName( name );
+        metadata.setImplementationClassName( "foo.bar.SomeClass" );
+        metadata.validate();
+
+        BundleContext bundleContext = mock( BundleContext.class );
+        when( bundleContext.getBundle() ).thenReturn( bundle == this.bundle ? bundle : null );
+        ComponentActivator activator = mock( ComponentActivator.class );
+        when( activator.getBundleContext() ).thenReturn( bundleContext );
+
+        ComponentHolder<?> holder = mock( ComponentHolder.class );
+        when( holder.getComponentMetadata() ).thenReturn( metadata );
+        when( holder.getActivator() ).thenReturn( activator );
+        doReturn( Arrays.asList( managers ) ).when( holder ).getComponents();
+        registry.registerComponentHolder( new ComponentRegistryKey( bundle, name ), holder );
+        return holder;
+    }
+
+    private static ComponentManager<?> manager( final long id, final long changeCount )
+    {
+        ComponentManager<?> manager = mock( ComponentManager.class );
+        when( manager.getId() ).thenReturn( id );
+        when( manager.getChangeCount() ).thenReturn( changeCount );
+        doReturn( Collections.emptyMap() ).when( manager ).getProperties();
+        doReturn( Collections.emptyList() ).when( manager ).getReferenceManagers();
+        when( manager.getSpecState() ).thenReturn( ComponentConfigurationDTO.UNSATISFIED_REFERENCE );
+        return manager;
+    }
+
+    private static void assertIds( final ComponentConfigurationChangesDTO changes, final long... expected )
+    {
+        long[] ids = changes.ids.clone();
+        Arrays.sort( ids );
+        assertTrue( Arrays.toString( ids ), Arrays.equals( expected, ids ) );
+    }
+}
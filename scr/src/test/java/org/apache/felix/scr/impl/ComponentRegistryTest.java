@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.scr.impl;
+
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Dictionary;
+import java.util.List;
+
+import org.apache.felix.scr.impl.logger.MockScrLogger;
+import org.apache.felix.scr.impl.manager.ComponentContainer;
+import org.apache.felix.scr.impl.manager.DependencyManager;
+import org.apache.felix.scr.impl.manager.ScrConfiguration;
+import org.osgi.framework.ServiceReference;
+import org.osgi.framework.ServiceRegistration;
+import org.osgi.service.component.ComponentConstants;
+import org.osgi.service.component.runtime.ServiceComponentRuntime;
+
+import junit.framework.TestCase;
+
+
+public class ComponentRegistryTest extends TestCase
+{
+
+    @SuppressWarnings("unchecked")
+    public void test_late_binding_scheduled_per_component() throws Exception
+    {
+        final ComponentRegistry registry = new ComponentRegistry( null, new MockScrLogger() );
+
+        final ServiceReference<Object> ref = mock( ServiceReference.class );
+        when( ref.getProperty( ComponentConstants.COMPONENT_NAME ) ).thenReturn( "provider" );
+        when( ref.getProperty( ComponentConstants.COMPONENT_ID ) ).thenReturn( 1L );
+
+        final ComponentContainer<Object> container1 = mock( ComponentContainer.class );
+        final ComponentContainer<Object> container2 = mock( ComponentContainer.class );
+        final DependencyManager<Object, Object> dm1 = mock( DependencyManager.class );
+        final DependencyManager<Object, Object> dm2 = mock( DependencyManager.class );
+        final DependencyManager<Object, Object> dm3 = mock( DependencyManager.class );
+        when( dm1.getComponentContainer() ).thenReturn( container1 );
+        when( dm2.getComponentContainer() ).thenReturn( container2 );
+        when( dm3.getComponentContainer() ).thenReturn( container1 );
+
+        registry.registerMissingDependency( dm1, ref, 1 );
+        registry.registerMissingDependency( dm2, ref, 2 );
+        registry.registerMissingDependency( dm3, ref, 3 );
+
+        // record the ordering keys and run the tasks synchronously
+        final List<Object> keys = new ArrayList<>();
+        final ComponentActor actor = new ComponentActor( new MockScrLogger(), 4 )
+        {
+            @Override
+            void schedule( final Object key, final Runnable task )
+            {
+                keys.add( key );
+                task.run();
+            }
+        };
+        registry.missingServicePresent( ref, actor );
+
+        // one task per component, ordered with the other tasks of the component
+        assertEquals( Arrays.<Object> asList( container1, container2 ), keys );
+        verify( dm1 ).invokeBindMethodLate( ref, 1 );
+        verify( dm2 ).invokeBindMethodLate( ref, 2 );
+        verify( dm3 ).invokeBindMethodLate( ref, 3 );
+
+        // the missing dependencies are only bound once
+        keys.clear();
+        registry.missingServicePresent( ref, actor );
+        assertTrue( keys.isEmpty() );
+    }
+
+    @SuppressWarnings("unchecked")
+    public void test_change_count_updates_coalesced() throws Exception
+    {
+        final ScrConfiguration configuration = mock( ScrConfiguration.class );
+        when( configuration.serviceChangecountTimeout() ).thenReturn( 50L );
+        final ComponentRegistry registry = new ComponentRegistry( configuration, new MockScrLogger() );
+
+        // changes before the registration only update the count
+        assertEquals( 1, registry.updateChangeCount() );
+
+        final ServiceRegistration<ServiceComponentRuntime> registration = mock( ServiceRegistration.class );
+        registry.setRegistration( registration );
+        for ( int i = 0; i < 100; i++ )
+        {
+            registry.updateChangeCount();
+        }
+        assertEquals( 101, registry.getChangeCount() );
+
+        // a burst of changes updates the service properties once
+        verify( registration, timeout( 5000 ) ).setProperties( any( Dictionary.class ) );
+        Thread.sleep( 200 );
+        verify( registration, times( 1 ) ).setProperties( any( Dictionary.class ) );
+        assertEquals( 101L, registry.getServiceRegistrationProperties().get( "service.changecount" ) );
+    }
+}
@@ -84,6 +84,12 @@ public class MockScrLogger extends ScrLogger
             {
                 return false;
             }
+
+            @Override
+            public int actorThreads()
+            {
+                return 1;
+            }
         }, new MockBundleContext(new MockBundle()));
     }
 }
\ No newline at end of file
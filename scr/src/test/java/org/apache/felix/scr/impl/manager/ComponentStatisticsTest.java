@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.scr.impl.manager;
+
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+
+public class ComponentStatisticsTest extends TestCase
+{
+
+    public void test_activations() throws Exception
+    {
+        final ComponentStatistics statistics = new ComponentStatistics();
+        statistics.activated( 100, true );
+        statistics.activated( 300, false );
+        statistics.activated( 200, true );
+
+        assertEquals( 3, statistics.getActivations() );
+        assertEquals( 1, statistics.getActivationFailures() );
+        assertEquals( 600, statistics.getActivationTime() );
+        assertEquals( 300, statistics.getMaxActivationTime() );
+        assertEquals( 0, statistics.getDeactivations() );
+    }
+
+    public void test_deactivations() throws Exception
+    {
+        final ComponentStatistics statistics = new ComponentStatistics();
+        statistics.deactivated( 50 );
+        statistics.deactivated( 20 );
+
+        assertEquals( 2, statistics.getDeactivations() );
+        assertEquals( 70, statistics.getDeactivationTime() );
+        assertEquals( 50, statistics.getMaxDeactivationTime() );
+        assertEquals( 0, statistics.getActivations() );
+    }
+
+    public void test_binds() throws Exception
+    {
+        final ComponentStatistics statistics = new ComponentStatistics();
+        statistics.bound();
+        statistics.bound();
+        statistics.unbound();
+
+        assertEquals( 2, statistics.getBinds() );
+        assertEquals( 1, statistics.getUnbinds() );
+    }
+
+    public void test_lock_waits() throws Exception
+    {
+        final ComponentStatistics statistics = new ComponentStatistics();
+        statistics.lockWaited( 10, false );
+        statistics.lockWaited( 40, true );
+        statistics.lockWaited( 30, false );
+
+        assertEquals( 3, statistics.getLockAcquisitions() );
+        assertEquals( 80, statistics.getLockWaitTime() );
+        assertEquals( 40, statistics.getMaxLockWaitTime() );
+        assertEquals( 1, statistics.getLockTimeouts() );
+    }
+
+    public void test_concurrent_updates() throws Exception
+    {
+        final ComponentStatistics statistics = new ComponentStatistics();
+        final List<Thread> threads = new ArrayList<Thread>();
+        for ( int i = 0; i < 8; i++ )
+        {
+            final int thread = i;
+            threads.add( new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    for ( int j = 1; j <= 1000; j++ )
+                    {
+                        statistics.activated( thread * 1000 + j, true );
+                    }
+                }
+            } );
+        }
+        for ( Thread thread : threads )
+        {
+            thread.start();
+        }
+        for ( Thread thread : threads )
+        {
+            thread.join();
+        }
+
+        assertEquals( 8000, statistics.getActivations() );
+        assertEquals( 0, statistics.getActivationFailures() );
+        assertEquals( 8000L * 8001 / 2, statistics.getActivationTime() );
+        assertEquals( 8000, statistics.getMaxActivationTime() );
+    }
+}
@@ -94,6 +94,13 @@ public class SingleComponentManagerTest
 
         }
 
+        @Override
+        public void schedule(Object key, Runnable runnable)
+        {
+            // TODO Auto-generated method stub
+
+        }
+
         @Override
         public long registerComponentId(AbstractComponentManager<?> sAbstractComponentManager)
         {
@@ -163,8 +170,9 @@ public class SingleComponentManagerTest
         }
 
         @Override
-        public void updateChangeCount() {
+        public long updateChangeCount() {
             // TODO Auto-generated method stub
+            return 0;
         }
 
         @Override
@@ -248,4 +256,31 @@ public class SingleComponentManagerTest
         AtomicInteger use = (AtomicInteger) u.get(scm);
         assertEquals(0, use.get());
     }
+
+    @Test
+    public void testStatisticsCountLocksAndFailedActivation() throws Exception
+    {
+        ComponentMetadata cm = new ComponentMetadata(DSVersion.DS13);
+        cm.setImplementationClassName("foo.bar.SomeClass");
+        cm.validate();
+
+        @SuppressWarnings("unchecked")
+        ComponentContainer<Object> cc = Mockito.mock(ComponentContainer.class);
+        Mockito.when(cc.getComponentMetadata()).thenReturn(cm);
+        Mockito.when(cc.getActivator()).thenReturn(componentActivator);
+        Mockito.when(cc.getLogger()).thenReturn(componentLogger);
+
+        SingleComponentManager<Object> scm = new SingleComponentManager<Object>(cc, new ComponentMethodsImpl());
+
+        scm.obtainStateLock();
+        scm.releaseStateLock();
+        assertEquals(1, scm.getStatistics().getLockAcquisitions());
+        assertEquals(0, scm.getStatistics().getLockTimeouts());
+
+        // the activator has no bundle context, so the implementation object cannot be created
+        assertNull(scm.createImplementationObject(null, null, null));
+        assertEquals(1, scm.getStatistics().getActivations());
+        assertEquals(1, scm.getStatistics().getActivationFailures());
+        assertEquals(scm.getStatistics().getActivationTime(), scm.getStatistics().getMaxActivationTime());
+    }
 }
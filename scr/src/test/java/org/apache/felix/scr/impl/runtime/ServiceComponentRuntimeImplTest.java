@@ -20,8 +20,13 @@ package org.apache.felix.scr.impl.runtime;
 
 import java.lang.reflect.Method;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 
+import org.apache.felix.scr.impl.manager.ComponentManager;
+import org.apache.felix.scr.impl.manager.ComponentStatistics;
+import org.apache.felix.scr.impl.manager.ReferenceManager;
+
 import org.mockito.Mockito;
 import org.osgi.dto.DTO;
 import org.osgi.framework.Bundle;
@@ -30,6 +35,7 @@ import org.osgi.framework.Constants;
 import org.osgi.framework.ServiceReference;
 import org.osgi.framework.dto.BundleDTO;
 import org.osgi.framework.dto.ServiceReferenceDTO;
+import org.osgi.service.component.runtime.dto.ComponentDescriptionDTO;
 
 import junit.framework.TestCase;
 
@@ -64,6 +70,58 @@ public class ServiceComponentRuntimeImplTest extends TestCase
         assertEquals(real.properties, dto.properties);
     }
 
+    public void testComponentStatisticsDTO() throws Exception
+    {
+        ComponentStatistics statistics = Mockito.mock(ComponentStatistics.class);
+        Mockito.when(statistics.getActivations()).thenReturn(3L);
+        Mockito.when(statistics.getActivationFailures()).thenReturn(1L);
+        Mockito.when(statistics.getActivationTime()).thenReturn(600L);
+        Mockito.when(statistics.getMaxActivationTime()).thenReturn(300L);
+        Mockito.when(statistics.getDeactivations()).thenReturn(2L);
+        Mockito.when(statistics.getBinds()).thenReturn(4L);
+        Mockito.when(statistics.getUnbinds()).thenReturn(1L);
+        Mockito.when(statistics.getLockAcquisitions()).thenReturn(7L);
+        Mockito.when(statistics.getLockWaitTime()).thenReturn(70L);
+        Mockito.when(statistics.getLockTimeouts()).thenReturn(1L);
+
+        ReferenceManager<?, ?> ref = Mockito.mock(ReferenceManager.class);
+        Mockito.when(ref.getName()).thenReturn("log");
+        Mockito.when(ref.getBindCount()).thenReturn(4L);
+        Mockito.when(ref.getUnbindCount()).thenReturn(1L);
+
+        ComponentManager<?> manager = Mockito.mock(ComponentManager.class);
+        Mockito.when(manager.getId()).thenReturn(12L);
+        Mockito.when(manager.getStatistics()).thenReturn(statistics);
+        Mockito.doReturn(Collections.singletonList(ref)).when(manager).getReferenceManagers();
+
+        ComponentDescriptionDTO description = new ComponentDescriptionDTO();
+        description.name = "foo";
+        description.bundle = new BundleDTO();
+        description.bundle.id = 42;
+
+        ServiceComponentRuntimeImpl scr = new ServiceComponentRuntimeImpl(Mockito.mock(BundleContext.class), null);
+        Method m = scr.getClass().getDeclaredMethod("managerToStatistics", ComponentManager.class, ComponentDescriptionDTO.class);
+        m.setAccessible(true);
+        ComponentStatisticsDTO dto = (ComponentStatisticsDTO) m.invoke(scr, manager, description);
+        assertEquals(12, dto.id);
+        assertEquals("foo", dto.name);
+        assertEquals(42, dto.bundle);
+        assertEquals(3, dto.activations);
+        assertEquals(1, dto.activationFailures);
+        assertEquals(600, dto.activationTime);
+        assertEquals(300, dto.maxActivationTime);
+        assertEquals(2, dto.deactivations);
+        assertEquals(4, dto.binds);
+        assertEquals(1, dto.unbinds);
+        assertEquals(7, dto.lockAcquisitions);
+        assertEquals(70, dto.lockWaitTime);
+        assertEquals(1, dto.lockTimeouts);
+        assertEquals(1, dto.references.length);
+        assertEquals("log", dto.references[0].name);
+        assertEquals(4, dto.references[0].binds);
+        assertEquals(1, dto.references[0].unbinds);
+    }
+
     public void testConvert()
     {
         ServiceComponentRuntimeImpl scr = new ServiceComponentRuntimeImpl(Mockito.mock(BundleContext.class), null);
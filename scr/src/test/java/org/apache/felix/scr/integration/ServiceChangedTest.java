@@ -19,12 +19,16 @@
 package org.apache.felix.scr.integration;
 
 
+import java.lang.reflect.Method;
+
 import org.apache.felix.scr.integration.components.SimpleComponent;
 import org.apache.felix.scr.integration.components.SimpleServiceImpl;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.ops4j.pax.exam.junit.PaxExam;
+import org.osgi.service.component.runtime.ServiceComponentRuntime;
 import org.osgi.service.component.runtime.dto.ComponentConfigurationDTO;
+import org.osgi.service.component.runtime.dto.SatisfiedReferenceDTO;
 
 import junit.framework.TestCase;
 
@@ -568,4 +572,48 @@ public class ServiceChangedTest extends ComponentTestBase
         TestCase.assertEquals( 1, comp13.m_multiRefBind );
         TestCase.assertEquals( 0, comp13.m_multiRefUnbind);
     }
-}
\ No newline at end of file
+
+
+    @Test
+    public void test_configuration_changes_on_target_service_modified() throws Exception
+    {
+        final SimpleServiceImpl srv1 = SimpleServiceImpl.create( bundleContext, "srv1" );
+        String name = "test_optional_single_dynamic_target";
+        getDisabledConfigurationAndEnable(name, ComponentConfigurationDTO.ACTIVE);
+
+        final ComponentConfigurationDTO dto = findChangedConfiguration( name );
+        TestCase.assertSame( dto, findChangedConfiguration( name ) );
+        TestCase.assertEquals( "srv1", getBoundValue( dto ) );
+
+        // update a service property without changing the bindings
+        srv1.update( "srv1-modified" );
+
+        final ComponentConfigurationDTO modified = findChangedConfiguration( name );
+        TestCase.assertNotSame( dto, modified );
+        TestCase.assertEquals( "srv1-modified", getBoundValue( modified ) );
+    }
+
+    private ComponentConfigurationDTO findChangedConfiguration( String name ) throws Exception
+    {
+        // the change listing is an extension of the Felix implementation
+        ServiceComponentRuntime scr = scrTracker.getService();
+        Method method = scr.getClass().getMethod( "getComponentConfigurationChanges", long.class );
+        Object changes = method.invoke( scr, -1L );
+        for ( ComponentConfigurationDTO dto : ( ComponentConfigurationDTO[] ) changes.getClass().getField( "changed" ).get( changes ) )
+        {
+            if ( name.equals( dto.description.name ) )
+            {
+                return dto;
+            }
+        }
+        TestCase.fail( "no configuration " + name );
+        return null;
+    }
+
+    private static Object getBoundValue( ComponentConfigurationDTO dto )
+    {
+        SatisfiedReferenceDTO ref = dto.satisfiedReferences[0];
+        TestCase.assertEquals( 1, ref.boundServices.length );
+        return ref.boundServices[0].properties.get( "value" );
+    }
+}
@@ -0,0 +1,514 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.felix.utils.json;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A streaming JSON reader with a pull API.
+ *
+ * The input is read in a single pass and the document is returned as a
+ * sequence of {@link Token}s by {@link #next()}. The value of the current
+ * token is available through {@link #getString()}, {@link #getNumber()},
+ * {@link #getBoolean()} or {@link #getValue()}. A complete value can be read
+ * into the object structure described at {@link JSONParser} with
+ * {@link #readValue()} or skipped with {@link #skipValue()}.
+ *
+ * To stay compatible with the earlier versions of {@link JSONParser}, the
+ * reader is lenient in a few places: the literals {@code true}, {@code false}
+ * and {@code null} are matched case insensitively, unknown escape sequences
+ * resolve to the escaped character and line breaks inside strings are read
+ * as spaces.
+ *
+ * Malformed input results in an {@link IllegalArgumentException}.
+ */
+public class JSONReader implements Closeable {
+
+    /**
+     * The tokens returned by {@link JSONReader#next()}.
+     */
+    public enum Token {
+        START_OBJECT,
+        END_OBJECT,
+        START_ARRAY,
+        END_ARRAY,
+        /** The name of an object member, see {@link JSONReader#getString()} */
+        KEY,
+        STRING,
+        NUMBER,
+        BOOLEAN,
+        NULL,
+        END_DOCUMENT
+    }
+
+    private static final byte EMPTY_DOCUMENT = 0;
+    private static final byte NONEMPTY_DOCUMENT = 1;
+    private static final byte EMPTY_OBJECT = 2;
+    private static final byte NONEMPTY_OBJECT = 3;
+    private static final byte OBJECT_VALUE = 4;
+    private static final byte EMPTY_ARRAY = 5;
+    private static final byte NONEMPTY_ARRAY = 6;
+
+    private final Reader reader;
+
+    private final char[] buffer = new char[8192];
+
+    private int pos;
+
+    private int limit;
+
+    /** Number of characters read before the current buffer */
+    private long consumed;
+
+    private byte[] stack = new byte[32];
+
+    private int depth = 1;
+
+    private final StringBuilder sb = new StringBuilder();
+
+    private Token token;
+
+    private String string;
+
+    private Number number;
+
+    private boolean bool;
+
+    public JSONReader(Reader reader) {
+        this.reader = reader;
+        this.stack[0] = EMPTY_DOCUMENT;
+    }
+
+    /**
+     * Advance to the next token.
+     * @return The token, {@link Token#END_DOCUMENT} once the document is read completely.
+     * @throws IOException If reading from the underlying reader fails
+     * @throws IllegalArgumentException If the input is not valid JSON
+     */
+    public Token next() throws IOException {
+        int c;
+        switch (stack[depth - 1]) {
+        case EMPTY_DOCUMENT:
+            stack[depth - 1] = NONEMPTY_DOCUMENT;
+            return startValue(nextNonWhitespace());
+        case NONEMPTY_DOCUMENT:
+            if (nextNonWhitespace() != -1) {
+                throw syntaxError("Unexpected content after the end of the document");
+            }
+            return token = Token.END_DOCUMENT;
+        case EMPTY_OBJECT:
+            c = nextNonWhitespace();
+            if (c == '}') {
+                return end(Token.END_OBJECT);
+            }
+            return startKey(c);
+        case NONEMPTY_OBJECT:
+            c = nextNonWhitespace();
+            if (c == '}') {
+                return end(Token.END_OBJECT);
+            } else if (c != ',') {
+                throw syntaxError("Expected ',' or '}'");
+            }
+            return startKey(nextNonWhitespace());
+        case OBJECT_VALUE:
+            if (nextNonWhitespace() != ':') {
+                throw syntaxError("Expected ':'");
+            }
+            stack[depth - 1] = NONEMPTY_OBJECT;
+            return startValue(nextNonWhitespace());
+        case EMPTY_ARRAY:
+            c = nextNonWhitespace();
+            if (c == ']') {
+                return end(Token.END_ARRAY);
+            }
+            stack[depth - 1] = NONEMPTY_ARRAY;
+            return startValue(c);
+        default: // NONEMPTY_ARRAY
+            c = nextNonWhitespace();
+            if (c == ']') {
+                return end(Token.END_ARRAY);
+            } else if (c != ',') {
+                throw syntaxError("Expected ',' or ']'");
+            }
+            return startValue(nextNonWhitespace());
+        }
+    }
+
+    /**
+     * @return The current token or {@code null} if {@link #next()} has not been called yet.
+     */
+    public Token getToken() {
+        return token;
+    }
+
+    /**
+     * @return The string of the current {@link Token#KEY} or {@link Token#STRING} token.
+     */
+    public String getString() {
+        if (token != Token.KEY && token != Token.STRING) {
+            throw new IllegalStateException("Current token is not a string: " + token);
+        }
+        return string;
+    }
+
+    /**
+     * @return The number of the current {@link Token#NUMBER} token, either a {@link Long} or a {@link Double}.
+     */
+    public Number getNumber() {
+        if (token != Token.NUMBER) {
+            throw new IllegalStateException("Current token is not a number: " + token);
+        }
+        return number;
+    }
+
+    /**
+     * @return The value of the current {@link Token#BOOLEAN} token.
+     */
+    public boolean getBoolean() {
+        if (token != Token.BOOLEAN) {
+            throw new IllegalStateException("Current token is not a boolean: " + token);
+        }
+        return bool;
+    }
+
+    /**
+     * @return The value of the current scalar token, {@code null} for {@link Token#NULL}.
+     */
+    public Object getValue() {
+        if (token == null) {
+            throw new IllegalStateException("No current token");
+        }
+        switch (token) {
+        case STRING:
+            return string;
+        case NUMBER:
+            return number;
+        case BOOLEAN:
+            return bool;
+        case NULL:
+            return null;
+        default:
+            throw new IllegalStateException("Current token is not a value: " + token);
+        }
+    }
+
+    /**
+     * Read the next value completely. Objects are returned as a {@link Map},
+     * arrays as a {@link List} and scalars as described at {@link #getValue()}.
+     * Nested values are read without recursion, so the nesting depth is only
+     * limited by the available memory.
+     * @return The value
+     * @throws IOException If reading from the underlying reader fails
+     * @throws IllegalArgumentException If the input is not valid JSON
+     */
+    @SuppressWarnings("unchecked")
+    public Object readValue() throws IOException {
+        final List<Object> containers = new ArrayList<Object>();
+        final List<String> keys = new ArrayList<String>();
+        String key = null;
+        for (;;) {
+            final Object value;
+            switch (next()) {
+            case KEY:
+                key = string;
+                continue;
+            case START_OBJECT:
+                containers.add(new HashMap<String, Object>());
+                keys.add(key);
+                key = null;
+                continue;
+            case START_ARRAY:
+                containers.add(new ArrayList<Object>());
+                keys.add(key);
+                key = null;
+                continue;
+            case END_OBJECT:
+            case END_ARRAY:
+                if (containers.isEmpty()) {
+                    throw new IllegalStateException("No value to read before " + token);
+                }
+                value = containers.remove(containers.size() - 1);
+                key = keys.remove(keys.size() - 1);
+                break;
+            case END_DOCUMENT:
+                throw syntaxError("Unexpected end of input");
+            default:
+                value = getValue();
+            }
+            if (containers.isEmpty()) {
+                return value;
+            }
+            final Object parent = containers.get(containers.size() - 1);
+            if (parent instanceof Map) {
+                ((Map<String, Object>) parent).put(key, value);
+            } else {
+                ((List<Object>) parent).add(value);
+            }
+            key = null;
+        }
+    }
+
+    /**
+     * Skip the next value including all nested values.
+     * @throws IOException If reading from the underlying reader fails
+     * @throws IllegalArgumentException If the input is not valid JSON
+     */
+    public void skipValue() throws IOException {
+        int level = 0;
+        Token t;
+        do {
+            t = next();
+            switch (t) {
+            case START_OBJECT:
+            case START_ARRAY:
+                level++;
+                break;
+            case END_OBJECT:
+            case END_ARRAY:
+                level--;
+                break;
+            case END_DOCUMENT:
+                throw syntaxError("Unexpected end of input");
+            default:
+                break;
+            }
+        } while (level > 0 || t == Token.KEY);
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private Token end(final Token t) {
+        depth--;
+        return token = t;
+    }
+
+    private void push(final byte state) {
+        if (depth == stack.length) {
+            final byte[] newStack = new byte[depth * 2];
+            System.arraycopy(stack, 0, newStack, 0, depth);
+            stack = newStack;
+        }
+        stack[depth++] = state;
+    }
+
+    private Token startKey(final int c) throws IOException {
+        if (c == -1) {
+            throw syntaxError("Unexpected end of input");
+        } else if (c != '"') {
+            throw syntaxError("Expected a name");
+        }
+        string = readString();
+        stack[depth - 1] = OBJECT_VALUE;
+        return token = Token.KEY;
+    }
+
+    private Token startValue(final int c) throws IOException {
+        switch (c) {
+        case -1:
+            throw syntaxError("Unexpected end of input");
+        case '{':
+            push(EMPTY_OBJECT);
+            return token = Token.START_OBJECT;
+        case '[':
+            push(EMPTY_ARRAY);
+            return token = Token.START_ARRAY;
+        case '"':
+            string = readString();
+            return token = Token.STRING;
+        case '-':
+        case '+':
+        case '.':
+        case '0': case '1': case '2': case '3': case '4':
+        case '5': case '6': case '7': case '8': case '9':
+            number = readNumber((char) c);
+            return token = Token.NUMBER;
+        default:
+            return readLiteral((char) c);
+        }
+    }
+
+    private String readString() throws IOException {
+        sb.setLength(0);
+        for (;;) {
+            final int start = pos;
+            while (pos < limit) {
+                final char c = buffer[pos];
+                if (c == '"') {
+                    final String result;
+                    if (sb.length() == 0) {
+                        result = new String(buffer, start, pos - start);
+                    } else {
+                        result = sb.append(buffer, start, pos - start).toString();
+                    }
+                    pos++;
+                    return result;
+                }
+                if (c == '\\' || c == '\n' || c == '\r') {
+                    break;
+                }
+                pos++;
+            }
+            sb.append(buffer, start, pos - start);
+            if (pos == limit) {
+                if (!fill()) {
+                    throw syntaxError("Unterminated string");
+                }
+            } else if (buffer[pos++] == '\\') {
+                sb.append(readEscape());
+            } else {
+                sb.append(' ');
+            }
+        }
+    }
+
+    private char readEscape() throws IOException {
+        final int c = read();
+        switch (c) {
+        case -1:
+            throw syntaxError("Unterminated string");
+        case 'b':
+            return '\b';
+        case 'f':
+            return '\f';
+        case 'n':
+            return '\n';
+        case 'r':
+            return '\r';
+        case 't':
+            return '\t';
+        case 'u':
+            int value = 0;
+            for (int i = 0; i < 4; i++) {
+                final int digit = Character.digit(read(), 16);
+                if (digit == -1) {
+                    throw syntaxError("Invalid unicode escape sequence");
+                }
+                value = (value << 4) + digit;
+            }
+            return (char) value;
+        default:
+            return (char) c;
+        }
+    }
+
+    private Number readNumber(final char first) throws IOException {
+        sb.setLength(0);
+        sb.append(first);
+        boolean decimal = first == '.';
+        for (;;) {
+            if (pos == limit && !fill()) {
+                break;
+            }
+            final char c = buffer[pos];
+            if ((c >= '0' && c <= '9') || c == '-' || c == '+') {
+                sb.append(c);
+            } else if (c == '.' || c == 'e' || c == 'E') {
+                sb.append(c);
+                decimal = true;
+            } else {
+                break;
+            }
+            pos++;
+        }
+        final String str = sb.toString();
+        try {
+            if (decimal) {
+                return Double.valueOf(str);
+            }
+            return Long.valueOf(str);
+        } catch (final NumberFormatException nfe) {
+            throw syntaxError("Invalid number " + str);
+        }
+    }
+
+    private Token readLiteral(final char first) throws IOException {
+        sb.setLength(0);
+        sb.append(first);
+        for (;;) {
+            if (pos == limit && !fill()) {
+                break;
+            }
+            final char c = buffer[pos];
+            if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')) {
+                sb.append(c);
+                pos++;
+            } else {
+                break;
+            }
+        }
+        final String str = sb.toString();
+        if ("true".equalsIgnoreCase(str)) {
+            bool = true;
+            return token = Token.BOOLEAN;
+        } else if ("false".equalsIgnoreCase(str)) {
+            bool = false;
+            return token = Token.BOOLEAN;
+        } else if ("null".equalsIgnoreCase(str)) {
+            return token = Token.NULL;
+        }
+        throw syntaxError("Unexpected value " + str);
+    }
+
+    private int nextNonWhitespace() throws IOException {
+        for (;;) {
+            while (pos < limit) {
+                final char c = buffer[pos++];
+                if (c != ' ' && c != '\t' && c != '\n' && c != '\r') {
+                    return c;
+                }
+            }
+            if (!fill()) {
+                return -1;
+            }
+        }
+    }
+
+    private int read() throws IOException {
+        if (pos == limit && !fill()) {
+            return -1;
+        }
+        return buffer[pos++];
+    }
+
+    private boolean fill() throws IOException {
+        consumed += limit;
+        pos = 0;
+        limit = 0;
+        int n;
+        do {
+            n = reader.read(buffer, 0, buffer.length);
+        } while (n == 0);
+        if (n == -1) {
+            return false;
+        }
+        limit = n;
+        return true;
+    }
+
+    private IllegalArgumentException syntaxError(final String message) {
+        return new IllegalArgumentException("Malformatted JSON: " + message + " at character " + (consumed + pos));
+    }
+}
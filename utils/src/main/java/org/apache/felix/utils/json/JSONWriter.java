@@ -152,7 +152,7 @@ public class JSONWriter
             while ( iter.hasNext() )
             {
                 Map.Entry entry = (Entry) iter.next();
-                this.key((String)entry.getKey());
+                this.key(String.valueOf(entry.getKey()));
                 this.value(entry.getValue());
             }
             this.endObject();
@@ -190,6 +190,7 @@ public class JSONWriter
 
     /**
      * Quote the provided value and escape some characters.
+     * Characters which need no escaping are written in runs.
      * @param value The value to quote
      * @throws IOException
      */
@@ -197,52 +198,66 @@ public class JSONWriter
     {
         pw.write('"');
         final int len = value.length();
+        int start = 0;
         for(int i=0;i<len;i++)
         {
             final char c = value.charAt(i);
-            switch(c){
-            case '"':
-                pw.write("\\\"");
-                break;
-            case '\\':
-                pw.write("\\\\");
-                break;
-            case '\b':
-                pw.write("\\b");
-                break;
-            case '\f':
-                pw.write("\\f");
-                break;
-            case '\n':
-                pw.write("\\n");
-                break;
-            case '\r':
-                pw.write("\\r");
-                break;
-            case '\t':
-                pw.write("\\t");
-                break;
-            case '/':
-                pw.write("\\/");
-                break;
-            default:
-                if ((c>='\u0000' && c<='\u001F') || (c>='\u007F' && c<='\u009F') || (c>='\u2000' && c<='\u20FF'))
+            final String escaped = escape(c);
+            if ( escaped != null )
+            {
+                if ( i > start )
                 {
-                    final String hex=Integer.toHexString(c);
-                    pw.write("\\u");
-                    for(int k=0;k<4-hex.length();k++){
-                        pw.write('0');
-                    }
-                    pw.write(hex.toUpperCase());
-                }
-                else{
-                    pw.write(c);
+                    pw.write(value, start, i - start);
                 }
+                pw.write(escaped);
+                start = i + 1;
             }
         }
+        if ( len > start )
+        {
+            pw.write(value, start, len - start);
+        }
         pw.write('"');
     }
 
+    /**
+     * Get the escape sequence for a character
+     * @param c The character
+     * @return The escape sequence or {@code null} if the character is written as is
+     */
+    private static String escape(final char c)
+    {
+        switch(c){
+        case '"':
+            return "\\\"";
+        case '\\':
+            return "\\\\";
+        case '\b':
+            return "\\b";
+        case '\f':
+            return "\\f";
+        case '\n':
+            return "\\n";
+        case '\r':
+            return "\\r";
+        case '\t':
+            return "\\t";
+        case '/':
+            return "\\/";
+        default:
+            if ((c>='\u0000' && c<='\u001F') || (c>='\u007F' && c<='\u009F') || (c>='\u2000' && c<='\u20FF'))
+            {
+                final String hex=Integer.toHexString(c).toUpperCase();
+                final StringBuilder sb = new StringBuilder("\\u");
+                for(int k=0;k<4-hex.length();k++){
+                    sb.append('0');
+                }
+                return sb.append(hex).toString();
+            }
+            return null;
+        }
+    }
+
     /**
      * @see Writer#flush()
      * @throws IOException when the underlying writer throws an exception.
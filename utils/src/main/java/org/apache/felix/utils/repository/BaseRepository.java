@@ -17,11 +17,15 @@
 package org.apache.felix.utils.repository;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.felix.utils.resource.CapabilitySet;
 import org.apache.felix.utils.resource.RequirementImpl;
@@ -32,6 +36,9 @@ import org.osgi.resource.Requirement;
 import org.osgi.resource.Resource;
 import org.osgi.service.repository.Repository;
 
+import static org.osgi.framework.Constants.BUNDLE_VERSION_ATTRIBUTE;
+import static org.osgi.framework.Constants.VERSION_ATTRIBUTE;
+
 /**
  */
 public class BaseRepository implements Repository {
@@ -56,7 +63,7 @@ public class BaseRepository implements Repository {
             String ns = cap.getNamespace();
             CapabilitySet cs = capSets.get(ns);
             if (cs == null) {
-                cs = new CapabilitySet(Collections.singletonList(ns));
+                cs = new CapabilitySet(getIndexedAttributes(ns));
                 capSets.put(ns, cs);
             }
             cs.addCapability(cap);
@@ -64,6 +71,39 @@ public class BaseRepository implements Repository {
         resources.add(resource);
     }
 
+    /**
+     * Remove resources and their capabilities.
+     */
+    protected void removeResources(Collection<Resource> removed) {
+        if (removed.isEmpty()) {
+            return;
+        }
+        Set<Resource> set = Collections.newSetFromMap(new IdentityHashMap<Resource, Boolean>());
+        set.addAll(removed);
+        for (Iterator<Resource> it = resources.iterator(); it.hasNext();) {
+            Resource resource = it.next();
+            if (set.contains(resource)) {
+                it.remove();
+                for (Capability cap : resource.getCapabilities(null)) {
+                    CapabilitySet cs = capSets.get(cap.getNamespace());
+                    if (cs != null) {
+                        cs.removeCapability(cap);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the attributes to index for the capabilities of a namespace.
+     * Equality conditions on an indexed attribute and version ranges on
+     * an indexed version attribute are looked up instead of checking each
+     * capability.
+     */
+    protected List<String> getIndexedAttributes(String namespace) {
+        return Arrays.asList(namespace, VERSION_ATTRIBUTE, BUNDLE_VERSION_ATTRIBUTE);
+    }
+
     public List<Resource> getResources() {
         return resources;
     }
@@ -18,7 +18,10 @@ package org.apache.felix.utils.repository;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.locks.ReadWriteLock;
@@ -41,6 +44,19 @@ public class JsonRepository extends BaseRepository {
 
     private final UrlLoader loader;
     private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    /**
+     * The headers of an entry of the document and the resources built from them.
+     */
+    private static class Entry {
+        final Map<String, String> headers;
+        final List<Resource> resources = new ArrayList<>();
+
+        Entry(Map<String, String> headers) {
+            this.headers = headers;
+        }
+    }
 
     public JsonRepository(String url, long expiration) {
         loader = new UrlLoader(url, expiration) {
@@ -81,12 +97,28 @@ public class JsonRepository extends BaseRepository {
         Map<String, Map<String, String>> metadatas = verify(new JSONParser(is).getParsed());
         lock.writeLock().lock();
         try {
-            resources.clear();
-            capSets.clear();
+            // only build the resources of new or changed entries
+            List<Resource> removed = new ArrayList<>();
+            for (Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator(); it.hasNext();) {
+                Map.Entry<String, Entry> entry = it.next();
+                if (!entry.getValue().headers.equals(metadatas.get(entry.getKey()))) {
+                    removed.addAll(entry.getValue().resources);
+                    it.remove();
+                }
+            }
+            removeResources(removed);
+            boolean modified = !removed.isEmpty();
             for (Map.Entry<String, Map<String, String>> metadata : metadatas.entrySet()) {
-                buildResource(metadata.getKey(), metadata.getValue());
+                if (!entries.containsKey(metadata.getKey())) {
+                    Entry entry = new Entry(metadata.getValue());
+                    int size = resources.size();
+                    buildResource(metadata.getKey(), metadata.getValue());
+                    entry.resources.addAll(resources.subList(size, resources.size()));
+                    entries.put(metadata.getKey(), entry);
+                    modified = true;
+                }
             }
-            return true;
+            return modified;
         } finally {
             lock.writeLock().unlock();
         }
@@ -19,10 +19,13 @@ package org.apache.felix.utils.repository;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import javax.xml.stream.XMLStreamException;
@@ -48,6 +51,21 @@ public class XmlRepository extends BaseRepository {
     protected final long expiration;
     protected final Map<String, XmlLoader> loaders = new HashMap<>();
     protected final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Contribution> contributions = new HashMap<>();
+
+    /**
+     * The resources a document added to the repository, and those which
+     * were not added because another document provided them already.
+     */
+    private static class Contribution {
+        final StaxParser.XmlRepository xml;
+        final List<Resource> added = new ArrayList<>();
+        final List<Resource> skipped = new ArrayList<>();
+
+        Contribution(StaxParser.XmlRepository xml) {
+            this.xml = xml;
+        }
+    }
 
     public XmlRepository(String url, long expiration) {
         this.url = url;
@@ -57,13 +75,23 @@ public class XmlRepository extends BaseRepository {
     @Override
     public List<Resource> getResources() {
         checkAndLoadCache();
-        return super.getResources();
+        lock.readLock().lock();
+        try {
+            return super.getResources();
+        } finally {
+            lock.readLock().unlock();
+        }
     }
 
     @Override
     public Map<Requirement, Collection<Capability>> findProviders(Collection<? extends Requirement> requirements) {
         checkAndLoadCache();
-        return super.findProviders(requirements);
+        lock.readLock().lock();
+        try {
+            return super.findProviders(requirements);
+        } finally {
+            lock.readLock().unlock();
+        }
     }
 
     public String getUrl() {
@@ -76,6 +104,10 @@ public class XmlRepository extends BaseRepository {
 
     @Override
     protected void addResource(Resource resource) {
+        addIfAbsent(resource);
+    }
+
+    private boolean addIfAbsent(Resource resource) {
         List<Capability> identities = resource.getCapabilities(IDENTITY_NAMESPACE);
         if (identities.isEmpty()) {
             throw new IllegalStateException("Invalid resource: a capability with 'osgi.identity' namespace is required");
@@ -93,7 +125,9 @@ public class XmlRepository extends BaseRepository {
         }
         if (!hasResource((String) type, (String) name, (Version) vers)) {
             super.addResource(resource);
+            return true;
         }
+        return false;
     }
 
     private boolean hasResource(String type, String name, Version version) {
@@ -111,43 +145,111 @@ public class XmlRepository extends BaseRepository {
     }
 
     protected void checkAndLoadCache() {
-        if (checkAndLoadReferrals(url, Integer.MAX_VALUE)) {
+        Set<String> modified = new LinkedHashSet<>();
+        checkAndLoadReferrals(url, Integer.MAX_VALUE, modified);
+        if (!modified.isEmpty()) {
             lock.writeLock().lock();
             try {
-                resources.clear();
-                capSets.clear();
-                populate(loaders.get(url).xml, Integer.MAX_VALUE);
+                if (!update(modified)) {
+                    resources.clear();
+                    capSets.clear();
+                    contributions.clear();
+                    populate(url, Integer.MAX_VALUE);
+                }
             } finally {
                 lock.writeLock().unlock();
             }
         }
     }
 
-    private void populate(StaxParser.XmlRepository xml, int hopCount) {
+    private void populate(String url, int hopCount) {
         if (hopCount > 0) {
-            for (Resource resource : xml.resources) {
-                addResource(resource);
+            StaxParser.XmlRepository xml = loaders.get(url).xml;
+            if (!contributions.containsKey(url)) {
+                Contribution contribution = new Contribution(xml);
+                for (Resource resource : xml.resources) {
+                    add(contribution, resource);
+                }
+                contributions.put(url, contribution);
             }
             for (StaxParser.Referral referral : xml.referrals) {
-                populate(loaders.get(referral.url).xml, Math.min(referral.depth, hopCount - 1));
+                populate(referral.url, Math.min(referral.depth, hopCount - 1));
             }
         }
     }
 
-    private boolean checkAndLoadReferrals(String url, int hopCount) {
-        boolean modified = false;
+    private void add(Contribution contribution, Resource resource) {
+        if (addIfAbsent(resource)) {
+            contribution.added.add(resource);
+        } else {
+            contribution.skipped.add(resource);
+        }
+    }
+
+    /**
+     * Replace the resources of the modified documents, leaving the resources
+     * of the other documents in place.
+     * @return {@code false} if the repository has to be populated again,
+     * because the referrals changed
+     */
+    private boolean update(Set<String> modified) {
+        for (String u : modified) {
+            Contribution contribution = contributions.get(u);
+            if (contribution == null || !sameReferrals(contribution.xml, loaders.get(u).xml)) {
+                return false;
+            }
+        }
+        for (String u : modified) {
+            removeResources(contributions.get(u).added);
+        }
+        for (String u : modified) {
+            Contribution contribution = new Contribution(loaders.get(u).xml);
+            for (Resource resource : contribution.xml.resources) {
+                add(contribution, resource);
+            }
+            contributions.put(u, contribution);
+        }
+        // resources hidden by a removed one might be visible now
+        for (Map.Entry<String, Contribution> entry : contributions.entrySet()) {
+            if (!modified.contains(entry.getKey()) && !entry.getValue().skipped.isEmpty()) {
+                List<Resource> skipped = new ArrayList<>(entry.getValue().skipped);
+                entry.getValue().skipped.clear();
+                for (Resource resource : skipped) {
+                    add(entry.getValue(), resource);
+                }
+            }
+        }
+        return true;
+    }
+
+    private static boolean sameReferrals(StaxParser.XmlRepository xml1, StaxParser.XmlRepository xml2) {
+        if (xml1.referrals.size() != xml2.referrals.size()) {
+            return false;
+        }
+        for (int i = 0; i < xml1.referrals.size(); i++) {
+            StaxParser.Referral r1 = xml1.referrals.get(i);
+            StaxParser.Referral r2 = xml2.referrals.get(i);
+            if (!r1.url.equals(r2.url) || r1.depth != r2.depth) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void checkAndLoadReferrals(String url, int hopCount, Set<String> modified) {
         if (hopCount > 0) {
             XmlLoader loader = loaders.get(url);
             if (loader == null) {
                 loader = new XmlLoader(url, expiration);
                 loaders.put(url, loader);
             }
-            modified = loader.checkAndLoadCache();
+            if (loader.checkAndLoadCache()) {
+                modified.add(url);
+            }
             for (StaxParser.Referral referral : loader.xml.referrals) {
-                modified |= checkAndLoadReferrals(referral.url, Math.min(referral.depth, hopCount - 1));
+                checkAndLoadReferrals(referral.url, Math.min(referral.depth, hopCount - 1), modified);
             }
         }
-        return modified;
     }
 
     protected static class XmlLoader extends UrlLoader {
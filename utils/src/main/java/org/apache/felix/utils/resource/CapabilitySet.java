@@ -26,12 +26,16 @@ import java.lang.reflect.Array;
 import java.lang.reflect.Constructor;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.NavigableMap;
 import java.util.Objects;
 import java.util.Set;
 import java.util.TreeMap;
@@ -41,20 +45,33 @@ public class CapabilitySet {
 
     private static final Class<?>[] STRING_CLASS = new Class[] {String.class};
 
-    private final Map<String, Map<Object, Set<Capability>>> indices;
+    private final Map<String, Index> indices;
     private final Set<Capability> capSet = new HashSet<>();
 
+    /**
+     * The capabilities by value of an attribute. Version values are also kept
+     * sorted, so that version ranges can be looked up without checking each
+     * capability.
+     */
+    private static class Index {
+        final Map<Object, Set<Capability>> values = new HashMap<>();
+        final NavigableMap<Version, Set<Capability>> versions = new TreeMap<>();
+        // number of values neither strings nor versions, filters can't be
+        // converted to these types for a lookup
+        int others;
+    }
+
     public CapabilitySet(List<String> indexProps) {
         indices = new TreeMap<>();
         for (int i = 0; (indexProps != null) && (i < indexProps.size()); i++) {
-            indices.put(indexProps.get(i), new HashMap<Object, Set<Capability>>());
+            indices.put(indexProps.get(i), new Index());
         }
     }
 
     public void dump() {
-        for (Entry<String, Map<Object, Set<Capability>>> entry : indices.entrySet()) {
+        for (Entry<String, Index> entry : indices.entrySet()) {
             boolean header1 = false;
-            for (Entry<Object, Set<Capability>> entry2 : entry.getValue().entrySet()) {
+            for (Entry<Object, Set<Capability>> entry2 : entry.getValue().values.entrySet()) {
                 boolean header2 = false;
                 for (Capability cap : entry2.getValue()) {
                     if (!header1) {
@@ -75,14 +92,14 @@ public class CapabilitySet {
         capSet.add(cap);
 
         // Index capability.
-        for (Entry<String, Map<Object, Set<Capability>>> entry : indices.entrySet()) {
+        for (Entry<String, Index> entry : indices.entrySet()) {
             Object value = cap.getAttributes().get(entry.getKey());
             if (value != null) {
                 if (value.getClass().isArray()) {
                     value = convertArrayToList(value);
                 }
 
-                Map<Object, Set<Capability>> index = entry.getValue();
+                Index index = entry.getValue();
 
                 if (value instanceof Collection) {
                     Collection c = (Collection) value;
@@ -96,27 +113,32 @@ public class CapabilitySet {
         }
     }
 
-    private void indexCapability(Map<Object, Set<Capability>> index, Capability cap, Object capValue) {
+    private void indexCapability(Index index, Capability cap, Object capValue) {
         // TODO: when JDK8, should be:
         // TODO: index.computeIfAbsent(capValue, k -> new HashSet<>()).add(cap);
-        Set<Capability> set = index.get(capValue);
+        Set<Capability> set = index.values.get(capValue);
         if (set == null) {
             set = new HashSet<>();
-            index.put(capValue, set);
+            index.values.put(capValue, set);
+            if (capValue instanceof Version) {
+                index.versions.put((Version) capValue, set);
+            } else if (!(capValue instanceof String)) {
+                index.others++;
+            }
         }
         set.add(cap);
     }
 
     public void removeCapability(Capability cap) {
         if (capSet.remove(cap)) {
-            for (Entry<String, Map<Object, Set<Capability>>> entry : indices.entrySet()) {
+            for (Entry<String, Index> entry : indices.entrySet()) {
                 Object value = cap.getAttributes().get(entry.getKey());
                 if (value != null) {
                     if (value.getClass().isArray()) {
                         value = convertArrayToList(value);
                     }
 
-                    Map<Object, Set<Capability>> index = entry.getValue();
+                    Index index = entry.getValue();
 
                     if (value instanceof Collection) {
                         Collection c = (Collection) value;
@@ -132,12 +154,17 @@ public class CapabilitySet {
     }
 
     private void deindexCapability(
-            Map<Object, Set<Capability>> index, Capability cap, Object value) {
-        Set<Capability> caps = index.get(value);
+            Index index, Capability cap, Object value) {
+        Set<Capability> caps = index.values.get(value);
         if (caps != null) {
             caps.remove(cap);
             if (caps.isEmpty()) {
-                index.remove(value);
+                index.values.remove(value);
+                if (value instanceof Version) {
+                    index.versions.remove(value);
+                } else if (!(value instanceof String)) {
+                    index.others--;
+                }
             }
         }
     }
@@ -159,8 +186,9 @@ public class CapabilitySet {
             // Evaluate each subfilter against the remaining capabilities.
             // For AND we calculate the intersection of each subfilter.
             // We can short-circuit the AND operation if there are no
-            // remaining capabilities.
-            List<SimpleFilter> sfs = (List<SimpleFilter>) sf.getValue();
+            // remaining capabilities. Subfilters which can be looked up
+            // in an index go first, the most selective one first.
+            List<SimpleFilter> sfs = orderByIndex((List<SimpleFilter>) sf.getValue());
             for (int i = 0; (caps.size() > 0) && (i < sfs.size()); i++) {
                 matches = match(caps, sfs.get(i));
                 caps = matches;
@@ -181,11 +209,15 @@ public class CapabilitySet {
                 matches.removeAll(match(caps, sf1));
             }
         } else {
-            Map<Object, Set<Capability>> index = indices.get(sf.getName());
-            if ((sf.getOperation() == SimpleFilter.EQ) && (index != null)) {
-                Set<Capability> existingCaps = index.get(sf.getValue());
-                if (existingCaps != null) {
+            Index index = indices.get(sf.getName());
+            Collection<Set<Capability>> indexed = (index != null)
+                    ? lookup(index, sf, caps)
+                    : null;
+            if (indexed != null) {
+                for (Set<Capability> existingCaps : indexed) {
                     matches.addAll(existingCaps);
+                }
+                if (caps != capSet) {
                     matches.retainAll(caps);
                 }
             } else {
@@ -203,6 +235,107 @@ public class CapabilitySet {
         return matches;
     }
 
+    /**
+     * Look up the capabilities matching a simple comparison in an index.
+     * @return the sets of matching capabilities, or {@code null} if checking
+     * the given capabilities one by one is needed or cheaper
+     */
+    private Collection<Set<Capability>> lookup(Index index, SimpleFilter sf, Set<Capability> caps) {
+        if (index.others > 0 || !(sf.getValue() instanceof String)) {
+            return null;
+        }
+        String value = (String) sf.getValue();
+        switch (sf.getOperation()) {
+        case SimpleFilter.EQ:
+            List<Set<Capability>> result = lookupEquals(index, value);
+            if (caps != capSet && caps.size() < size(result)) {
+                return null;
+            }
+            return result;
+        case SimpleFilter.GTE:
+        case SimpleFilter.LTE:
+            // strings are compared lexicographically, only versions are sorted
+            if (caps != capSet || index.versions.size() != index.values.size()) {
+                return null;
+            }
+            Version version = parseVersion(value);
+            if (version == null) {
+                return Collections.emptyList();
+            }
+            return (sf.getOperation() == SimpleFilter.GTE)
+                    ? index.versions.tailMap(version, true).values()
+                    : index.versions.headMap(version, true).values();
+        default:
+            return null;
+        }
+    }
+
+    private static List<Set<Capability>> lookupEquals(Index index, String value) {
+        List<Set<Capability>> result = new ArrayList<>(2);
+        Set<Capability> set = index.values.get(value);
+        if (set != null) {
+            result.add(set);
+        }
+        if (!index.versions.isEmpty()) {
+            Version version = parseVersion(value);
+            set = (version != null) ? index.versions.get(version) : null;
+            if (set != null) {
+                result.add(set);
+            }
+        }
+        return result;
+    }
+
+    private static int size(List<Set<Capability>> sets) {
+        int size = 0;
+        for (Set<Capability> set : sets) {
+            size += set.size();
+        }
+        return size;
+    }
+
+    private static Version parseVersion(String value) {
+        try {
+            return VersionTable.getVersion(value, false);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * Order the operands of an AND, putting the equality conditions on indexed
+     * attributes first, the one with the fewest capabilities first.
+     */
+    private List<SimpleFilter> orderByIndex(List<SimpleFilter> sfs) {
+        if (sfs.size() < 2) {
+            return sfs;
+        }
+        final Map<SimpleFilter, Integer> sizes = new IdentityHashMap<>();
+        for (SimpleFilter sf : sfs) {
+            Index index = (sf.getOperation() == SimpleFilter.EQ) ? indices.get(sf.getName()) : null;
+            if (index != null
+                    && index.others == 0 && sf.getValue() instanceof String) {
+                sizes.put(sf, size(lookupEquals(index, (String) sf.getValue())));
+            }
+        }
+        if (sizes.isEmpty()) {
+            return sfs;
+        }
+        List<SimpleFilter> ordered = new ArrayList<>(sfs);
+        Collections.sort(ordered, new Comparator<SimpleFilter>() {
+            @Override
+            public int compare(SimpleFilter sf1, SimpleFilter sf2) {
+                Integer s1 = sizes.get(sf1);
+                Integer s2 = sizes.get(sf2);
+                if (s1 == null || s2 == null) {
+                    return (s1 == null) ? ((s2 == null) ? 0 : 1) : -1;
+                }
+                return s1.compareTo(s2);
+            }
+        });
+        return ordered;
+    }
+
     public static boolean matches(Capability capability, Requirement requirement) {
         return Objects.equals(capability.getNamespace(), requirement.getNamespace())
                 && matches(capability, RequirementImpl.getFilter(requirement));
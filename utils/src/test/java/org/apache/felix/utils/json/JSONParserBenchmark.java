@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.felix.utils.json;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+/**
+ * Measures the parser on large and on deeply nested documents.
+ *
+ * This is not run as part of the build, run the main method with the test
+ * classpath. Arguments: [resources] [depth] [iterations].
+ */
+public class JSONParserBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int resources = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        int depth = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        int iterations = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+
+        String repository = createRepository(resources);
+        String nested = createNested(depth);
+
+        run("repository (" + resources + " resources)", repository, iterations);
+        run("nested (depth " + depth + ")", nested, iterations);
+        runPull("repository, pull skipping values", repository, iterations);
+    }
+
+    /**
+     * Create a document in the format read by the JsonRepository.
+     */
+    private static String createRepository(int resources) {
+        StringBuilder sb = new StringBuilder("{");
+        for (int i = 0; i < resources; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append("\n  \"https://repo.example.org/bundle-").append(i).append(".jar\": {");
+            sb.append("\"Bundle-SymbolicName\": \"org.example.bundle").append(i).append("\", ");
+            sb.append("\"Bundle-Version\": \"1.").append(i % 10).append(".0\", ");
+            sb.append("\"Export-Package\": \"org.example.bundle").append(i)
+                .append(";version=\\\"1.0\\\";uses:=\\\"org.osgi.framework\\\"\", ");
+            sb.append("\"Import-Package\": \"org.osgi.framework;version=\\\"[1.8,2)\\\"\", ");
+            sb.append("\"size\": ").append(1024 + i).append('}');
+        }
+        return sb.append("\n}").toString();
+    }
+
+    private static String createNested(int depth) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < depth; i++) {
+            sb.append("{\"level\": ").append(i).append(", \"values\": [1, 2.5, true, \"text\"], \"child\": ");
+        }
+        sb.append("null");
+        for (int i = 0; i < depth; i++) {
+            sb.append('}');
+        }
+        return sb.toString();
+    }
+
+    private static void run(String name, String json, int iterations) {
+        // warm up
+        new JSONParser(json);
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            new JSONParser(json);
+        }
+        report(name, json, iterations, System.nanoTime() - start);
+    }
+
+    private static void runPull(String name, String json, int iterations) throws IOException {
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            JSONReader reader = new JSONReader(new StringReader(json));
+            reader.next();
+            while (reader.next() == JSONReader.Token.KEY) {
+                reader.skipValue();
+            }
+        }
+        report(name, json, iterations, System.nanoTime() - start);
+    }
+
+    private static void report(String name, String json, int iterations, long nanos) {
+        double millis = nanos / 1000000.0 / iterations;
+        System.out.println(String.format("%s: %d chars, %.2f ms per document, %.1f MB/s",
+            name, json.length(), millis, json.length() / 1000.0 / millis));
+    }
+}
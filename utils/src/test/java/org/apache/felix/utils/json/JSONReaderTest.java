@@ -0,0 +1,122 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.felix.utils.json;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Map;
+
+import org.apache.felix.utils.json.JSONReader.Token;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class JSONReaderTest {
+    @Test
+    public void testTokens() throws IOException {
+        JSONReader reader = new JSONReader(new StringReader("{\"a\": [1, 2.5, \"x\", true, null], \"b\": {}}"));
+        assertEquals(Token.START_OBJECT, reader.next());
+        assertEquals(Token.KEY, reader.next());
+        assertEquals("a", reader.getString());
+        assertEquals(Token.START_ARRAY, reader.next());
+        assertEquals(Token.NUMBER, reader.next());
+        assertEquals(1L, reader.getNumber());
+        assertEquals(Token.NUMBER, reader.next());
+        assertEquals(2.5d, reader.getNumber());
+        assertEquals(Token.STRING, reader.next());
+        assertEquals("x", reader.getString());
+        assertEquals(Token.BOOLEAN, reader.next());
+        assertTrue(reader.getBoolean());
+        assertEquals(Token.NULL, reader.next());
+        assertNull(reader.getValue());
+        assertEquals(Token.END_ARRAY, reader.next());
+        assertEquals(Token.KEY, reader.next());
+        assertEquals("b", reader.getString());
+        assertEquals(Token.START_OBJECT, reader.next());
+        assertEquals(Token.END_OBJECT, reader.next());
+        assertEquals(Token.END_OBJECT, reader.next());
+        assertEquals(Token.END_DOCUMENT, reader.next());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testSkipAndReadValue() throws IOException {
+        JSONReader reader = new JSONReader(new StringReader("{\"skip\": {\"x\": [1, [2]]}, \"read\": {\"y\": [3]}}"));
+        assertEquals(Token.START_OBJECT, reader.next());
+        assertEquals(Token.KEY, reader.next());
+        reader.skipValue();
+        assertEquals(Token.KEY, reader.next());
+        assertEquals("read", reader.getString());
+        Map<String, Object> value = (Map<String, Object>) reader.readValue();
+        assertEquals(Arrays.asList(3L), value.get("y"));
+        assertEquals(Token.END_OBJECT, reader.next());
+        assertEquals(Token.END_DOCUMENT, reader.next());
+    }
+
+    @Test
+    public void testLongStringAcrossBuffers() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            sb.append((char) ('a' + i % 26));
+            if (i % 1000 == 0) {
+                sb.append("\\n");
+            }
+        }
+        JSONReader reader = new JSONReader(new StringReader("[\"" + sb + "\"]"));
+        reader.next();
+        assertEquals(Token.STRING, reader.next());
+        assertEquals(sb.toString().replace("\\n", "\n"), reader.getString());
+    }
+
+    @Test
+    public void testDeeplyNested() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 100000; i++) {
+            sb.append("[");
+        }
+        for (int i = 0; i < 100000; i++) {
+            sb.append("]");
+        }
+        assertFalse(new JSONParser(sb).getParsedList().isEmpty());
+    }
+
+    @Test
+    public void testMalformed() {
+        for (String json : new String[] {"{", "{\"a\":}", "[1,2,]", "{\"a\" 1}", "{} x", "[1 2]", "\"text\""}) {
+            try {
+                new JSONParser(json);
+                fail("Expected failure for " + json);
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testEncodingDetection() throws IOException {
+        for (String encoding : new String[] {"UTF-8", "UTF-16", "UTF-16BE", "UTF-16LE", "UTF-32BE", "UTF-32LE"}) {
+            byte[] bytes = "{\"x\": \"\u00e9\"}".getBytes(encoding);
+            assertEquals(encoding, "\u00e9", new JSONParser(new ByteArrayInputStream(bytes)).getParsed().get("x"));
+        }
+    }
+}
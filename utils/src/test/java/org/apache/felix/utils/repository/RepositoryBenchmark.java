@@ -0,0 +1,209 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.utils.repository;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.felix.utils.resource.CapabilitySet;
+import org.apache.felix.utils.resource.RequirementImpl;
+import org.apache.felix.utils.resource.SimpleFilter;
+import org.osgi.resource.Capability;
+import org.osgi.resource.Requirement;
+import org.osgi.resource.Resource;
+
+import static org.osgi.framework.Constants.FILTER_DIRECTIVE;
+import static org.osgi.framework.namespace.IdentityNamespace.IDENTITY_NAMESPACE;
+import static org.osgi.framework.namespace.PackageNamespace.PACKAGE_NAMESPACE;
+
+/**
+ * Measures loading, querying and reloading a large xml repository split
+ * into referral documents.
+ *
+ * This is not run as part of the build, run the main method with the test
+ * classpath. Arguments: [resources] [documents] [queries].
+ */
+public class RepositoryBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int resources = args.length > 0 ? Integer.parseInt(args[0]) : 50000;
+        int documents = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int queries = args.length > 2 ? Integer.parseInt(args[2]) : 100000;
+
+        File dir = Files.createTempDirectory("repository-benchmark").toFile();
+        File root = createRepository(dir, resources, documents);
+
+        long start = System.nanoTime();
+        BenchmarkRepository repository = new BenchmarkRepository(root.toURI().toString());
+        int count = repository.getResources().size();
+        report("load " + count + " resources", 1, System.nanoTime() - start);
+        repository.check = false;
+
+        List<Requirement> packages = new ArrayList<>();
+        List<Requirement> identities = new ArrayList<>();
+        List<Requirement> ranges = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            int r = (i * 7919) % resources;
+            packages.add(requirement(PACKAGE_NAMESPACE,
+                    "(&(osgi.wiring.package=org.example.bundle" + r + ")(version>=1.0.0)(!(version>=2.0.0)))"));
+            identities.add(requirement(IDENTITY_NAMESPACE,
+                    "(&(osgi.identity=org.example.bundle" + r + ")(type=osgi.bundle)(version=1." + (r % 10) + ".0))"));
+            ranges.add(requirement(PACKAGE_NAMESPACE, "(version>=1.9." + (r % 10) + ")"));
+        }
+
+        query("package lookups", repository, packages, queries);
+        query("identity lookups", repository, identities, queries);
+        query("version ranges", repository, ranges, queries / 100);
+        scan("package lookups, full scan", repository, packages, queries / 100);
+
+        // change one of the referred documents
+        writeDocument(new File(dir, "repository-0.xml"), 0, resources / documents, 2);
+        new File(dir, "repository-0.xml").setLastModified(System.currentTimeMillis() + 10000);
+        repository.check = true;
+        start = System.nanoTime();
+        repository.getResources();
+        report("incremental reload of 1 of " + documents + " documents", 1, System.nanoTime() - start);
+
+        start = System.nanoTime();
+        repository = new BenchmarkRepository(root.toURI().toString());
+        repository.getResources();
+        report("full reload", 1, System.nanoTime() - start);
+
+        for (File file : dir.listFiles()) {
+            file.delete();
+        }
+        dir.delete();
+    }
+
+    /**
+     * Allows to measure the lookups without checking the documents for changes.
+     */
+    static class BenchmarkRepository extends XmlRepository {
+
+        boolean check = true;
+
+        BenchmarkRepository(String url) {
+            super(url, 0);
+        }
+
+        @Override
+        protected void checkAndLoadCache() {
+            if (check) {
+                super.checkAndLoadCache();
+            }
+        }
+    }
+
+    private static File createRepository(File dir, int resources, int documents) throws IOException {
+        File root = new File(dir, "repository.xml");
+        try (Writer w = new OutputStreamWriter(new FileOutputStream(root), StandardCharsets.UTF_8)) {
+            w.write("<repository name='root' increment='1' xmlns='http://www.osgi.org/xmlns/repository/v1.0.0'>\n");
+            for (int d = 0; d < documents; d++) {
+                File file = new File(dir, "repository-" + d + ".xml");
+                writeDocument(file, d * (resources / documents), resources / documents, 1);
+                w.write("  <referral url='" + file.toURI() + "'/>\n");
+            }
+            w.write("</repository>\n");
+        }
+        return root;
+    }
+
+    private static void writeDocument(File file, int first, int count, int increment) throws IOException {
+        try (Writer w = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+            w.write("<repository name='" + file.getName() + "' increment='" + increment
+                    + "' xmlns='http://www.osgi.org/xmlns/repository/v1.0.0'>\n");
+            for (int i = first; i < first + count; i++) {
+                String name = "org.example.bundle" + i;
+                String version = "1." + (i % 10) + "." + (increment - 1);
+                w.write("  <resource>\n");
+                w.write("    <capability namespace='osgi.identity'>"
+                        + "<attribute name='osgi.identity' value='" + name + "'/>"
+                        + "<attribute name='version' type='Version' value='" + version + "'/>"
+                        + "<attribute name='type' value='osgi.bundle'/></capability>\n");
+                w.write("    <capability namespace='osgi.wiring.bundle'>"
+                        + "<attribute name='osgi.wiring.bundle' value='" + name + "'/>"
+                        + "<attribute name='bundle-version' type='Version' value='" + version + "'/></capability>\n");
+                w.write("    <capability namespace='osgi.wiring.package'>"
+                        + "<attribute name='osgi.wiring.package' value='" + name + "'/>"
+                        + "<attribute name='version' type='Version' value='" + version + "'/>"
+                        + "<attribute name='bundle-symbolic-name' value='" + name + "'/></capability>\n");
+                w.write("    <requirement namespace='osgi.wiring.package'>"
+                        + "<directive name='filter' value='(&amp;(osgi.wiring.package=org.example.bundle"
+                        + ((i + 1) % (first + count)) + ")(version&gt;=1.0.0))'/></requirement>\n");
+                w.write("  </resource>\n");
+            }
+            w.write("</repository>\n");
+        }
+    }
+
+    private static Requirement requirement(String namespace, String filter) {
+        return new RequirementImpl(null, namespace,
+                Collections.singletonMap(FILTER_DIRECTIVE, filter), null);
+    }
+
+    private static void query(String name, BaseRepository repository, List<Requirement> requirements, int queries) {
+        long matches = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < queries; i++) {
+            Requirement requirement = requirements.get(i % requirements.size());
+            Map<Requirement, Collection<Capability>> providers =
+                    repository.findProviders(Collections.singleton(requirement));
+            matches += providers.get(requirement).size();
+        }
+        report(name + " (" + matches + " matches)", queries, System.nanoTime() - start);
+    }
+
+    /**
+     * The same queries, checking each capability of the repository.
+     */
+    private static void scan(String name, BaseRepository repository, List<Requirement> requirements, int queries) {
+        List<Capability> capabilities = new ArrayList<>();
+        for (Resource resource : repository.getResources()) {
+            capabilities.addAll(resource.getCapabilities(null));
+        }
+        long matches = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < queries; i++) {
+            Requirement requirement = requirements.get(i % requirements.size());
+            SimpleFilter sf = ((RequirementImpl) requirement).getFilter();
+            for (Capability capability : capabilities) {
+                if (requirement.getNamespace().equals(capability.getNamespace())
+                        && CapabilitySet.matches(capability, sf)) {
+                    matches++;
+                }
+            }
+        }
+        report(name + " (" + matches + " matches)", queries, System.nanoTime() - start);
+    }
+
+    private static void report(String name, int iterations, long nanos) {
+        System.out.printf("%-60s %10d iterations %12.3f ms %10.2f us/op%n",
+                name, iterations, nanos / 1e6, nanos / 1e3 / iterations);
+    }
+}
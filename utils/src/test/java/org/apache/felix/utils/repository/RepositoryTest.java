@@ -23,14 +23,27 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.zip.GZIPOutputStream;
 
+import org.apache.felix.utils.resource.RequirementImpl;
 import org.junit.Test;
+import org.osgi.resource.Capability;
+import org.osgi.resource.Requirement;
 import org.osgi.resource.Resource;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.osgi.framework.Constants.FILTER_DIRECTIVE;
 import static org.osgi.framework.namespace.BundleNamespace.BUNDLE_NAMESPACE;
 import static org.osgi.framework.namespace.IdentityNamespace.IDENTITY_NAMESPACE;
 import static org.osgi.framework.namespace.PackageNamespace.PACKAGE_NAMESPACE;
@@ -67,6 +80,82 @@ public class RepositoryTest {
         verify(repo);
     }
 
+    @Test
+    public void testXmlIncrementalReload() throws Exception {
+        File dir = Files.createTempDirectory("repo").toFile();
+        File child = new File(dir, "child.xml");
+        File root = new File(dir, "root.xml");
+        writeXml(child, 1, null, "org.acme.a", "org.acme.b");
+        writeXml(root, 1, child.toURI().toString(), "org.acme.c");
+        XmlRepository repo = new XmlRepository(root.toURI().toString(), 0);
+        assertEquals(3, repo.getResources().size());
+        Resource c = findIdentity(repo, "org.acme.c");
+        assertNotNull(c);
+
+        writeXml(child, 2, null, "org.acme.a", "org.acme.d");
+        child.setLastModified(child.lastModified() + 10000);
+        assertEquals(3, repo.getResources().size());
+        assertNull(findIdentity(repo, "org.acme.b"));
+        assertNotNull(findIdentity(repo, "org.acme.d"));
+        // the resources of the unchanged document are kept
+        assertSame(c, findIdentity(repo, "org.acme.c"));
+    }
+
+    @Test
+    public void testJsonIncrementalReload() throws Exception {
+        File file = File.createTempFile("repo", ".json");
+        writeJson(file, "org.acme.a", "org.acme.b");
+        JsonRepository repo = new JsonRepository(file.toURI().toString(), 0);
+        assertEquals(2, repo.getResources().size());
+        Resource a = findIdentity(repo, "org.acme.a");
+        assertNotNull(a);
+
+        writeJson(file, "org.acme.a", "org.acme.c");
+        file.setLastModified(file.lastModified() + 10000);
+        assertEquals(2, repo.getResources().size());
+        assertNull(findIdentity(repo, "org.acme.b"));
+        assertNotNull(findIdentity(repo, "org.acme.c"));
+        assertSame(a, findIdentity(repo, "org.acme.a"));
+    }
+
+    private static Resource findIdentity(BaseRepository repo, String name) {
+        Requirement req = new RequirementImpl(null, IDENTITY_NAMESPACE,
+                Collections.singletonMap(FILTER_DIRECTIVE, "(" + IDENTITY_NAMESPACE + "=" + name + ")"), null);
+        Collection<Capability> caps = repo.findProviders(Collections.singleton(req)).get(req);
+        assertTrue(caps.size() <= 1);
+        return caps.isEmpty() ? null : caps.iterator().next().getResource();
+    }
+
+    private static void writeXml(File file, int increment, String referral, String... names) throws IOException {
+        try (Writer w = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+            w.write("<repository name='test' increment='" + increment + "' xmlns='http://www.osgi.org/xmlns/repository/v1.0.0'>\n");
+            if (referral != null) {
+                w.write("<referral url='" + referral + "'/>\n");
+            }
+            for (String name : names) {
+                w.write("<resource><capability namespace='osgi.identity'>"
+                        + "<attribute name='osgi.identity' value='" + name + "'/>"
+                        + "<attribute name='version' type='Version' value='1.0.0'/>"
+                        + "<attribute name='type' value='osgi.bundle'/>"
+                        + "</capability></resource>\n");
+            }
+            w.write("</repository>\n");
+        }
+    }
+
+    private static void writeJson(File file, String... names) throws IOException {
+        try (Writer w = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+            w.write("{");
+            for (int i = 0; i < names.length; i++) {
+                w.write((i > 0 ? "," : "") + "\"http://www.acme.com/" + names[i] + ".jar\": {"
+                        + "\"Bundle-ManifestVersion\": \"2\", "
+                        + "\"Bundle-SymbolicName\": \"" + names[i] + "\", "
+                        + "\"Bundle-Version\": \"1.0.0\"}");
+            }
+            w.write("}");
+        }
+    }
+
     private void verify(BaseRepository repo) {
         assertNotNull(repo.getResources());
         assertEquals(1, repo.getResources().size());
@@ -20,11 +20,17 @@ package org.apache.felix.utils.resource;
 
 import junit.framework.TestCase;
 
+import org.osgi.framework.Version;
 import org.osgi.resource.Capability;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 public class CapabilitySetTest extends TestCase {
     public void testMatchesRequirement() {
@@ -56,4 +62,52 @@ public class CapabilitySetTest extends TestCase {
         Capability c5 = new CapabilityImpl(null, "foo", null, m);
         assertTrue(CapabilitySet.matches(c5, r));
     }
+
+    public void testIndexedMatch() {
+        CapabilitySet set = new CapabilitySet(Arrays.asList("foo", "version"));
+        List<Capability> caps = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Map<String, Object> attrs = new HashMap<>();
+            attrs.put("foo", "f" + (i % 5));
+            attrs.put("version", new Version(1, i, 0));
+            Capability cap = new CapabilityImpl(null, "foo", null, attrs);
+            caps.add(cap);
+            set.addCapability(cap);
+        }
+
+        assertEquals(4, set.match(SimpleFilter.parse("(foo=f1)"), false).size());
+        assertEquals(1, set.match(SimpleFilter.parse("(version=1.3)"), false).size());
+        assertEquals(5, set.match(SimpleFilter.parse("(version>=1.15.0)"), false).size());
+        assertEquals(3, set.match(SimpleFilter.parse("(version<=1.2.0)"), false).size());
+        assertEquals(new HashSet<>(Arrays.asList(caps.get(6), caps.get(11))),
+                set.match(SimpleFilter.parse("(&(version>=1.5.0)(foo=f1)(!(version>=1.15.0)))"), false));
+        assertEquals(0, set.match(SimpleFilter.parse("(version>=invalid)"), false).size());
+
+        // the same results as checking each capability
+        for (String filter : Arrays.asList("(foo=f1)", "(version=1.3)", "(version>=1.15.0)",
+                "(|(foo=f2)(version<=1.2.0))", "(&(foo=f3)(version>=1.10))")) {
+            SimpleFilter sf = SimpleFilter.parse(filter);
+            Set<Capability> expected = new HashSet<>();
+            for (Capability cap : caps) {
+                if (CapabilitySet.matches(cap, sf)) {
+                    expected.add(cap);
+                }
+            }
+            assertEquals(filter, expected, set.match(sf, false));
+        }
+
+        set.removeCapability(caps.get(16));
+        assertEquals(4, set.match(SimpleFilter.parse("(version>=1.15.0)"), false).size());
+        assertEquals(3, set.match(SimpleFilter.parse("(foo=f1)"), false).size());
+    }
+
+    public void testIndexWithOtherTypes() {
+        CapabilitySet set = new CapabilitySet(Collections.singletonList("size"));
+        set.addCapability(new CapabilityImpl(null, "foo", null,
+                Collections.<String, Object>singletonMap("size", 10L)));
+        set.addCapability(new CapabilityImpl(null, "foo", null,
+                Collections.<String, Object>singletonMap("size", "10")));
+        assertEquals(2, set.match(SimpleFilter.parse("(size=10)"), false).size());
+        assertEquals(1, set.match(SimpleFilter.parse("(size>=5)"), false).size());
+    }
 }
@@ -21,7 +21,9 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.Locale;
+import java.util.Map;
 
 import org.osgi.framework.Bundle;
 import org.osgi.framework.Constants;
@@ -184,6 +186,9 @@ public class Util
     {
         private final Locale locale;
 
+        // the names are localized, so look each of them up only once per sort
+        private final Map<Bundle, String> names = new HashMap<Bundle, String>();
+
 
         BundleNameComparator( final Locale locale )
         {
@@ -217,7 +222,7 @@ public class Util
             }
 
             // compare the symbolic names
-            int snComp = Util.getName( b1, locale ).compareToIgnoreCase( Util.getName( b2, locale ) );
+            int snComp = getName( b1 ).compareToIgnoreCase( getName( b2 ) );
             if ( snComp != 0 )
             {
                 return snComp;
@@ -241,5 +246,17 @@ public class Util
             // b1 id must be > b2 id because equality is already checked
             return 1;
         }
+
+
+        private String getName( final Bundle bundle )
+        {
+            String name = names.get( bundle );
+            if ( name == null )
+            {
+                name = Util.getName( bundle, locale );
+                names.put( bundle, name );
+            }
+            return name;
+        }
     }
 }
\ No newline at end of file
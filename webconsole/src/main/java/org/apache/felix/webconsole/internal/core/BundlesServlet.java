@@ -27,6 +27,7 @@ import java.text.MessageFormat;
 import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.Dictionary;
@@ -95,6 +96,9 @@ public class BundlesServlet extends SimpleWebConsolePlugin implements OsgiManage
     // an LDAP filter, that is used to search manifest headers, see FELIX-1441
     private static final String FILTER_PARAM = "filter";
 
+    // the fields the bundles of the JSON list can be sorted by
+    private static final String[] SORT_KEYS = { "id", "name", "symbolicName", "state", "version", "category" };
+
     private static final String FIELD_STARTLEVEL = "bundlestartlevel";
 
     private static final String FIELD_START = "bundlestart";
@@ -120,6 +124,7 @@ public class BundlesServlet extends SimpleWebConsolePlugin implements OsgiManage
 
     private ServiceRegistration configurationPrinter;
     private ServiceTracker bundleInfoTracker;
+    private FrameworkStateGeneration stateGeneration;
 
     // templates
     private final String TEMPLATE_MAIN;
@@ -144,6 +149,9 @@ public class BundlesServlet extends SimpleWebConsolePlugin implements OsgiManage
         bundleInfoTracker = new ServiceTracker( bundleContext, BundleInfoProvider.class.getName(), null);
         bundleInfoTracker.open();
 
+        stateGeneration = new FrameworkStateGeneration();
+        stateGeneration.open( BundleContextUtil.getWorkingBundleContext( bundleContext ) );
+
         // bootdelegation property parsing from Apache Felix R4SearchPolicyCore
         String bootDelegation = bundleContext.getProperty( Constants.FRAMEWORK_BOOTDELEGATION );
         bootDelegation = ( bootDelegation == null ) ? "java.*" : bootDelegation + ",java.*";
@@ -186,6 +194,12 @@ public class BundlesServlet extends SimpleWebConsolePlugin implements OsgiManage
             bundleInfoTracker = null;
         }
 
+        if ( stateGeneration != null )
+        {
+            stateGeneration.close();
+            stateGeneration = null;
+        }
+
         super.deactivate();
     }
 
@@ -296,11 +310,30 @@ public class BundlesServlet extends SimpleWebConsolePlugin implements OsgiManage
         }
         if ( reqInfo.extension.equals("json")  )
         {
+            final ListQuery query;
+            try
+            {
+                query = ListQuery.fromRequest( request, SORT_KEYS );
+            }
+            catch ( IllegalArgumentException iae )
+            {
+                response.sendError( HttpServletResponse.SC_BAD_REQUEST, iae.getMessage() );
+                return;
+            }
+
+            // the list only changes with the framework state, bundle details
+            // (like the start level and the using bundles) may change silently
+            final FrameworkStateGeneration generation = stateGeneration;
+            if ( reqInfo.bundle == null && generation != null && generation.isNotModified( request, response ) )
+            {
+                return;
+            }
+
             final String pluginRoot = ( String ) request.getAttribute( WebConsoleConstants.ATTR_PLUGIN_ROOT );
             final String servicesRoot = getServicesRoot( request );
             try
             {
-                this.renderJSON(response, reqInfo.bundle, pluginRoot, servicesRoot, request.getLocale(), request.getParameter(FILTER_PARAM), null );
+                this.renderJSON(response, reqInfo.bundle, pluginRoot, servicesRoot, request.getLocale(), request.getParameter(FILTER_PARAM), null, query );
             }
             catch (InvalidSyntaxException e)
             {
@@ -428,7 +461,7 @@ public class BundlesServlet extends SimpleWebConsolePlugin implements OsgiManage
             final String servicesRoot = getServicesRoot( req );
             try
             {
-                this.renderJSON( resp, null, pluginRoot, servicesRoot, req.getLocale(), req.getParameter(FILTER_PARAM), bundleException );
+                this.renderJSON( resp, null, pluginRoot, servicesRoot, req.getLocale(), req.getParameter(FILTER_PARAM), bundleException, ListQuery.ALL );
             }
             catch (InvalidSyntaxException e)
             {
@@ -528,7 +561,7 @@ public class BundlesServlet extends SimpleWebConsolePlugin implements OsgiManage
         StringWriter w = new StringWriter();
         try
         {
-            writeJSON(w, reqInfo.bundle, pluginRoot, servicesRoot, request.getLocale(), request.getParameter(FILTER_PARAM), null );
+            writeJSON(w, reqInfo.bundle, pluginRoot, servicesRoot, request.getLocale(), request.getParameter(FILTER_PARAM), null, ListQuery.ALL );
         }
         catch (InvalidSyntaxException e)
         {
@@ -540,39 +573,88 @@ public class BundlesServlet extends SimpleWebConsolePlugin implements OsgiManage
         response.getWriter().print(TEMPLATE_MAIN);
     }
 
-    private void renderJSON( final HttpServletResponse response, final Bundle bundle, final String pluginRoot, final String servicesRoot, final Locale locale, final String filter, final BundleException be )
+    private void renderJSON( final HttpServletResponse response, final Bundle bundle, final String pluginRoot, final String servicesRoot, final Locale locale, final String filter, final BundleException be, final ListQuery query )
             throws IOException, InvalidSyntaxException
     {
+        final Bundle[] allBundles = this.getBundles();
+        // select the bundles before writing anything, so an invalid filter can still be reported
+        final Bundle[] bundles = selectBundles( allBundles, bundle, locale, filter, query );
+
         response.setContentType( "application/json" );
         response.setCharacterEncoding( "UTF-8" );
 
         final PrintWriter pw = response.getWriter();
-        writeJSON(pw, bundle, pluginRoot, servicesRoot, locale, filter, be);
+        writeJSON(pw, allBundles, bundles, bundle != null, pluginRoot, servicesRoot, locale, be, query);
     }
 
 
-    private void writeJSON( final Writer pw, final Bundle bundle, final String pluginRoot, final String servicesRoot, final Locale locale, final String filter, final BundleException be )
+    private void writeJSON( final Writer pw, final Bundle bundle, final String pluginRoot, final String servicesRoot, final Locale locale, final String filter, final BundleException be, final ListQuery query )
             throws IOException, InvalidSyntaxException
     {
-        final Map<String, Object> map = createObjectStructure( bundle, pluginRoot, servicesRoot, false, locale, filter, be );
-        final JSONWriter writer = new JSONWriter(pw);
-
-        writer.value(map);
+        final Bundle[] allBundles = this.getBundles();
+        final Bundle[] bundles = selectBundles( allBundles, bundle, locale, filter, query );
+        writeJSON(pw, allBundles, bundles, bundle != null, pluginRoot, servicesRoot, locale, be, query);
     }
 
-    private Map<String, Object> createObjectStructure( final Bundle bundle, final String pluginRoot,
-            final String servicesRoot, final boolean fullDetails, final Locale locale, final String filter, final BundleException be ) throws IOException, InvalidSyntaxException
+
+    /**
+     * Streams the JSON representation of the selected bundles, one bundle
+     * at a time, instead of assembling the whole document in memory.
+     */
+    private void writeJSON( final Writer pw, final Bundle[] allBundles, final Bundle[] bundles, final boolean details,
+            final String pluginRoot, final String servicesRoot, final Locale locale, final BundleException be, final ListQuery query )
+            throws IOException
     {
-        final Bundle[] allBundles = this.getBundles();
         final List<Object> status = getStatusLine(allBundles);
         final String statusLine = (String) status.remove(5);
-        // filter bundles by headers
-        final Bundle[] bundles;
+
+        final JSONWriter jw = new JSONWriter(pw);
+        jw.object();
+
+        if (null != be)
+        {
+            jw.key("error");
+            jw.value(getErrorTrace(be));
+        }
+
+        jw.key("status");
+        jw.value(statusLine);
+
+        // add raw status
+        jw.key("s");
+        jw.value(status.toArray());
+
+        jw.key("total");
+        jw.value(bundles.length);
+
+        jw.key("data");
+        jw.array();
+        for ( int i = query.getStart( bundles.length ), end = query.getEnd( bundles.length ); i < end; i++ )
+        {
+            jw.value( query.select( bundleInfo( bundles[i], details, pluginRoot, servicesRoot, locale ) ) );
+        }
+        jw.endArray();
+
+        jw.endObject();
+        jw.flush();
+    }
+
+
+    /**
+     * Returns the bundles matching the filter in the order requested by the
+     * query.
+     */
+    private Bundle[] selectBundles( final Bundle[] allBundles, final Bundle bundle, final Locale locale,
+            final String filter, final ListQuery query ) throws InvalidSyntaxException
+    {
         if (bundle != null)
         {
-            bundles = new Bundle[] { bundle };
+            return new Bundle[] { bundle };
         }
-        else if (filter != null)
+
+        // filter bundles by headers
+        final Bundle[] bundles;
+        if (filter != null)
         {
             Filter f = getBundleContext().createFilter(filter);
             ArrayList<Bundle> list = new ArrayList<Bundle>(allBundles.length);
@@ -591,16 +673,42 @@ public class BundlesServlet extends SimpleWebConsolePlugin implements OsgiManage
             bundles = allBundles;
         }
 
-        Util.sort( bundles, locale );
+        if ( query.sort == null || "name".equals( query.sort ) )
+        {
+            Util.sort( bundles, locale );
+            if ( query.descending )
+            {
+                Collections.reverse( Arrays.asList( bundles ) );
+            }
+        }
+        else
+        {
+            Arrays.sort( bundles, new BundleFieldComparator( query.sort, query.descending ) );
+        }
+        return bundles;
+    }
+
+    private static String getErrorTrace( final BundleException be )
+    {
+        final StringWriter s = new StringWriter();
+        final Throwable t = be.getNestedException() != null ? be.getNestedException() : be;
+        t.printStackTrace( new PrintWriter(s) );
+        return s.toString();
+    }
+
+    private Map<String, Object> createObjectStructure( final Bundle bundle, final String pluginRoot,
+            final String servicesRoot, final boolean fullDetails, final Locale locale, final String filter, final BundleException be ) throws IOException, InvalidSyntaxException
+    {
+        final Bundle[] allBundles = this.getBundles();
+        final List<Object> status = getStatusLine(allBundles);
+        final String statusLine = (String) status.remove(5);
+        final Bundle[] bundles = selectBundles( allBundles, bundle, locale, filter, ListQuery.ALL );
 
         final Map<String, Object> map = new LinkedHashMap<String, Object>();
 
         if (null != be)
         {
-            final StringWriter s = new StringWriter();
-            final Throwable t = be.getNestedException() != null ? be.getNestedException() : be;
-            t.printStackTrace( new PrintWriter(s) );
-            map.put("error", s.toString());
+            map.put("error", getErrorTrace(be));
         }
 
         map.put("status", statusLine);
@@ -1440,6 +1548,74 @@ public class BundlesServlet extends SimpleWebConsolePlugin implements OsgiManage
         t.start();
     }
 
+    /**
+     * Orders the bundles by one of the {@link #SORT_KEYS} other than the name,
+     * and then by bundle id. The sort value of each bundle is only computed once.
+     */
+    private static final class BundleFieldComparator implements Comparator<Bundle>
+    {
+        private final String field;
+        private final boolean descending;
+        private final Map<Bundle, Comparable<?>> values = new HashMap<Bundle, Comparable<?>>();
+
+
+        BundleFieldComparator( final String field, final boolean descending )
+        {
+            this.field = field;
+            this.descending = descending;
+        }
+
+
+        public int compare( final Bundle b1, final Bundle b2 )
+        {
+            int result = ListQuery.compare( getValue( b1 ), getValue( b2 ) );
+            if ( result == 0 && b1.getBundleId() != b2.getBundleId() )
+            {
+                result = b1.getBundleId() < b2.getBundleId() ? -1 : 1;
+            }
+            return descending ? -result : result;
+        }
+
+
+        private Comparable<?> getValue( final Bundle bundle )
+        {
+            Comparable<?> value = values.get( bundle );
+            if ( value == null )
+            {
+                if ( "id".equals( field ) )
+                {
+                    value = Long.valueOf( bundle.getBundleId() );
+                }
+                else if ( "state".equals( field ) )
+                {
+                    value = Integer.valueOf( bundle.getState() );
+                }
+                else if ( "version".equals( field ) )
+                {
+                    try
+                    {
+                        value = Version.parseVersion( Util.getHeaderValue( bundle, Constants.BUNDLE_VERSION ) );
+                    }
+                    catch ( IllegalArgumentException iae )
+                    {
+                        value = Version.emptyVersion;
+                    }
+                }
+                else if ( "symbolicName".equals( field ) )
+                {
+                    final String symbolicName = bundle.getSymbolicName();
+                    value = symbolicName == null ? "" : symbolicName.toLowerCase();
+                }
+                else
+                {
+                    value = Util.getHeaderValue( bundle, Constants.BUNDLE_CATEGORY ).toLowerCase();
+                }
+                values.put( bundle, value );
+            }
+            return value;
+        }
+    }
+
     private final class RequestInfo
     {
         public final String extension;
@@ -0,0 +1,159 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.felix.webconsole.internal.core;
+
+
+import java.util.StringTokenizer;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.osgi.framework.AllServiceListener;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.BundleEvent;
+import org.osgi.framework.FrameworkEvent;
+import org.osgi.framework.FrameworkListener;
+import org.osgi.framework.ServiceEvent;
+import org.osgi.framework.SynchronousBundleListener;
+
+
+/**
+ * The <code>FrameworkStateGeneration</code> class counts the bundle, service
+ * and framework events, so that the JSON list views can be served with an
+ * <code>ETag</code> and answered with <code>304 Not Modified</code> as long
+ * as the framework state did not change.
+ */
+final class FrameworkStateGeneration implements SynchronousBundleListener, AllServiceListener, FrameworkListener
+{
+
+    private final AtomicLong generation = new AtomicLong();
+
+    // distinguishes the generations of different activations
+    private final String epoch = Long.toString( System.currentTimeMillis(), 36 );
+
+    private BundleContext bundleContext;
+
+
+    void open( final BundleContext bundleContext )
+    {
+        this.bundleContext = bundleContext;
+        bundleContext.addBundleListener( this );
+        bundleContext.addServiceListener( this );
+        bundleContext.addFrameworkListener( this );
+    }
+
+
+    void close()
+    {
+        if ( bundleContext != null )
+        {
+            bundleContext.removeFrameworkListener( this );
+            bundleContext.removeServiceListener( this );
+            bundleContext.removeBundleListener( this );
+            bundleContext = null;
+        }
+    }
+
+
+    public void bundleChanged( final BundleEvent event )
+    {
+        generation.incrementAndGet();
+    }
+
+
+    public void serviceChanged( final ServiceEvent event )
+    {
+        generation.incrementAndGet();
+    }
+
+
+    public void frameworkEvent( final FrameworkEvent event )
+    {
+        if ( event.getType() == FrameworkEvent.PACKAGES_REFRESHED
+            || event.getType() == FrameworkEvent.STARTLEVEL_CHANGED )
+        {
+            generation.incrementAndGet();
+        }
+    }
+
+
+    /**
+     * Returns the entity tag of a representation of the current framework
+     * state.
+     *
+     * @param variant identifies the representation, such as the request
+     *      parameters and the locale
+     */
+    String getETag( final String variant )
+    {
+        return "\"" + epoch + '-' + Long.toString( generation.get(), 36 ) + '-'
+            + Integer.toHexString( variant.hashCode() ) + "\"";
+    }
+
+
+    /**
+     * Sets the <code>ETag</code> of the response to the current framework
+     * state generation, and sends a <code>304 Not Modified</code> response if
+     * the client already has this representation. The generation is read
+     * before the representation is rendered, so a change while rendering
+     * invalidates the entity tag.
+     *
+     * @return <code>true</code> if the <code>304</code> response has been
+     *      sent, and nothing more must be written
+     */
+    boolean isNotModified( final HttpServletRequest request, final HttpServletResponse response )
+    {
+        final String etag = getETag( request.getPathInfo() + '?' + request.getQueryString() + '|'
+            + request.getLocale() );
+        response.setHeader( "ETag", etag );
+        response.setHeader( "Cache-Control", "private, no-cache" );
+        response.setHeader( "Vary", "Accept-Language" );
+        if ( matches( request.getHeader( "If-None-Match" ), etag ) )
+        {
+            response.setStatus( HttpServletResponse.SC_NOT_MODIFIED );
+            return true;
+        }
+        return false;
+    }
+
+
+    /**
+     * Returns <code>true</code> if the <code>If-None-Match</code> header value
+     * matches the entity tag, using the weak comparison.
+     */
+    static boolean matches( final String ifNoneMatch, final String etag )
+    {
+        if ( ifNoneMatch == null )
+        {
+            return false;
+        }
+        for ( StringTokenizer st = new StringTokenizer( ifNoneMatch, "," ); st.hasMoreTokens(); )
+        {
+            String tag = st.nextToken().trim();
+            if ( tag.startsWith( "W/" ) )
+            {
+                tag = tag.substring( 2 );
+            }
+            if ( "*".equals( tag ) || etag.equals( tag ) )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+}
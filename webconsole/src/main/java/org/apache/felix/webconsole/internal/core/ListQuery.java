@@ -0,0 +1,229 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.felix.webconsole.internal.core;
+
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringTokenizer;
+
+import javax.servlet.http.HttpServletRequest;
+
+
+/**
+ * The <code>ListQuery</code> class holds the paging, sorting and field
+ * selection parameters of the JSON list views of the bundles and services
+ * plugins:
+ * <ul>
+ * <li><code>offset</code> - the index of the first entry to return (default 0)</li>
+ * <li><code>limit</code> - the maximum number of entries to return (default all)</li>
+ * <li><code>sort</code> - the field to sort the entries by, prefixed with
+ * <code>-</code> for descending order (default is the plugin's natural order)</li>
+ * <li><code>fields</code> - the comma separated list of the fields to return
+ * for each entry (default all)</li>
+ * </ul>
+ */
+final class ListQuery
+{
+
+    static final String PARAM_OFFSET = "offset";
+    static final String PARAM_LIMIT = "limit";
+    static final String PARAM_SORT = "sort";
+    static final String PARAM_FIELDS = "fields";
+
+    /** The query returning all entries, with all fields, in natural order */
+    static final ListQuery ALL = new ListQuery( 0, -1, null, false, null );
+
+    /** The index of the first entry to return */
+    final int offset;
+
+    /** The maximum number of entries to return, or -1 for all entries */
+    final int limit;
+
+    /** The field to sort by, or <code>null</code> for the natural order */
+    final String sort;
+
+    /** Whether the entries are sorted in descending order */
+    final boolean descending;
+
+    /** The fields to return, or <code>null</code> for all fields */
+    private final Set<String> fields;
+
+
+    private ListQuery( final int offset, final int limit, final String sort, final boolean descending,
+        final Set<String> fields )
+    {
+        this.offset = offset;
+        this.limit = limit;
+        this.sort = sort;
+        this.descending = descending;
+        this.fields = fields;
+    }
+
+
+    /**
+     * Creates the query from the request parameters.
+     *
+     * @param request the request
+     * @param sortKeys the fields the entries can be sorted by
+     * @return the query
+     * @throws IllegalArgumentException if a parameter is not valid
+     */
+    static ListQuery fromRequest( final HttpServletRequest request, final String[] sortKeys )
+    {
+        return parse( request.getParameter( PARAM_OFFSET ), request.getParameter( PARAM_LIMIT ),
+            request.getParameter( PARAM_SORT ), request.getParameter( PARAM_FIELDS ), sortKeys );
+    }
+
+
+    /**
+     * Creates the query from the parameter values, any of which may be
+     * <code>null</code>.
+     *
+     * @throws IllegalArgumentException if a parameter is not valid
+     */
+    static ListQuery parse( final String offset, final String limit, final String sort, final String fields,
+        final String[] sortKeys )
+    {
+        final int offsetValue = toInt( PARAM_OFFSET, offset, 0 );
+        final int limitValue = toInt( PARAM_LIMIT, limit, -1 );
+
+        String sortKey = null;
+        boolean descending = false;
+        if ( sort != null && sort.trim().length() > 0 )
+        {
+            sortKey = sort.trim();
+            if ( sortKey.startsWith( "-" ) )
+            {
+                descending = true;
+                sortKey = sortKey.substring( 1 );
+            }
+            if ( !Arrays.asList( sortKeys ).contains( sortKey ) )
+            {
+                throw new IllegalArgumentException( "Cannot sort by " + sortKey + ", supported fields are "
+                    + Arrays.asList( sortKeys ) );
+            }
+        }
+
+        Set<String> fieldSet = null;
+        if ( fields != null && fields.trim().length() > 0 )
+        {
+            fieldSet = new HashSet<String>();
+            for ( StringTokenizer st = new StringTokenizer( fields, ", " ); st.hasMoreTokens(); )
+            {
+                fieldSet.add( st.nextToken() );
+            }
+        }
+
+        if ( offsetValue == 0 && limitValue < 0 && sortKey == null && fieldSet == null )
+        {
+            return ALL;
+        }
+        return new ListQuery( offsetValue, limitValue, sortKey, descending, fieldSet );
+    }
+
+
+    private static int toInt( final String name, final String value, final int defaultValue )
+    {
+        if ( value == null || value.trim().length() == 0 )
+        {
+            return defaultValue;
+        }
+        try
+        {
+            final int result = Integer.parseInt( value.trim() );
+            if ( result >= 0 )
+            {
+                return result;
+            }
+        }
+        catch ( NumberFormatException nfe )
+        {
+            // fall through
+        }
+        throw new IllegalArgumentException( "Invalid " + name + " parameter: " + value );
+    }
+
+
+    /**
+     * Returns the index of the first entry of the page.
+     *
+     * @param size the total number of entries
+     */
+    int getStart( final int size )
+    {
+        return Math.min( offset, size );
+    }
+
+
+    /**
+     * Returns the index following the last entry of the page.
+     *
+     * @param size the total number of entries
+     */
+    int getEnd( final int size )
+    {
+        if ( limit < 0 )
+        {
+            return size;
+        }
+        return ( int ) Math.min( ( long ) getStart( size ) + limit, size );
+    }
+
+
+    /**
+     * Returns <code>true</code> if the given field is to be returned.
+     */
+    boolean includes( final String field )
+    {
+        return fields == null || fields.contains( field );
+    }
+
+
+    /**
+     * Compares two values of the sort field, which are of the same type.
+     */
+    @SuppressWarnings("unchecked")
+    static int compare( final Comparable<?> value1, final Comparable<?> value2 )
+    {
+        return ( ( Comparable<Object> ) value1 ).compareTo( value2 );
+    }
+
+
+    /**
+     * Removes the fields which are not to be returned from the given entry.
+     *
+     * @return the entry
+     */
+    <T extends Map<String, Object>> T select( final T entry )
+    {
+        if ( fields != null )
+        {
+            for ( Iterator<String> keys = entry.keySet().iterator(); keys.hasNext(); )
+            {
+                if ( !fields.contains( keys.next() ) )
+                {
+                    keys.remove();
+                }
+            }
+        }
+        return entry;
+    }
+}
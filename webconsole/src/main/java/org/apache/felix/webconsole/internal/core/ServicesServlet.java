@@ -23,7 +23,11 @@ import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.io.Writer;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.Locale;
+import java.util.Map;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
@@ -112,6 +116,9 @@ public class ServicesServlet extends SimpleWebConsolePlugin implements OsgiManag
     // an LDAP filter, that is used to search services
     private static final String FILTER_PARAM = "filter";
 
+    // the fields the services of the JSON list can be sorted by
+    private static final String[] SORT_KEYS = { "id", "types", "pid", "ranking", "bundleId" };
+
     private final String TEMPLATE;
 
     /** Default constructor */
@@ -124,13 +131,22 @@ public class ServicesServlet extends SimpleWebConsolePlugin implements OsgiManag
 
     private ServiceRegistration bipReg;
 
+    private FrameworkStateGeneration stateGeneration;
+
     public void activate(BundleContext bundleContext)
     {
         super.activate(bundleContext);
         bipReg = new ServicesUsedInfoProvider( bundleContext.getBundle() ).register( bundleContext );
+        stateGeneration = new FrameworkStateGeneration();
+        stateGeneration.open( BundleContextUtil.getWorkingBundleContext( bundleContext ) );
     }
 
     public void deactivate() {
+        if ( null != stateGeneration )
+        {
+            stateGeneration.close();
+            stateGeneration = null;
+        }
         if ( null != bipReg )
         {
             bipReg.unregister();
@@ -211,14 +227,14 @@ public class ServicesServlet extends SimpleWebConsolePlugin implements OsgiManag
     }
 
 
-    private void renderJSON( final HttpServletResponse response, final ServiceReference service, final Locale locale )
-            throws IOException
+    private void renderJSON( final HttpServletResponse response, final ServiceReference service, final Locale locale,
+        final String filter, final ListQuery query ) throws IOException
     {
         response.setContentType( "application/json" );
         response.setCharacterEncoding( "UTF-8" );
 
         final PrintWriter pw = response.getWriter();
-        writeJSON( pw, service, locale, null);
+        writeJSON( pw, service, false, locale, filter, query );
     }
 
     private void keyVal( JSONWriter jw, String key, Object val) throws IOException
@@ -232,8 +248,13 @@ public class ServicesServlet extends SimpleWebConsolePlugin implements OsgiManag
         }
     }
 
-    private void serviceDetails( JSONWriter jw, ServiceReference service ) throws IOException
+    private void serviceDetails( JSONWriter jw, ServiceReference service, final ListQuery query ) throws IOException
     {
+        if ( !query.includes( "props" ) )
+        {
+            return;
+        }
+
         String[] keys = service.getPropertyKeys();
 
         jw.key( "props" );
@@ -266,8 +287,13 @@ public class ServicesServlet extends SimpleWebConsolePlugin implements OsgiManag
     }
 
 
-    private void usingBundles( JSONWriter jw, ServiceReference service, Locale locale ) throws IOException
+    private void usingBundles( JSONWriter jw, ServiceReference service, Locale locale, final ListQuery query ) throws IOException
     {
+        if ( !query.includes( "usingBundles" ) )
+        {
+            return;
+        }
+
         jw.key( "usingBundles" );
         jw.array();
 
@@ -277,7 +303,7 @@ public class ServicesServlet extends SimpleWebConsolePlugin implements OsgiManag
             for ( int i = 0; i < usingBundles.length; i++ )
             {
                 jw.object();
-                bundleInfo( jw, usingBundles[i], locale );
+                bundleInfo( jw, usingBundles[i], locale, ListQuery.ALL );
                 jw.endObject();
             }
         }
@@ -287,66 +313,88 @@ public class ServicesServlet extends SimpleWebConsolePlugin implements OsgiManag
     }
 
 
-    private void serviceInfo( JSONWriter jw, ServiceReference service, boolean details, final Locale locale )
-            throws IOException
+    private void serviceInfo( JSONWriter jw, ServiceReference service, boolean details, final Locale locale,
+        final ListQuery query ) throws IOException
     {
         jw.object();
-        jw.key( "id" );
-        jw.value( propertyAsString( service, Constants.SERVICE_ID ) );
-        jw.key( "types" );
-        jw.value( propertyAsString( service, Constants.OBJECTCLASS ) );
-        jw.key( "pid" );
-        jw.value( propertyAsString( service, Constants.SERVICE_PID ) );
-        jw.key( "ranking" );
-        final Object ranking = service.getProperty(Constants.SERVICE_RANKING);
-        if ( ranking != null )
+        if ( query.includes( "id" ) )
+        {
+            jw.key( "id" );
+            jw.value( propertyAsString( service, Constants.SERVICE_ID ) );
+        }
+        if ( query.includes( "types" ) )
+        {
+            jw.key( "types" );
+            jw.value( propertyAsString( service, Constants.OBJECTCLASS ) );
+        }
+        if ( query.includes( "pid" ) )
         {
-            jw.value( ranking.toString() );
+            jw.key( "pid" );
+            jw.value( propertyAsString( service, Constants.SERVICE_PID ) );
         }
-        else
+        if ( query.includes( "ranking" ) )
         {
-            jw.value("");
+            jw.key( "ranking" );
+            final Object ranking = service.getProperty(Constants.SERVICE_RANKING);
+            if ( ranking != null )
+            {
+                jw.value( ranking.toString() );
+            }
+            else
+            {
+                jw.value("");
+            }
         }
-        bundleInfo( jw, service.getBundle(), locale );
+        bundleInfo( jw, service.getBundle(), locale, query );
 
         if ( details )
         {
-            serviceDetails( jw, service );
-            usingBundles( jw, service, locale );
+            serviceDetails( jw, service, query );
+            usingBundles( jw, service, locale, query );
         }
 
         jw.endObject();
     }
 
 
-    private void bundleInfo( final JSONWriter jw, final Bundle bundle, final Locale locale )
+    private void bundleInfo( final JSONWriter jw, final Bundle bundle, final Locale locale, final ListQuery query )
             throws IOException
     {
-        jw.key( "bundleId" );
-        jw.value( bundle.getBundleId() );
-        jw.key( "bundleName" );
-        jw.value( Util.getName( bundle, locale ) );
-        jw.key( "bundleVersion" );
-        jw.value( Util.getHeaderValue( bundle, Constants.BUNDLE_VERSION ) );
-        jw.key( "bundleSymbolicName" );
-        jw.value( bundle.getSymbolicName() );
-    }
-
-
-    private void writeJSON(final Writer pw, final ServiceReference service, final Locale locale, final String filter) throws IOException
-    {
-        writeJSON( pw, service, false, locale, filter );
+        if ( query.includes( "bundleId" ) )
+        {
+            jw.key( "bundleId" );
+            jw.value( bundle.getBundleId() );
+        }
+        if ( query.includes( "bundleName" ) )
+        {
+            jw.key( "bundleName" );
+            jw.value( Util.getName( bundle, locale ) );
+        }
+        if ( query.includes( "bundleVersion" ) )
+        {
+            jw.key( "bundleVersion" );
+            jw.value( Util.getHeaderValue( bundle, Constants.BUNDLE_VERSION ) );
+        }
+        if ( query.includes( "bundleSymbolicName" ) )
+        {
+            jw.key( "bundleSymbolicName" );
+            jw.value( bundle.getSymbolicName() );
+        }
     }
 
 
-    private void writeJSON( final Writer pw, final ServiceReference service, final boolean fullDetails, final Locale locale, final String filter )
-            throws IOException
+    private void writeJSON( final Writer pw, final ServiceReference service, final boolean fullDetails, final Locale locale, final String filter,
+        final ListQuery query ) throws IOException
     {
         final ServiceReference[] allServices = this.getServices(filter);
         final String statusLine = getStatusLine( allServices );
 
         final ServiceReference[] services = ( service != null ) ? new ServiceReference[]
                 { service } : allServices;
+        if ( query.sort != null )
+        {
+            Arrays.sort( services, new ServiceFieldComparator( query.sort, query.descending ) );
+        }
 
                 final JSONWriter jw = new JSONWriter( pw );
 
@@ -358,19 +406,24 @@ public class ServicesServlet extends SimpleWebConsolePlugin implements OsgiManag
                 jw.key( "serviceCount" );
                 jw.value( allServices.length );
 
+                jw.key( "total" );
+                jw.value( services.length );
+
                 jw.key( "data" );
 
                 jw.array();
 
-                for ( int i = 0; i < services.length; i++ )
+                for ( int i = query.getStart( services.length ), end = query.getEnd( services.length ); i < end; i++ )
                 {
-                    serviceInfo( jw, services[i], fullDetails || service != null, locale );
+                    serviceInfo( jw, services[i], fullDetails || service != null, locale, query );
                 }
 
                 jw.endArray();
 
                 jw.endObject();
 
+                jw.flush();
+
     }
 
 
@@ -390,7 +443,26 @@ public class ServicesServlet extends SimpleWebConsolePlugin implements OsgiManag
             }
             if ( reqInfo.extension.equals( "json" ) )
             {
-                this.renderJSON( response, reqInfo.service, request.getLocale() );
+                final ListQuery query;
+                try
+                {
+                    query = ListQuery.fromRequest( request, SORT_KEYS );
+                }
+                catch ( IllegalArgumentException iae )
+                {
+                    response.sendError( HttpServletResponse.SC_BAD_REQUEST, iae.getMessage() );
+                    return;
+                }
+
+                // the list only changes with the framework state, the details
+                // of a service (like the using bundles) may change silently
+                final FrameworkStateGeneration generation = stateGeneration;
+                if ( reqInfo.service == null && generation != null && generation.isNotModified( request, response ) )
+                {
+                    return;
+                }
+
+                this.renderJSON( response, reqInfo.service, request.getLocale(), request.getParameter( FILTER_PARAM ), query );
 
                 // nothing more to do
                 return;
@@ -412,7 +484,7 @@ public class ServicesServlet extends SimpleWebConsolePlugin implements OsgiManag
         final String appRoot = ( String ) request.getAttribute( WebConsoleConstants.ATTR_APP_ROOT );
         StringWriter w = new StringWriter();
         final String filter = request.getParameter(FILTER_PARAM);
-        writeJSON(w, reqInfo.service, request.getLocale(), filter);
+        writeJSON(w, reqInfo.service, false, request.getLocale(), filter, ListQuery.ALL);
 
         // prepare variables
         DefaultVariableResolver vars = ( ( DefaultVariableResolver ) WebConsoleUtil.getVariableResolver( request ) );
@@ -423,4 +495,73 @@ public class ServicesServlet extends SimpleWebConsolePlugin implements OsgiManag
 
         response.getWriter().print( TEMPLATE );
     }
+
+
+    /**
+     * Orders the services by one of the {@link #SORT_KEYS}, and then by
+     * service id. The sort value of each service is only computed once.
+     */
+    private static final class ServiceFieldComparator implements Comparator<ServiceReference>
+    {
+        private final String field;
+        private final boolean descending;
+        private final Map<ServiceReference, Comparable<?>> values = new HashMap<ServiceReference, Comparable<?>>();
+
+
+        ServiceFieldComparator( final String field, final boolean descending )
+        {
+            this.field = field;
+            this.descending = descending;
+        }
+
+
+        public int compare( final ServiceReference r1, final ServiceReference r2 )
+        {
+            int result = ListQuery.compare( getValue( r1 ), getValue( r2 ) );
+            if ( result == 0 && !"id".equals( field ) )
+            {
+                result = getServiceId( r1 ).compareTo( getServiceId( r2 ) );
+            }
+            return descending ? -result : result;
+        }
+
+
+        private Comparable<?> getValue( final ServiceReference ref )
+        {
+            Comparable<?> value = values.get( ref );
+            if ( value == null )
+            {
+                if ( "id".equals( field ) )
+                {
+                    value = getServiceId( ref );
+                }
+                else if ( "ranking".equals( field ) )
+                {
+                    final Object ranking = ref.getProperty( Constants.SERVICE_RANKING );
+                    value = ranking instanceof Integer ? ( Integer ) ranking : Integer.valueOf( 0 );
+                }
+                else if ( "bundleId".equals( field ) )
+                {
+                    final Bundle bundle = ref.getBundle();
+                    value = Long.valueOf( bundle == null ? -1 : bundle.getBundleId() );
+                }
+                else if ( "types".equals( field ) )
+                {
+                    value = propertyAsString( ref, Constants.OBJECTCLASS );
+                }
+                else
+                {
+                    value = propertyAsString( ref, Constants.SERVICE_PID );
+                }
+                values.put( ref, value );
+            }
+            return value;
+        }
+
+
+        private static Long getServiceId( final ServiceReference ref )
+        {
+            return ( Long ) ref.getProperty( Constants.SERVICE_ID );
+        }
+    }
 }
@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.webconsole.internal.core;
+
+
+import java.util.Locale;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import junit.framework.TestCase;
+
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleEvent;
+import org.osgi.framework.FrameworkEvent;
+import org.osgi.framework.ServiceEvent;
+import org.osgi.framework.ServiceReference;
+
+
+public class FrameworkStateGenerationTest extends TestCase
+{
+    private static final String PATH = "/bundles.json";
+
+    private final FrameworkStateGeneration generation = new FrameworkStateGeneration();
+
+
+    public void test_matches()
+    {
+        final String etag = "\"a-1-2\"";
+        assertFalse( FrameworkStateGeneration.matches( null, etag ) );
+        assertFalse( FrameworkStateGeneration.matches( "", etag ) );
+        assertFalse( FrameworkStateGeneration.matches( "\"a-1-3\"", etag ) );
+        assertFalse( FrameworkStateGeneration.matches( "a-1-2", etag ) );
+
+        assertTrue( FrameworkStateGeneration.matches( etag, etag ) );
+        assertTrue( FrameworkStateGeneration.matches( "*", etag ) );
+        assertTrue( FrameworkStateGeneration.matches( "W/" + etag, etag ) );
+        assertTrue( FrameworkStateGeneration.matches( "\"x\", " + etag, etag ) );
+        assertTrue( FrameworkStateGeneration.matches( "\"x\",W/" + etag + " ,\"y\"", etag ) );
+    }
+
+
+    public void test_isNotModified()
+    {
+        HttpServletResponse response = Mockito.mock( HttpServletResponse.class );
+        assertFalse( generation.isNotModified( request( PATH, null, null ), response ) );
+        final String etag = getETag( response );
+        Mockito.verify( response, Mockito.never() ).setStatus( Mockito.anyInt() );
+
+        response = Mockito.mock( HttpServletResponse.class );
+        assertTrue( generation.isNotModified( request( PATH, null, etag ), response ) );
+        assertEquals( etag, getETag( response ) );
+        Mockito.verify( response ).setStatus( HttpServletResponse.SC_NOT_MODIFIED );
+
+        response = Mockito.mock( HttpServletResponse.class );
+        assertTrue( generation.isNotModified( request( PATH, null, "\"x\", W/" + etag ), response ) );
+        Mockito.verify( response ).setStatus( HttpServletResponse.SC_NOT_MODIFIED );
+    }
+
+
+    public void test_isNotModified_variant()
+    {
+        HttpServletResponse response = Mockito.mock( HttpServletResponse.class );
+        generation.isNotModified( request( PATH, null, null ), response );
+        final String etag = getETag( response );
+
+        // another page of the list is another representation
+        response = Mockito.mock( HttpServletResponse.class );
+        assertFalse( generation.isNotModified( request( PATH, "offset=10", etag ), response ) );
+        assertFalse( etag.equals( getETag( response ) ) );
+        Mockito.verify( response, Mockito.never() ).setStatus( Mockito.anyInt() );
+    }
+
+
+    public void test_getETag_bundleEvent()
+    {
+        final String etag = generation.getETag( PATH );
+        assertEquals( etag, generation.getETag( PATH ) );
+
+        generation.bundleChanged( new BundleEvent( BundleEvent.STARTED, Mockito.mock( Bundle.class ) ) );
+        assertFalse( etag.equals( generation.getETag( PATH ) ) );
+    }
+
+
+    public void test_getETag_serviceEvent()
+    {
+        final String etag = generation.getETag( PATH );
+
+        generation.serviceChanged( new ServiceEvent( ServiceEvent.MODIFIED, Mockito.mock( ServiceReference.class ) ) );
+        assertFalse( etag.equals( generation.getETag( PATH ) ) );
+    }
+
+
+    public void test_getETag_frameworkEvent()
+    {
+        final Bundle bundle = Mockito.mock( Bundle.class );
+        String etag = generation.getETag( PATH );
+
+        generation.frameworkEvent( new FrameworkEvent( FrameworkEvent.INFO, bundle, null ) );
+        assertEquals( etag, generation.getETag( PATH ) );
+
+        generation.frameworkEvent( new FrameworkEvent( FrameworkEvent.PACKAGES_REFRESHED, bundle, null ) );
+        assertFalse( etag.equals( generation.getETag( PATH ) ) );
+
+        etag = generation.getETag( PATH );
+        generation.frameworkEvent( new FrameworkEvent( FrameworkEvent.STARTLEVEL_CHANGED, bundle, null ) );
+        assertFalse( etag.equals( generation.getETag( PATH ) ) );
+    }
+
+
+    private static HttpServletRequest request( final String pathInfo, final String queryString,
+        final String ifNoneMatch )
+    {
+        final HttpServletRequest request = Mockito.mock( HttpServletRequest.class );
+        Mockito.when( request.getPathInfo() ).thenReturn( pathInfo );
+        Mockito.when( request.getQueryString() ).thenReturn( queryString );
+        Mockito.when( request.getLocale() ).thenReturn( Locale.ENGLISH );
+        Mockito.when( request.getHeader( "If-None-Match" ) ).thenReturn( ifNoneMatch );
+        return request;
+    }
+
+
+    private static String getETag( final HttpServletResponse response )
+    {
+        final ArgumentCaptor<String> etag = ArgumentCaptor.forClass( String.class );
+        Mockito.verify( response ).setHeader( Mockito.eq( "ETag" ), etag.capture() );
+        return etag.getValue();
+    }
+}
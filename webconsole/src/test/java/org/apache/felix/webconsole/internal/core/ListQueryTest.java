@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.webconsole.internal.core;
+
+
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+
+public class ListQueryTest extends TestCase
+{
+    private static final String[] SORT_KEYS = { "id", "name" };
+
+
+    public void test_parse_defaults()
+    {
+        assertSame( ListQuery.ALL, ListQuery.parse( null, null, null, null, SORT_KEYS ) );
+        assertSame( ListQuery.ALL, ListQuery.parse( "", " ", "", "", SORT_KEYS ) );
+        assertEquals( 0, ListQuery.ALL.getStart( 10 ) );
+        assertEquals( 10, ListQuery.ALL.getEnd( 10 ) );
+        assertTrue( ListQuery.ALL.includes( "id" ) );
+    }
+
+
+    public void test_parse_paging()
+    {
+        ListQuery query = ListQuery.parse( "5", "10", null, null, SORT_KEYS );
+        assertEquals( 5, query.getStart( 100 ) );
+        assertEquals( 15, query.getEnd( 100 ) );
+        assertEquals( 5, query.getStart( 12 ) );
+        assertEquals( 12, query.getEnd( 12 ) );
+        assertEquals( 3, query.getStart( 3 ) );
+        assertEquals( 3, query.getEnd( 3 ) );
+
+        query = ListQuery.parse( "5", String.valueOf( Integer.MAX_VALUE ), null, null, SORT_KEYS );
+        assertEquals( 100, query.getEnd( 100 ) );
+    }
+
+
+    public void test_parse_sort()
+    {
+        ListQuery query = ListQuery.parse( null, null, "name", null, SORT_KEYS );
+        assertEquals( "name", query.sort );
+        assertFalse( query.descending );
+
+        query = ListQuery.parse( null, null, "-id", null, SORT_KEYS );
+        assertEquals( "id", query.sort );
+        assertTrue( query.descending );
+    }
+
+
+    public void test_parse_invalid()
+    {
+        assertInvalid( "x", null, null );
+        assertInvalid( "-1", null, null );
+        assertInvalid( null, "1.5", null );
+        assertInvalid( null, null, "state" );
+    }
+
+
+    public void test_select_fields()
+    {
+        ListQuery query = ListQuery.parse( null, null, null, "id, name", SORT_KEYS );
+        assertTrue( query.includes( "id" ) );
+        assertTrue( query.includes( "name" ) );
+        assertFalse( query.includes( "state" ) );
+
+        Map<String, Object> entry = new HashMap<String, Object>();
+        entry.put( "id", "1" );
+        entry.put( "name", "bundle" );
+        entry.put( "state", "Active" );
+        assertSame( entry, query.select( entry ) );
+        assertEquals( 2, entry.size() );
+        assertFalse( entry.containsKey( "state" ) );
+    }
+
+
+    public void test_etag_matches()
+    {
+        final String etag = "\"abc-1-2\"";
+        assertFalse( FrameworkStateGeneration.matches( null, etag ) );
+        assertFalse( FrameworkStateGeneration.matches( "\"abc-1-3\"", etag ) );
+        assertTrue( FrameworkStateGeneration.matches( etag, etag ) );
+        assertTrue( FrameworkStateGeneration.matches( "\"x\", W/" + etag, etag ) );
+        assertTrue( FrameworkStateGeneration.matches( "*", etag ) );
+    }
+
+
+    private void assertInvalid( final String offset, final String limit, final String sort )
+    {
+        try
+        {
+            ListQuery.parse( offset, limit, sort, null, SORT_KEYS );
+            fail( "Expected IllegalArgumentException" );
+        }
+        catch ( IllegalArgumentException iae )
+        {
+            // expected
+        }
+    }
+}